@@ -1,9 +1,90 @@
 package com.luckytapu.fusioncore.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// One bounded pool per ingest stage (parse, split, embed, persist) so a slow stage, usually
+// embedding, queues up on its own instead of starving the others. Defining these beans would
+// normally make Spring Boot skip its applicationTaskExecutor, so application.yaml sets
+// spring.task.execution.mode=force to keep it for MVC; @Async methods name the pool they run on.
+// spring.threads.virtual.enabled moves the blocking stages onto virtual threads capped by semaphores.
 @Configuration
 @EnableAsync
 public class AsyncConfig {
-}
\ No newline at end of file
+
+    public static final String PARSING_EXECUTOR = "parsingExecutor";
+    public static final String SPLITTING_EXECUTOR = "splittingExecutor";
+    public static final String EMBEDDING_EXECUTOR = "embeddingExecutor";
+    public static final String PERSISTENCE_EXECUTOR = "persistenceExecutor";
+
+    // CPU-bound: parsing and splitter analysis; 0 threads means one per core. Stays on platform
+    // threads in virtual-thread mode since more threads than cores would not parse any faster.
+    @Bean(PARSING_EXECUTOR)
+    public ThreadPoolTaskExecutor parsingExecutor(
+            @Value("${fusioncore.executors.parsing.threads:0}") int threads,
+            @Value("${fusioncore.executors.parsing.queue-capacity:100}") int queueCapacity,
+            @Value("${fusioncore.executors.parsing.rejection-policy:caller-runs}") String rejectionPolicy) {
+        return boundedExecutor("parse-", threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                queueCapacity, rejectionPolicy);
+    }
+
+    // CPU-bound: splitting a parsed document into chunks for embedding
+    @Bean(SPLITTING_EXECUTOR)
+    public ThreadPoolTaskExecutor splittingExecutor(
+            @Value("${fusioncore.executors.splitting.threads:0}") int threads,
+            @Value("${fusioncore.executors.splitting.queue-capacity:100}") int queueCapacity,
+            @Value("${fusioncore.executors.splitting.rejection-policy:caller-runs}") String rejectionPolicy) {
+        return boundedExecutor("split-", threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                queueCapacity, rejectionPolicy);
+    }
+
+    // I/O-bound: Azure embedding calls. With virtual threads, threads is the number of concurrent calls.
+    @Bean(EMBEDDING_EXECUTOR)
+    public TaskExecutor embeddingExecutor(
+            @Value("${fusioncore.executors.embedding.threads:16}") int threads,
+            @Value("${fusioncore.executors.embedding.queue-capacity:500}") int queueCapacity,
+            @Value("${fusioncore.executors.embedding.rejection-policy:caller-runs}") String rejectionPolicy,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return virtualThreads
+                ? new VirtualThreadExecutor("embed-", threads, queueCapacity, rejectionPolicy)
+                : boundedExecutor("embed-", threads, queueCapacity, rejectionPolicy);
+    }
+
+    // Database writes; keep threads (or concurrent writes, with virtual threads) below the connection pool size
+    @Bean(PERSISTENCE_EXECUTOR)
+    public TaskExecutor persistenceExecutor(
+            @Value("${fusioncore.executors.persistence.threads:4}") int threads,
+            @Value("${fusioncore.executors.persistence.queue-capacity:100}") int queueCapacity,
+            @Value("${fusioncore.executors.persistence.rejection-policy:caller-runs}") String rejectionPolicy,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return virtualThreads
+                ? new VirtualThreadExecutor("persist-", threads, queueCapacity, rejectionPolicy)
+                : boundedExecutor("persist-", threads, queueCapacity, rejectionPolicy);
+    }
+
+    // Pool for work whose concurrency is already capped by the caller; thread per task with virtual threads
+    public static ExecutorService workerPool(String threadNamePrefix, int threads, boolean virtualThreads) {
+        return virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory())
+                : Executors.newFixedThreadPool(Math.max(1, threads), Thread.ofPlatform().name(threadNamePrefix, 0).daemon().factory());
+    }
+
+    static ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int threads, int queueCapacity, String rejectionPolicy) {
+        ThreadPoolTaskExecutor executor = new TimedThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(Math.max(1, threads));
+        executor.setMaxPoolSize(Math.max(1, threads));
+        executor.setQueueCapacity(Math.max(0, queueCapacity));
+        executor.setRejectedExecutionHandler(CountingRejectedExecutionHandler.forPolicy(rejectionPolicy));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,49 @@
+package com.luckytapu.fusioncore.config;
+
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+// Applies the configured policy and counts how often a pool was saturated
+public class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+    private final String policy;
+    private final RejectedExecutionHandler delegate;
+    private final LongAdder rejected = new LongAdder();
+
+    private CountingRejectedExecutionHandler(String policy, RejectedExecutionHandler delegate) {
+        this.policy = policy;
+        this.delegate = delegate;
+    }
+
+    // caller-runs slows the submitter down instead of failing, which is the backpressure ingest wants.
+    // The stages run CompletableFuture tasks, and a discarded task leaves its future incomplete forever,
+    // so the discard policies are refused rather than letting join() hang.
+    public static CountingRejectedExecutionHandler forPolicy(String policy) {
+        String normalized = policy == null ? "caller-runs" : policy.trim().toLowerCase(Locale.ROOT);
+        RejectedExecutionHandler delegate = switch (normalized) {
+            case "caller-runs" -> new ThreadPoolExecutor.CallerRunsPolicy();
+            case "abort" -> new ThreadPoolExecutor.AbortPolicy();
+            case "discard", "discard-oldest" -> throw new IllegalArgumentException("Rejection policy " + policy
+                    + " would leave rejected tasks' futures incomplete (expected caller-runs or abort)");
+            default -> throw new IllegalArgumentException("Unknown rejection policy: " + policy
+                    + " (expected caller-runs or abort)");
+        };
+        return new CountingRejectedExecutionHandler(normalized, delegate);
+    }
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        rejected.increment();
+        delegate.rejectedExecution(task, executor);
+    }
+
+    public String policy() {
+        return policy;
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -1,12 +1,16 @@
 package com.luckytapu.fusioncore.config;
 
 import com.luckytapu.fusioncore.service.DirectAzureEmbeddingModel;
+import com.luckytapu.fusioncore.service.EmbeddingPriority;
+import com.luckytapu.fusioncore.service.EmbeddingScheduler;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Map;
+
 @Configuration
 @Slf4j
 public class LangChain4jConfig {
@@ -20,9 +24,33 @@ public class LangChain4jConfig {
     @Value("${embedding.azureOpenAIEmbeddingDeploymentName}")
     private String deploymentName;
 
+    @Value("${fusioncore.embedding.max-concurrent-requests:32}")
+    private int maxConcurrentRequests;
+
+    @Value("${fusioncore.embedding.lanes.reserved-interactive:4}")
+    private int reservedInteractive;
+
+    @Value("${fusioncore.embedding.lanes.interactive-weight:8}")
+    private int interactiveWeight;
+
+    @Value("${fusioncore.embedding.lanes.ingest-weight:3}")
+    private int ingestWeight;
+
+    @Value("${fusioncore.embedding.lanes.bulk-weight:1}")
+    private int bulkWeight;
+
+    // Search, single-document ingest and bulk work share one Azure rate limit
+    @Bean
+    public EmbeddingScheduler embeddingScheduler() {
+        return new EmbeddingScheduler(maxConcurrentRequests, reservedInteractive, Map.of(
+                EmbeddingPriority.INTERACTIVE, interactiveWeight,
+                EmbeddingPriority.INGEST, ingestWeight,
+                EmbeddingPriority.BULK, bulkWeight));
+    }
+
     @Bean
-    public EmbeddingModel embeddingModel() {
+    public EmbeddingModel embeddingModel(EmbeddingScheduler embeddingScheduler) {
         log.info("Creating Direct Azure OpenAI Embedding Model");
-        return new DirectAzureEmbeddingModel(apiKey, endpoint, deploymentName);
+        return new DirectAzureEmbeddingModel(apiKey, endpoint, deploymentName, embeddingScheduler);
     }
 }
\ No newline at end of file
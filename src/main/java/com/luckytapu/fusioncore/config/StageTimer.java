@@ -0,0 +1,115 @@
+package com.luckytapu.fusioncore.config;
+
+import org.springframework.core.task.TaskDecorator;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+// Records how long each task waited between submission and start, and how long it ran, so a stage
+// that is the bottleneck shows up as high utilization and growing queue waits. Figures cover the
+// current and the previous window only, so a past burst ages out instead of being averaged into
+// the whole uptime.
+public class StageTimer implements TaskDecorator {
+
+    static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<Windows> windows;
+
+    public StageTimer() {
+        this(DEFAULT_WINDOW, System::nanoTime);
+    }
+
+    StageTimer(Duration window, LongSupplier clock) {
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+        this.windows = new AtomicReference<>(new Windows(null, new Window(clock.getAsLong())));
+    }
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        long submitted = clock.getAsLong();
+        return () -> {
+            long start = clock.getAsLong();
+            long waited = start - submitted;
+            Window window = windows(start).current();
+            window.started.increment();
+            window.waitNanos.add(waited);
+            window.maxWaitNanos.accumulateAndGet(waited, Math::max);
+            try {
+                task.run();
+            } finally {
+                long end = clock.getAsLong();
+                // A task spanning a rotation is counted in the window it finished in
+                windows(end).current().busyNanos.add(end - start);
+            }
+        };
+    }
+
+    public double averageQueueWaitMillis() {
+        Windows current = windows(clock.getAsLong());
+        long count = current.sum(window -> window.started.sum());
+        return count == 0 ? 0 : current.sum(window -> window.waitNanos.sum()) / 1e6 / count;
+    }
+
+    public double maxQueueWaitMillis() {
+        Windows current = windows(clock.getAsLong());
+        long previous = current.previous() != null ? current.previous().maxWaitNanos.get() : 0;
+        return Math.max(previous, current.current().maxWaitNanos.get()) / 1e6;
+    }
+
+    // Share of the stage's thread (or permit) time spent running tasks over the reported windows
+    public double utilization(int threads) {
+        long now = clock.getAsLong();
+        Windows current = windows(now);
+        long elapsed = now - current.start();
+        return elapsed <= 0 || threads <= 0 ? 0
+                : Math.min(1.0, (double) current.sum(window -> window.busyNanos.sum()) / ((double) elapsed * threads));
+    }
+
+    // Rotated lazily by whoever records or reads first once the current window is over; after two
+    // idle windows nothing recorded is recent enough to keep
+    private Windows windows(long now) {
+        while (true) {
+            Windows current = windows.get();
+            long age = now - current.current().start;
+            if (age < windowNanos) {
+                return current;
+            }
+            Windows rotated = age < 2 * windowNanos
+                    ? new Windows(current.current(), new Window(current.current().start + windowNanos))
+                    : new Windows(null, new Window(now));
+            if (windows.compareAndSet(current, rotated)) {
+                return rotated;
+            }
+        }
+    }
+
+    private record Windows(Window previous, Window current) {
+
+        long start() {
+            return previous != null ? previous.start : current.start;
+        }
+
+        long sum(ToLongFunction<Window> value) {
+            return (previous != null ? value.applyAsLong(previous) : 0) + value.applyAsLong(current);
+        }
+    }
+
+    private static final class Window {
+        private final long start;
+        private final LongAdder started = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+}
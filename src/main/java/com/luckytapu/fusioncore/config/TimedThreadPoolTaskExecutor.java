@@ -0,0 +1,17 @@
+package com.luckytapu.fusioncore.config;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// A ThreadPoolTaskExecutor whose tasks are timed by a StageTimer
+public class TimedThreadPoolTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private final StageTimer stageTimer = new StageTimer();
+
+    public TimedThreadPoolTaskExecutor() {
+        setTaskDecorator(stageTimer);
+    }
+
+    public StageTimer getStageTimer() {
+        return stageTimer;
+    }
+}
@@ -0,0 +1,101 @@
+package com.luckytapu.fusioncore.config;
+
+import com.luckytapu.fusioncore.model.ExecutorStats;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// One virtual thread per task, with a semaphore capping how many run at once. Tasks waiting for a
+// permit are parked virtual threads rather than queue entries, so the cap is purely the concurrency
+// allowed toward the backend (Azure or the connection pool), not a thread budget.
+public class VirtualThreadExecutor implements TaskExecutor {
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final int maxWaiting;
+    private final String rejectionPolicy;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final StageTimer stageTimer = new StageTimer();
+
+    public VirtualThreadExecutor(String threadNamePrefix, int maxConcurrency, int maxWaiting, String rejectionPolicy) {
+        this.threadFactory = Thread.ofVirtual().name(threadNamePrefix, 0).factory();
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency, true);
+        this.maxWaiting = Math.max(0, maxWaiting);
+        this.rejectionPolicy = CountingRejectedExecutionHandler.forPolicy(rejectionPolicy).policy();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        // Queue wait includes the time spent parked waiting for a permit
+        Runnable task = stageTimer.decorate(command);
+        if (permits.availablePermits() == 0 && waiting.get() >= maxWaiting) {
+            reject(task);
+            return;
+        }
+        waiting.incrementAndGet();
+        threadFactory.newThread(() -> {
+            permits.acquireUninterruptibly();
+            waiting.decrementAndGet();
+            runHoldingPermit(task);
+        }).start();
+    }
+
+    public ExecutorStats stats(String name) {
+        int parked = waiting.get();
+        return ExecutorStats.builder()
+                .name(name)
+                .virtualThreads(true)
+                .poolSize(active.get())
+                .maxPoolSize(maxConcurrency)
+                .activeCount(active.get())
+                .queueDepth(parked)
+                .queueRemainingCapacity(Math.max(0, maxWaiting - parked))
+                .completedTaskCount(completed.sum())
+                .rejectionPolicy(rejectionPolicy)
+                .rejectedCount(rejected.sum())
+                .averageQueueWaitMs(stageTimer.averageQueueWaitMillis())
+                .maxQueueWaitMs(stageTimer.maxQueueWaitMillis())
+                .utilization(stageTimer.utilization(maxConcurrency))
+                .build();
+    }
+
+    // Same policies as the platform pools; forPolicy admits only caller-runs and abort. Like
+    // CallerRunsPolicy, caller-runs takes no permit: the embedding and persistence stages submit to
+    // each other, so a caller blocking on a permit here could wait on a stage that is waiting on it.
+    private void reject(Runnable task) {
+        rejected.increment();
+        if (rejectionPolicy.equals("caller-runs")) {
+            run(task);
+            return;
+        }
+        throw new RejectedExecutionException("Executor saturated: " + maxConcurrency
+                + " running and " + waiting.get() + " waiting");
+    }
+
+    private void runHoldingPermit(Runnable task) {
+        try {
+            run(task);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void run(Runnable task) {
+        active.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+            completed.increment();
+        }
+    }
+}
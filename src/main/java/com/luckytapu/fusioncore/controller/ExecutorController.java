@@ -0,0 +1,36 @@
+package com.luckytapu.fusioncore.controller;
+
+import com.luckytapu.fusioncore.model.EmbeddingLaneStats;
+import com.luckytapu.fusioncore.model.ExecutorStats;
+import com.luckytapu.fusioncore.service.EmbeddingScheduler;
+import com.luckytapu.fusioncore.service.ExecutorMonitor;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/executors")
+@RequiredArgsConstructor
+public class ExecutorController {
+    private final ExecutorMonitor executorMonitor;
+    private final EmbeddingScheduler embeddingScheduler;
+
+    @GetMapping
+    @Operation(description = "Queue depth, active threads, rejections, queue waits and utilization of the parsing, splitting, embedding and persistence pools",
+            summary = "Ingest executor metrics")
+    public ResponseEntity<List<ExecutorStats>> getExecutorStats() {
+        return ResponseEntity.ok(executorMonitor.stats());
+    }
+
+    @GetMapping("/embedding-lanes")
+    @Operation(description = "In-flight and queued embedding requests, permit limits and waits of the interactive, ingest and bulk lanes",
+            summary = "Embedding lane metrics")
+    public ResponseEntity<List<EmbeddingLaneStats>> getEmbeddingLaneStats() {
+        return ResponseEntity.ok(embeddingScheduler.stats());
+    }
+}
@@ -1,21 +1,45 @@
 package com.luckytapu.fusioncore.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
 import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.BatchSearchRequest;
+import com.luckytapu.fusioncore.model.BatchSearchResult;
+import com.luckytapu.fusioncore.model.BulkImportReport;
+import com.luckytapu.fusioncore.model.BulkImportRequest;
+import com.luckytapu.fusioncore.model.ChunkSummary;
 import com.luckytapu.fusioncore.model.ChunkingReport;
 import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
+import com.luckytapu.fusioncore.model.SearchFilter;
 import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.service.BulkImportService;
 import com.luckytapu.fusioncore.service.FileService;
+import com.luckytapu.fusioncore.service.IngestionJobService;
 import com.luckytapu.fusioncore.service.VectorSearchService;
-import com.luckytapu.fusioncore.entity.ChunkEntity;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -24,6 +48,22 @@ import java.util.UUID;
 public class FileController {
     private final FileService fileService;
     private final VectorSearchService vectorSearchService;
+    private final IngestionJobService ingestionJobService;
+    private final BulkImportService bulkImportService;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${fusioncore.chunks.page-size:500}")
+    private int defaultChunkPageSize;
+    
+    @Value("${fusioncore.chunks.max-page-size:1000}")
+    private int maxChunkPageSize;
+    
+    // A streamed batch stays open while its files process; the container's default async timeout is 30s
+    @Value("${fusioncore.processing.batch.stream-timeout:PT1H}")
+    private Duration batchStreamTimeout;
+    
+    @Value("${fusioncore.search.batch.max-queries:256}")
+    private int maxBatchQueries;
 
     // Legacy endpoints (kept for backward compatibility)
     @PostMapping(value = "/upload", consumes = "multipart/form-data")
@@ -45,22 +85,61 @@ public class FileController {
     @Operation(description = "Process document with optional embeddings", summary = "Streamlined endpoint for complete document processing")
     public ResponseEntity<DocumentProcessingResult> processDocument(
             @Parameter(description = "Document file to process") @RequestParam("file") MultipartFile file,
-            @Parameter(description = "Generate embeddings") @RequestParam(defaultValue = "true") boolean generateEmbeddings) throws IOException {
-        DocumentProcessingResult result = fileService.processDocument(file, generateEmbeddings);
+            @Parameter(description = "Generate embeddings") @RequestParam(defaultValue = "true") boolean generateEmbeddings,
+            @Parameter(description = "Process again even if identical content was already processed") @RequestParam(defaultValue = "false") boolean force) throws IOException {
+        DocumentProcessingResult result = fileService.processDocument(file, generateEmbeddings, force);
         return ResponseEntity.ok(result);
     }
     
     @PostMapping(value = "/process-async", consumes = "multipart/form-data")
-    @Operation(description = "Process document asynchronously", summary = "Async processing for large documents")
-    public CompletableFuture<ResponseEntity<DocumentProcessingResult>> processDocumentAsync(
+    @Operation(description = "Queue a document for processing and return the job to poll", summary = "Async processing for large documents")
+    public ResponseEntity<IngestionJobEntity> processDocumentAsync(
             @Parameter(description = "Document file to process") @RequestParam("file") MultipartFile file,
-            @Parameter(description = "Generate embeddings") @RequestParam(defaultValue = "true") boolean generateEmbeddings) {
-        return fileService.processDocumentAsync(file, generateEmbeddings)
-                .thenApply(ResponseEntity::ok);
+            @Parameter(description = "Generate embeddings") @RequestParam(defaultValue = "true") boolean generateEmbeddings) throws IOException {
+        IngestionJobEntity job = ingestionJobService.submit(file, generateEmbeddings);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/files/jobs/{jobId}")
+                        .buildAndExpand(job.getJobId())
+                        .toUri())
+                .body(job);
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    @Operation(description = "Status and progress of a queued processing job", summary = "Poll an async processing job")
+    public ResponseEntity<IngestionJobEntity> getJob(@Parameter(description = "Job id returned by process-async") @PathVariable UUID jobId) {
+        return ingestionJobService.findJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/imports")
+    @Operation(description = "Import every document in a server-side directory or ZIP/TAR archive under the import root", summary = "Queue a bulk import")
+    public ResponseEntity<BulkImportEntity> startBulkImport(@RequestBody BulkImportRequest request) {
+        BulkImportEntity bulkImport;
+        try {
+            bulkImport = bulkImportService.submit(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/files/imports/{importId}")
+                        .buildAndExpand(bulkImport.getImportId())
+                        .toUri())
+                .body(bulkImport);
+    }
+    
+    @GetMapping("/imports/{importId}")
+    @Operation(description = "Progress, docs/sec, bytes/sec and ETA of a bulk import", summary = "Poll a bulk import")
+    public ResponseEntity<BulkImportReport> getBulkImport(@Parameter(description = "Import id returned when the import was queued") @PathVariable UUID importId) {
+        return bulkImportService.findReport(importId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
     
     @PostMapping(value = "/batch-process", consumes = "multipart/form-data")
-    @Operation(description = "Process multiple documents", summary = "Batch processing for multiple files")
+    @Operation(description = "Process multiple documents concurrently; results are returned in upload order", summary = "Batch processing for multiple files")
     public ResponseEntity<List<DocumentProcessingResult>> processBatch(
             @Parameter(description = "Files to process") @RequestParam("files") List<MultipartFile> files,
             @Parameter(description = "Generate embeddings") @RequestParam(defaultValue = "true") boolean generateEmbeddings) {
@@ -68,21 +147,161 @@ public class FileController {
         return ResponseEntity.ok(results);
     }
     
+    @PostMapping(value = "/batch-process/stream", consumes = "multipart/form-data", produces = "application/x-ndjson")
+    @Operation(description = "Process multiple documents concurrently, writing each result as a JSON line when its file finishes", summary = "Streamed batch processing")
+    public ResponseEntity<StreamingResponseBody> processBatchStream(
+            @Parameter(description = "Files to process") @RequestParam("files") List<MultipartFile> files,
+            @Parameter(description = "Generate embeddings") @RequestParam(defaultValue = "true") boolean generateEmbeddings,
+            WebRequest webRequest) {
+        // StreamingResponseBody takes the timeout of the request's async processing, so set it for this endpoint alone
+        WebAsyncUtils.getAsyncManager(webRequest).getAsyncWebRequest().setTimeout(batchStreamTimeout.toMillis());
+        StreamingResponseBody body = out -> fileService.processBatch(files, generateEmbeddings, result -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+    
     @GetMapping("/search")
     @Operation(description = "Search documents by semantic similarity", summary = "Vector-based document search")
     public ResponseEntity<List<SearchResult>> searchDocuments(
             @Parameter(description = "Search query") @RequestParam String query,
-            @Parameter(description = "Maximum results") @RequestParam(defaultValue = "10") int limit) {
-        List<SearchResult> results = fileService.searchDocuments(query, limit);
+            @Parameter(description = "Maximum results, capped by fusioncore.search.max-results") @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "Minimum similarity score; defaults to fusioncore.search.similarity-threshold") @RequestParam(required = false) Double minSimilarity,
+            @Parameter(description = "Only search these files") @RequestParam(required = false) List<UUID> fileId,
+            @Parameter(description = "Chunking strategy filter") @RequestParam(required = false) String strategy,
+            @Parameter(description = "File type filter") @RequestParam(required = false) String fileType,
+            @Parameter(description = "Uploaded at or after (ISO date-time)") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime uploadedAfter,
+            @Parameter(description = "Uploaded before (ISO date-time)") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime uploadedBefore) {
+        SearchFilter filter = SearchFilter.builder()
+                .fileIds(fileId != null ? new LinkedHashSet<>(fileId) : null)
+                .strategy(strategy)
+                .fileType(fileType)
+                .uploadedAfter(uploadedAfter)
+                .uploadedBefore(uploadedBefore)
+                .build();
+        List<SearchResult> results = fileService.searchDocuments(query, limit, filter, minSimilarity);
         return ResponseEntity.ok(results);
     }
     
+    @PostMapping("/search/batch")
+    @Operation(description = "Search with many queries in one request; results are returned per query, in order", summary = "Batch vector search")
+    public ResponseEntity<List<BatchSearchResult>> searchDocumentsBatch(@RequestBody BatchSearchRequest request) {
+        List<String> queries = request.getQueries();
+        if (queries == null || queries.isEmpty() || queries.size() > maxBatchQueries) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        int limit = request.getLimit() != null ? request.getLimit() : 10;
+        SearchFilter filter = request.getFilter() != null ? request.getFilter() : SearchFilter.none();
+        List<List<SearchResult>> results = vectorSearchService.searchBatch(queries, limit, filter, request.getMinSimilarity());
+        
+        List<BatchSearchResult> response = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            response.add(BatchSearchResult.builder().query(queries.get(i)).results(results.get(i)).build());
+        }
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/chunks/{chunkId}/similar")
+    @Operation(description = "Find chunks similar to a stored chunk, reusing its embedding", summary = "More like this")
+    public ResponseEntity<List<SearchResult>> findSimilarChunks(
+            @Parameter(description = "Chunk ID") @PathVariable UUID chunkId,
+            @Parameter(description = "Maximum results, capped by fusioncore.search.max-results") @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "Leave out every chunk of the source file") @RequestParam(defaultValue = "false") boolean excludeSourceFile,
+            @Parameter(description = "Leave out source file chunks within this many indexes of the source chunk") @RequestParam(defaultValue = "0") int excludeNeighbors,
+            @Parameter(description = "Minimum similarity score; defaults to fusioncore.search.similarity-threshold") @RequestParam(required = false) Double minSimilarity) {
+        return vectorSearchService.searchSimilarToChunk(chunkId, limit, excludeSourceFile, excludeNeighbors, minSimilarity)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
     @GetMapping("/{fileId}/chunks")
-    @Operation(description = "Get chunks for a document", summary = "Retrieve stored chunks for a specific document")
-    public ResponseEntity<List<ChunkEntity>> getDocumentChunks(
+    @Operation(description = "Get chunks for a document, one keyset page at a time", summary = "Retrieve stored chunks for a specific document")
+    public ResponseEntity<List<ChunkSummary>> getDocumentChunks(
+            @Parameter(description = "File ID") @PathVariable UUID fileId,
+            @Parameter(description = "Chunking strategy filter") @RequestParam(required = false) String strategy,
+            @Parameter(description = "Return chunks after this chunk index") @RequestParam(defaultValue = "-1") int afterIndex,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
+        Optional<Long> generation = vectorSearchService.getActiveGeneration(fileId);
+        if (generation.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(chunksETag(fileId, generation.get(), "json"))) {
+            return null;
+        }
+        
+        int pageSize = Math.max(1, Math.min(size != null ? size : defaultChunkPageSize, maxChunkPageSize));
+        List<ChunkSummary> chunks = vectorSearchService.getDocumentChunkPage(fileId, strategy, afterIndex, pageSize);
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (chunks.size() == pageSize) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("afterIndex", chunks.get(chunks.size() - 1).getChunkIndex())
+                    .replaceQueryParam("size", pageSize)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(chunks);
+    }
+    
+    @GetMapping("/{fileId}/embeddings")
+    @Operation(description = "Pending, embedded and failed chunk counts of the document's latest generation", summary = "Check embedding progress")
+    public ResponseEntity<EmbeddingProgress> getEmbeddingProgress(@Parameter(description = "File ID") @PathVariable UUID fileId) {
+        return fileService.getEmbeddingProgress(fileId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/{fileId}/embeddings/resume")
+    @Operation(description = "Re-embed only the pending or failed chunks of an incomplete ingest, then publish it", summary = "Resume an incomplete ingest")
+    public ResponseEntity<EmbeddingProgress> resumeEmbeddings(@Parameter(description = "File ID") @PathVariable UUID fileId) {
+        try {
+            return ResponseEntity.ok(fileService.resumeEmbeddings(fileId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @GetMapping(value = "/{fileId}/chunks/stream", produces = "application/x-ndjson")
+    @Operation(description = "Stream all chunks for a document as newline-delimited JSON", summary = "Stream stored chunks for a specific document")
+    public ResponseEntity<StreamingResponseBody> streamDocumentChunks(
             @Parameter(description = "File ID") @PathVariable UUID fileId,
-            @Parameter(description = "Chunking strategy filter") @RequestParam(required = false) String strategy) {
-        List<ChunkEntity> chunks = vectorSearchService.getDocumentChunks(fileId, strategy);
-        return ResponseEntity.ok(chunks);
+            @Parameter(description = "Chunking strategy filter") @RequestParam(required = false) String strategy,
+            WebRequest webRequest) {
+        Optional<Long> generation = vectorSearchService.getActiveGeneration(fileId);
+        if (generation.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(chunksETag(fileId, generation.get(), "ndjson"))) {
+            return null;
+        }
+        
+        StreamingResponseBody body = out -> vectorSearchService.streamDocumentChunks(fileId, strategy, chunk -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(chunk));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+    
+    // Chunk listings only change when a re-index flips the file's active generation
+    private String chunksETag(UUID fileId, long generation, String format) {
+        return "\"" + fileId + "-" + generation + "-" + format + "\"";
     }
 }
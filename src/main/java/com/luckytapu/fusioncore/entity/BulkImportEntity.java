@@ -0,0 +1,66 @@
+package com.luckytapu.fusioncore.entity;
+
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "bulk_imports")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkImportEntity {
+
+    @Id
+    @GeneratedValue
+    @Column(columnDefinition = "UUID")
+    private UUID importId;
+
+    // Directory or archive path relative to fusioncore.bulk-import.root
+    @Column(nullable = false, length = 1024)
+    private String source;
+
+    private boolean generateEmbeddings;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IngestionJobStatus status;
+
+    // Counted once, on the first run
+    private Long totalEntries;
+    private Long totalBytes;
+
+    private long processedEntries;
+    private long failedEntries;
+    private long processedBytes;
+
+    // Rates are measured over the current run only, so downtime before a resume does not skew them
+    private LocalDateTime runStartedDate;
+    private long runStartEntries;
+    private long runStartBytes;
+
+    // Claims so far, including ones whose worker died mid-run
+    private int attempts;
+
+    // Worker holding the import; locked_at doubles as the lease heartbeat
+    private String lockedBy;
+    private LocalDateTime lockedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime createdDate;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedDate;
+
+    private LocalDateTime completedDate;
+}
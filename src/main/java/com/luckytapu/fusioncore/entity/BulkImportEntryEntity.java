@@ -0,0 +1,47 @@
+package com.luckytapu.fusioncore.entity;
+
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Checkpoint for one finished entry of a bulk import
+@Entity
+@Table(name = "bulk_import_entries",
+        uniqueConstraints = @UniqueConstraint(name = "uk_bulk_import_entries_name", columnNames = {"import_id", "entry_name"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkImportEntryEntity {
+
+    @Id
+    @GeneratedValue
+    @Column(columnDefinition = "UUID")
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID importId;
+
+    @Column(nullable = false, length = 1024)
+    private String entryName;
+
+    // SUCCEEDED or FAILED
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IngestionJobStatus status;
+
+    private UUID fileId;
+
+    private long sizeBytes;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime completedDate;
+}
@@ -0,0 +1,31 @@
+package com.luckytapu.fusioncore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+@Entity
+@Table(name = "chunk_embeddings")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChunkEmbeddingEntity {
+
+    @Id
+    @Column(columnDefinition = "UUID")
+    private UUID chunkId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "chunk_id")
+    private ChunkEntity chunk;
+
+    @Column(nullable = false)
+    private UUID fileId;
+
+    @Column(columnDefinition = "BYTEA", nullable = false)
+    private byte[] embedding;
+}
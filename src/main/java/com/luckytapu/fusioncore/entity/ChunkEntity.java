@@ -1,10 +1,12 @@
 package com.luckytapu.fusioncore.entity;
 
+import com.luckytapu.fusioncore.model.ChunkEmbeddingState;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.UUID;
 
@@ -25,9 +27,6 @@ public class ChunkEntity {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String text;
     
-    @Column(columnDefinition = "BYTEA")
-    private byte[] embedding;
-    
     @Column(nullable = false)
     private Integer chunkIndex;
     
@@ -37,6 +36,24 @@ public class ChunkEntity {
     @Column
     private Integer textLength;
     
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long generation;
+    
+    // Chunks written before an ingest finishes stay PENDING until their batch is embedded
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @ColumnDefault("'EMBEDDED'")
+    @Builder.Default
+    private ChunkEmbeddingState embeddingState = ChunkEmbeddingState.EMBEDDED;
+    
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int embeddingAttempts;
+    
+    @Column(length = 1000)
+    private String embeddingError;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fileId", insertable = false, updatable = false)
     private FileEntity file;
@@ -2,6 +2,7 @@ package com.luckytapu.fusioncore.entity;
 import com.luckytapu.fusioncore.model.FileStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -31,9 +32,23 @@ public class FileEntity {
     @Column(columnDefinition = "BYTEA")
     private byte[] vectorData;
 
+    // Hex SHA-256 of data; repeat uploads are matched on it instead of being processed again
+    @Column(length = 64)
+    private String contentHash;
+
     @Enumerated(EnumType.STRING)
     private FileStatus status;
 
+    // Only ever advanced by FileRepository queries so entity saves can't roll it back
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long activeGeneration;
+
+    // Newest generation written by an ingest; ahead of activeGeneration while one is incomplete
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long stagedGeneration;
+
     @CreationTimestamp
     private LocalDateTime createdDate;
 
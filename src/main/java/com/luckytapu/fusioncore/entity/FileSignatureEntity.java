@@ -0,0 +1,41 @@
+package com.luckytapu.fusioncore.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+// MinHash signature of a file's chunk texts, indexed by its LSH band buckets for near-duplicate lookup
+@Entity
+@Table(name = "file_signatures")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileSignatureEntity {
+
+    @Id
+    @Column(columnDefinition = "UUID")
+    private UUID fileId;
+
+    @Column(columnDefinition = "BYTEA", nullable = false)
+    private byte[] signature;
+
+    private int shingleCount;
+
+    // Files sharing any bucket are candidates; their signatures decide how similar they really are
+    @ElementCollection
+    @CollectionTable(name = "file_signature_bands", joinColumns = @JoinColumn(name = "file_id"),
+            indexes = @Index(name = "idx_file_signature_bands_bucket", columnList = "bucket"))
+    @Column(name = "bucket", nullable = false)
+    @Builder.Default
+    private Set<Long> bandBuckets = new HashSet<>();
+
+    @UpdateTimestamp
+    private LocalDateTime updatedDate;
+}
@@ -0,0 +1,55 @@
+package com.luckytapu.fusioncore.entity;
+
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "ingestion_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionJobEntity {
+
+    @Id
+    @GeneratedValue
+    @Column(columnDefinition = "UUID")
+    private UUID jobId;
+
+    // The upload is stored before the job is queued, so any node can pick it up
+    @Column(nullable = false)
+    private UUID fileId;
+
+    private boolean generateEmbeddings;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IngestionJobStatus status;
+
+    // Percent complete, 0-100
+    private int progress;
+
+    private int attempts;
+
+    // Worker holding the job; locked_at doubles as the lease heartbeat
+    private String lockedBy;
+    private LocalDateTime lockedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime createdDate;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedDate;
+
+    private LocalDateTime completedDate;
+}
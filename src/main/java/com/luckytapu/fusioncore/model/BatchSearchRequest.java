@@ -0,0 +1,19 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSearchRequest {
+    private List<String> queries;
+    private Integer limit;
+    private Double minSimilarity;
+    private SearchFilter filter;
+}
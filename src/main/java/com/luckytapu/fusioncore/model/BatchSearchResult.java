@@ -0,0 +1,17 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSearchResult {
+    private String query;
+    private List<SearchResult> results;
+}
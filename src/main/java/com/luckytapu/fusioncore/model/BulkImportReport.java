@@ -0,0 +1,33 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportReport {
+    private UUID importId;
+    private String source;
+    private IngestionJobStatus status;
+    // Null until the first run has counted the source
+    private Long totalEntries;
+    private Long totalBytes;
+    private long processedEntries;
+    private long failedEntries;
+    private long processedBytes;
+    // Throughput of the current (or last) run
+    private double docsPerSecond;
+    private double bytesPerSecond;
+    // Null when not running or the rate is not known yet
+    private Long etaSeconds;
+    private String error;
+    private LocalDateTime createdDate;
+    private LocalDateTime completedDate;
+}
@@ -0,0 +1,17 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportRequest {
+    // Directory, .zip, .tar, .tar.gz or .tgz path relative to fusioncore.bulk-import.root
+    private String source;
+    @Builder.Default
+    private boolean generateEmbeddings = true;
+}
@@ -0,0 +1,7 @@
+package com.luckytapu.fusioncore.model;
+
+public enum ChunkEmbeddingState {
+    PENDING,
+    EMBEDDED,
+    FAILED
+}
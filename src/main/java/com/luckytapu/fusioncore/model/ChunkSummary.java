@@ -0,0 +1,19 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class ChunkSummary {
+    private UUID chunkId;
+    private UUID fileId;
+    private Integer chunkIndex;
+    private String strategy;
+    private String text;
+    private Integer textLength;
+}
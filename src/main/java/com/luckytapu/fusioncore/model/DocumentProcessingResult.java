@@ -4,12 +4,22 @@ import com.luckytapu.fusioncore.entity.FileEntity;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.UUID;
+
 @Data
 @Builder
 public class DocumentProcessingResult {
+    private String fileName;
+    private UUID fileId;
+    // Position in the submitted batch, so streamed results can be matched to their file
+    private Integer batchIndex;
     private FileEntity fileEntity;
     private ChunkingReport chunkingReport;
     private boolean embeddingsGenerated;
+    // Answered from an earlier upload with the same content; fileId points at that file
+    private boolean deduplicated;
+    // Set when the chunks were checked against the near-duplicate index
+    private NearDuplicateReport nearDuplicate;
     private String processingStatus;
     private long processingTimeMs;
 }
\ No newline at end of file
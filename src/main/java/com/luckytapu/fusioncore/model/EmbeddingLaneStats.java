@@ -0,0 +1,22 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingLaneStats {
+    private String lane;
+    private int weight;
+    // Permits this lane may hold; lower lanes can't use the ones reserved for interactive queries
+    private int permitLimit;
+    private int inFlight;
+    private int queued;
+    private long granted;
+    private double averageWaitMs;
+    private double maxWaitMs;
+}
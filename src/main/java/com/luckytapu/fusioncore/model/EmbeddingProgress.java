@@ -0,0 +1,30 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingProgress {
+    private UUID fileId;
+    // Latest generation written for the file, whether or not it is active yet
+    private long generation;
+    private boolean active;
+    private long pendingChunks;
+    private long embeddedChunks;
+    private long failedChunks;
+
+    public long getTotalChunks() {
+        return pendingChunks + embeddedChunks + failedChunks;
+    }
+
+    public boolean isComplete() {
+        return pendingChunks == 0 && failedChunks == 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutorStats {
+    private String name;
+    private boolean virtualThreads;
+    private int poolSize;
+    private int maxPoolSize;
+    private int activeCount;
+    private int queueDepth;
+    private int queueRemainingCapacity;
+    private long completedTaskCount;
+    private String rejectionPolicy;
+    private long rejectedCount;
+    // Queue waits and utilization cover the last one to two minutes, not the whole uptime
+    private double averageQueueWaitMs;
+    private double maxQueueWaitMs;
+    // Busy share of the stage's threads, 0-1
+    private double utilization;
+}
@@ -0,0 +1,8 @@
+package com.luckytapu.fusioncore.model;
+
+public enum IngestionJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
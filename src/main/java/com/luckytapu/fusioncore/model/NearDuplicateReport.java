@@ -0,0 +1,27 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearDuplicateReport {
+    private double threshold;
+    // Closest indexed file by MinHash estimate, whether or not it reached the threshold
+    private UUID matchedFileId;
+    private double similarity;
+    // True when similarity >= threshold and the embeddings of identical chunks were copied from the match
+    private boolean embeddingsReused;
+    // Only chunks whose text is exactly the text of one of the match's active chunks. A vector belongs
+    // to its chunk's text, so an edit that shifts later chunk boundaries (e.g. with the character
+    // splitter's fixed-size windows) leaves those chunks to be embedded again, however similar the files.
+    private int reusedChunks;
+    // Chunks sent to the embedding model
+    private int embeddedChunks;
+}
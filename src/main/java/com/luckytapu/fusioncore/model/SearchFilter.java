@@ -0,0 +1,52 @@
+package com.luckytapu.fusioncore.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+// Every attribute here is per file (a generation is chunked with one strategy), so a filter
+// resolves to a set of candidate files before any vector is scored
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFilter {
+    private Set<UUID> fileIds;
+    private String strategy;
+    private String fileType;
+    private LocalDateTime uploadedAfter;
+    private LocalDateTime uploadedBefore;
+    // Drops one file's chunks, e.g. the source file of a "more like this" search
+    private UUID excludedFileId;
+
+    public static SearchFilter none() {
+        return SearchFilter.builder().build();
+    }
+
+    public boolean isEmpty() {
+        return !restrictsFileIds() && !restrictsFileAttributes() && excludedFileId == null;
+    }
+
+    public boolean restrictsFileIds() {
+        return fileIds != null && !fileIds.isEmpty();
+    }
+
+    public boolean restrictsFileAttributes() {
+        return strategy != null || fileType != null || uploadedAfter != null || uploadedBefore != null;
+    }
+
+    // Same predicate the search queries apply in SQL, for backends that hold the file attributes in memory
+    public boolean matches(UUID fileId, String fileStrategy, String fileType, LocalDateTime createdDate) {
+        return (!restrictsFileIds() || fileIds.contains(fileId))
+                && !fileId.equals(excludedFileId)
+                && (strategy == null || strategy.equals(fileStrategy))
+                && (this.fileType == null || this.fileType.equals(fileType))
+                && (uploadedAfter == null || createdDate != null && !createdDate.isBefore(uploadedAfter))
+                && (uploadedBefore == null || createdDate != null && createdDate.isBefore(uploadedBefore));
+    }
+}
@@ -0,0 +1,18 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.BulkImportEntryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface BulkImportEntryRepository extends JpaRepository<BulkImportEntryEntity, UUID> {
+
+    // Entries a resumed import skips
+    @Query("SELECT e.entryName FROM BulkImportEntryEntity e WHERE e.importId = :importId")
+    List<String> findEntryNames(@Param("importId") UUID importId);
+
+    boolean existsByImportIdAndEntryName(UUID importId, String entryName);
+}
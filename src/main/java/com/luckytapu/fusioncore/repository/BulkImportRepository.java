@@ -0,0 +1,65 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface BulkImportRepository extends JpaRepository<BulkImportEntity, UUID> {
+
+    // Same claim rules as ingestion_jobs: queued imports, plus running ones whose worker stopped heartbeating
+    @Query(value = """
+        SELECT i.*
+        FROM bulk_imports i
+        WHERE i.status = 'QUEUED'
+           OR (i.status = 'RUNNING' AND i.locked_at < :staleBefore)
+        ORDER BY i.created_date
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<BulkImportEntity> lockClaimableImports(@Param("staleBefore") LocalDateTime staleBefore, @Param("limit") int limit);
+
+    // Returns 0 once another worker has reclaimed the import
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE BulkImportEntity i SET i.lockedAt = :now
+        WHERE i.importId = :importId AND i.lockedBy = :worker
+          AND i.status = com.luckytapu.fusioncore.model.IngestionJobStatus.RUNNING
+        """)
+    int heartbeat(@Param("importId") UUID importId, @Param("worker") String worker, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BulkImportEntity i SET i.totalEntries = :entries, i.totalBytes = :bytes WHERE i.importId = :importId")
+    int updateTotals(@Param("importId") UUID importId, @Param("entries") long entries, @Param("bytes") long bytes);
+
+    // Counters are bumped in place so concurrent entries never overwrite each other
+    @Modifying
+    @Query("""
+        UPDATE BulkImportEntity i
+        SET i.processedEntries = i.processedEntries + 1,
+            i.failedEntries = i.failedEntries + :failed,
+            i.processedBytes = i.processedBytes + :bytes
+        WHERE i.importId = :importId
+        """)
+    int addProcessed(@Param("importId") UUID importId, @Param("failed") int failed, @Param("bytes") long bytes);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE BulkImportEntity i
+        SET i.status = :status, i.error = :error, i.completedDate = :now
+        WHERE i.importId = :importId AND i.lockedBy = :worker
+          AND i.status = com.luckytapu.fusioncore.model.IngestionJobStatus.RUNNING
+        """)
+    int finish(@Param("importId") UUID importId, @Param("worker") String worker, @Param("status") IngestionJobStatus status,
+               @Param("error") String error, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,91 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.ChunkEmbeddingEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface ChunkEmbeddingRepository extends JpaRepository<ChunkEmbeddingEntity, UUID> {
+
+    // Ordered by file so callers can hand each file's embeddings over in one batch
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT e.chunkId AS chunkId, e.fileId AS fileId, c.generation AS generation, e.embedding AS embedding
+        FROM ChunkEmbeddingEntity e JOIN e.chunk c
+        WHERE c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = c.fileId)
+        ORDER BY e.fileId
+        """)
+    Stream<EmbeddingView> streamActiveEmbeddings();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT e.chunkId AS chunkId, e.fileId AS fileId, c.generation AS generation, e.embedding AS embedding
+        FROM ChunkEmbeddingEntity e JOIN e.chunk c
+        WHERE e.fileId IN :fileIds
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = c.fileId)
+        ORDER BY e.fileId
+        """)
+    Stream<EmbeddingView> streamActiveEmbeddings(@Param("fileIds") Collection<UUID> fileIds);
+
+    // Every embedding of one generation in chunk order, read back when a staged generation is activated
+    @Query("""
+        SELECT e.chunkId AS chunkId, e.fileId AS fileId, c.generation AS generation, e.embedding AS embedding
+        FROM ChunkEmbeddingEntity e JOIN e.chunk c
+        WHERE e.fileId = :fileId AND c.generation = :generation
+        ORDER BY c.chunkIndex
+        """)
+    List<EmbeddingView> findGenerationEmbeddings(@Param("fileId") UUID fileId, @Param("generation") long generation);
+
+    // Stored vector of an active chunk, reused as a query vector instead of embedding its text again
+    @Query("""
+        SELECT c.chunkId AS chunkId, c.fileId AS fileId, c.chunkIndex AS chunkIndex, e.embedding AS embedding
+        FROM ChunkEmbeddingEntity e JOIN e.chunk c
+        WHERE c.chunkId = :chunkId
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = c.fileId)
+        """)
+    Optional<SourceChunkView> findActiveSourceChunk(@Param("chunkId") UUID chunkId);
+
+    // Stored vectors of specific chunks, e.g. hybrid search's text matches scored against the query vector
+    @Query("""
+        SELECT e.chunkId AS chunkId, e.fileId AS fileId, c.generation AS generation, e.embedding AS embedding
+        FROM ChunkEmbeddingEntity e JOIN e.chunk c
+        WHERE e.chunkId IN :chunkIds
+        """)
+    List<EmbeddingView> findEmbeddings(@Param("chunkIds") Collection<UUID> chunkIds);
+
+    // Texts and vectors of a file's active chunks, copied onto identical chunks of a near-duplicate upload
+    @Query("""
+        SELECT c.text AS text, e.embedding AS embedding
+        FROM ChunkEmbeddingEntity e JOIN e.chunk c
+        WHERE e.fileId = :fileId
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = :fileId)
+        """)
+    List<TextEmbeddingView> findActiveTextEmbeddings(@Param("fileId") UUID fileId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChunkEmbeddingEntity e WHERE e.fileId = :fileId")
+    void deleteByFileId(@Param("fileId") UUID fileId);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        DELETE FROM ChunkEmbeddingEntity e
+        WHERE e.fileId = :fileId
+          AND e.chunkId IN (SELECT c.chunkId FROM ChunkEntity c WHERE c.fileId = :fileId AND c.generation < :generation)
+        """)
+    int deleteStaleGenerations(@Param("fileId") UUID fileId, @Param("generation") long generation);
+}
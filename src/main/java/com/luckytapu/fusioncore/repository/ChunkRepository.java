@@ -1,33 +1,228 @@
 package com.luckytapu.fusioncore.repository;
 
 import com.luckytapu.fusioncore.entity.ChunkEntity;
+import com.luckytapu.fusioncore.model.ChunkSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ChunkRepository extends JpaRepository<ChunkEntity, UUID> {
     
-    List<ChunkEntity> findByFileIdOrderByChunkIndex(UUID fileId);
+    @Query("""
+        SELECT c FROM ChunkEntity c
+        WHERE c.fileId = :fileId
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = :fileId)
+        ORDER BY c.chunkIndex
+        """)
+    List<ChunkEntity> findByFileIdOrderByChunkIndex(@Param("fileId") UUID fileId);
     
-    List<ChunkEntity> findByStrategy(String strategy);
+    @Query("""
+        SELECT c FROM ChunkEntity c
+        WHERE c.strategy = :strategy
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = c.fileId)
+        """)
+    List<ChunkEntity> findByStrategy(@Param("strategy") String strategy);
     
+    // Flat projection joined to the file name only, so results map straight to SearchResult
+    // without loading chunk entities or the user_files data blob. Rows beyond maxDistance are
+    // dropped before the sort, so a low-relevance query sorts and returns little or nothing.
     @Query(value = """
-        SELECT c.*, 
-               (1 - (c.embedding <-> CAST(:queryEmbedding AS bytea))) as similarity_score
-        FROM chunks c 
-        WHERE c.embedding IS NOT NULL
-        ORDER BY c.embedding <-> CAST(:queryEmbedding AS bytea)
+        SELECT c.chunk_id AS "chunkId",
+               c.file_id AS "fileId",
+               f.file_name AS "fileName",
+               c.text AS "text",
+               c.chunk_index AS "chunkIndex",
+               (1 - (e.embedding <-> CAST(:queryEmbedding AS bytea))) AS "similarityScore"
+        FROM chunk_embeddings e
+        JOIN chunks c ON c.file_id = e.file_id AND c.chunk_id = e.chunk_id
+        JOIN user_files f ON f.file_id = c.file_id AND f.active_generation = c.generation
+        WHERE e.embedding <-> CAST(:queryEmbedding AS bytea) <= :maxDistance
+        ORDER BY e.embedding <-> CAST(:queryEmbedding AS bytea)
         LIMIT :limit
         """, nativeQuery = true)
-    List<Object[]> findSimilarChunks(@Param("queryEmbedding") byte[] queryEmbedding, @Param("limit") int limit);
+    List<SimilarChunkView> findSimilarChunks(@Param("queryEmbedding") byte[] queryEmbedding,
+                                             @Param("maxDistance") double maxDistance,
+                                             @Param("limit") int limit);
     
-    @Query("SELECT c FROM ChunkEntity c WHERE c.fileId = :fileId AND c.strategy = :strategy ORDER BY c.chunkIndex")
+    // Same ranking restricted to a few files; the file_id filter prunes partitions down to theirs.
+    // The ids are bound as one array, so the statement has the same shape and parameter count for any number of files.
+    @Query(value = """
+        SELECT c.chunk_id AS "chunkId",
+               c.file_id AS "fileId",
+               f.file_name AS "fileName",
+               c.text AS "text",
+               c.chunk_index AS "chunkIndex",
+               (1 - (e.embedding <-> CAST(:queryEmbedding AS bytea))) AS "similarityScore"
+        FROM chunk_embeddings e
+        JOIN chunks c ON c.file_id = e.file_id AND c.chunk_id = e.chunk_id
+        JOIN user_files f ON f.file_id = c.file_id AND f.active_generation = c.generation
+        WHERE e.file_id = ANY(CAST(:fileIds AS uuid[]))
+          AND e.embedding <-> CAST(:queryEmbedding AS bytea) <= :maxDistance
+        ORDER BY e.embedding <-> CAST(:queryEmbedding AS bytea)
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<SimilarChunkView> findSimilarChunksInFiles(@Param("queryEmbedding") byte[] queryEmbedding,
+                                                    @Param("fileIds") UUID[] fileIds,
+                                                    @Param("maxDistance") double maxDistance,
+                                                    @Param("limit") int limit);
+    
+    // Same ranking for a filtered search, with the filter joined in rather than resolved to file ids first.
+    // Null parameters disable their predicate; an empty fileIds array means any file. The chunk strategy
+    // equals the file's since a generation is chunked with one strategy.
+    @Query(value = """
+        SELECT c.chunk_id AS "chunkId",
+               c.file_id AS "fileId",
+               f.file_name AS "fileName",
+               c.text AS "text",
+               c.chunk_index AS "chunkIndex",
+               (1 - (e.embedding <-> CAST(:queryEmbedding AS bytea))) AS "similarityScore"
+        FROM chunk_embeddings e
+        JOIN chunks c ON c.file_id = e.file_id AND c.chunk_id = e.chunk_id
+        JOIN user_files f ON f.file_id = c.file_id AND f.active_generation = c.generation
+        WHERE (cardinality(CAST(:fileIds AS uuid[])) = 0 OR e.file_id = ANY(CAST(:fileIds AS uuid[])))
+          AND (CAST(:strategy AS varchar) IS NULL OR c.strategy = CAST(:strategy AS varchar))
+          AND (CAST(:fileType AS varchar) IS NULL OR f.file_type = CAST(:fileType AS varchar))
+          AND (CAST(:uploadedAfter AS timestamp) IS NULL OR f.created_date >= CAST(:uploadedAfter AS timestamp))
+          AND (CAST(:uploadedBefore AS timestamp) IS NULL OR f.created_date < CAST(:uploadedBefore AS timestamp))
+          AND (CAST(:excludedFileId AS uuid) IS NULL OR c.file_id <> CAST(:excludedFileId AS uuid))
+          AND e.embedding <-> CAST(:queryEmbedding AS bytea) <= :maxDistance
+        ORDER BY e.embedding <-> CAST(:queryEmbedding AS bytea)
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<SimilarChunkView> findSimilarChunksMatching(@Param("queryEmbedding") byte[] queryEmbedding,
+                                                     @Param("fileIds") UUID[] fileIds,
+                                                     @Param("strategy") String strategy,
+                                                     @Param("fileType") String fileType,
+                                                     @Param("uploadedAfter") LocalDateTime uploadedAfter,
+                                                     @Param("uploadedBefore") LocalDateTime uploadedBefore,
+                                                     @Param("excludedFileId") UUID excludedFileId,
+                                                     @Param("maxDistance") double maxDistance,
+                                                     @Param("limit") int limit);
+    
+    // Active chunks containing the query terms, best text rank first; served by the GIN index on text_search.
+    // Takes the same filter parameters as findSimilarChunksMatching, so the limit applies after filtering.
+    @Query(value = """
+        SELECT c.chunk_id AS "chunkId",
+               c.file_id AS "fileId",
+               f.file_name AS "fileName",
+               c.text AS "text",
+               c.chunk_index AS "chunkIndex",
+               ts_rank_cd(c.text_search, q) AS "rank"
+        FROM chunks c
+        JOIN user_files f ON f.file_id = c.file_id AND f.active_generation = c.generation
+        CROSS JOIN websearch_to_tsquery('simple', :query) q
+        WHERE c.text_search @@ q
+          AND (cardinality(CAST(:fileIds AS uuid[])) = 0 OR c.file_id = ANY(CAST(:fileIds AS uuid[])))
+          AND (CAST(:strategy AS varchar) IS NULL OR c.strategy = CAST(:strategy AS varchar))
+          AND (CAST(:fileType AS varchar) IS NULL OR f.file_type = CAST(:fileType AS varchar))
+          AND (CAST(:uploadedAfter AS timestamp) IS NULL OR f.created_date >= CAST(:uploadedAfter AS timestamp))
+          AND (CAST(:uploadedBefore AS timestamp) IS NULL OR f.created_date < CAST(:uploadedBefore AS timestamp))
+          AND (CAST(:excludedFileId AS uuid) IS NULL OR c.file_id <> CAST(:excludedFileId AS uuid))
+        ORDER BY ts_rank_cd(c.text_search, q) DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<LexicalMatchView> findLexicalMatches(@Param("query") String query,
+                                              @Param("fileIds") UUID[] fileIds,
+                                              @Param("strategy") String strategy,
+                                              @Param("fileType") String fileType,
+                                              @Param("uploadedAfter") LocalDateTime uploadedAfter,
+                                              @Param("uploadedBefore") LocalDateTime uploadedBefore,
+                                              @Param("excludedFileId") UUID excludedFileId,
+                                              @Param("limit") int limit);
+    
+    // File ids are passed alongside chunk ids so the lookup prunes partitions and uses the primary key
+    @Query("""
+        SELECT c.chunkId AS chunkId, c.fileId AS fileId, f.fileName AS fileName, c.text AS text, c.chunkIndex AS chunkIndex
+        FROM ChunkEntity c JOIN c.file f
+        WHERE c.fileId IN :fileIds AND c.chunkId IN :chunkIds
+        """)
+    List<ChunkTextView> findChunkTexts(@Param("fileIds") Collection<UUID> fileIds, @Param("chunkIds") Collection<UUID> chunkIds);
+    
+    @Query("""
+        SELECT c FROM ChunkEntity c
+        WHERE c.fileId = :fileId AND c.strategy = :strategy
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = :fileId)
+        ORDER BY c.chunkIndex
+        """)
     List<ChunkEntity> findByFileIdAndStrategy(@Param("fileId") UUID fileId, @Param("strategy") String strategy);
     
-    void deleteByFileId(UUID fileId);
+    @Query("""
+        SELECT new com.luckytapu.fusioncore.model.ChunkSummary(c.chunkId, c.fileId, c.chunkIndex, c.strategy, c.text, c.textLength)
+        FROM ChunkEntity c
+        WHERE c.fileId = :fileId AND (:strategy IS NULL OR c.strategy = :strategy) AND c.chunkIndex > :afterIndex
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = :fileId)
+        ORDER BY c.chunkIndex
+        """)
+    List<ChunkSummary> findChunkPage(@Param("fileId") UUID fileId, @Param("strategy") String strategy,
+                                     @Param("afterIndex") int afterIndex, Limit limit);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT new com.luckytapu.fusioncore.model.ChunkSummary(c.chunkId, c.fileId, c.chunkIndex, c.strategy, c.text, c.textLength)
+        FROM ChunkEntity c
+        WHERE c.fileId = :fileId AND (:strategy IS NULL OR c.strategy = :strategy)
+          AND c.generation = (SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = :fileId)
+        ORDER BY c.chunkIndex
+        """)
+    Stream<ChunkSummary> streamChunks(@Param("fileId") UUID fileId, @Param("strategy") String strategy);
+    
+    // Chunks of a staged generation still waiting for an embedding; served by idx_chunks_unembedded
+    @Query("""
+        SELECT c FROM ChunkEntity c
+        WHERE c.fileId = :fileId AND c.generation = :generation
+          AND c.embeddingState <> com.luckytapu.fusioncore.model.ChunkEmbeddingState.EMBEDDED
+        ORDER BY c.chunkIndex
+        """)
+    List<ChunkEntity> findUnembeddedChunks(@Param("fileId") UUID fileId, @Param("generation") long generation);
+    
+    @Query("""
+        SELECT c.embeddingState AS state, COUNT(c) AS count FROM ChunkEntity c
+        WHERE c.fileId = :fileId AND c.generation = :generation
+        GROUP BY c.embeddingState
+        """)
+    List<ChunkStateCountView> countByEmbeddingState(@Param("fileId") UUID fileId, @Param("generation") long generation);
+    
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE ChunkEntity c
+        SET c.embeddingState = com.luckytapu.fusioncore.model.ChunkEmbeddingState.EMBEDDED,
+            c.embeddingAttempts = c.embeddingAttempts + 1, c.embeddingError = NULL
+        WHERE c.fileId = :fileId AND c.chunkId IN :chunkIds
+        """)
+    int markEmbedded(@Param("fileId") UUID fileId, @Param("chunkIds") Collection<UUID> chunkIds);
+    
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE ChunkEntity c
+        SET c.embeddingState = com.luckytapu.fusioncore.model.ChunkEmbeddingState.FAILED,
+            c.embeddingAttempts = c.embeddingAttempts + 1, c.embeddingError = :error
+        WHERE c.fileId = :fileId AND c.chunkId IN :chunkIds
+        """)
+    int markFailed(@Param("fileId") UUID fileId, @Param("chunkIds") Collection<UUID> chunkIds, @Param("error") String error);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChunkEntity c WHERE c.fileId = :fileId AND c.generation < :generation")
+    int deleteStaleGenerations(@Param("fileId") UUID fileId, @Param("generation") long generation);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChunkEntity c WHERE c.fileId = :fileId")
+    void deleteByFileId(@Param("fileId") UUID fileId);
 }
\ No newline at end of file
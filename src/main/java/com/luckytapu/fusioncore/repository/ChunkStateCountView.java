@@ -0,0 +1,8 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.model.ChunkEmbeddingState;
+
+public interface ChunkStateCountView {
+    ChunkEmbeddingState getState();
+    long getCount();
+}
@@ -0,0 +1,11 @@
+package com.luckytapu.fusioncore.repository;
+
+import java.util.UUID;
+
+public interface ChunkTextView {
+    UUID getChunkId();
+    UUID getFileId();
+    String getFileName();
+    String getText();
+    Integer getChunkIndex();
+}
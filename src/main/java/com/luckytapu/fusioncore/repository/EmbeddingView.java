@@ -0,0 +1,10 @@
+package com.luckytapu.fusioncore.repository;
+
+import java.util.UUID;
+
+public interface EmbeddingView {
+    UUID getChunkId();
+    UUID getFileId();
+    Long getGeneration();
+    byte[] getEmbedding();
+}
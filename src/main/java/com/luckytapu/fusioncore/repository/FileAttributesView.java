@@ -0,0 +1,12 @@
+package com.luckytapu.fusioncore.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// The per-file attributes a SearchFilter tests; strategy is the one of the active generation
+public interface FileAttributesView {
+    UUID getFileId();
+    String getFileType();
+    LocalDateTime getCreatedDate();
+    String getStrategy();
+}
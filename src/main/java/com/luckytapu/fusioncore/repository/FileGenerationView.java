@@ -0,0 +1,8 @@
+package com.luckytapu.fusioncore.repository;
+
+import java.util.UUID;
+
+public interface FileGenerationView {
+    UUID getFileId();
+    Long getActiveGeneration();
+}
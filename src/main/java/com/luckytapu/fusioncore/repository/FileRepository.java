@@ -1,9 +1,108 @@
 package com.luckytapu.fusioncore.repository;
 
 import com.luckytapu.fusioncore.entity.FileEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface FileRepository extends JpaRepository<FileEntity, UUID> {
+
+    @Modifying
+    @Query("UPDATE FileEntity f SET f.activeGeneration = f.activeGeneration + 1 WHERE f.fileId = :fileId")
+    int advanceGeneration(@Param("fileId") UUID fileId);
+
+    // Next generation number for an ingest; it stays invisible until activateGeneration. The
+    // update also locks the file row, so concurrent re-indexes each get their own number.
+    @Modifying
+    @Query("""
+        UPDATE FileEntity f
+        SET f.stagedGeneration = CASE WHEN f.activeGeneration > f.stagedGeneration
+                                      THEN f.activeGeneration + 1 ELSE f.stagedGeneration + 1 END
+        WHERE f.fileId = :fileId
+        """)
+    int reserveGeneration(@Param("fileId") UUID fileId);
+
+    // Never moves backwards, so a slow ingest finishing late can't hide a newer generation
+    @Modifying
+    @Query("UPDATE FileEntity f SET f.activeGeneration = :generation WHERE f.fileId = :fileId AND f.activeGeneration < :generation")
+    int activateGeneration(@Param("fileId") UUID fileId, @Param("generation") long generation);
+
+    // Newest processed upload with these bytes; with indexed set it must also have searchable chunks.
+    // Projected, so the stored bytes are never loaded.
+    @Query("""
+        SELECT f.fileId AS fileId, f.activeGeneration AS activeGeneration
+        FROM FileEntity f
+        WHERE f.contentHash = :contentHash
+          AND f.status = com.luckytapu.fusioncore.model.FileStatus.PROCESSED
+          AND (:indexed = false OR f.activeGeneration > 0)
+        ORDER BY f.createdDate DESC
+        """)
+    List<ProcessedFileView> findProcessedByContentHash(@Param("contentHash") String contentHash,
+                                                       @Param("indexed") boolean indexed, Limit limit);
+
+    @Query("SELECT f.stagedGeneration FROM FileEntity f WHERE f.fileId = :fileId")
+    Optional<Long> findStagedGeneration(@Param("fileId") UUID fileId);
+
+    @Modifying
+    @Query("UPDATE FileEntity f SET f.vectorData = :vectorData WHERE f.fileId = :fileId")
+    int updateVectorData(@Param("fileId") UUID fileId, @Param("vectorData") byte[] vectorData);
+
+    @Query("SELECT f.activeGeneration FROM FileEntity f WHERE f.fileId = :fileId")
+    Optional<Long> findActiveGeneration(@Param("fileId") UUID fileId);
+
+    // Generation 0 means the file has never had chunks published
+    @Query("SELECT f.fileId AS fileId, f.activeGeneration AS activeGeneration FROM FileEntity f WHERE f.activeGeneration > 0")
+    List<FileGenerationView> findIndexedGenerations();
+
+    // What an in-process backend keeps per file: the centroid for its first search level and the
+    // attributes it filters on. Loaded once at startup; the strategy subquery reads one chunk per file.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+        SELECT f.fileId AS fileId, f.fileType AS fileType, f.createdDate AS createdDate, f.vectorData AS vectorData,
+               (SELECT MIN(c.strategy) FROM ChunkEntity c
+                WHERE c.fileId = f.fileId AND c.generation = f.activeGeneration) AS strategy
+        FROM FileEntity f
+        WHERE f.activeGeneration > 0
+        """)
+    Stream<IndexedFileView> streamIndexedFiles();
+
+    // Same rows for the files a sync found changed, fetched in batches
+    @Query("""
+        SELECT f.fileId AS fileId, f.fileType AS fileType, f.createdDate AS createdDate, f.vectorData AS vectorData,
+               (SELECT MIN(c.strategy) FROM ChunkEntity c
+                WHERE c.fileId = f.fileId AND c.generation = f.activeGeneration) AS strategy
+        FROM FileEntity f
+        WHERE f.fileId IN :fileIds AND f.activeGeneration > 0
+        """)
+    List<IndexedFileView> findIndexedFiles(@Param("fileIds") Collection<UUID> fileIds);
+
+    @Query("""
+        SELECT f.fileId AS fileId, f.fileType AS fileType, f.createdDate AS createdDate,
+               (SELECT MIN(c.strategy) FROM ChunkEntity c
+                WHERE c.fileId = f.fileId AND c.generation = f.activeGeneration) AS strategy
+        FROM FileEntity f
+        WHERE f.fileId = :fileId
+        """)
+    Optional<FileAttributesView> findFileAttributes(@Param("fileId") UUID fileId);
+
+    // vector_data holds the normalized centroid of the file's active chunk embeddings
+    @Query(value = """
+        SELECT f.file_id
+        FROM user_files f
+        WHERE f.vector_data IS NOT NULL
+        ORDER BY f.vector_data <-> CAST(:queryEmbedding AS bytea)
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<UUID> findNearestDocuments(@Param("queryEmbedding") byte[] queryEmbedding, @Param("limit") int limit);
 }
@@ -0,0 +1,28 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.FileSignatureEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface FileSignatureRepository extends JpaRepository<FileSignatureEntity, UUID> {
+
+    // Other files with an active chunk set that share at least one LSH bucket, most shared bands first
+    @Query("""
+        SELECT s.fileId AS fileId, COUNT(b) AS sharedBands
+        FROM FileSignatureEntity s JOIN s.bandBuckets b, FileEntity f
+        WHERE f.fileId = s.fileId AND f.activeGeneration > 0
+          AND s.fileId <> :fileId AND b IN :buckets
+        GROUP BY s.fileId
+        ORDER BY COUNT(b) DESC
+        """)
+    List<SignatureCandidateView> findCandidates(@Param("fileId") UUID fileId, @Param("buckets") Collection<Long> buckets,
+                                                Limit limit);
+}
@@ -0,0 +1,5 @@
+package com.luckytapu.fusioncore.repository;
+
+public interface IndexedFileView extends FileAttributesView {
+    byte[] getVectorData();
+}
@@ -0,0 +1,66 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface IngestionJobRepository extends JpaRepository<IngestionJobEntity, UUID> {
+
+    // Oldest claimable jobs: queued ones, plus running ones whose worker stopped heartbeating.
+    // Rows another node has locked are skipped rather than waited on, so every node can poll concurrently.
+    // The returned rows stay locked until the caller's transaction commits.
+    @Query(value = """
+        SELECT j.*
+        FROM ingestion_jobs j
+        WHERE j.status = 'QUEUED'
+           OR (j.status = 'RUNNING' AND j.locked_at < :staleBefore)
+        ORDER BY j.created_date
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<IngestionJobEntity> lockClaimableJobs(@Param("staleBefore") LocalDateTime staleBefore, @Param("limit") int limit);
+
+    // Also renews the lease; returns 0 once another worker has reclaimed the job
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE IngestionJobEntity j SET j.progress = :progress, j.lockedAt = :now
+        WHERE j.jobId = :jobId AND j.lockedBy = :worker
+          AND j.status = com.luckytapu.fusioncore.model.IngestionJobStatus.RUNNING
+        """)
+    int updateProgress(@Param("jobId") UUID jobId, @Param("worker") String worker,
+                       @Param("progress") int progress, @Param("now") LocalDateTime now);
+
+    // A failed job keeps the progress it reached, which shows how far it got
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE IngestionJobEntity j
+        SET j.status = :status, j.error = :error, j.completedDate = :now,
+            j.progress = CASE WHEN :status = com.luckytapu.fusioncore.model.IngestionJobStatus.SUCCEEDED
+                              THEN 100 ELSE j.progress END
+        WHERE j.jobId = :jobId AND j.lockedBy = :worker
+          AND j.status = com.luckytapu.fusioncore.model.IngestionJobStatus.RUNNING
+        """)
+    int finish(@Param("jobId") UUID jobId, @Param("worker") String worker, @Param("status") IngestionJobStatus status,
+               @Param("error") String error, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE IngestionJobEntity j
+        SET j.status = com.luckytapu.fusioncore.model.IngestionJobStatus.QUEUED,
+            j.lockedBy = NULL, j.lockedAt = NULL, j.progress = 0, j.error = :error
+        WHERE j.jobId = :jobId AND j.lockedBy = :worker
+          AND j.status = com.luckytapu.fusioncore.model.IngestionJobStatus.RUNNING
+        """)
+    int requeue(@Param("jobId") UUID jobId, @Param("worker") String worker, @Param("error") String error);
+}
@@ -0,0 +1,5 @@
+package com.luckytapu.fusioncore.repository;
+
+public interface LexicalMatchView extends ChunkTextView {
+    Double getRank();
+}
@@ -0,0 +1,9 @@
+package com.luckytapu.fusioncore.repository;
+
+import java.util.UUID;
+
+// A processed file matched by content hash; activeGeneration is 0 while it has no searchable chunks
+public interface ProcessedFileView {
+    UUID getFileId();
+    long getActiveGeneration();
+}
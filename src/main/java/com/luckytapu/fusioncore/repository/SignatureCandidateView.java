@@ -0,0 +1,8 @@
+package com.luckytapu.fusioncore.repository;
+
+import java.util.UUID;
+
+public interface SignatureCandidateView {
+    UUID getFileId();
+    Long getSharedBands();
+}
@@ -0,0 +1,10 @@
+package com.luckytapu.fusioncore.repository;
+
+import java.util.UUID;
+
+public interface SourceChunkView {
+    UUID getChunkId();
+    UUID getFileId();
+    Integer getChunkIndex();
+    byte[] getEmbedding();
+}
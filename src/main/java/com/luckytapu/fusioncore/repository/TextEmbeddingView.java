@@ -0,0 +1,6 @@
+package com.luckytapu.fusioncore.repository;
+
+public interface TextEmbeddingView {
+    String getText();
+    byte[] getEmbedding();
+}
@@ -0,0 +1,199 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
+import com.luckytapu.fusioncore.entity.BulkImportEntryEntity;
+import com.luckytapu.fusioncore.model.BulkImportReport;
+import com.luckytapu.fusioncore.model.BulkImportRequest;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import com.luckytapu.fusioncore.repository.BulkImportEntryRepository;
+import com.luckytapu.fusioncore.repository.BulkImportRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class BulkImportService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final BulkImportRepository importRepository;
+    private final BulkImportEntryRepository entryRepository;
+    private final Path root;
+    private final Duration lease;
+    private final int maxAttempts;
+
+    public BulkImportService(BulkImportRepository importRepository, BulkImportEntryRepository entryRepository,
+                             @Value("${fusioncore.bulk-import.root:./imports}") String root,
+                             @Value("${fusioncore.bulk-import.lease:PT10M}") Duration lease,
+                             @Value("${fusioncore.bulk-import.max-attempts:3}") int maxAttempts) {
+        this.importRepository = importRepository;
+        this.entryRepository = entryRepository;
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public BulkImportEntity submit(BulkImportRequest request) {
+        resolveSource(request.getSource());
+        BulkImportEntity bulkImport = importRepository.save(BulkImportEntity.builder()
+                .source(request.getSource())
+                .generateEmbeddings(request.isGenerateEmbeddings())
+                .status(IngestionJobStatus.QUEUED)
+                .build());
+        log.info("Queued bulk import {} of {}", bulkImport.getImportId(), request.getSource());
+        return bulkImport;
+    }
+
+    // Only paths under the configured root can be imported. The real paths are compared too,
+    // so a symlink under the root can't point the import elsewhere.
+    public Path resolveSource(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("source is required");
+        }
+        Path path = root.resolve(source).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("source must be inside the import root");
+        }
+        if (!ImportSource.isSupported(path)) {
+            throw new IllegalArgumentException("source must be a directory or a .zip, .tar, .tar.gz or .tgz archive");
+        }
+        try {
+            Path realPath = path.toRealPath();
+            if (!realPath.startsWith(root.toRealPath())) {
+                throw new IllegalArgumentException("source must be inside the import root");
+            }
+            return realPath;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("source could not be resolved: " + e.getMessage());
+        }
+    }
+
+    public Optional<BulkImportReport> findReport(UUID importId) {
+        return importRepository.findById(importId).map(bulkImport -> report(bulkImport, LocalDateTime.now()));
+    }
+
+    // One import at a time per worker; a reclaimed import starts a new run from its checkpoints.
+    // An import that already used up its attempts (e.g. a source that keeps killing its worker)
+    // is failed here instead, like ingestion jobs, and the next poll claims the one after it.
+    @Transactional
+    public Optional<BulkImportEntity> claim(String worker) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BulkImportEntity> claimable = importRepository.lockClaimableImports(now.minus(lease), 1);
+        if (claimable.isEmpty()) {
+            return Optional.empty();
+        }
+        BulkImportEntity bulkImport = claimable.get(0);
+        bulkImport.setAttempts(bulkImport.getAttempts() + 1);
+        if (bulkImport.getAttempts() > maxAttempts) {
+            bulkImport.setStatus(IngestionJobStatus.FAILED);
+            bulkImport.setError(truncate("Abandoned after " + maxAttempts + " attempts"));
+            bulkImport.setCompletedDate(now);
+            log.warn("Bulk import {} abandoned after {} attempts", bulkImport.getImportId(), maxAttempts);
+            return Optional.empty();
+        }
+        bulkImport.setStatus(IngestionJobStatus.RUNNING);
+        bulkImport.setLockedBy(worker);
+        bulkImport.setLockedAt(now);
+        bulkImport.setRunStartedDate(now);
+        bulkImport.setRunStartEntries(bulkImport.getProcessedEntries());
+        bulkImport.setRunStartBytes(bulkImport.getProcessedBytes());
+        return Optional.of(bulkImport);
+    }
+
+    public boolean heartbeat(UUID importId, String worker) {
+        return importRepository.heartbeat(importId, worker, LocalDateTime.now()) > 0;
+    }
+
+    public void recordTotals(UUID importId, ImportSource.Totals totals) {
+        importRepository.updateTotals(importId, totals.entries(), totals.bytes());
+    }
+
+    public Set<String> completedEntries(UUID importId) {
+        return new HashSet<>(entryRepository.findEntryNames(importId));
+    }
+
+    // The checkpoint and the counters commit together, so a resume never counts an entry twice
+    @Transactional
+    public void recordEntry(UUID importId, String entryName, long sizeBytes, UUID fileId, String error) {
+        if (entryRepository.existsByImportIdAndEntryName(importId, entryName)) {
+            return;
+        }
+        entryRepository.save(BulkImportEntryEntity.builder()
+                .importId(importId)
+                .entryName(entryName)
+                .status(error == null ? IngestionJobStatus.SUCCEEDED : IngestionJobStatus.FAILED)
+                .fileId(fileId)
+                .sizeBytes(sizeBytes)
+                .error(truncate(error))
+                .build());
+        importRepository.addProcessed(importId, error == null ? 0 : 1, sizeBytes);
+    }
+
+    public void succeed(UUID importId, String worker) {
+        finish(importId, worker, IngestionJobStatus.SUCCEEDED, null);
+    }
+
+    public void fail(UUID importId, String worker, String error) {
+        finish(importId, worker, IngestionJobStatus.FAILED, error);
+    }
+
+    private void finish(UUID importId, String worker, IngestionJobStatus status, String error) {
+        if (importRepository.finish(importId, worker, status, truncate(error), LocalDateTime.now()) == 0) {
+            log.warn("Bulk import {} was reclaimed by another worker; dropping {} result", importId, status);
+        }
+    }
+
+    static BulkImportReport report(BulkImportEntity bulkImport, LocalDateTime now) {
+        double docsPerSecond = 0;
+        double bytesPerSecond = 0;
+        Long etaSeconds = null;
+        if (bulkImport.getRunStartedDate() != null) {
+            LocalDateTime runEnd = bulkImport.getCompletedDate() != null ? bulkImport.getCompletedDate() : now;
+            double seconds = Duration.between(bulkImport.getRunStartedDate(), runEnd).toMillis() / 1000.0;
+            if (seconds > 0) {
+                docsPerSecond = (bulkImport.getProcessedEntries() - bulkImport.getRunStartEntries()) / seconds;
+                bytesPerSecond = (bulkImport.getProcessedBytes() - bulkImport.getRunStartBytes()) / seconds;
+            }
+        }
+        if (bulkImport.getStatus() == IngestionJobStatus.RUNNING) {
+            // Bytes give a steadier estimate than entry counts when document sizes vary
+            if (bulkImport.getTotalBytes() != null && bulkImport.getTotalBytes() > 0 && bytesPerSecond > 0) {
+                etaSeconds = Math.round(Math.max(0, bulkImport.getTotalBytes() - bulkImport.getProcessedBytes()) / bytesPerSecond);
+            } else if (bulkImport.getTotalEntries() != null && docsPerSecond > 0) {
+                etaSeconds = Math.round(Math.max(0, bulkImport.getTotalEntries() - bulkImport.getProcessedEntries()) / docsPerSecond);
+            }
+        }
+        return BulkImportReport.builder()
+                .importId(bulkImport.getImportId())
+                .source(bulkImport.getSource())
+                .status(bulkImport.getStatus())
+                .totalEntries(bulkImport.getTotalEntries())
+                .totalBytes(bulkImport.getTotalBytes())
+                .processedEntries(bulkImport.getProcessedEntries())
+                .failedEntries(bulkImport.getFailedEntries())
+                .processedBytes(bulkImport.getProcessedBytes())
+                .docsPerSecond(docsPerSecond)
+                .bytesPerSecond(bytesPerSecond)
+                .etaSeconds(etaSeconds)
+                .error(bulkImport.getError())
+                .createdDate(bulkImport.getCreatedDate())
+                .completedDate(bulkImport.getCompletedDate())
+                .build();
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
@@ -0,0 +1,208 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.config.AsyncConfig;
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
+import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs one bulk import at a time per node. A single reader walks the source in order and hands each
+// entry's bytes to a bounded pool, so at most `concurrency` entries are held in memory at once.
+@Service
+@Slf4j
+public class BulkImportWorker {
+
+    private final BulkImportService importService;
+    private final FileService fileService;
+    private final boolean enabled;
+    private final int concurrency;
+    private final long maxEntryBytes;
+    private final String workerId;
+    private final ExecutorService reader;
+    private final ExecutorService entryExecutor;
+    private final AtomicReference<UUID> current = new AtomicReference<>();
+    // Set when the lease is lost, so the reader stops instead of racing the new owner
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+
+    public BulkImportWorker(BulkImportService importService, FileService fileService,
+                            @Value("${fusioncore.bulk-import.worker-enabled:true}") boolean enabled,
+                            @Value("${fusioncore.bulk-import.concurrency:4}") int concurrency,
+                            @Value("${fusioncore.bulk-import.max-entry-size:20MB}") DataSize maxEntrySize,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.importService = importService;
+        this.fileService = fileService;
+        this.enabled = enabled;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), Integer.MAX_VALUE - 8);
+        this.workerId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+        this.reader = AsyncConfig.workerPool("bulk-import-", 1, false);
+        this.entryExecutor = AsyncConfig.workerPool("bulk-import-entry-", this.concurrency, virtualThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // An interrupted import keeps its lease until it expires, then resumes from its checkpoints
+        reader.shutdownNow();
+        entryExecutor.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${fusioncore.bulk-import.poll-interval:PT5S}",
+            fixedDelayString = "${fusioncore.bulk-import.poll-interval:PT5S}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        UUID running = current.get();
+        if (running != null) {
+            heartbeat(running);
+            return;
+        }
+        try {
+            importService.claim(workerId).ifPresent(bulkImport -> {
+                current.set(bulkImport.getImportId());
+                stopRequested.set(false);
+                try {
+                    reader.execute(() -> {
+                        try {
+                            run(bulkImport);
+                        } finally {
+                            current.set(null);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    current.set(null);
+                    log.warn("Worker shutting down; bulk import {} will be reclaimed after its lease", bulkImport.getImportId());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to claim bulk imports: {}", e.getMessage());
+        }
+    }
+
+    void run(BulkImportEntity bulkImport) {
+        UUID importId = bulkImport.getImportId();
+        log.info("Worker {} running bulk import {} of {}", workerId, importId, bulkImport.getSource());
+        Semaphore slots = new Semaphore(concurrency);
+        // Entries that left no checkpoint at all; the import must not succeed without them
+        AtomicInteger unrecorded = new AtomicInteger();
+        try {
+            Path path = importService.resolveSource(bulkImport.getSource());
+            if (bulkImport.getTotalEntries() == null) {
+                importService.recordTotals(importId, ImportSource.scan(path));
+            }
+            // Checkpointed entries are skipped; names seen earlier in this run are duplicates
+            Set<String> seen = importService.completedEntries(importId);
+            if (!seen.isEmpty()) {
+                log.info("Resuming bulk import {} after {} checkpointed entries", importId, seen.size());
+            }
+
+            try (ImportSource source = ImportSource.open(path)) {
+                ImportSource.Entry entry;
+                while ((entry = source.next()) != null) {
+                    if (stopRequested.get()) {
+                        log.warn("Stopping bulk import {} after losing its lease", importId);
+                        return;
+                    }
+                    if (!seen.add(entry.name())) {
+                        continue;
+                    }
+                    String name = entry.name();
+                    String rejection = entry.content() == null ? "Entry cannot be streamed from the archive"
+                            : entry.size() > maxEntryBytes ? "Entry exceeds " + maxEntryBytes + " bytes" : null;
+                    byte[] content = rejection == null ? entry.content().readNBytes((int) maxEntryBytes + 1) : null;
+                    if (content != null && content.length > maxEntryBytes) {
+                        rejection = "Entry exceeds " + maxEntryBytes + " bytes";
+                    }
+                    if (rejection != null) {
+                        importService.recordEntry(importId, name, Math.max(0, entry.size()), null, rejection);
+                        continue;
+                    }
+
+                    slots.acquire();
+                    try {
+                        entryExecutor.execute(() -> {
+                            try {
+                                importEntry(bulkImport, name, content, unrecorded);
+                            } finally {
+                                slots.release();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        slots.release();
+                        throw e;
+                    }
+                }
+            }
+            // Wait for the entries still in flight
+            slots.acquire(concurrency);
+            if (unrecorded.get() > 0) {
+                log.error("Bulk import {} finished with {} entries not checkpointed", importId, unrecorded.get());
+                importService.fail(importId, workerId, unrecorded.get() + " entries could not be checkpointed");
+                return;
+            }
+            importService.succeed(importId, workerId);
+            log.info("Bulk import {} finished", importId);
+        } catch (InterruptedException | RejectedExecutionException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Bulk import {} interrupted; it resumes from its checkpoints once the lease expires", importId);
+        } catch (Exception e) {
+            log.error("Bulk import {} failed: {}", importId, e.getMessage(), e);
+            importService.fail(importId, workerId, e.getMessage());
+        }
+    }
+
+    private void importEntry(BulkImportEntity bulkImport, String name, byte[] content, AtomicInteger unrecorded) {
+        UUID importId = bulkImport.getImportId();
+        try {
+            DocumentProcessingResult result = EmbeddingPriority.BULK.call(
+                    () -> fileService.processDocument(name, content, bulkImport.isGenerateEmbeddings()));
+            String error = "SUCCESS".equals(result.getProcessingStatus()) ? null : result.getProcessingStatus();
+            importService.recordEntry(importId, name, content.length, result.getFileId(), error);
+        } catch (Exception e) {
+            log.error("Failed to import {} from bulk import {}: {}", name, importId, e.getMessage());
+            try {
+                importService.recordEntry(importId, name, content.length, null, "FAILED: " + e.getMessage());
+            } catch (Exception recordFailure) {
+                // Not even the failure could be recorded, so the import fails instead of succeeding without it
+                unrecorded.incrementAndGet();
+                log.error("Failed to checkpoint {} from bulk import {}: {}", name, importId, recordFailure.getMessage());
+            }
+        }
+    }
+
+    String workerId() {
+        return workerId;
+    }
+
+    private void heartbeat(UUID importId) {
+        try {
+            if (!importService.heartbeat(importId, workerId)) {
+                log.warn("Lost the lease on bulk import {}", importId);
+                stopRequested.set(true);
+                return;
+            }
+            importService.findReport(importId).ifPresent(report -> log.info(
+                    "Bulk import {}: {}/{} entries ({} failed), {} docs/s, {} bytes/s, ETA {}s",
+                    importId, report.getProcessedEntries(), report.getTotalEntries(), report.getFailedEntries(),
+                    String.format("%.1f", report.getDocsPerSecond()), Math.round(report.getBytesPerSecond()),
+                    report.getEtaSeconds()));
+        } catch (Exception e) {
+            log.warn("Failed to renew the lease on bulk import {}: {}", importId, e.getMessage());
+        }
+    }
+}
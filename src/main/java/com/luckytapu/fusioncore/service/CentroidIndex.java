@@ -0,0 +1,52 @@
+package com.luckytapu.fusioncore.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One normalized centroid per file, ranked by dot product. Small enough to scan exactly: there is one
+// vector per document rather than per chunk, so it is the first level of a two-level search.
+final class CentroidIndex {
+
+    private final Map<UUID, float[]> centroids = new ConcurrentHashMap<>();
+
+    void put(UUID fileId, float[] centroid) {
+        centroids.put(fileId, EmbeddingCodec.normalize(centroid));
+    }
+
+    void remove(UUID fileId) {
+        centroids.remove(fileId);
+    }
+
+    int size() {
+        return centroids.size();
+    }
+
+    List<UUID> nearest(float[] query, int limit) {
+        if (limit <= 0 || centroids.isEmpty()) {
+            return List.of();
+        }
+        float[] normalized = EmbeddingCodec.normalize(query);
+        PriorityQueue<Map.Entry<UUID, Float>> top = new PriorityQueue<>(limit + 1, Map.Entry.comparingByValue());
+        centroids.forEach((fileId, centroid) -> {
+            if (centroid.length != normalized.length) {
+                return;
+            }
+            float score = 0;
+            for (int i = 0; i < centroid.length; i++) {
+                score += centroid[i] * normalized[i];
+            }
+            top.add(Map.entry(fileId, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<Map.Entry<UUID, Float>> sorted = new ArrayList<>(top);
+        sorted.sort(Map.Entry.<UUID, Float>comparingByValue(Comparator.reverseOrder()));
+        return sorted.stream().map(Map.Entry::getKey).toList();
+    }
+}
@@ -0,0 +1,8 @@
+package com.luckytapu.fusioncore.service;
+
+import java.util.List;
+import java.util.UUID;
+
+// Published inside the write transaction; listeners that mirror the index should use AFTER_COMMIT
+public record ChunkGenerationPublishedEvent(UUID fileId, long generation, List<UUID> chunkIds, List<byte[]> embeddings) {
+}
@@ -0,0 +1,199 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.config.AsyncConfig;
+import com.luckytapu.fusioncore.entity.ChunkEmbeddingEntity;
+import com.luckytapu.fusioncore.entity.ChunkEntity;
+import com.luckytapu.fusioncore.model.ChunkEmbeddingState;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.ChunkStateCountView;
+import com.luckytapu.fusioncore.repository.EmbeddingView;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.TextEmbeddingView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ChunkGenerationService {
+
+    private final ChunkRepository chunkRepository;
+    private final ChunkEmbeddingRepository chunkEmbeddingRepository;
+    private final FileRepository fileRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // Writes the chunks under a new generation that readers can't see yet, all PENDING. The
+    // reservation locks the file row, so concurrent re-indexes each stage their own generation.
+    @Transactional
+    public StagedGeneration stageGeneration(UUID fileId, List<ChunkEntity> chunks) {
+        if (fileRepository.reserveGeneration(fileId) == 0) {
+            throw new IllegalStateException("File not found: " + fileId);
+        }
+        long generation = fileRepository.findStagedGeneration(fileId)
+                .orElseThrow(() -> new IllegalStateException("File not found: " + fileId));
+
+        chunks.forEach(chunk -> {
+            chunk.setGeneration(generation);
+            chunk.setEmbeddingState(ChunkEmbeddingState.PENDING);
+        });
+        List<ChunkEntity> savedChunks = chunkRepository.saveAll(chunks);
+        log.debug("Staged generation {} for file {} with {} chunks", generation, fileId, savedChunks.size());
+        return new StagedGeneration(generation, savedChunks);
+    }
+
+    // Stores one embedded batch as soon as it comes back; a null vector marks that chunk FAILED
+    @Transactional
+    public void recordEmbeddings(UUID fileId, List<ChunkEntity> chunks, List<float[]> vectors, String error) {
+        List<UUID> embedded = new ArrayList<>(chunks.size());
+        List<UUID> failed = new ArrayList<>();
+        List<ChunkEmbeddingEntity> embeddingEntities = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            UUID chunkId = chunks.get(i).getChunkId();
+            float[] vector = vectors.get(i);
+            if (vector == null) {
+                failed.add(chunkId);
+                continue;
+            }
+            embedded.add(chunkId);
+            embeddingEntities.add(ChunkEmbeddingEntity.builder()
+                    .chunk(chunkRepository.getReferenceById(chunkId))
+                    .fileId(fileId)
+                    .embedding(EmbeddingCodec.toBytes(vector))
+                    .build());
+        }
+        if (!embedded.isEmpty()) {
+            chunkEmbeddingRepository.saveAll(embeddingEntities);
+            chunkRepository.markEmbedded(fileId, embedded);
+        }
+        if (!failed.isEmpty()) {
+            String message = error == null ? "No embedding returned" : error;
+            chunkRepository.markFailed(fileId, failed,
+                    message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        }
+    }
+
+    // Copies the vectors of the source file's active chunks onto staged chunks with the same text, so
+    // those chunks are EMBEDDED without a model call. Returns the chunks that still need embedding.
+    @Transactional
+    public List<ChunkEntity> reuseEmbeddings(UUID fileId, List<ChunkEntity> chunks, UUID sourceFileId) {
+        Map<String, byte[]> embeddingsByText = new HashMap<>();
+        for (TextEmbeddingView embedding : chunkEmbeddingRepository.findActiveTextEmbeddings(sourceFileId)) {
+            embeddingsByText.putIfAbsent(embedding.getText(), embedding.getEmbedding());
+        }
+
+        List<ChunkEntity> reused = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        List<ChunkEntity> remaining = new ArrayList<>();
+        for (ChunkEntity chunk : chunks) {
+            byte[] embedding = embeddingsByText.get(chunk.getText());
+            if (embedding == null) {
+                remaining.add(chunk);
+            } else {
+                reused.add(chunk);
+                vectors.add(EmbeddingCodec.toFloats(embedding));
+            }
+        }
+        if (!reused.isEmpty()) {
+            recordEmbeddings(fileId, reused, vectors, null);
+            log.debug("Reused {} embeddings from file {} for file {}", reused.size(), sourceFileId, fileId);
+        }
+        return remaining;
+    }
+
+    // Readers only see chunks of the file's active generation, so the staged set becomes visible
+    // all at once on commit. Returns false while chunks are still unembedded, or when a newer
+    // generation has been activated in the meantime. The document vector is replaced in the same
+    // transaction so it always matches the active chunks.
+    @Transactional
+    public boolean activateGeneration(UUID fileId, long generation) {
+        long unembedded = chunkRepository.countByEmbeddingState(fileId, generation).stream()
+                .filter(count -> count.getState() != ChunkEmbeddingState.EMBEDDED)
+                .mapToLong(ChunkStateCountView::getCount)
+                .sum();
+        if (unembedded > 0) {
+            log.debug("Generation {} of file {} still has {} unembedded chunks", generation, fileId, unembedded);
+            return false;
+        }
+        if (fileRepository.activateGeneration(fileId, generation) == 0) {
+            log.info("Generation {} of file {} superseded before activation", generation, fileId);
+            return false;
+        }
+
+        List<EmbeddingView> embeddings = chunkEmbeddingRepository.findGenerationEmbeddings(fileId, generation);
+        List<float[]> vectors = embeddings.stream().map(view -> EmbeddingCodec.toFloats(view.getEmbedding())).toList();
+        fileRepository.updateVectorData(fileId, EmbeddingCodec.toBytes(EmbeddingCodec.centroid(vectors)));
+
+        eventPublisher.publishEvent(new ChunkGenerationPublishedEvent(fileId, generation,
+                embeddings.stream().map(EmbeddingView::getChunkId).toList(),
+                embeddings.stream().map(EmbeddingView::getEmbedding).toList()));
+
+        log.debug("Published generation {} for file {} with {} chunks", generation, fileId, embeddings.size());
+        return true;
+    }
+
+    // Latest staged generation that never became active, with the chunks it is still missing
+    @Transactional(readOnly = true)
+    public Optional<StagedGeneration> findIncompleteGeneration(UUID fileId) {
+        long staged = fileRepository.findStagedGeneration(fileId).orElse(0L);
+        long active = fileRepository.findActiveGeneration(fileId).orElse(0L);
+        if (staged <= active) {
+            return Optional.empty();
+        }
+        return Optional.of(new StagedGeneration(staged, chunkRepository.findUnembeddedChunks(fileId, staged)));
+    }
+
+    // Chunk states of the latest generation written for the file, active or not
+    @Transactional(readOnly = true)
+    public Optional<EmbeddingProgress> embeddingProgress(UUID fileId) {
+        Optional<Long> staged = fileRepository.findStagedGeneration(fileId);
+        if (staged.isEmpty()) {
+            return Optional.empty();
+        }
+        long active = fileRepository.findActiveGeneration(fileId).orElse(0L);
+        long generation = Math.max(staged.get(), active);
+
+        EmbeddingProgress progress = EmbeddingProgress.builder()
+                .fileId(fileId)
+                .generation(generation)
+                .active(generation > 0 && generation == active)
+                .build();
+        for (ChunkStateCountView count : chunkRepository.countByEmbeddingState(fileId, generation)) {
+            switch (count.getState()) {
+                case PENDING -> progress.setPendingChunks(count.getCount());
+                case EMBEDDED -> progress.setEmbeddedChunks(count.getCount());
+                case FAILED -> progress.setFailedChunks(count.getCount());
+            }
+        }
+        return Optional.of(progress);
+    }
+
+    public record StagedGeneration(long generation, List<ChunkEntity> chunks) {
+    }
+
+    @Async(AsyncConfig.PERSISTENCE_EXECUTOR)
+    @Transactional
+    public void purgeStaleGenerations(UUID fileId, long activeGeneration) {
+        try {
+            chunkEmbeddingRepository.deleteStaleGenerations(fileId, activeGeneration);
+            int removed = chunkRepository.deleteStaleGenerations(fileId, activeGeneration);
+            log.debug("Purged {} stale chunks for file {} below generation {}", removed, fileId, activeGeneration);
+        } catch (Exception e) {
+            log.warn("Failed to purge stale chunk generations for file {}: {}", fileId, e.getMessage());
+        }
+    }
+}
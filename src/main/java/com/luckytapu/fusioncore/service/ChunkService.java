@@ -1,7 +1,10 @@
 package com.luckytapu.fusioncore.service;
 
+import com.luckytapu.fusioncore.config.AsyncConfig;
 import com.luckytapu.fusioncore.entity.ChunkEntity;
-import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
+import com.luckytapu.fusioncore.model.NearDuplicateReport;
+import com.luckytapu.fusioncore.service.ChunkGenerationService.StagedGeneration;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
@@ -10,66 +13,219 @@ import dev.langchain4j.data.document.splitter.DocumentBySentenceSplitter;
 import dev.langchain4j.data.document.splitter.DocumentByParagraphSplitter;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ChunkService {
     
-    private final ChunkRepository chunkRepository;
+    private final ChunkGenerationService chunkGenerationService;
+    private final NearDuplicateService nearDuplicateService;
     private final EmbeddingModel embeddingModel;
+    private final Executor splittingExecutor;
+    private final Executor embeddingExecutor;
+    private final Executor persistenceExecutor;
+    private final int embedBatchSize;
+    
+    public ChunkService(ChunkGenerationService chunkGenerationService, NearDuplicateService nearDuplicateService,
+                        EmbeddingModel embeddingModel,
+                        @Qualifier(AsyncConfig.SPLITTING_EXECUTOR) Executor splittingExecutor,
+                        @Qualifier(AsyncConfig.EMBEDDING_EXECUTOR) Executor embeddingExecutor,
+                        @Qualifier(AsyncConfig.PERSISTENCE_EXECUTOR) Executor persistenceExecutor,
+                        @Value("${fusioncore.embedding.batch-size:16}") int embedBatchSize) {
+        this.chunkGenerationService = chunkGenerationService;
+        this.nearDuplicateService = nearDuplicateService;
+        this.embeddingModel = embeddingModel;
+        this.splittingExecutor = splittingExecutor;
+        this.embeddingExecutor = embeddingExecutor;
+        this.persistenceExecutor = persistenceExecutor;
+        this.embedBatchSize = Math.max(1, embedBatchSize);
+    }
     
     public boolean generateAndStoreChunkEmbeddings(Document document, UUID fileId, String strategy) {
-        try {
-            if (embeddingModel == null) {
-                log.warn("EmbeddingModel not available for chunk embeddings");
-                return false;
-            }
-            
-            List<TextSegment> chunks = getChunksForStrategy(document, strategy);
-            if (chunks.isEmpty()) {
-                log.warn("No chunks generated for strategy: {}", strategy);
-                return false;
-            }
-            
-            chunkRepository.deleteByFileId(fileId);
-            
-            for (int i = 0; i < chunks.size(); i++) {
-                TextSegment chunk = chunks.get(i);
-                try {
-                    Response<Embedding> response = embeddingModel.embed(chunk);
-                    if (response.content() != null) {
-                        byte[] embeddingBytes = convertToBytes(response.content().vector());
-                        
-                        ChunkEntity chunkEntity = ChunkEntity.builder()
-                                .fileId(fileId)
-                                .text(chunk.text())
-                                .embedding(embeddingBytes)
-                                .chunkIndex(i)
-                                .strategy(strategy)
-                                .textLength(chunk.text().length())
-                                .build();
-                        
-                        chunkRepository.save(chunkEntity);
+        return generateAndStoreChunkEmbeddings(document, fileId, strategy, report -> { });
+    }
+    
+    // onNearDuplicate receives the outcome of the near-duplicate check, once it has been applied
+    public boolean generateAndStoreChunkEmbeddings(Document document, UUID fileId, String strategy,
+                                                   Consumer<NearDuplicateReport> onNearDuplicate) {
+        return generateAndStoreChunkEmbeddingsAsync(document, fileId, strategy, onNearDuplicate).join();
+    }
+    
+    // Split -> stage -> embed batches -> activate, each stage on its own bounded executor. No thread is
+    // held between stages, so while one document waits on Azure another can be split or persisted, and
+    // a full stage queue pushes back on the stage feeding it (caller-runs). Chunk states are written
+    // per batch, so a document that ends up with failed chunks can be resumed rather than redone.
+    public CompletableFuture<Boolean> generateAndStoreChunkEmbeddingsAsync(Document document, UUID fileId, String strategy) {
+        return generateAndStoreChunkEmbeddingsAsync(document, fileId, strategy, report -> { });
+    }
+    
+    public CompletableFuture<Boolean> generateAndStoreChunkEmbeddingsAsync(Document document, UUID fileId, String strategy,
+                                                                           Consumer<NearDuplicateReport> onNearDuplicate) {
+        if (embeddingModel == null) {
+            log.warn("EmbeddingModel not available for chunk embeddings");
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        // The caller's lane is captured here, since the batches embed on the embedding executor's threads
+        EmbeddingPriority priority = EmbeddingPriority.current();
+        return CompletableFuture.supplyAsync(() -> getChunksForStrategy(document, strategy), splittingExecutor)
+                .thenApplyAsync(segments -> segments.isEmpty() ? null
+                        : reuseNearDuplicate(fileId, stage(fileId, strategy, segments), onNearDuplicate), persistenceExecutor)
+                .thenCompose(staged -> {
+                    if (staged == null) {
+                        log.warn("No chunks generated for strategy: {}", strategy);
+                        return CompletableFuture.completedFuture(false);
                     }
-                } catch (Exception e) {
-                    log.warn("Failed to generate embedding for chunk {}: {}", i, e.getMessage());
+                    return embedAndActivate(fileId, staged, priority);
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to generate chunk embeddings: {}", unwrap(e).getMessage(), unwrap(e));
+                    return false;
+                });
+    }
+    
+    public boolean resumeEmbeddings(UUID fileId) {
+        return resumeEmbeddingsAsync(fileId).join();
+    }
+    
+    // Re-embeds only the PENDING or FAILED chunks of the file's latest incomplete generation, then
+    // activates it. Chunks already embedded are never sent to the model again.
+    public CompletableFuture<Boolean> resumeEmbeddingsAsync(UUID fileId) {
+        if (embeddingModel == null) {
+            log.warn("EmbeddingModel not available for chunk embeddings");
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        EmbeddingPriority priority = EmbeddingPriority.current();
+        return CompletableFuture.supplyAsync(() -> chunkGenerationService.findIncompleteGeneration(fileId), persistenceExecutor)
+                .thenCompose(staged -> {
+                    if (staged.isEmpty()) {
+                        log.info("No incomplete generation to resume for file {}", fileId);
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    log.info("Resuming generation {} for file {} with {} unembedded chunks",
+                            staged.get().generation(), fileId, staged.get().chunks().size());
+                    return embedAndActivate(fileId, staged.get(), priority);
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to resume chunk embeddings for file {}: {}", fileId, unwrap(e).getMessage(), unwrap(e));
+                    return false;
+                });
+    }
+    
+    public Optional<EmbeddingProgress> embeddingProgress(UUID fileId) {
+        return chunkGenerationService.embeddingProgress(fileId);
+    }
+    
+    private StagedGeneration stage(UUID fileId, String strategy, List<TextSegment> segments) {
+        List<ChunkEntity> chunks = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            String text = segments.get(i).text();
+            chunks.add(ChunkEntity.builder()
+                    .fileId(fileId)
+                    .text(text)
+                    .chunkIndex(i)
+                    .strategy(strategy)
+                    .textLength(text.length())
+                    .build());
+        }
+        return chunkGenerationService.stageGeneration(fileId, chunks);
+    }
+    
+    // When the document is a near-duplicate of an indexed file, chunks with the same text as one of
+    // that file's active chunks take its vector, and only the remaining chunks go to the model.
+    // Matching is on exact chunk text, so it pays off where both files split at the same places.
+    private StagedGeneration reuseNearDuplicate(UUID fileId, StagedGeneration staged, Consumer<NearDuplicateReport> onNearDuplicate) {
+        Optional<NearDuplicateReport> check = nearDuplicateService.check(fileId,
+                staged.chunks().stream().map(ChunkEntity::getText).toList());
+        if (check.isEmpty()) {
+            return staged;
+        }
+        NearDuplicateReport report = check.get();
+        List<ChunkEntity> remaining = report.isEmbeddingsReused()
+                ? chunkGenerationService.reuseEmbeddings(fileId, staged.chunks(), report.getMatchedFileId())
+                : staged.chunks();
+        report.setReusedChunks(staged.chunks().size() - remaining.size());
+        report.setEmbeddedChunks(remaining.size());
+        onNearDuplicate.accept(report);
+        return new StagedGeneration(staged.generation(), remaining);
+    }
+    
+    // Each batch goes to the embedder as soon as it is cut and its outcome is stored as soon as it
+    // returns. Only a generation with every chunk embedded is activated; otherwise the previous one
+    // keeps serving until a resume fills the gaps.
+    private CompletableFuture<Boolean> embedAndActivate(UUID fileId, StagedGeneration staged, EmbeddingPriority priority) {
+        List<ChunkEntity> chunks = staged.chunks();
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        for (int first = 0; first < chunks.size(); first += embedBatchSize) {
+            List<ChunkEntity> batch = chunks.subList(first, Math.min(first + embedBatchSize, chunks.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> priority.call(() -> embedBatch(batch)), embeddingExecutor)
+                    .thenApplyAsync(embedded -> record(fileId, batch, embedded), persistenceExecutor));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenApplyAsync(ignored -> {
+                    int failed = batches.stream().mapToInt(CompletableFuture::join).sum();
+                    if (failed > 0) {
+                        log.warn("{} of {} chunks failed to embed for file {}; generation {} stays staged until resumed",
+                                failed, chunks.size(), fileId, staged.generation());
+                        return false;
+                    }
+                    if (!chunkGenerationService.activateGeneration(fileId, staged.generation())) {
+                        return false;
+                    }
+                    chunkGenerationService.purgeStaleGenerations(fileId, staged.generation());
+                    log.info("Activated generation {} after embedding {} chunks", staged.generation(), chunks.size());
+                    return true;
+                }, persistenceExecutor);
+    }
+    
+    // One request per batch; a failed batch or empty vector leaves null for the affected chunks
+    private BatchEmbeddings embedBatch(List<ChunkEntity> batch) {
+        List<float[]> vectors = new ArrayList<>(Collections.nCopies(batch.size(), null));
+        String error = null;
+        try {
+            Response<List<Embedding>> response = embeddingModel.embedAll(
+                    batch.stream().map(chunk -> TextSegment.from(chunk.getText())).toList());
+            List<Embedding> embeddings = response != null && response.content() != null ? response.content() : List.of();
+            for (int i = 0; i < Math.min(embeddings.size(), batch.size()); i++) {
+                Embedding embedding = embeddings.get(i);
+                if (embedding != null && embedding.vector().length > 0) {
+                    vectors.set(i, embedding.vector());
                 }
             }
-            
-            log.info("Generated and stored embeddings for {} chunks using {} strategy", chunks.size(), strategy);
-            return true;
-            
         } catch (Exception e) {
-            log.error("Failed to generate chunk embeddings: {}", e.getMessage(), e);
-            return false;
+            log.warn("Failed to generate embeddings for chunks {}-{}: {}",
+                    batch.get(0).getChunkIndex(), batch.get(batch.size() - 1).getChunkIndex(), e.getMessage());
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
         }
+        return new BatchEmbeddings(vectors, error);
+    }
+    
+    private int record(UUID fileId, List<ChunkEntity> batch, BatchEmbeddings embedded) {
+        chunkGenerationService.recordEmbeddings(fileId, batch, embedded.vectors(), embedded.error());
+        return (int) embedded.vectors().stream().filter(Objects::isNull).count();
+    }
+    
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+    
+    private record BatchEmbeddings(List<float[]> vectors, String error) {
     }
     
     private List<TextSegment> getChunksForStrategy(Document document, String strategy) {
@@ -82,16 +238,4 @@ public class ChunkService {
                 return new DocumentByCharacterSplitter(500, 50).split(document);
         }
     }
-    
-    private byte[] convertToBytes(float[] vector) {
-        byte[] bytes = new byte[vector.length * 4];
-        for (int i = 0; i < vector.length; i++) {
-            int bits = Float.floatToIntBits(vector[i]);
-            bytes[i * 4] = (byte) (bits >> 24);
-            bytes[i * 4 + 1] = (byte) (bits >> 16);
-            bytes[i * 4 + 2] = (byte) (bits >> 8);
-            bytes[i * 4 + 3] = (byte) bits;
-        }
-        return bytes;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.SearchFilter;
+import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.SimilarChunkView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "fusioncore.search.backend", havingValue = "database", matchIfMissing = true)
+public class DatabaseSearchBackend implements VectorSearchBackend {
+
+    private final ChunkRepository chunkRepository;
+    private final FileRepository fileRepository;
+
+    @Override
+    public List<SearchResult> search(float[] queryVector, int limit, double minSimilarity) {
+        return toSearchResults(chunkRepository.findSimilarChunks(EmbeddingCodec.toBytes(queryVector), 1 - minSimilarity, limit));
+    }
+
+    @Override
+    public List<SearchResult> searchWithinFiles(float[] queryVector, Collection<UUID> fileIds, int limit, double minSimilarity) {
+        return toSearchResults(chunkRepository.findSimilarChunksInFiles(
+                EmbeddingCodec.toBytes(queryVector), fileIds.toArray(UUID[]::new), 1 - minSimilarity, limit));
+    }
+
+    @Override
+    public List<SearchResult> searchMatching(float[] queryVector, SearchFilter filter, int limit, double minSimilarity) {
+        UUID[] fileIds = filter.restrictsFileIds() ? filter.getFileIds().toArray(UUID[]::new) : new UUID[0];
+        return toSearchResults(chunkRepository.findSimilarChunksMatching(EmbeddingCodec.toBytes(queryVector), fileIds,
+                filter.getStrategy(), filter.getFileType(), filter.getUploadedAfter(), filter.getUploadedBefore(),
+                filter.getExcludedFileId(), 1 - minSimilarity, limit));
+    }
+
+    // Like the chunk queries above this scans user_files; the in-process backends keep centroids in memory
+    @Override
+    public List<UUID> nearestDocuments(float[] queryVector, int limit) {
+        return fileRepository.findNearestDocuments(EmbeddingCodec.toBytes(queryVector), limit);
+    }
+
+    private List<SearchResult> toSearchResults(List<SimilarChunkView> results) {
+        List<SearchResult> searchResults = new ArrayList<>(results.size());
+        for (SimilarChunkView result : results) {
+            searchResults.add(SearchResult.builder()
+                    .fileId(result.getFileId())
+                    .fileName(result.getFileName() != null ? result.getFileName() : "Unknown")
+                    .chunkText(result.getText())
+                    .similarityScore(result.getSimilarityScore())
+                    .chunkIndex(result.getChunkIndex())
+                    .build());
+        }
+        return searchResults;
+    }
+}
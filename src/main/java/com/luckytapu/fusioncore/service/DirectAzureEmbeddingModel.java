@@ -8,6 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -17,23 +18,83 @@ public class DirectAzureEmbeddingModel implements EmbeddingModel {
     private final String endpoint;
     private final String deploymentName;
     private final RestTemplate restTemplate;
+    // Caps in-flight requests to Azure however many (virtual) threads are embedding at once, and
+    // decides which priority lane gets the next free slot
+    private final EmbeddingScheduler scheduler;
     
     public DirectAzureEmbeddingModel(String apiKey, String endpoint, String deploymentName) {
+        this(apiKey, endpoint, deploymentName, EmbeddingScheduler.unbounded());
+    }
+    
+    public DirectAzureEmbeddingModel(String apiKey, String endpoint, String deploymentName, EmbeddingScheduler scheduler) {
         this.apiKey = apiKey;
         this.endpoint = endpoint;
         this.deploymentName = deploymentName;
         this.restTemplate = new RestTemplate();
+        this.scheduler = scheduler;
     }
 
+    // One request for the whole list; the API returns one embedding per input, tagged with its index
     @Override
     public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
-        // For simplicity, just embed the first segment
         if (textSegments.isEmpty()) {
             return Response.from(List.of());
         }
         
-        Response<Embedding> singleResponse = embed(textSegments.get(0));
-        return Response.from(List.of(singleResponse.content()));
+        Embedding[] embeddings = new Embedding[textSegments.size()];
+        Arrays.fill(embeddings, Embedding.from(new float[0]));
+        try {
+            String url = endpoint + "/openai/deployments/" + deploymentName + "/embeddings?api-version=2023-05-15";
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("api-key", apiKey);
+            
+            List<String> inputs = textSegments.stream().map(TextSegment::text).toList();
+            HttpEntity<Map<String, Object>> request = new HttpEntity<>(Map.of("input", inputs), headers);
+            
+            ResponseEntity<Map> response = post(url, request);
+            
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                List<Map<String, Object>> data = (List<Map<String, Object>>) response.getBody().get("data");
+                if (data != null) {
+                    for (Map<String, Object> item : data) {
+                        int index = ((Number) item.get("index")).intValue();
+                        embeddings[index] = Embedding.from(toVector((List<Number>) item.get("embedding")));
+                    }
+                    return Response.from(Arrays.asList(embeddings));
+                }
+            }
+            
+            log.error("Failed to get batch embeddings from Azure OpenAI");
+        } catch (Exception e) {
+            log.error("Error calling Azure OpenAI embedding API for {} inputs: {}", textSegments.size(), e.getMessage());
+        }
+        return Response.from(Arrays.asList(embeddings));
+    }
+    
+    // Scheduled in the lane the calling thread was tagged with
+    private ResponseEntity<Map> post(String url, HttpEntity<?> request) {
+        EmbeddingPriority priority = EmbeddingPriority.current();
+        try {
+            scheduler.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting to call Azure OpenAI", e);
+        }
+        try {
+            return restTemplate.postForEntity(url, request, Map.class);
+        } finally {
+            scheduler.release(priority);
+        }
+    }
+    
+    private static float[] toVector(List<Number> values) {
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            vector[i] = values.get(i).floatValue();
+        }
+        return vector;
     }
 
     @Override
@@ -53,7 +114,7 @@ public class DirectAzureEmbeddingModel implements EmbeddingModel {
             String body = "{\"input\": \"" + text.replace("\"", "\\\"") + "\"}";
             HttpEntity<String> request = new HttpEntity<>(body, headers);
             
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
+            ResponseEntity<Map> response = post(url, request);
             
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -0,0 +1,83 @@
+package com.luckytapu.fusioncore.service;
+
+import java.util.List;
+
+// Embeddings are stored as big-endian float32 bytes
+public final class EmbeddingCodec {
+
+    private EmbeddingCodec() {
+    }
+
+    public static byte[] toBytes(float[] vector) {
+        byte[] bytes = new byte[vector.length * 4];
+        for (int i = 0; i < vector.length; i++) {
+            int bits = Float.floatToIntBits(vector[i]);
+            bytes[i * 4] = (byte) (bits >> 24);
+            bytes[i * 4 + 1] = (byte) (bits >> 16);
+            bytes[i * 4 + 2] = (byte) (bits >> 8);
+            bytes[i * 4 + 3] = (byte) bits;
+        }
+        return bytes;
+    }
+
+    public static float[] toFloats(byte[] bytes) {
+        float[] vector = new float[bytes.length / 4];
+        for (int i = 0; i < vector.length; i++) {
+            int bits = ((bytes[i * 4] & 0xFF) << 24)
+                    | ((bytes[i * 4 + 1] & 0xFF) << 16)
+                    | ((bytes[i * 4 + 2] & 0xFF) << 8)
+                    | (bytes[i * 4 + 3] & 0xFF);
+            vector[i] = Float.intBitsToFloat(bits);
+        }
+        return vector;
+    }
+
+    // Normalized mean of the normalized vectors, so every vector counts the same whatever its length
+    public static float[] centroid(List<float[]> vectors) {
+        double[] sum = new double[vectors.get(0).length];
+        for (float[] vector : vectors) {
+            float[] normalized = normalize(vector);
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += normalized[i];
+            }
+        }
+        float[] mean = new float[sum.length];
+        for (int i = 0; i < sum.length; i++) {
+            mean[i] = (float) (sum[i] / vectors.size());
+        }
+        return normalize(mean);
+    }
+
+    // The similarity the search backends report: 1 - cosine distance
+    public static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+
+    // Returns a unit-length copy so cosine similarity reduces to a dot product
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+}
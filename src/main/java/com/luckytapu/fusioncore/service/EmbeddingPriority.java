@@ -0,0 +1,35 @@
+package com.luckytapu.fusioncore.service;
+
+import java.util.function.Supplier;
+
+// Lane an embedding request is scheduled in, highest first. Callers tag their thread with run/call
+// and the embedding model picks the lane up when it asks EmbeddingScheduler for a permit.
+public enum EmbeddingPriority {
+    INTERACTIVE,
+    INGEST,
+    BULK;
+
+    // Untagged work (single uploads, ingestion jobs) is treated as ordinary ingest
+    private static final ThreadLocal<EmbeddingPriority> CURRENT = ThreadLocal.withInitial(() -> INGEST);
+
+    public static EmbeddingPriority current() {
+        return CURRENT.get();
+    }
+
+    public <T> T call(Supplier<T> work) {
+        EmbeddingPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+}
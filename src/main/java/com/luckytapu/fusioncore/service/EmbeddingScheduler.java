@@ -0,0 +1,168 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.EmbeddingLaneStats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hands out the in-flight embedding request permits by priority lane. The top `reserved` permits
+// only ever go to INTERACTIVE requests, so a search finds capacity even while a backfill holds
+// everything else. While lanes are queued, permits are granted by start-time fair queuing on the
+// lane weights: each lane gets a share in proportion to its weight and none is starved.
+public class EmbeddingScheduler {
+
+    private final int permits;
+    private final int reserved;
+    private final Map<EmbeddingPriority, Lane> lanes = new EnumMap<>(EmbeddingPriority.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private int inFlight;
+    // Start tag of the request granted last; a lane returning from idle starts here rather than
+    // cashing in the share it didn't use
+    private double virtualTime;
+
+    public EmbeddingScheduler(int permits, int reservedInteractive, Map<EmbeddingPriority, Integer> weights) {
+        this.permits = Math.max(1, permits);
+        this.reserved = Math.max(0, Math.min(reservedInteractive, this.permits - 1));
+        for (EmbeddingPriority priority : EmbeddingPriority.values()) {
+            lanes.put(priority, new Lane(priority, Math.max(1, weights.getOrDefault(priority, 1))));
+        }
+    }
+
+    // No cap and equal weights, for callers that don't share a rate limit
+    public static EmbeddingScheduler unbounded() {
+        return new EmbeddingScheduler(Integer.MAX_VALUE, 0, Map.of());
+    }
+
+    public void acquire(EmbeddingPriority priority) throws InterruptedException {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(priority);
+            double start = Math.max(virtualTime, lane.lastFinish);
+            lane.lastFinish = start + 1.0 / lane.weight;
+            Waiter waiter = new Waiter(lane, start, lock.newCondition(), System.nanoTime());
+            lane.queue.add(waiter);
+            dispatch();
+            while (!waiter.granted) {
+                try {
+                    waiter.condition.await();
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        releaseLocked(lane);
+                    } else {
+                        lane.queue.remove(waiter);
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(EmbeddingPriority priority) {
+        lock.lock();
+        try {
+            releaseLocked(lanes.get(priority));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<EmbeddingLaneStats> stats() {
+        lock.lock();
+        try {
+            List<EmbeddingLaneStats> stats = new ArrayList<>(lanes.size());
+            for (Lane lane : lanes.values()) {
+                stats.add(EmbeddingLaneStats.builder()
+                        .lane(lane.priority.name())
+                        .weight(lane.weight)
+                        .permitLimit(limit(lane.priority))
+                        .inFlight(lane.inFlight)
+                        .queued(lane.queue.size())
+                        .granted(lane.granted)
+                        .averageWaitMs(lane.granted == 0 ? 0 : (double) lane.totalWaitNanos / lane.granted / TimeUnit.MILLISECONDS.toNanos(1))
+                        .maxWaitMs((double) lane.maxWaitNanos / TimeUnit.MILLISECONDS.toNanos(1))
+                        .build());
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked(Lane lane) {
+        inFlight--;
+        lane.inFlight--;
+        dispatch();
+    }
+
+    // Grants free permits to the queued request with the smallest start tag among the lanes still
+    // under their limit; ties go to the higher lane
+    private void dispatch() {
+        while (true) {
+            Waiter next = null;
+            for (Lane lane : lanes.values()) {
+                Waiter head = lane.queue.peek();
+                if (head != null && inFlight < limit(lane.priority) && (next == null || head.start < next.start)) {
+                    next = head;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            Lane lane = next.lane;
+            lane.queue.poll();
+            inFlight++;
+            lane.inFlight++;
+            lane.granted++;
+            long waited = System.nanoTime() - next.enqueuedAt;
+            lane.totalWaitNanos += waited;
+            lane.maxWaitNanos = Math.max(lane.maxWaitNanos, waited);
+            virtualTime = next.start;
+            next.granted = true;
+            next.condition.signal();
+        }
+    }
+
+    private int limit(EmbeddingPriority priority) {
+        return priority == EmbeddingPriority.INTERACTIVE ? permits : permits - reserved;
+    }
+
+    private static final class Lane {
+        private final EmbeddingPriority priority;
+        private final int weight;
+        private final Deque<Waiter> queue = new ArrayDeque<>();
+        private double lastFinish;
+        private int inFlight;
+        private long granted;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private Lane(EmbeddingPriority priority, int weight) {
+            this.priority = priority;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Waiter {
+        private final Lane lane;
+        private final double start;
+        private final Condition condition;
+        private final long enqueuedAt;
+        private boolean granted;
+
+        private Waiter(Lane lane, double start, Condition condition, long enqueuedAt) {
+            this.lane = lane;
+            this.start = start;
+            this.condition = condition;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.config.AsyncConfig;
+import com.luckytapu.fusioncore.config.CountingRejectedExecutionHandler;
+import com.luckytapu.fusioncore.config.StageTimer;
+import com.luckytapu.fusioncore.config.TimedThreadPoolTaskExecutor;
+import com.luckytapu.fusioncore.config.VirtualThreadExecutor;
+import com.luckytapu.fusioncore.model.ExecutorStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Queue depth, active count, rejections, queue waits and utilization of the ingest stage pools
+@Service
+@Slf4j
+public class ExecutorMonitor {
+
+    private final Map<String, Executor> executors = new LinkedHashMap<>();
+    private final double saturationWarning;
+
+    public ExecutorMonitor(@Qualifier(AsyncConfig.PARSING_EXECUTOR) Executor parsingExecutor,
+                           @Qualifier(AsyncConfig.SPLITTING_EXECUTOR) Executor splittingExecutor,
+                           @Qualifier(AsyncConfig.EMBEDDING_EXECUTOR) Executor embeddingExecutor,
+                           @Qualifier(AsyncConfig.PERSISTENCE_EXECUTOR) Executor persistenceExecutor,
+                           @Value("${fusioncore.executors.saturation-warning:0.8}") double saturationWarning) {
+        executors.put("parsing", parsingExecutor);
+        executors.put("splitting", splittingExecutor);
+        executors.put("embedding", embeddingExecutor);
+        executors.put("persistence", persistenceExecutor);
+        this.saturationWarning = saturationWarning;
+    }
+
+    public List<ExecutorStats> stats() {
+        return executors.entrySet().stream()
+                .map(entry -> stats(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    // Surfaces a stage that is falling behind before its queue fills and the rejection policy kicks in
+    @Scheduled(initialDelayString = "${fusioncore.executors.report-interval:PT1M}",
+            fixedDelayString = "${fusioncore.executors.report-interval:PT1M}")
+    public void reportSaturation() {
+        for (ExecutorStats stats : stats()) {
+            int capacity = stats.getQueueDepth() + stats.getQueueRemainingCapacity();
+            if (capacity > 0 && stats.getQueueDepth() >= capacity * saturationWarning) {
+                log.warn("{} executor queue at {}/{} with {} of {} threads active ({} rejected so far, max wait {}ms)",
+                        stats.getName(), stats.getQueueDepth(), capacity, stats.getActiveCount(),
+                        stats.getMaxPoolSize(), stats.getRejectedCount(), Math.round(stats.getMaxQueueWaitMs()));
+            }
+        }
+    }
+
+    private static ExecutorStats stats(String name, Executor executor) {
+        if (executor instanceof VirtualThreadExecutor virtual) {
+            return virtual.stats(name);
+        }
+        if (executor instanceof TimedThreadPoolTaskExecutor pool) {
+            ExecutorStats stats = stats(name, pool.getThreadPoolExecutor());
+            StageTimer timer = pool.getStageTimer();
+            stats.setAverageQueueWaitMs(timer.averageQueueWaitMillis());
+            stats.setMaxQueueWaitMs(timer.maxQueueWaitMillis());
+            stats.setUtilization(timer.utilization(stats.getMaxPoolSize()));
+            return stats;
+        }
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            return stats(name, pool.getThreadPoolExecutor());
+        }
+        return ExecutorStats.builder().name(name).build();
+    }
+
+    static ExecutorStats stats(String name, ThreadPoolExecutor executor) {
+        CountingRejectedExecutionHandler rejections = executor.getRejectedExecutionHandler() instanceof CountingRejectedExecutionHandler counting
+                ? counting : null;
+        return ExecutorStats.builder()
+                .name(name)
+                .poolSize(executor.getPoolSize())
+                .maxPoolSize(executor.getMaximumPoolSize())
+                .activeCount(executor.getActiveCount())
+                .queueDepth(executor.getQueue().size())
+                .queueRemainingCapacity(executor.getQueue().remainingCapacity())
+                .completedTaskCount(executor.getCompletedTaskCount())
+                .rejectionPolicy(rejections != null ? rejections.policy() : null)
+                .rejectedCount(rejections != null ? rejections.rejectedCount() : 0)
+                .build();
+    }
+}
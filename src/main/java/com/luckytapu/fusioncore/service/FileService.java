@@ -3,13 +3,17 @@ package com.luckytapu.fusioncore.service;
 import com.luckytapu.fusioncore.entity.FileEntity;
 import com.luckytapu.fusioncore.model.ChunkingReport;
 import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
+import com.luckytapu.fusioncore.model.SearchFilter;
 import com.luckytapu.fusioncore.model.SearchResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public interface FileService {
     // Legacy methods (kept for backward compatibility)
@@ -19,7 +23,23 @@ public interface FileService {
     
     // Enhanced methods
     DocumentProcessingResult processDocument(MultipartFile file, boolean generateEmbeddings) throws IOException;
-    CompletableFuture<DocumentProcessingResult> processDocumentAsync(MultipartFile file, boolean generateEmbeddings);
+    // force processes the upload even when identical content was already processed
+    DocumentProcessingResult processDocument(MultipartFile file, boolean generateEmbeddings, boolean force) throws IOException;
+    // Stores and processes a document that did not arrive as an upload, e.g. a bulk import entry
+    DocumentProcessingResult processDocument(String fileName, byte[] content, boolean generateEmbeddings);
+    // Id of an already processed file with the same bytes; with generateEmbeddings it must also be indexed
+    Optional<UUID> findProcessedCopy(byte[] content, boolean generateEmbeddings);
+    // Processes a file that was already saved, e.g. by an ingestion job; progress receives percent complete
+    DocumentProcessingResult processStoredDocument(UUID fileId, boolean generateEmbeddings, IntConsumer progress);
+    // Chunk embedding states of the file's latest generation; empty when the file does not exist
+    Optional<EmbeddingProgress> getEmbeddingProgress(UUID fileId);
+    // Re-embeds only the missing or failed chunks of an incomplete ingest; IllegalArgumentException for an unknown file
+    EmbeddingProgress resumeEmbeddings(UUID fileId);
     List<SearchResult> searchDocuments(String query, int limit);
+    
+    List<SearchResult> searchDocuments(String query, int limit, SearchFilter filter, Double minSimilarity);
     List<DocumentProcessingResult> processBatch(List<MultipartFile> files, boolean generateEmbeddings);
+    // Same, also handing each result to onResult (one call at a time) as soon as its file finishes
+    List<DocumentProcessingResult> processBatch(List<MultipartFile> files, boolean generateEmbeddings,
+                                                Consumer<DocumentProcessingResult> onResult);
 }
@@ -1,9 +1,11 @@
 package com.luckytapu.fusioncore.service;
 
+import com.luckytapu.fusioncore.config.AsyncConfig;
 import com.luckytapu.fusioncore.entity.FileEntity;
 import com.luckytapu.fusioncore.model.ChunkingReport;
 import com.luckytapu.fusioncore.model.FileStatus;
 import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.ProcessedFileView;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentParser;
 import dev.langchain4j.data.document.parser.apache.pdfbox.ApachePdfBoxDocumentParser;
@@ -15,20 +17,41 @@ import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
 import dev.langchain4j.data.embedding.Embedding;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.Comparator;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
+import com.luckytapu.fusioncore.model.NearDuplicateReport;
+import com.luckytapu.fusioncore.model.SearchFilter;
 import com.luckytapu.fusioncore.model.SearchResult;
 import com.luckytapu.fusioncore.entity.ChunkEntity;
 import com.luckytapu.fusioncore.repository.ChunkRepository;
@@ -42,6 +65,10 @@ public class FileServiceImpl implements FileService {
     private final ChunkRepository chunkRepository;
     private final VectorSearchService vectorSearchService;
     private final ChunkService chunkService;
+    private final Executor parsingExecutor;
+    private final ExecutorService batchExecutor;
+    private final int batchParallelism;
+    private final Duration batchFileTimeout;
     
     @Value("${fusioncore.embedding.test-strategies:true}")
     private boolean testEmbeddingStrategies;
@@ -51,26 +78,44 @@ public class FileServiceImpl implements FileService {
     
     public FileServiceImpl(FileRepository fileRepository, EmbeddingModel embeddingModel, 
                           ChunkRepository chunkRepository, VectorSearchService vectorSearchService,
-                          ChunkService chunkService) {
+                          ChunkService chunkService,
+                          @Qualifier(AsyncConfig.PARSING_EXECUTOR) Executor parsingExecutor,
+                          @Value("${fusioncore.processing.batch.parallelism:4}") int batchParallelism,
+                          @Value("${fusioncore.processing.batch.file-timeout:PT5M}") Duration batchFileTimeout,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.fileRepository = fileRepository;
         this.embeddingModel = embeddingModel;
         this.chunkRepository = chunkRepository;
         this.vectorSearchService = vectorSearchService;
         this.chunkService = chunkService;
+        this.parsingExecutor = parsingExecutor;
+        this.batchParallelism = Math.max(1, batchParallelism);
+        this.batchFileTimeout = batchFileTimeout;
+        this.batchExecutor = AsyncConfig.workerPool("batch-process-", this.batchParallelism, virtualThreads);
         if (embeddingModel == null) {
             log.warn("EmbeddingModel is null - embedding functionality will be disabled");
         }
     }
+    
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
 
     @Override
     public FileEntity saveFile(MultipartFile file) throws IOException {
         byte[] fileBytes = file.getBytes();
-        log.info("Saving file: {}, size: {}", file.getOriginalFilename(), fileBytes.length);
+        return saveFile(file.getOriginalFilename(), file.getContentType(), fileBytes, contentHash(fileBytes));
+    }
+
+    private FileEntity saveFile(String fileName, String fileType, byte[] fileBytes, String contentHash) {
+        log.info("Saving file: {}, size: {}", fileName, fileBytes.length);
 
         FileEntity fileEntity = FileEntity.builder()
-                .fileName(file.getOriginalFilename())
-                .fileType(file.getContentType())
+                .fileName(fileName)
+                .fileType(fileType)
                 .data(fileBytes)
+                .contentHash(contentHash)
                 .status(FileStatus.UPLOADED)
                 .build();
 
@@ -94,14 +139,7 @@ public class FileServiceImpl implements FileService {
             strategies.add(testSentenceSplitter(document));
             strategies.add(testParagraphSplitter(document));
             
-            ChunkingReport.ChunkingStrategy bestStrategy = findBestStrategy(strategies);
-            if (bestStrategy.isEmbeddingTestPassed()) {
-                byte[] vectorData = generateAndStoreEmbeddings(document);
-                savedFile.setVectorData(vectorData);
-                updateFileStatus(savedFile.getFileId(), FileStatus.PROCESSED);
-            } else {
-                updateFileStatus(savedFile.getFileId(), FileStatus.PROCESSED);
-            }
+            updateFileStatus(savedFile.getFileId(), FileStatus.PROCESSED);
             
             return ChunkingReport.builder()
                     .fileName(file.getOriginalFilename())
@@ -125,10 +163,13 @@ public class FileServiceImpl implements FileService {
     }
 
     private Document loadDocument(MultipartFile file) throws IOException {
-        byte[] fileBytes = file.getBytes();
+        return loadDocument(file.getOriginalFilename(), file.getBytes());
+    }
+
+    private Document loadDocument(String fileName, byte[] fileBytes) {
         ByteArrayInputStream inputStream = new ByteArrayInputStream(fileBytes);
         
-        DocumentParser parser = file.getOriginalFilename().toLowerCase().endsWith(".pdf") 
+        DocumentParser parser = fileName.toLowerCase().endsWith(".pdf") 
             ? new ApachePdfBoxDocumentParser() 
             : new ApacheTikaDocumentParser();
         
@@ -321,92 +362,298 @@ public class FileServiceImpl implements FileService {
     // Enhanced methods implementation
     @Override
     public DocumentProcessingResult processDocument(MultipartFile file, boolean generateEmbeddings) throws IOException {
+        return processDocument(file, generateEmbeddings, false);
+    }
+    
+    @Override
+    public DocumentProcessingResult processDocument(MultipartFile file, boolean generateEmbeddings, boolean force) throws IOException {
+        return processUpload(file, generateEmbeddings, force, fileId -> { });
+    }
+    
+    // onSaved receives the file id once the upload is stored (or matched), before parsing starts
+    private DocumentProcessingResult processUpload(MultipartFile file, boolean generateEmbeddings, boolean force, Consumer<UUID> onSaved) {
         long startTime = System.currentTimeMillis();
         log.info("Processing document: {} with embeddings: {}", file.getOriginalFilename(), generateEmbeddings);
         
+        UUID fileId = null;
         try {
-            FileEntity savedFile = saveFile(file);
-            Document document = loadDocument(file);
-            
-            // Use default strategy or run analysis based on configuration
-            ChunkingReport report;
-            if (testEmbeddingStrategies) {
-                report = analyzeAllStrategies(document, file.getOriginalFilename());
-            } else {
-                report = analyzeDefaultStrategy(document, file.getOriginalFilename());
+            byte[] fileBytes = file.getBytes();
+            String contentHash = contentHash(fileBytes);
+            Optional<DocumentProcessingResult> duplicate = force ? Optional.empty()
+                    : findDuplicate(file.getOriginalFilename(), contentHash, generateEmbeddings, startTime);
+            if (duplicate.isPresent()) {
+                onSaved.accept(duplicate.get().getFileId());
+                return duplicate.get();
             }
-            
-            boolean embeddingsGenerated = false;
-            if (generateEmbeddings && embeddingModel != null) {
-                ChunkingReport.ChunkingStrategy bestStrategy = findBestStrategy(report.getStrategies());
-                embeddingsGenerated = chunkService.generateAndStoreChunkEmbeddings(document, savedFile.getFileId(), bestStrategy.getStrategyName());
-                
-                // Also store document-level embedding for backward compatibility
-                if (embeddingsGenerated) {
-                    byte[] vectorData = generateAndStoreEmbeddings(document);
-                    if (vectorData != null) {
-                        savedFile.setVectorData(vectorData);
-                    }
-                }
-            }
-            
-            updateFileStatus(savedFile.getFileId(), FileStatus.PROCESSED);
-            long processingTime = System.currentTimeMillis() - startTime;
-            
-            return DocumentProcessingResult.builder()
-                    .fileEntity(savedFile)
-                    .chunkingReport(report)
-                    .embeddingsGenerated(embeddingsGenerated)
-                    .processingStatus("SUCCESS")
-                    .processingTimeMs(processingTime)
-                    .build();
-                    
+            FileEntity savedFile = saveFile(file.getOriginalFilename(), file.getContentType(), fileBytes, contentHash);
+            fileId = savedFile.getFileId();
+            onSaved.accept(fileId);
+            return processSavedDocument(savedFile, fileBytes, generateEmbeddings, progress -> { }, startTime);
         } catch (Exception e) {
             log.error("Document processing failed: {}", e.getMessage());
-            long processingTime = System.currentTimeMillis() - startTime;
-            
-            return DocumentProcessingResult.builder()
-                    .processingStatus("FAILED: " + e.getMessage())
-                    .processingTimeMs(processingTime)
-                    .embeddingsGenerated(false)
-                    .build();
+            return failedResult(e, startTime, file.getOriginalFilename(), fileId);
+        }
+    }
+    
+    @Override
+    public DocumentProcessingResult processDocument(String fileName, byte[] content, boolean generateEmbeddings) {
+        long startTime = System.currentTimeMillis();
+        log.info("Processing document: {} with embeddings: {}", fileName, generateEmbeddings);
+        
+        UUID fileId = null;
+        try {
+            String contentHash = contentHash(content);
+            Optional<DocumentProcessingResult> duplicate = findDuplicate(fileName, contentHash, generateEmbeddings, startTime);
+            if (duplicate.isPresent()) {
+                return duplicate.get();
+            }
+            FileEntity savedFile = saveFile(fileName, URLConnection.guessContentTypeFromName(fileName), content, contentHash);
+            fileId = savedFile.getFileId();
+            return processSavedDocument(savedFile, content, generateEmbeddings, progress -> { }, startTime);
+        } catch (Exception e) {
+            log.error("Document processing failed for {}: {}", fileName, e.getMessage());
+            return failedResult(e, startTime, fileName, fileId);
+        }
+    }
+    
+    @Override
+    public DocumentProcessingResult processStoredDocument(UUID fileId, boolean generateEmbeddings, IntConsumer progress) {
+        long startTime = System.currentTimeMillis();
+        log.info("Processing stored file: {} with embeddings: {}", fileId, generateEmbeddings);
+        
+        try {
+            FileEntity storedFile = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+            return processSavedDocument(storedFile, storedFile.getData(), generateEmbeddings, progress, startTime);
+        } catch (Exception e) {
+            log.error("Stored document processing failed for {}: {}", fileId, e.getMessage());
+            fileRepository.findById(fileId).ifPresent(storedFile -> {
+                storedFile.setStatus(FileStatus.FAILED);
+                fileRepository.save(storedFile);
+            });
+            return failedResult(e, startTime, null, fileId);
+        }
+    }
+    
+    private DocumentProcessingResult processSavedDocument(FileEntity savedFile, byte[] fileBytes, boolean generateEmbeddings,
+                                                          IntConsumer progress, long startTime) {
+        progress.accept(10);
+        
+        // Parsing and splitter analysis are CPU-bound, so they run on the parsing pool
+        ParsedDocument parsed = onParsingExecutor(() -> {
+            Document document = loadDocument(savedFile.getFileName(), fileBytes);
+            // Use default strategy or run analysis based on configuration
+            ChunkingReport report = testEmbeddingStrategies
+                    ? analyzeAllStrategies(document, savedFile.getFileName())
+                    : analyzeDefaultStrategy(document, savedFile.getFileName());
+            return new ParsedDocument(document, report);
+        });
+        Document document = parsed.document();
+        ChunkingReport report = parsed.report();
+        progress.accept(40);
+        
+        boolean embeddingsGenerated = false;
+        String processingStatus = "SUCCESS";
+        AtomicReference<NearDuplicateReport> nearDuplicate = new AtomicReference<>();
+        if (generateEmbeddings && embeddingModel != null) {
+            ChunkingReport.ChunkingStrategy bestStrategy = findBestStrategy(report.getStrategies());
+            // Also stores the document vector as the centroid of the chunk embeddings
+            embeddingsGenerated = chunkService.generateAndStoreChunkEmbeddings(document, savedFile.getFileId(),
+                    bestStrategy.getStrategyName(), nearDuplicate::set);
+            if (!embeddingsGenerated) {
+                processingStatus = incompleteStatus(savedFile.getFileId()).orElse(processingStatus);
+            }
         }
+        progress.accept(90);
+        
+        // An incomplete ingest leaves the file FAILED until resumeEmbeddings fills in the missing chunks
+        updateFileStatus(savedFile.getFileId(), "SUCCESS".equals(processingStatus) ? FileStatus.PROCESSED : FileStatus.FAILED);
+        long processingTime = System.currentTimeMillis() - startTime;
+        
+        return DocumentProcessingResult.builder()
+                .fileName(savedFile.getFileName())
+                .fileId(savedFile.getFileId())
+                .fileEntity(savedFile)
+                .chunkingReport(report)
+                .embeddingsGenerated(embeddingsGenerated)
+                .nearDuplicate(nearDuplicate.get())
+                .processingStatus(processingStatus)
+                .processingTimeMs(processingTime)
+                .build();
     }
     
     @Override
-    @Async
-    public CompletableFuture<DocumentProcessingResult> processDocumentAsync(MultipartFile file, boolean generateEmbeddings) {
+    public Optional<UUID> findProcessedCopy(byte[] content, boolean generateEmbeddings) {
+        return findProcessedCopy(contentHash(content), generateEmbeddings).map(ProcessedFileView::getFileId);
+    }
+    
+    // When embeddings are wanted the match must also have an active chunk set
+    private Optional<ProcessedFileView> findProcessedCopy(String contentHash, boolean generateEmbeddings) {
+        boolean indexed = generateEmbeddings && embeddingModel != null;
+        return fileRepository.findProcessedByContentHash(contentHash, indexed, Limit.of(1)).stream().findFirst();
+    }
+    
+    // Identical bytes that were already processed are answered from that file: no new row, and no
+    // parsing or embedding
+    private Optional<DocumentProcessingResult> findDuplicate(String fileName, String contentHash,
+                                                             boolean generateEmbeddings, long startTime) {
+        return findProcessedCopy(contentHash, generateEmbeddings)
+                .map(existing -> {
+                    log.info("{} has the same content as processed file {}, skipping processing", fileName, existing.getFileId());
+                    return DocumentProcessingResult.builder()
+                            .fileName(fileName)
+                            .fileId(existing.getFileId())
+                            .embeddingsGenerated(existing.getActiveGeneration() > 0)
+                            .deduplicated(true)
+                            .processingStatus("SUCCESS")
+                            .processingTimeMs(System.currentTimeMillis() - startTime)
+                            .build();
+                });
+    }
+    
+    static String contentHash(byte[] content) {
         try {
-            DocumentProcessingResult result = processDocument(file, generateEmbeddings);
-            return CompletableFuture.completedFuture(result);
-        } catch (IOException e) {
-            return CompletableFuture.failedFuture(e);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
     
+    // Set when the chunks were staged but some could not be embedded, as opposed to a document with no chunks
+    private Optional<String> incompleteStatus(UUID fileId) {
+        return chunkService.embeddingProgress(fileId)
+                .filter(embedding -> !embedding.isActive() && !embedding.isComplete())
+                .map(embedding -> "INCOMPLETE: " + (embedding.getPendingChunks() + embedding.getFailedChunks())
+                        + " of " + embedding.getTotalChunks() + " chunks not embedded");
+    }
+    
+    @Override
+    public Optional<EmbeddingProgress> getEmbeddingProgress(UUID fileId) {
+        return chunkService.embeddingProgress(fileId);
+    }
+    
+    @Override
+    public EmbeddingProgress resumeEmbeddings(UUID fileId) {
+        if (!fileRepository.existsById(fileId)) {
+            throw new IllegalArgumentException("File not found: " + fileId);
+        }
+        if (embeddingModel != null && chunkService.resumeEmbeddings(fileId)) {
+            updateFileStatus(fileId, FileStatus.PROCESSED);
+        }
+        return chunkService.embeddingProgress(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+    }
+    
+    private <T> T onParsingExecutor(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, parsingExecutor).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+    
+    private record ParsedDocument(Document document, ChunkingReport report) {
+    }
+    
+    private DocumentProcessingResult failedResult(Throwable e, long startTime, String fileName, UUID fileId) {
+        return DocumentProcessingResult.builder()
+                .fileName(fileName)
+                .fileId(fileId)
+                .processingStatus("FAILED: " + e.getMessage())
+                .processingTimeMs(System.currentTimeMillis() - startTime)
+                .embeddingsGenerated(false)
+                .build();
+    }
+    
     @Override
     public List<SearchResult> searchDocuments(String query, int limit) {
         log.info("Searching documents for query: {} with limit: {}", query, limit);
         return vectorSearchService.searchSimilarChunks(query, limit);
     }
     
+    @Override
+    public List<SearchResult> searchDocuments(String query, int limit, SearchFilter filter, Double minSimilarity) {
+        log.info("Searching documents for query: {} with limit: {} and filter: {}", query, limit, filter);
+        return vectorSearchService.searchSimilarChunks(query, limit, filter, minSimilarity);
+    }
+    
     @Override
     public List<DocumentProcessingResult> processBatch(List<MultipartFile> files, boolean generateEmbeddings) {
-        log.info("Processing batch of {} files", files.size());
+        return processBatch(files, generateEmbeddings, result -> { });
+    }
+    
+    // Up to batchParallelism files run at once, each isolated: a failure or timeout only affects
+    // that file's result. A timed-out file keeps its slot until its work really ends, so the limit holds.
+    @Override
+    public List<DocumentProcessingResult> processBatch(List<MultipartFile> files, boolean generateEmbeddings,
+                                                       Consumer<DocumentProcessingResult> onResult) {
+        log.info("Processing batch of {} files ({} at a time)", files.size(), batchParallelism);
+        
+        Semaphore slots = new Semaphore(batchParallelism);
+        ReentrantLock deliveryLock = new ReentrantLock();
+        List<CompletableFuture<DocumentProcessingResult>> results = new ArrayList<>(files.size());
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                slots.acquire();
+                results.add(processBatchFile(files.get(i), i, generateEmbeddings, slots)
+                        .thenApply(result -> {
+                            deliveryLock.lock();
+                            try {
+                                onResult.accept(result);
+                            } catch (Exception e) {
+                                log.warn("Failed to deliver batch result for {}: {}", result.getFileName(), e.getMessage());
+                            } finally {
+                                deliveryLock.unlock();
+                            }
+                            return result;
+                        }));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Batch interrupted after submitting {} of {} files", results.size(), files.size());
+        }
+        return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+    
+    private CompletableFuture<DocumentProcessingResult> processBatchFile(MultipartFile file, int batchIndex,
+                                                                          boolean generateEmbeddings, Semaphore slots) {
+        AtomicLong startTime = new AtomicLong(System.currentTimeMillis());
+        AtomicReference<UUID> savedFileId = new AtomicReference<>();
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        // Batches embed in the bulk lane so they can't crowd out searches or single uploads
+        CompletableFuture<DocumentProcessingResult> work = CompletableFuture.supplyAsync(() -> {
+            startTime.set(System.currentTimeMillis());
+            started.complete(null);
+            return EmbeddingPriority.BULK.call(() -> processUpload(file, generateEmbeddings, false, savedFileId::set));
+        }, batchExecutor);
+        work.whenComplete((result, e) -> {
+            slots.release();
+            started.complete(null);
+        });
         
-        return files.stream()
-                .map(file -> {
-                    try {
-                        return processDocument(file, generateEmbeddings);
-                    } catch (IOException e) {
-                        log.error("Failed to process file: {}", file.getOriginalFilename(), e);
+        // batchExecutor is shared by concurrent batch requests, so a file may queue behind another
+        // request's; its timeout only starts once it runs. The timeout runs on a copy so the slot is
+        // only released by the work itself.
+        return started.thenCompose(ignored -> work.copy().orTimeout(batchFileTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("Batch file {} exceeded {}", file.getOriginalFilename(), batchFileTimeout);
                         return DocumentProcessingResult.builder()
-                                .processingStatus("FAILED: " + e.getMessage())
+                                .fileName(file.getOriginalFilename())
+                                .fileId(savedFileId.get())
+                                .processingStatus("TIMEOUT: still processing after " + batchFileTimeout)
+                                .processingTimeMs(System.currentTimeMillis() - startTime.get())
                                 .embeddingsGenerated(false)
                                 .build();
                     }
+                    log.error("Failed to process file: {}", file.getOriginalFilename(), cause);
+                    return failedResult(cause, startTime.get(), file.getOriginalFilename(), savedFileId.get());
                 })
-                .collect(Collectors.toList());
+                .thenApply(result -> {
+                    result.setBatchIndex(batchIndex);
+                    return result;
+                });
     }
     
     private ChunkingReport analyzeAllStrategies(Document document, String fileName) {
@@ -442,35 +689,4 @@ public class FileServiceImpl implements FileService {
                 .strategies(strategies)
                 .build();
     }
-
-    private byte[] generateAndStoreEmbeddings(Document document) {
-        try {
-            if (embeddingModel == null) {
-                log.warn("EmbeddingModel not available for generating embeddings");
-                return null;
-            }
-            
-            DocumentByCharacterSplitter splitter = new DocumentByCharacterSplitter(500, 50);
-            List<TextSegment> chunks = splitter.split(document);
-            
-            if (!chunks.isEmpty()) {
-                Response<Embedding> response = embeddingModel.embed(chunks.get(0));
-                if (response.content() != null) {
-                    float[] vector = response.content().vector();
-                    byte[] vectorBytes = new byte[vector.length * 4];
-                    for (int i = 0; i < vector.length; i++) {
-                        int bits = Float.floatToIntBits(vector[i]);
-                        vectorBytes[i * 4] = (byte) (bits >> 24);
-                        vectorBytes[i * 4 + 1] = (byte) (bits >> 16);
-                        vectorBytes[i * 4 + 2] = (byte) (bits >> 8);
-                        vectorBytes[i * 4 + 3] = (byte) bits;
-                    }
-                    return vectorBytes;
-                }
-            }
-        } catch (Exception e) {
-            log.error("Failed to generate embeddings: {}", e.getMessage());
-        }
-        return null;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Exact search. Scoring uses the Vector API when the JVM is started with --add-modules jdk.incubator.vector
+// (java -jar does not add it) and falls back to a scalar scan otherwise.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "fusioncore.search.backend", havingValue = "flat")
+public class FlatSearchBackend extends InProcessSearchBackend {
+
+    private final Path directory;
+    private final double maxDeadRatio;
+    // Serializes writes with compaction, which swaps in a rewritten index; searches read whichever is current
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile FlatVectorIndex index;
+    private Path indexDirectory;
+    private int compactions;
+    private volatile boolean loading;
+
+    public FlatSearchBackend(ChunkRepository chunkRepository,
+                             ChunkEmbeddingRepository chunkEmbeddingRepository,
+                             FileRepository fileRepository,
+                             @Value("${fusioncore.search.snapshot.directory:}") String snapshotDirectory,
+                             @Value("${fusioncore.search.flat.directory}") Path directory,
+                             @Value("${fusioncore.search.flat.partitions:0}") int partitions,
+                             @Value("${fusioncore.search.flat.max-dead-ratio:0.3}") double maxDeadRatio) throws IOException {
+        super(chunkRepository, chunkEmbeddingRepository, fileRepository, snapshotDirectory);
+        this.directory = directory;
+        this.indexDirectory = directory;
+        this.maxDeadRatio = maxDeadRatio;
+        // Compacted files left by an earlier run are never read again
+        deleteIndexFiles(compactionDirectory(0));
+        deleteIndexFiles(compactionDirectory(1));
+        this.index = FlatVectorIndex.create(directory,
+                partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors());
+        if (!FlatVectorIndex.SIMD_AVAILABLE) {
+            log.warn("jdk.incubator.vector is not available; flat search uses scalar scoring. "
+                    + "Start the JVM with --add-modules jdk.incubator.vector for SIMD scoring.");
+        }
+    }
+
+    @Override
+    protected void addGeneration(UUID fileId, long generation, List<UUID> chunkIds, List<float[]> vectors) {
+        writeLock.lock();
+        try {
+            index.append(fileId, generation, chunkIds, vectors);
+            if (!loading) {
+                index.publish();
+                compactIfNeeded();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    protected void removeFile(UUID fileId) {
+        writeLock.lock();
+        try {
+            index.removeFile(fileId);
+            if (!loading) {
+                compactIfNeeded();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    protected List<VectorHit> nearest(float[] queryVector, int limit, float minScore) {
+        return index.search(queryVector, limit, minScore);
+    }
+
+    @Override
+    protected List<VectorHit> nearestWithinFiles(float[] queryVector, Collection<UUID> fileIds, int limit, float minScore) {
+        return index.searchFiles(queryVector, fileIds, limit, minScore);
+    }
+
+    @Override
+    protected int indexedCount() {
+        return index.size();
+    }
+
+    @Override
+    protected long generationOf(UUID fileId) {
+        return index.generationOf(fileId);
+    }
+
+    @Override
+    protected Map<UUID, Long> indexedGenerations() {
+        return index.fileGenerations();
+    }
+
+    @Override
+    protected void beforeLoad() {
+        loading = true;
+    }
+
+    @Override
+    protected void afterLoad() {
+        writeLock.lock();
+        try {
+            loading = false;
+            index.publish();
+            compactIfNeeded();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    protected void writeSnapshot(Path directory) throws IOException {
+        index.writeSnapshot(directory);
+    }
+
+    @Override
+    protected Map<UUID, Long> restoreSnapshot(Path directory) throws IOException {
+        writeLock.lock();
+        try {
+            index.restore(directory);
+            return index.fileGenerations();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Every re-index appends a full generation and leaves the old one in the working files, where
+    // every search keeps scanning it. Past the configured share the live records are copied into
+    // fresh files, alternating between two directories, and the old files are dropped. A failed
+    // compaction leaves the current index serving and is retried on the next write.
+    private void compactIfNeeded() {
+        FlatVectorIndex current = index;
+        double ratio = current.deadRatio();
+        if (ratio <= maxDeadRatio) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Path previousDirectory = indexDirectory;
+        Path target = compactionDirectory(compactions);
+        try {
+            index = current.compacted(target);
+            indexDirectory = target;
+            compactions++;
+            current.close();
+            // Searches still holding the old mapping keep reading it; the unlinked files go when it is collected
+            deleteIndexFiles(previousDirectory);
+        } catch (IOException e) {
+            log.warn("Failed to compact flat index: {}", e.getMessage());
+            return;
+        }
+        log.info("Compacted flat index to {} vectors ({}% dead) in {}ms",
+                index.size(), Math.round(ratio * 100), System.currentTimeMillis() - start);
+    }
+
+    private Path compactionDirectory(int compaction) {
+        return directory.resolve("compacted-" + compaction % 2);
+    }
+
+    private static void deleteIndexFiles(Path directory) throws IOException {
+        Files.deleteIfExists(directory.resolve(FlatVectorIndex.VECTORS_FILE));
+        Files.deleteIfExists(directory.resolve(FlatVectorIndex.IDS_FILE));
+    }
+
+    @Override
+    protected void closeIndex() throws IOException {
+        index.close();
+    }
+
+    FlatVectorIndex index() {
+        return index;
+    }
+}
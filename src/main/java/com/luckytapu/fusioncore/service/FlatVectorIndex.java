@@ -0,0 +1,419 @@
+package com.luckytapu.fusioncore.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+// Exact nearest-neighbour search over memory-mapped files. vectors.f32 holds normalized little-endian
+// float32 vectors back to back; ids.bin is a header followed by one fixed-size record per vector with
+// the chunk id, file id, generation and byte offset of the vector. Both files are append-only: a newer
+// generation of a file supersedes its older records, which are skipped at query time until the index
+// is compacted into new files.
+public final class FlatVectorIndex implements AutoCloseable {
+
+    static final String VECTORS_FILE = "vectors.f32";
+    static final String IDS_FILE = "ids.bin";
+
+    private static final int MAGIC = 0x46564958;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 6 * Long.BYTES;
+    private static final int MIN_VECTORS_PER_PARTITION = 4096;
+
+    // Only resolvable when the JVM was started with --add-modules jdk.incubator.vector
+    static final boolean SIMD_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel vectorChannel;
+    private final FileChannel idChannel;
+    private final int partitions;
+    private final Map<UUID, Long> generations = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> pendingGenerations = new HashMap<>();
+    private final Map<UUID, int[]> positions = new ConcurrentHashMap<>();
+    private final Map<UUID, int[]> pendingPositions = new HashMap<>();
+    // Serializes writers; a lock rather than a monitor so file I/O under it never pins a virtual thread
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private int dimensions;
+    private int appended;
+    // Published records that belong to a file's current generation
+    private int liveRecords;
+    private volatile Mapping mapping;
+
+    private record Mapping(MemorySegment vectors, MemorySegment ids, int count, int dimensions) {
+    }
+
+    private record Candidate(int position, float score) {
+    }
+
+    private FlatVectorIndex(Path directory, int partitions) throws IOException {
+        Files.createDirectories(directory);
+        // Unlinked rather than truncated, so mappings of an earlier index over these files stay valid
+        Files.deleteIfExists(directory.resolve(VECTORS_FILE));
+        Files.deleteIfExists(directory.resolve(IDS_FILE));
+        this.vectorChannel = FileChannel.open(directory.resolve(VECTORS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.idChannel = FileChannel.open(directory.resolve(IDS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.partitions = Math.max(1, partitions);
+    }
+
+    // Starts an empty index in the directory, replacing whatever files were there
+    public static FlatVectorIndex create(Path directory, int partitions) throws IOException {
+        return new FlatVectorIndex(directory, partitions);
+    }
+
+    public int size() {
+        Mapping current = mapping;
+        return current != null ? current.count() : 0;
+    }
+
+    public long generationOf(UUID fileId) {
+        return generations.getOrDefault(fileId, -1L);
+    }
+
+    // Share of published records that were superseded or removed; every search still scans them
+    public double deadRatio() {
+        writeLock.lock();
+        try {
+            return appended == 0 ? 0 : 1 - (double) liveRecords / size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Writes a generation of a file's vectors. Nothing becomes searchable until publish(), so a bulk
+    // load can append file after file and map the result once.
+    public void append(UUID fileId, long generation, List<UUID> chunkIds, List<float[]> vectors) throws IOException {
+        writeLock.lock();
+        try {
+            long known = pendingGenerations.getOrDefault(fileId, generations.getOrDefault(fileId, -1L));
+            if (generation < known || chunkIds.isEmpty()) {
+                return;
+            }
+            if (dimensions == 0) {
+                dimensions = vectors.get(0).length;
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(0).flip();
+                idChannel.write(header, 0);
+            }
+
+            ByteBuffer vectorBytes = ByteBuffer.allocate(chunkIds.size() * dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer records = ByteBuffer.allocate(chunkIds.size() * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < chunkIds.size(); i++) {
+                float[] vector = vectors.get(i);
+                if (vector.length != dimensions) {
+                    throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+                }
+                for (float value : EmbeddingCodec.normalize(vector)) {
+                    vectorBytes.putFloat(value);
+                }
+                UUID chunkId = chunkIds.get(i);
+                records.putLong(chunkId.getMostSignificantBits()).putLong(chunkId.getLeastSignificantBits())
+                        .putLong(fileId.getMostSignificantBits()).putLong(fileId.getLeastSignificantBits())
+                        .putLong(generation)
+                        .putLong((long) (appended + i) * dimensions * Float.BYTES);
+            }
+            vectorChannel.write(vectorBytes.flip(), (long) appended * dimensions * Float.BYTES);
+            idChannel.write(records.flip(), HEADER_BYTES + (long) appended * RECORD_BYTES);
+
+            int[] previous = generation == known
+                    ? pendingPositions.getOrDefault(fileId, positions.getOrDefault(fileId, new int[0]))
+                    : new int[0];
+            int[] filePositions = Arrays.copyOf(previous, previous.length + chunkIds.size());
+            for (int i = 0; i < chunkIds.size(); i++) {
+                filePositions[previous.length + i] = appended + i;
+            }
+            appended += chunkIds.size();
+            pendingGenerations.put(fileId, generation);
+            pendingPositions.put(fileId, filePositions);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Maps everything appended so far. Old mappings belong to automatic arenas, so searches still
+    // holding one keep working until they finish and the mapping is collected.
+    public void publish() throws IOException {
+        writeLock.lock();
+        try {
+            if (appended == 0) {
+                return;
+            }
+            Arena arena = Arena.ofAuto();
+            MemorySegment vectors = vectorChannel.map(FileChannel.MapMode.READ_ONLY, 0, (long) appended * dimensions * Float.BYTES, arena);
+            MemorySegment ids = idChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + (long) appended * RECORD_BYTES, arena);
+            mapping = new Mapping(vectors, ids, appended, dimensions);
+            pendingPositions.forEach((fileId, filePositions) ->
+                    liveRecords += filePositions.length - positions.getOrDefault(fileId, new int[0]).length);
+            positions.putAll(pendingPositions);
+            generations.putAll(pendingGenerations);
+            pendingPositions.clear();
+            pendingGenerations.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Map<UUID, Long> fileGenerations() {
+        return new HashMap<>(generations);
+    }
+
+    // Copies the live records of the published mapping into the target directory, compacting away
+    // superseded and removed generations
+    public void writeSnapshot(Path target) throws IOException {
+        writeLock.lock();
+        try {
+            Mapping current = mapping;
+            try (OutputStream vectorsOut = new BufferedOutputStream(Files.newOutputStream(target.resolve(VECTORS_FILE)), 1 << 20);
+                 OutputStream idsOut = new BufferedOutputStream(Files.newOutputStream(target.resolve(IDS_FILE)), 1 << 16)) {
+                int dims = current != null ? current.dimensions() : 0;
+                idsOut.write(ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(MAGIC).putInt(VERSION).putInt(dims).putInt(0).array());
+                if (current == null) {
+                    return;
+                }
+
+                long vectorBytes = (long) dims * Float.BYTES;
+                ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                int written = 0;
+                for (int position = 0; position < current.count(); position++) {
+                    long offset = HEADER_BYTES + (long) position * RECORD_BYTES;
+                    if (!isLive(current.ids(), offset)) {
+                        continue;
+                    }
+                    vectorsOut.write(current.vectors().asSlice(current.ids().get(LONG, offset + 40), vectorBytes).toArray(ValueLayout.JAVA_BYTE));
+                    MemorySegment.copy(current.ids(), ValueLayout.JAVA_BYTE, offset, record.array(), 0, 40);
+                    record.putLong(40, (long) written * vectorBytes);
+                    idsOut.write(record.array());
+                    written++;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Copies a snapshot into the working files of this index, which must still be empty, and maps it
+    public void restore(Path snapshot) throws IOException {
+        writeLock.lock();
+        try {
+            if (appended > 0) {
+                throw new IllegalStateException("Snapshots can only be restored into an empty index");
+            }
+            try (FileChannel vectorsIn = FileChannel.open(snapshot.resolve(VECTORS_FILE), StandardOpenOption.READ);
+                 FileChannel idsIn = FileChannel.open(snapshot.resolve(IDS_FILE), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                idsIn.read(header, 0);
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not a flat index snapshot: " + snapshot);
+                }
+                int dims = header.getInt();
+                int count = (int) ((idsIn.size() - HEADER_BYTES) / RECORD_BYTES);
+                copy(vectorsIn, vectorChannel);
+                copy(idsIn, idChannel);
+
+                dimensions = dims;
+                appended = count;
+            }
+            publish();
+
+            // Snapshots only hold live records, so each file's generation is the one found in its records
+            Mapping restored = mapping;
+            Map<UUID, Long> found = new HashMap<>();
+            Map<UUID, List<Integer>> filePositions = new HashMap<>();
+            for (int position = 0; restored != null && position < restored.count(); position++) {
+                long offset = HEADER_BYTES + (long) position * RECORD_BYTES;
+                UUID fileId = uuidAt(restored.ids(), offset + 16);
+                found.merge(fileId, restored.ids().get(LONG, offset + 32), Math::max);
+                filePositions.computeIfAbsent(fileId, id -> new ArrayList<>()).add(position);
+            }
+            filePositions.forEach((fileId, list) -> positions.put(fileId, list.stream().mapToInt(Integer::intValue).toArray()));
+            generations.putAll(found);
+            liveRecords = size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeFile(UUID fileId) {
+        writeLock.lock();
+        try {
+            pendingGenerations.remove(fileId);
+            pendingPositions.remove(fileId);
+            generations.remove(fileId);
+            int[] removed = positions.remove(fileId);
+            if (removed != null) {
+                liveRecords -= removed.length;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // A new index in the directory holding only the live records, copied through a snapshot. Pending
+    // appends are published first, so nothing is left behind.
+    public FlatVectorIndex compacted(Path directory) throws IOException {
+        writeLock.lock();
+        try {
+            publish();
+            FlatVectorIndex compacted = create(directory, partitions);
+            Path snapshot = Files.createTempDirectory(directory, "compact-");
+            try {
+                writeSnapshot(snapshot);
+                compacted.restore(snapshot);
+                return compacted;
+            } catch (IOException | RuntimeException e) {
+                compacted.close();
+                throw e;
+            } finally {
+                Files.deleteIfExists(snapshot.resolve(VECTORS_FILE));
+                Files.deleteIfExists(snapshot.resolve(IDS_FILE));
+                Files.deleteIfExists(snapshot);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Scans every vector. Each partition keeps its own top-k heap and the heaps are merged at the end.
+    public List<VectorHit> search(float[] query, int k) {
+        return search(query, k, Float.NEGATIVE_INFINITY);
+    }
+
+    // Range search: vectors scoring below minScore never reach the heap or the liveness check
+    public List<VectorHit> search(float[] query, int k, float minScore) {
+        Mapping current = mapping;
+        if (current == null || k <= 0 || query.length != current.dimensions()) {
+            return List.of();
+        }
+        float[] normalized = EmbeddingCodec.normalize(query);
+        int parts = Math.max(1, Math.min(partitions, current.count() / MIN_VECTORS_PER_PARTITION));
+        int slice = Math.ceilDiv(current.count(), parts);
+
+        List<Candidate> merged = IntStream.range(0, parts).parallel()
+                .mapToObj(p -> scan(current, normalized, p * slice, Math.min(current.count(), (p + 1) * slice), k, minScore))
+                .flatMap(List::stream)
+                .toList();
+        return toHits(current, merged, k);
+    }
+
+    private List<VectorHit> toHits(Mapping current, List<Candidate> candidates, int k) {
+        List<Candidate> best = candidates.stream()
+                .sorted(Comparator.comparingDouble(Candidate::score).reversed())
+                .limit(k)
+                .toList();
+        List<VectorHit> hits = new ArrayList<>(best.size());
+        for (Candidate candidate : best) {
+            long record = HEADER_BYTES + (long) candidate.position() * RECORD_BYTES;
+            hits.add(new VectorHit(uuidAt(current.ids(), record), uuidAt(current.ids(), record + 16), candidate.score()));
+        }
+        return hits;
+    }
+
+    // Scores just these files' current vectors, skipping the full scan
+    public List<VectorHit> searchFiles(float[] query, Collection<UUID> fileIds, int k) {
+        return searchFiles(query, fileIds, k, Float.NEGATIVE_INFINITY);
+    }
+
+    public List<VectorHit> searchFiles(float[] query, Collection<UUID> fileIds, int k, float minScore) {
+        Mapping current = mapping;
+        if (current == null || k <= 0 || query.length != current.dimensions()) {
+            return List.of();
+        }
+        float[] normalized = EmbeddingCodec.normalize(query);
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Candidate::score));
+        for (UUID fileId : fileIds) {
+            for (int position : positions.getOrDefault(fileId, new int[0])) {
+                if (position >= current.count()) {
+                    continue;
+                }
+                long record = HEADER_BYTES + (long) position * RECORD_BYTES;
+                float score = dot(current.vectors(), current.ids().get(LONG, record + 40), normalized);
+                if (score < minScore) {
+                    continue;
+                }
+                heap.add(new Candidate(position, score));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+        }
+        return toHits(current, new ArrayList<>(heap), k);
+    }
+
+    @Override
+    public void close() throws IOException {
+        vectorChannel.close();
+        idChannel.close();
+    }
+
+    private List<Candidate> scan(Mapping current, float[] query, int from, int to, int k, float minScore) {
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Candidate::score));
+        for (int position = from; position < to; position++) {
+            long record = HEADER_BYTES + (long) position * RECORD_BYTES;
+            float score = dot(current.vectors(), current.ids().get(LONG, record + 40), query);
+            // Liveness costs a map lookup, so only vectors that would enter the heap are checked
+            if (score >= minScore && (heap.size() < k || score > heap.peek().score()) && isLive(current.ids(), record)) {
+                heap.add(new Candidate(position, score));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+        }
+        return new ArrayList<>(heap);
+    }
+
+    private static void copy(FileChannel from, FileChannel to) throws IOException {
+        long size = from.size();
+        long copied = 0;
+        while (copied < size) {
+            copied += from.transferTo(copied, size - copied, to.position(copied));
+        }
+    }
+
+    private float dot(MemorySegment vectors, long offset, float[] query) {
+        return SIMD_AVAILABLE ? VectorizedDot.dot(vectors, offset, query) : scalarDot(vectors, offset, query);
+    }
+
+    static float scalarDot(MemorySegment vectors, long offset, float[] query) {
+        float result = 0;
+        for (int i = 0; i < query.length; i++) {
+            result += vectors.get(FLOAT, offset + (long) i * Float.BYTES) * query[i];
+        }
+        return result;
+    }
+
+    private boolean isLive(MemorySegment ids, long record) {
+        Long generation = generations.get(uuidAt(ids, record + 16));
+        return generation != null && generation == ids.get(LONG, record + 32);
+    }
+
+    private static UUID uuidAt(MemorySegment ids, long offset) {
+        return new UUID(ids.get(LONG, offset), ids.get(LONG, offset + 8));
+    }
+}
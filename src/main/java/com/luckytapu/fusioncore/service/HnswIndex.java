@@ -0,0 +1,629 @@
+package com.luckytapu.fusioncore.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hierarchical navigable small world graph over normalized vectors, scored by dot product.
+// Inserts are serialized by a write lock; searches never lock. Neighbor lists are replaced
+// copy-on-write and nodes are published before anything links to them, so a reader only
+// ever sees fully built nodes. Replaced or removed chunks are tombstoned and skipped.
+public final class HnswIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SNAPSHOT_MAGIC = 0x484E5357;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int[] NO_LINKS = new int[0];
+
+    private final int m;
+    private final int maxConnectionsLayer0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<UUID, FileNodes> filesById = new ConcurrentHashMap<>();
+
+    private volatile OffHeapVectorStore vectors;
+    private volatile Node[] nodes = new Node[INITIAL_CAPACITY];
+    private volatile EntryPoint entryPoint;
+    private volatile int size;
+    private volatile int deletedCount;
+
+    public HnswIndex(int m, int efConstruction) {
+        this.m = m;
+        this.maxConnectionsLayer0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    private record EntryPoint(int node, int level) {
+    }
+
+    private record FileNodes(long generation, int[] nodeIds) {
+    }
+
+    private record Candidate(int node, float score) {
+    }
+
+    private static final class Node {
+        final UUID chunkId;
+        final UUID fileId;
+        final int level;
+        final AtomicReferenceArray<int[]> links;
+        volatile boolean deleted;
+
+        Node(UUID chunkId, UUID fileId, int level) {
+            this.chunkId = chunkId;
+            this.fileId = fileId;
+            this.level = level;
+            this.links = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                links.set(i, NO_LINKS);
+            }
+        }
+    }
+
+    public int size() {
+        return size - deletedCount;
+    }
+
+    // Share of graph nodes that are tombstones; searches still walk them until the index is compacted
+    public double tombstoneRatio() {
+        int total = size;
+        return total == 0 ? 0 : (double) deletedCount / total;
+    }
+
+    public long generationOf(UUID fileId) {
+        FileNodes file = filesById.get(fileId);
+        return file != null ? file.generation() : -1;
+    }
+
+    public Map<UUID, Long> fileGenerations() {
+        Map<UUID, Long> generations = new HashMap<>();
+        filesById.forEach((fileId, file) -> generations.put(fileId, file.generation()));
+        return generations;
+    }
+
+    // A newer generation tombstones the file's previous vectors, the same generation appends
+    // (used while loading in batches) and an older one is ignored as already superseded.
+    public void addAll(UUID fileId, long generation, List<UUID> chunkIds, List<float[]> fileVectors) {
+        writeLock.lock();
+        try {
+            FileNodes existing = filesById.get(fileId);
+            if (existing != null && existing.generation() > generation) {
+                return;
+            }
+            int[] retained = NO_LINKS;
+            if (existing != null && existing.generation() == generation) {
+                retained = existing.nodeIds();
+            } else if (existing != null) {
+                tombstone(existing.nodeIds());
+            }
+
+            int[] nodeIds = Arrays.copyOf(retained, retained.length + chunkIds.size());
+            for (int i = 0; i < chunkIds.size(); i++) {
+                nodeIds[retained.length + i] = insert(chunkIds.get(i), fileId, EmbeddingCodec.normalize(fileVectors.get(i)));
+            }
+            filesById.put(fileId, new FileNodes(generation, nodeIds));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeFile(UUID fileId) {
+        writeLock.lock();
+        try {
+            FileNodes existing = filesById.remove(fileId);
+            if (existing != null) {
+                tombstone(existing.nodeIds());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // A new index with the same parameters holding only the current nodes of each file, rebuilt by
+    // inserting their vectors again. Writes to this index wait until the copy is complete.
+    public HnswIndex compacted() {
+        writeLock.lock();
+        try {
+            HnswIndex compacted = new HnswIndex(m, efConstruction);
+            for (Map.Entry<UUID, FileNodes> file : filesById.entrySet()) {
+                int[] nodeIds = file.getValue().nodeIds();
+                List<UUID> chunkIds = new ArrayList<>(nodeIds.length);
+                List<float[]> fileVectors = new ArrayList<>(nodeIds.length);
+                for (int id : nodeIds) {
+                    chunkIds.add(nodes[id].chunkId);
+                    fileVectors.add(vectors.get(id));
+                }
+                compacted.addAll(file.getKey(), file.getValue().generation(), chunkIds, fileVectors);
+            }
+            return compacted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public List<VectorHit> search(float[] query, int k, int ef) {
+        return search(query, k, ef, Float.NEGATIVE_INFINITY);
+    }
+
+    // Range search: only hits scoring at least minScore are returned, and the layer-0 walk stops
+    // expanding once it has found one and its frontier has dropped below the threshold
+    public List<VectorHit> search(float[] query, int k, int ef, float minScore) {
+        EntryPoint entry = entryPoint;
+        if (entry == null || k <= 0) {
+            return List.of();
+        }
+        float[] normalized = EmbeddingCodec.normalize(query);
+
+        int current = entry.node();
+        for (int layer = entry.level(); layer > 0; layer--) {
+            current = searchLayer(normalized, current, 1, layer).get(0).node();
+        }
+
+        // Widen the beam by the tombstone share so deleted nodes don't eat into k
+        int beam = Math.max(ef, k);
+        int total = size;
+        if (deletedCount > 0 && total > deletedCount) {
+            beam = (int) Math.min(total, (long) beam * total / (total - deletedCount));
+        }
+
+        List<VectorHit> hits = new ArrayList<>(k);
+        for (Candidate candidate : searchLayer(normalized, current, beam, 0, null, minScore)) {
+            if (candidate.score() < minScore) {
+                break;
+            }
+            Node node = node(candidate.node());
+            if (node != null && !node.deleted) {
+                hits.add(new VectorHit(node.chunkId, node.fileId, candidate.score()));
+                if (hits.size() == k) {
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    // Writes the whole graph, tombstones included, so a restore needs no rebuilding. Inserts wait
+    // for the write to finish; searches carry on.
+    public void writeTo(Path file) throws IOException {
+        writeLock.lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            int count = size;
+            EntryPoint entry = entryPoint;
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(m);
+            out.writeInt(vectors != null ? vectors.dimensions() : 0);
+            out.writeInt(count);
+            out.writeInt(entry != null ? entry.node() : -1);
+            out.writeInt(entry != null ? entry.level() : -1);
+
+            for (int id = 0; id < count; id++) {
+                Node node = nodes[id];
+                writeUuid(out, node.chunkId);
+                writeUuid(out, node.fileId);
+                out.writeInt(node.level);
+                out.writeBoolean(node.deleted);
+                for (int layer = 0; layer <= node.level; layer++) {
+                    int[] neighbors = node.links.get(layer);
+                    out.writeInt(neighbors.length);
+                    for (int neighbor : neighbors) {
+                        out.writeInt(neighbor);
+                    }
+                }
+            }
+
+            out.writeInt(filesById.size());
+            for (Map.Entry<UUID, FileNodes> fileNodes : filesById.entrySet()) {
+                writeUuid(out, fileNodes.getKey());
+                out.writeLong(fileNodes.getValue().generation());
+                out.writeInt(fileNodes.getValue().nodeIds().length);
+                for (int id : fileNodes.getValue().nodeIds()) {
+                    out.writeInt(id);
+                }
+            }
+
+            for (int id = 0; id < count; id++) {
+                for (float value : vectors.get(id)) {
+                    out.writeFloat(value);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Loads a snapshot written by writeTo into this index, which must still be empty
+    public void restoreFrom(Path file) throws IOException {
+        writeLock.lock();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ); Arena arena = Arena.ofConfined()) {
+            if (size > 0) {
+                throw new IllegalStateException("Snapshots can only be restored into an empty index");
+            }
+            SnapshotReader in = new SnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not an HNSW snapshot: " + file);
+            }
+            int snapshotM = in.readInt();
+            if (snapshotM != m) {
+                throw new IOException("Snapshot was built with m=" + snapshotM + " but the index uses m=" + m);
+            }
+            int dimensions = in.readInt();
+            int count = in.readInt();
+            int entryNode = in.readInt();
+            int entryLevel = in.readInt();
+
+            Node[] restored = new Node[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, count)) << 1)];
+            int deleted = 0;
+            for (int id = 0; id < count; id++) {
+                Node node = new Node(in.readUuid(), in.readUuid(), in.readInt());
+                node.deleted = in.readBoolean();
+                deleted += node.deleted ? 1 : 0;
+                for (int layer = 0; layer <= node.level; layer++) {
+                    int[] neighbors = new int[in.readInt()];
+                    for (int i = 0; i < neighbors.length; i++) {
+                        neighbors[i] = in.readInt();
+                    }
+                    node.links.set(layer, neighbors);
+                }
+                restored[id] = node;
+            }
+
+            int fileCount = in.readInt();
+            Map<UUID, FileNodes> files = new HashMap<>(fileCount * 2);
+            for (int f = 0; f < fileCount; f++) {
+                UUID fileId = in.readUuid();
+                long generation = in.readLong();
+                int[] nodeIds = new int[in.readInt()];
+                for (int i = 0; i < nodeIds.length; i++) {
+                    nodeIds[i] = in.readInt();
+                }
+                files.put(fileId, new FileNodes(generation, nodeIds));
+            }
+
+            // Nothing is published until the whole file has been read
+            OffHeapVectorStore store = null;
+            if (count > 0) {
+                store = new OffHeapVectorStore(dimensions);
+                float[] vector = new float[dimensions];
+                for (int id = 0; id < count; id++) {
+                    in.readFloats(vector);
+                    store.set(id, vector);
+                }
+            }
+            vectors = store;
+            filesById.putAll(files);
+            nodes = restored;
+            deletedCount = deleted;
+            size = count;
+            entryPoint = entryNode >= 0 ? new EntryPoint(entryNode, entryLevel) : null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Top-k restricted to these files' current nodes. Few candidates are scored exactly; a broad
+    // filter walks the graph instead, admitting only allowed nodes into the results. A filtered
+    // walk visits about beam / selectivity nodes, each scoring up to 2m neighbours, against one
+    // dot product per candidate for the exact scan, so the cheaper of the two is picked.
+    public List<VectorHit> searchFiles(float[] query, Collection<UUID> fileIds, int k, int ef) {
+        return searchFiles(query, fileIds, k, ef, Float.NEGATIVE_INFINITY);
+    }
+
+    public List<VectorHit> searchFiles(float[] query, Collection<UUID> fileIds, int k, int ef, float minScore) {
+        OffHeapVectorStore store = vectors;
+        EntryPoint entry = entryPoint;
+        if (store == null || entry == null || k <= 0) {
+            return List.of();
+        }
+        List<int[]> candidateNodes = new ArrayList<>(fileIds.size());
+        long candidates = 0;
+        for (UUID fileId : fileIds) {
+            FileNodes file = filesById.get(fileId);
+            if (file != null) {
+                candidateNodes.add(file.nodeIds());
+                candidates += file.nodeIds().length;
+            }
+        }
+        if (candidates == 0) {
+            return List.of();
+        }
+        float[] normalized = EmbeddingCodec.normalize(query);
+
+        int beam = Math.max(ef, k);
+        if (candidates * candidates <= (long) beam * size() * maxConnectionsLayer0) {
+            return scan(store, normalized, candidateNodes, k, minScore);
+        }
+
+        BitSet allowed = new BitSet(size);
+        for (int[] nodeIds : candidateNodes) {
+            for (int id : nodeIds) {
+                allowed.set(id);
+            }
+        }
+        int current = entry.node();
+        for (int layer = entry.level(); layer > 0; layer--) {
+            current = searchLayer(normalized, current, 1, layer).get(0).node();
+        }
+        List<VectorHit> hits = new ArrayList<>(k);
+        for (Candidate candidate : searchLayer(normalized, current, beam, 0, allowed, minScore)) {
+            if (candidate.score() < minScore) {
+                break;
+            }
+            Node node = node(candidate.node());
+            if (node != null && !node.deleted) {
+                hits.add(new VectorHit(node.chunkId, node.fileId, candidate.score()));
+                if (hits.size() == k) {
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private List<VectorHit> scan(OffHeapVectorStore store, float[] normalized, List<int[]> candidateNodes, int k, float minScore) {
+        PriorityQueue<Candidate> top = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Candidate::score));
+        for (int[] nodeIds : candidateNodes) {
+            for (int id : nodeIds) {
+                float score = store.dot(id, normalized);
+                if (score < minScore) {
+                    continue;
+                }
+                top.add(new Candidate(id, score));
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(top);
+        sorted.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        List<VectorHit> hits = new ArrayList<>(sorted.size());
+        for (Candidate candidate : sorted) {
+            Node node = nodes[candidate.node()];
+            hits.add(new VectorHit(node.chunkId, node.fileId, candidate.score()));
+        }
+        return hits;
+    }
+
+    private int insert(UUID chunkId, UUID fileId, float[] vector) {
+        if (vectors == null) {
+            vectors = new OffHeapVectorStore(vector.length);
+        }
+        int id = size;
+        int level = randomLevel();
+        Node node = new Node(chunkId, fileId, level);
+        vectors.set(id, vector);
+        if (id >= nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        nodes[id] = node;
+
+        EntryPoint entry = entryPoint;
+        if (entry == null) {
+            size = id + 1;
+            entryPoint = new EntryPoint(id, level);
+            return id;
+        }
+
+        int current = entry.node();
+        for (int layer = entry.level(); layer > level; layer--) {
+            current = searchLayer(vector, current, 1, layer).get(0).node();
+        }
+        for (int layer = Math.min(level, entry.level()); layer >= 0; layer--) {
+            List<Candidate> candidates = searchLayer(vector, current, efConstruction, layer);
+            int[] neighbors = selectNeighbors(candidates, layer == 0 ? maxConnectionsLayer0 : m);
+            node.links.set(layer, neighbors);
+            for (int neighbor : neighbors) {
+                link(neighbor, id, layer);
+            }
+            current = candidates.get(0).node();
+        }
+
+        size = id + 1;
+        if (level > entry.level()) {
+            entryPoint = new EntryPoint(id, level);
+        }
+        return id;
+    }
+
+    // Adds a reverse edge, pruning back to the layer's connection limit when the list is full
+    private void link(int from, int to, int layer) {
+        Node node = nodes[from];
+        int[] current = node.links.get(layer);
+        int limit = layer == 0 ? maxConnectionsLayer0 : m;
+        if (current.length < limit) {
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = to;
+            node.links.set(layer, updated);
+            return;
+        }
+
+        float[] origin = vectors.get(from);
+        List<Candidate> candidates = new ArrayList<>(current.length + 1);
+        for (int neighbor : current) {
+            candidates.add(new Candidate(neighbor, vectors.dot(neighbor, origin)));
+        }
+        candidates.add(new Candidate(to, vectors.dot(to, origin)));
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        node.links.set(layer, selectNeighbors(candidates, limit));
+    }
+
+    // Neighbor selection heuristic from the HNSW paper: keep a candidate only if it is closer to
+    // the base node than to any neighbor already kept, which preserves links across clusters.
+    // Candidates arrive sorted best first; the list is topped up with the closest rejects.
+    private int[] selectNeighbors(List<Candidate> candidates, int limit) {
+        List<Candidate> selected = new ArrayList<>(limit);
+        List<Candidate> rejected = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            float[] candidateVector = vectors.get(candidate.node());
+            boolean diverse = true;
+            for (Candidate kept : selected) {
+                if (vectors.dot(kept.node(), candidateVector) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                rejected.add(candidate);
+            }
+        }
+        for (int i = 0; i < rejected.size() && selected.size() < limit; i++) {
+            selected.add(rejected.get(i));
+        }
+        return selected.stream().mapToInt(Candidate::node).toArray();
+    }
+
+    // Best-first beam search within one layer; returns up to ef candidates sorted best first
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int layer) {
+        return searchLayer(query, entry, ef, layer, null, Float.NEGATIVE_INFINITY);
+    }
+
+    // With a filter, rejected nodes are still expanded so the walk can pass through them,
+    // but only allowed nodes count towards the ef results. With a threshold, the walk ends once
+    // it has reached the in-range region and every frontier node has fallen below it again.
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int layer, BitSet allowed, float minScore) {
+        OffHeapVectorStore store = vectors;
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        BitSet visited = new BitSet(size);
+
+        Candidate start = new Candidate(entry, store.dot(entry, query));
+        frontier.add(start);
+        boolean inRange = false;
+        if (allowed == null || allowed.get(entry)) {
+            results.add(start);
+            inRange = start.score() >= minScore;
+        }
+        visited.set(entry);
+
+        while (!frontier.isEmpty()) {
+            Candidate closest = frontier.poll();
+            if (results.size() >= ef && closest.score() < results.peek().score()) {
+                break;
+            }
+            if (inRange && closest.score() < minScore) {
+                break;
+            }
+            for (int neighbor : links(closest.node(), layer)) {
+                if (visited.get(neighbor) || node(neighbor) == null) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = store.dot(neighbor, query);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate candidate = new Candidate(neighbor, score);
+                    frontier.add(candidate);
+                    if (allowed == null || allowed.get(neighbor)) {
+                        results.add(candidate);
+                        inRange |= score >= minScore;
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return sorted;
+    }
+
+    private int[] links(int id, int layer) {
+        Node node = node(id);
+        if (node == null || layer > node.level) {
+            return NO_LINKS;
+        }
+        return node.links.get(layer);
+    }
+
+    private Node node(int id) {
+        Node[] current = nodes;
+        return id < current.length ? current[id] : null;
+    }
+
+    private void tombstone(int[] nodeIds) {
+        for (int id : nodeIds) {
+            nodes[id].deleted = true;
+        }
+        deletedCount += nodeIds.length;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    // Sequential reads over a mapped snapshot; DataOutputStream writes big-endian
+    private static final class SnapshotReader {
+        private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+        private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+        private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+        private final MemorySegment segment;
+        private long position;
+
+        SnapshotReader(MemorySegment segment) {
+            this.segment = segment;
+        }
+
+        int readInt() {
+            int value = segment.get(INT, position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        long readLong() {
+            long value = segment.get(LONG, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        boolean readBoolean() {
+            return segment.get(ValueLayout.JAVA_BYTE, position++) != 0;
+        }
+
+        UUID readUuid() {
+            return new UUID(readLong(), readLong());
+        }
+
+        void readFloats(float[] target) {
+            MemorySegment.copy(segment, FLOAT, position, target, 0, target.length);
+            position += (long) target.length * Float.BYTES;
+        }
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+}
@@ -0,0 +1,127 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "fusioncore.search.backend", havingValue = "hnsw")
+public class HnswSearchBackend extends InProcessSearchBackend {
+
+    private static final String SNAPSHOT_FILE = "hnsw.bin";
+
+    // Serializes writes with compaction, which swaps in a rebuilt index; searches read whichever is current
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final int efSearch;
+    private final double maxTombstoneRatio;
+    private volatile HnswIndex index;
+
+    public HnswSearchBackend(ChunkRepository chunkRepository,
+                             ChunkEmbeddingRepository chunkEmbeddingRepository,
+                             FileRepository fileRepository,
+                             @Value("${fusioncore.search.snapshot.directory:}") String snapshotDirectory,
+                             @Value("${fusioncore.search.hnsw.m:16}") int m,
+                             @Value("${fusioncore.search.hnsw.ef-construction:100}") int efConstruction,
+                             @Value("${fusioncore.search.hnsw.ef-search:64}") int efSearch,
+                             @Value("${fusioncore.search.hnsw.max-tombstone-ratio:0.3}") double maxTombstoneRatio) {
+        super(chunkRepository, chunkEmbeddingRepository, fileRepository, snapshotDirectory);
+        this.index = new HnswIndex(m, efConstruction);
+        this.efSearch = efSearch;
+        this.maxTombstoneRatio = maxTombstoneRatio;
+    }
+
+    @Override
+    protected void addGeneration(UUID fileId, long generation, List<UUID> chunkIds, List<float[]> vectors) {
+        writeLock.lock();
+        try {
+            index.addAll(fileId, generation, chunkIds, vectors);
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    protected void removeFile(UUID fileId) {
+        writeLock.lock();
+        try {
+            index.removeFile(fileId);
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    protected List<VectorHit> nearest(float[] queryVector, int limit, float minScore) {
+        return index.search(queryVector, limit, efSearch, minScore);
+    }
+
+    @Override
+    protected List<VectorHit> nearestWithinFiles(float[] queryVector, Collection<UUID> fileIds, int limit, float minScore) {
+        return index.searchFiles(queryVector, fileIds, limit, efSearch, minScore);
+    }
+
+    @Override
+    protected int indexedCount() {
+        return index.size();
+    }
+
+    @Override
+    protected long generationOf(UUID fileId) {
+        return index.generationOf(fileId);
+    }
+
+    @Override
+    protected Map<UUID, Long> indexedGenerations() {
+        return index.fileGenerations();
+    }
+
+    @Override
+    protected void writeSnapshot(Path directory) throws IOException {
+        index.writeTo(directory.resolve(SNAPSHOT_FILE));
+    }
+
+    @Override
+    protected Map<UUID, Long> restoreSnapshot(Path directory) throws IOException {
+        writeLock.lock();
+        try {
+            index.restoreFrom(directory.resolve(SNAPSHOT_FILE));
+            compactIfNeeded();
+            return index.fileGenerations();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Every re-index tombstones the file's old nodes, which searches keep walking and snapshots keep
+    // writing. Past the configured share the graph is rebuilt from its live nodes.
+    private void compactIfNeeded() {
+        HnswIndex current = index;
+        double ratio = current.tombstoneRatio();
+        if (ratio <= maxTombstoneRatio) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        index = current.compacted();
+        log.info("Compacted HNSW index to {} nodes ({}% tombstones) in {}ms",
+                index.size(), Math.round(ratio * 100), System.currentTimeMillis() - start);
+    }
+
+    HnswIndex index() {
+        return index;
+    }
+}
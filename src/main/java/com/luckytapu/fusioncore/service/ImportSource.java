@@ -0,0 +1,186 @@
+package com.luckytapu.fusioncore.service;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Streams the documents of a directory or a ZIP / TAR / TAR.GZ archive one entry at a time.
+// Archive entries are read straight out of the archive stream, never extracted to disk.
+abstract class ImportSource implements Closeable {
+
+    // content is only readable until the next call to next(); null when the archive cannot
+    // stream this entry (e.g. an encrypted ZIP entry)
+    record Entry(String name, long size, InputStream content) {
+    }
+
+    record Totals(long entries, long bytes) {
+    }
+
+    // Returns null once the source is exhausted
+    abstract Entry next() throws IOException;
+
+    static boolean isSupported(Path path) {
+        return Files.isDirectory(path) || (Files.isRegularFile(path) && archiveType(path) != null);
+    }
+
+    static ImportSource open(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            return new DirectorySource(path);
+        }
+        String type = archiveType(path);
+        if (type == null) {
+            throw new IOException("Unsupported import source: " + path.getFileName());
+        }
+        InputStream in = new BufferedInputStream(Files.newInputStream(path));
+        try {
+            if ("zip".equals(type)) {
+                return new ArchiveSource(new ZipArchiveInputStream(in, StandardCharsets.UTF_8.name(), true, true));
+            }
+            if ("tar".equals(type)) {
+                return new ArchiveSource(new TarArchiveInputStream(in));
+            }
+            return new ArchiveSource(new TarArchiveInputStream(new GzipCompressorInputStream(in)));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // One pass over the source without reading entry contents where the format allows it.
+    // ZIPs are counted from their central directory, since streamed ZIP entries may not know their size.
+    static Totals scan(Path path) throws IOException {
+        if ("zip".equals(archiveType(path)) && Files.isRegularFile(path)) {
+            return scanZip(path);
+        }
+        long entries = 0;
+        long bytes = 0;
+        try (ImportSource source = open(path)) {
+            Entry entry;
+            while ((entry = source.next()) != null) {
+                entries++;
+                bytes += Math.max(0, entry.size());
+            }
+        }
+        return new Totals(entries, bytes);
+    }
+
+    private static Totals scanZip(Path path) throws IOException {
+        long entries = 0;
+        long bytes = 0;
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            Enumeration<ZipArchiveEntry> all = zip.getEntries();
+            while (all.hasMoreElements()) {
+                ZipArchiveEntry entry = all.nextElement();
+                if (!entry.isDirectory()) {
+                    entries++;
+                    bytes += Math.max(0, entry.getSize());
+                }
+            }
+        }
+        return new Totals(entries, bytes);
+    }
+
+    private static String archiveType(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip")) {
+            return "zip";
+        }
+        if (name.endsWith(".tar")) {
+            return "tar";
+        }
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            return "tar.gz";
+        }
+        return null;
+    }
+
+    // Files in path order, so a resumed walk visits entries in the same sequence
+    private static final class DirectorySource extends ImportSource {
+        private final Path root;
+        private final Iterator<Path> files;
+        private InputStream current;
+
+        DirectorySource(Path root) throws IOException {
+            this.root = root;
+            try (Stream<Path> walk = Files.walk(root)) {
+                // Symlinks are skipped, since they can point outside the import root
+                List<Path> sorted = walk.filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)).sorted().toList();
+                this.files = sorted.iterator();
+            }
+        }
+
+        @Override
+        Entry next() throws IOException {
+            closeCurrent();
+            if (!files.hasNext()) {
+                return null;
+            }
+            Path file = files.next();
+            current = Files.newInputStream(file);
+            return new Entry(root.relativize(file).toString().replace('\\', '/'), Files.size(file), current);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeCurrent();
+        }
+
+        private void closeCurrent() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    private static final class ArchiveSource extends ImportSource {
+        private final ArchiveInputStream archive;
+        // The archive stream positioned at the current entry's data; closing it must not close the archive
+        private final InputStream entryContent;
+
+        ArchiveSource(ArchiveInputStream archive) {
+            this.archive = archive;
+            this.entryContent = new FilterInputStream(archive) {
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        Entry next() throws IOException {
+            ArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    return new Entry(entry.getName(), entry.getSize(),
+                            archive.canReadEntryData(entry) ? entryContent : null);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            archive.close();
+        }
+    }
+}
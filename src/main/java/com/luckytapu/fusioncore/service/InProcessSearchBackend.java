@@ -0,0 +1,360 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.SearchFilter;
+import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.ChunkTextView;
+import com.luckytapu.fusioncore.repository.EmbeddingView;
+import com.luckytapu.fusioncore.repository.FileAttributesView;
+import com.luckytapu.fusioncore.repository.FileGenerationView;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.IndexedFileView;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Base for backends that answer queries from an in-process index mirrored from chunk_embeddings.
+// The index is loaded once the application is ready and then follows committed generations. With a
+// snapshot directory configured, startup restores the latest snapshot and only re-reads files whose
+// active generation moved since it was written. Each file's document centroid and filter attributes are
+// held alongside, for the first level of a two-level search and for filtered searches, loaded from
+// user_files and kept current the same way. Changes made on other nodes, and deletes, arrive through
+// IndexedGenerationsChangedEvent and are replayed from the database like a snapshot's stale files.
+@Slf4j
+public abstract class InProcessSearchBackend implements VectorSearchBackend {
+
+    private static final int REPLAY_BATCH_SIZE = 500;
+
+    protected final ChunkRepository chunkRepository;
+    protected final ChunkEmbeddingRepository chunkEmbeddingRepository;
+    protected final FileRepository fileRepository;
+    private final IndexSnapshots snapshots;
+    private final CentroidIndex centroids = new CentroidIndex();
+    private final Map<UUID, FileAttributes> fileAttributes = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Serializes loading, generation events and syncs, so a sync never replays a generation an event adds too
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    protected InProcessSearchBackend(ChunkRepository chunkRepository,
+                                     ChunkEmbeddingRepository chunkEmbeddingRepository,
+                                     FileRepository fileRepository,
+                                     String snapshotDirectory) {
+        this.chunkRepository = chunkRepository;
+        this.chunkEmbeddingRepository = chunkEmbeddingRepository;
+        this.fileRepository = fileRepository;
+        this.snapshots = snapshotDirectory == null || snapshotDirectory.isBlank() ? null : new IndexSnapshots(Path.of(snapshotDirectory));
+    }
+
+    protected abstract void addGeneration(UUID fileId, long generation, List<UUID> chunkIds, List<float[]> vectors);
+
+    protected abstract void removeFile(UUID fileId);
+
+    protected abstract List<VectorHit> nearest(float[] queryVector, int limit, float minScore);
+
+    protected abstract List<VectorHit> nearestWithinFiles(float[] queryVector, Collection<UUID> fileIds, int limit, float minScore);
+
+    protected abstract int indexedCount();
+
+    // -1 when the file is not indexed
+    protected abstract long generationOf(UUID fileId);
+
+    protected abstract Map<UUID, Long> indexedGenerations();
+
+    protected abstract void writeSnapshot(Path directory) throws IOException;
+
+    // Returns the generation of every file the snapshot covers
+    protected abstract Map<UUID, Long> restoreSnapshot(Path directory) throws IOException;
+
+    protected void beforeLoad() {
+    }
+
+    // Also runs when loading fails, so the index can still serve what it has
+    protected void afterLoad() {
+    }
+
+    protected void closeIndex() throws IOException {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadIndex() {
+        long start = System.currentTimeMillis();
+        syncLock.lock();
+        beforeLoad();
+        try {
+            Map<UUID, Long> covered = restoreLatestSnapshot();
+            if (covered != null) {
+                replayChangedFiles(covered);
+            } else {
+                try (Stream<EmbeddingView> embeddings = chunkEmbeddingRepository.streamActiveEmbeddings()) {
+                    addByFile(embeddings);
+                }
+                dirty.set(true);
+            }
+            loadFiles();
+            afterLoad();
+            log.info("Loaded {} vectors and {} document centroids into {} in {}ms",
+                    indexedCount(), centroids.size(), getClass().getSimpleName(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to load {}: {}", getClass().getSimpleName(), e.getMessage(), e);
+            afterLoad();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Only committed generations reach the index; a rolled back publish never shows up in search.
+    // A sync may already have read the generation from the database, in which case it is skipped.
+    @TransactionalEventListener
+    public void onGenerationPublished(ChunkGenerationPublishedEvent event) {
+        syncLock.lock();
+        try {
+            if (generationOf(event.fileId()) >= event.generation()) {
+                log.debug("Generation {} of file {} is already indexed", event.generation(), event.fileId());
+                return;
+            }
+            List<float[]> vectors = event.embeddings().stream().map(EmbeddingCodec::toFloats).toList();
+            addGeneration(event.fileId(), event.generation(), event.chunkIds(), vectors);
+            if (!vectors.isEmpty()) {
+                centroids.put(event.fileId(), EmbeddingCodec.centroid(vectors));
+            }
+            fileRepository.findFileAttributes(event.fileId())
+                    .ifPresent(file -> fileAttributes.put(file.getFileId(), FileAttributes.of(file)));
+            dirty.set(true);
+        } catch (Exception e) {
+            log.warn("Failed to index generation {} for file {}: {}", event.generation(), event.fileId(), e.getMessage());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @EventListener
+    @Transactional(readOnly = true)
+    public void onIndexedGenerationsChanged(IndexedGenerationsChangedEvent event) {
+        syncLock.lock();
+        try {
+            refreshFiles(replayChangedFiles(indexedGenerations()));
+        } catch (Exception e) {
+            log.warn("Failed to sync {} with the database: {}", getClass().getSimpleName(), e.getMessage());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Skipped when nothing changed since the last snapshot
+    @Scheduled(initialDelayString = "${fusioncore.search.snapshot.interval:PT10M}",
+            fixedDelayString = "${fusioncore.search.snapshot.interval:PT10M}")
+    public void snapshot() {
+        if (snapshots == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Path written = snapshots.write(this::writeSnapshot);
+            log.info("Wrote {} snapshot {} in {}ms", getClass().getSimpleName(), written, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            dirty.set(true);
+            log.warn("Failed to write {} snapshot: {}", getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        snapshot();
+        closeIndex();
+    }
+
+    @Override
+    public List<SearchResult> search(float[] queryVector, int limit, double minSimilarity) {
+        return hydrate(nearest(queryVector, limit, (float) minSimilarity));
+    }
+
+    @Override
+    public List<SearchResult> searchWithinFiles(float[] queryVector, Collection<UUID> fileIds, int limit, double minSimilarity) {
+        return hydrate(nearestWithinFiles(queryVector, fileIds, limit, (float) minSimilarity));
+    }
+
+    // The filter is tested against the attributes held in memory; only an explicit file list narrows the scan
+    @Override
+    public List<SearchResult> searchMatching(float[] queryVector, SearchFilter filter, int limit, double minSimilarity) {
+        Collection<UUID> scope = filter.restrictsFileIds() ? filter.getFileIds() : fileAttributes.keySet();
+        List<UUID> fileIds = filter.restrictsFileAttributes() || filter.getExcludedFileId() != null
+                ? scope.stream().filter(fileId -> matches(filter, fileId)).toList()
+                : List.copyOf(scope);
+        if (fileIds.isEmpty()) {
+            return List.of();
+        }
+        return searchWithinFiles(queryVector, fileIds, limit, minSimilarity);
+    }
+
+    private boolean matches(SearchFilter filter, UUID fileId) {
+        FileAttributes file = fileAttributes.get(fileId);
+        return file != null && filter.matches(fileId, file.strategy(), file.fileType(), file.createdDate());
+    }
+
+    @Override
+    public List<UUID> nearestDocuments(float[] queryVector, int limit) {
+        return centroids.nearest(queryVector, limit);
+    }
+
+    private List<SearchResult> hydrate(List<VectorHit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Set<UUID> fileIds = new HashSet<>();
+        Set<UUID> chunkIds = new HashSet<>();
+        for (VectorHit hit : hits) {
+            fileIds.add(hit.fileId());
+            chunkIds.add(hit.chunkId());
+        }
+        Map<UUID, ChunkTextView> texts = chunkRepository.findChunkTexts(fileIds, chunkIds).stream()
+                .collect(Collectors.toMap(ChunkTextView::getChunkId, Function.identity()));
+
+        // Keep the index's ranking; chunks purged since the hit was found are dropped
+        List<SearchResult> results = new ArrayList<>(hits.size());
+        for (VectorHit hit : hits) {
+            ChunkTextView chunk = texts.get(hit.chunkId());
+            if (chunk == null) {
+                continue;
+            }
+            results.add(SearchResult.builder()
+                    .fileId(chunk.getFileId())
+                    .fileName(chunk.getFileName() != null ? chunk.getFileName() : "Unknown")
+                    .chunkText(chunk.getText())
+                    .similarityScore(hit.score())
+                    .chunkIndex(chunk.getChunkIndex())
+                    .build());
+        }
+        return results;
+    }
+
+    private Map<UUID, Long> restoreLatestSnapshot() {
+        if (snapshots == null) {
+            return null;
+        }
+        try {
+            Optional<Path> latest = snapshots.latest();
+            if (latest.isEmpty()) {
+                return null;
+            }
+            Map<UUID, Long> covered = restoreSnapshot(latest.get());
+            log.info("Restored {} files from snapshot {}", covered.size(), latest.get());
+            return covered;
+        } catch (Exception e) {
+            log.warn("Failed to restore snapshot, rebuilding from the database: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Reads one row per file rather than every embedding; only files whose generation differs are re-read.
+    // Returns the files that were re-read.
+    private List<UUID> replayChangedFiles(Map<UUID, Long> covered) {
+        Map<UUID, Long> active = new HashMap<>();
+        for (FileGenerationView file : fileRepository.findIndexedGenerations()) {
+            active.put(file.getFileId(), file.getActiveGeneration());
+        }
+
+        List<UUID> removed = covered.keySet().stream().filter(fileId -> !active.containsKey(fileId)).toList();
+        removed.forEach(fileId -> {
+            removeFile(fileId);
+            centroids.remove(fileId);
+            fileAttributes.remove(fileId);
+        });
+
+        List<UUID> changed = active.entrySet().stream()
+                .filter(file -> !file.getValue().equals(covered.get(file.getKey())))
+                .map(Map.Entry::getKey)
+                .toList();
+        for (int i = 0; i < changed.size(); i += REPLAY_BATCH_SIZE) {
+            List<UUID> batch = changed.subList(i, Math.min(changed.size(), i + REPLAY_BATCH_SIZE));
+            try (Stream<EmbeddingView> embeddings = chunkEmbeddingRepository.streamActiveEmbeddings(batch)) {
+                addByFile(embeddings);
+            }
+        }
+
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            dirty.set(true);
+        }
+        log.info("Replayed {} changed and {} removed files from the database", changed.size(), removed.size());
+        return changed;
+    }
+
+    private void refreshFiles(List<UUID> fileIds) {
+        for (int i = 0; i < fileIds.size(); i += REPLAY_BATCH_SIZE) {
+            fileRepository.findIndexedFiles(fileIds.subList(i, Math.min(fileIds.size(), i + REPLAY_BATCH_SIZE)))
+                    .forEach(this::putFile);
+        }
+    }
+
+    // One row per file; the centroids are the ones written when each generation was activated
+    private void loadFiles() {
+        try (Stream<IndexedFileView> files = fileRepository.streamIndexedFiles()) {
+            files.forEach(this::putFile);
+        }
+    }
+
+    private void putFile(IndexedFileView file) {
+        fileAttributes.put(file.getFileId(), FileAttributes.of(file));
+        if (file.getVectorData() != null) {
+            centroids.put(file.getFileId(), EmbeddingCodec.toFloats(file.getVectorData()));
+        }
+    }
+
+    // Embeddings stream ordered by file, so each file's vectors are added in one batch
+    private void addByFile(Stream<EmbeddingView> embeddings) {
+        UUID currentFile = null;
+        long currentGeneration = 0;
+        List<UUID> chunkIds = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        for (EmbeddingView embedding : (Iterable<EmbeddingView>) embeddings::iterator) {
+            if (!embedding.getFileId().equals(currentFile)) {
+                flush(currentFile, currentGeneration, chunkIds, vectors);
+                currentFile = embedding.getFileId();
+                currentGeneration = embedding.getGeneration();
+            }
+            chunkIds.add(embedding.getChunkId());
+            vectors.add(EmbeddingCodec.toFloats(embedding.getEmbedding()));
+        }
+        flush(currentFile, currentGeneration, chunkIds, vectors);
+    }
+
+    private void flush(UUID fileId, long generation, List<UUID> chunkIds, List<float[]> vectors) {
+        if (fileId != null && !chunkIds.isEmpty()) {
+            addGeneration(fileId, generation, List.copyOf(chunkIds), List.copyOf(vectors));
+        }
+        chunkIds.clear();
+        vectors.clear();
+    }
+
+    private record FileAttributes(String strategy, String fileType, LocalDateTime createdDate) {
+
+        static FileAttributes of(FileAttributesView file) {
+            return new FileAttributes(file.getStrategy(), file.getFileType(), file.getCreatedDate());
+        }
+    }
+}
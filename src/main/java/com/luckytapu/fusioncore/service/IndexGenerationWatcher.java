@@ -0,0 +1,69 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.repository.FileGenerationView;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+// ChunkGenerationPublishedEvent never leaves the node that activated the generation, and deletes publish
+// nothing at all. Polling every file's active generation catches both, from any node, so in-process
+// indexes and the result cache converge across nodes within one interval. Local changes show up here
+// too; listeners compare against what they hold, so seeing a change twice is harmless.
+@Service
+@Slf4j
+public class IndexGenerationWatcher {
+
+    private final FileRepository fileRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    // Empty at startup, so the first poll also covers changes made while the index was loading
+    private Map<UUID, Long> lastSeen = Map.of();
+
+    public IndexGenerationWatcher(FileRepository fileRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${fusioncore.search.sync.enabled:true}") boolean enabled) {
+        this.fileRepository = fileRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(initialDelayString = "${fusioncore.search.sync.interval:PT30S}",
+            fixedDelayString = "${fusioncore.search.sync.interval:PT30S}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Map<UUID, Long> current = new HashMap<>();
+            for (FileGenerationView file : fileRepository.findIndexedGenerations()) {
+                current.put(file.getFileId(), file.getActiveGeneration());
+            }
+            int changed = countChanged(lastSeen, current);
+            lastSeen = current;
+            if (changed > 0) {
+                log.debug("{} indexed files changed since the last poll", changed);
+                eventPublisher.publishEvent(new IndexedGenerationsChangedEvent(changed));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to poll indexed generations: {}", e.getMessage());
+        }
+    }
+
+    private static int countChanged(Map<UUID, Long> previous, Map<UUID, Long> current) {
+        Set<UUID> fileIds = new HashSet<>(previous.keySet());
+        fileIds.addAll(current.keySet());
+        return (int) fileIds.stream()
+                .filter(fileId -> !Objects.equals(previous.get(fileId), current.get(fileId)))
+                .count();
+    }
+}
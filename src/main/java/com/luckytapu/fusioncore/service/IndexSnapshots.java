@@ -0,0 +1,105 @@
+package com.luckytapu.fusioncore.service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Numbered snapshot directories plus a CURRENT file naming the latest complete one. A snapshot is
+// written under a temporary name, forced to disk and renamed into place before CURRENT is switched,
+// so a crash at any point leaves the previous snapshot readable.
+public final class IndexSnapshots {
+
+    private static final String CURRENT = "CURRENT";
+    private static final String PREFIX = "snapshot-";
+
+    private final Path directory;
+    private long lastSequence;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        void write(Path snapshotDirectory) throws IOException;
+    }
+
+    public IndexSnapshots(Path directory) {
+        this.directory = directory;
+    }
+
+    public Optional<Path> latest() throws IOException {
+        Path current = directory.resolve(CURRENT);
+        if (!Files.exists(current)) {
+            return Optional.empty();
+        }
+        Path snapshot = directory.resolve(Files.readString(current, StandardCharsets.UTF_8).trim());
+        return Files.isDirectory(snapshot) ? Optional.of(snapshot) : Optional.empty();
+    }
+
+    public Path write(SnapshotWriter writer) throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            lastSequence = Math.max(System.currentTimeMillis(), lastSequence + 1);
+            String name = PREFIX + lastSequence;
+            Path temporary = directory.resolve(name + ".tmp");
+            deleteRecursively(temporary);
+            Files.createDirectories(temporary);
+
+            writer.write(temporary);
+            try (Stream<Path> files = Files.list(temporary)) {
+                for (Path file : files.toList()) {
+                    force(file);
+                }
+            }
+
+            Path snapshot = directory.resolve(name);
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            Path pointer = directory.resolve(CURRENT + ".tmp");
+            Files.writeString(pointer, name, StandardCharsets.UTF_8);
+            force(pointer);
+            Files.move(pointer, directory.resolve(CURRENT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            removeOlderThan(name);
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeOlderThan(String keep) throws IOException {
+        List<Path> stale;
+        try (Stream<Path> entries = Files.list(directory)) {
+            stale = entries.filter(path -> path.getFileName().toString().startsWith(PREFIX))
+                    .filter(path -> !path.getFileName().toString().equals(keep))
+                    .toList();
+        }
+        for (Path path : stale) {
+            deleteRecursively(path);
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path entry : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.luckytapu.fusioncore.service;
+
+// The set of indexed files or their active generations changed since the last poll, possibly on another node
+public record IndexedGenerationsChangedEvent(int changedFiles) {
+}
@@ -0,0 +1,131 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import com.luckytapu.fusioncore.repository.IngestionJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class IngestionJobService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final IngestionJobRepository jobRepository;
+    private final FileService fileService;
+    private final Duration lease;
+    private final int maxAttempts;
+
+    public IngestionJobService(IngestionJobRepository jobRepository, FileService fileService,
+                               @Value("${fusioncore.ingest.jobs.lease:PT10M}") Duration lease,
+                               @Value("${fusioncore.ingest.jobs.max-attempts:3}") int maxAttempts) {
+        this.jobRepository = jobRepository;
+        this.fileService = fileService;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // The upload is persisted before the request returns, so the job survives restarts
+    // and never depends on the request's MultipartFile staying readable. Bytes that were already
+    // processed are not stored again: the job completes at once, pointing at the existing file.
+    public IngestionJobEntity submit(MultipartFile file, boolean generateEmbeddings) throws IOException {
+        Optional<UUID> existing = fileService.findProcessedCopy(file.getBytes(), generateEmbeddings);
+        if (existing.isPresent()) {
+            IngestionJobEntity job = jobRepository.save(IngestionJobEntity.builder()
+                    .fileId(existing.get())
+                    .generateEmbeddings(generateEmbeddings)
+                    .status(IngestionJobStatus.SUCCEEDED)
+                    .progress(100)
+                    .completedDate(LocalDateTime.now())
+                    .build());
+            log.info("{} has the same content as processed file {}; job {} completed without processing",
+                    file.getOriginalFilename(), existing.get(), job.getJobId());
+            return job;
+        }
+        FileEntity savedFile = fileService.saveFile(file);
+        IngestionJobEntity job = jobRepository.save(IngestionJobEntity.builder()
+                .fileId(savedFile.getFileId())
+                .generateEmbeddings(generateEmbeddings)
+                .status(IngestionJobStatus.QUEUED)
+                .build());
+        log.info("Queued ingestion job {} for file {}", job.getJobId(), savedFile.getFileId());
+        return job;
+    }
+
+    public Optional<IngestionJobEntity> findJob(UUID jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    // Jobs that already used up their attempts (e.g. a document that keeps killing its worker)
+    // are failed here instead of being handed out again
+    @Transactional
+    public List<IngestionJobEntity> claim(String worker, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<IngestionJobEntity> jobs = jobRepository.lockClaimableJobs(now.minus(lease), limit);
+
+        // The rows are locked, so the lease is written by dirty checking when the claim commits
+        List<IngestionJobEntity> claimed = new ArrayList<>(jobs.size());
+        for (IngestionJobEntity job : jobs) {
+            job.setAttempts(job.getAttempts() + 1);
+            if (job.getAttempts() > maxAttempts) {
+                job.setStatus(IngestionJobStatus.FAILED);
+                job.setError(truncate("Abandoned after " + maxAttempts + " attempts"));
+                job.setCompletedDate(now);
+                log.warn("Ingestion job {} abandoned after {} attempts", job.getJobId(), maxAttempts);
+            } else {
+                job.setStatus(IngestionJobStatus.RUNNING);
+                job.setLockedBy(worker);
+                job.setLockedAt(now);
+                claimed.add(job);
+            }
+        }
+        return claimed;
+    }
+
+    public boolean reportProgress(UUID jobId, String worker, int progress) {
+        return jobRepository.updateProgress(jobId, worker, progress, LocalDateTime.now()) > 0;
+    }
+
+    public void succeed(UUID jobId, String worker) {
+        finish(jobId, worker, IngestionJobStatus.SUCCEEDED, null);
+    }
+
+    public void fail(UUID jobId, String worker, String error) {
+        finish(jobId, worker, IngestionJobStatus.FAILED, error);
+    }
+
+    // Unexpected errors go back on the queue until the attempts run out
+    public void retryOrFail(IngestionJobEntity job, String worker, String error) {
+        if (job.getAttempts() >= maxAttempts) {
+            fail(job.getJobId(), worker, error);
+        } else if (jobRepository.requeue(job.getJobId(), worker, truncate(error)) == 0) {
+            log.warn("Ingestion job {} was reclaimed before it could be requeued", job.getJobId());
+        }
+    }
+
+    private void finish(UUID jobId, String worker, IngestionJobStatus status, String error) {
+        if (jobRepository.finish(jobId, worker, status, truncate(error), LocalDateTime.now()) == 0) {
+            log.warn("Ingestion job {} was reclaimed by another worker; dropping {} result", jobId, status);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
@@ -0,0 +1,127 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.config.AsyncConfig;
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+// Runs on every node; capacity grows by adding instances since claims never block on each other.
+// Only as many jobs are claimed as there are idle threads, so nothing sits claimed in a local queue.
+@Service
+@Slf4j
+public class IngestionJobWorker {
+
+    private final IngestionJobService jobService;
+    private final FileService fileService;
+    private final boolean enabled;
+    private final String workerId;
+    private final Semaphore idleThreads;
+    private final ExecutorService executor;
+    // Last reported progress of the jobs running here, re-sent on every poll as the lease heartbeat
+    private final Map<UUID, Integer> running = new ConcurrentHashMap<>();
+
+    public IngestionJobWorker(IngestionJobService jobService, FileService fileService,
+                              @Value("${fusioncore.ingest.jobs.worker-enabled:true}") boolean enabled,
+                              @Value("${fusioncore.ingest.jobs.workers:4}") int workers,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jobService = jobService;
+        this.fileService = fileService;
+        this.enabled = enabled;
+        this.workerId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+        int threads = Math.max(1, workers);
+        this.idleThreads = new Semaphore(threads);
+        // With virtual threads a job waiting on Azure or the database holds no platform thread,
+        // so workers can be raised far beyond the core count
+        this.executor = AsyncConfig.workerPool("ingest-job-", threads, virtualThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted jobs keep their lease until it expires, then another node reclaims them
+        executor.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${fusioncore.ingest.jobs.poll-interval:PT2S}",
+            fixedDelayString = "${fusioncore.ingest.jobs.poll-interval:PT2S}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        running.forEach((jobId, progress) -> heartbeat(jobId, progress));
+
+        int idle = idleThreads.availablePermits();
+        if (idle == 0) {
+            return;
+        }
+        try {
+            List<IngestionJobEntity> jobs = jobService.claim(workerId, idle);
+            for (IngestionJobEntity job : jobs) {
+                idleThreads.acquireUninterruptibly();
+                running.put(job.getJobId(), job.getProgress());
+                try {
+                    executor.execute(() -> {
+                        try {
+                            run(job);
+                        } finally {
+                            running.remove(job.getJobId());
+                            idleThreads.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    running.remove(job.getJobId());
+                    idleThreads.release();
+                    log.warn("Worker shutting down; ingestion job {} will be reclaimed after its lease", job.getJobId());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to claim ingestion jobs: {}", e.getMessage());
+        }
+    }
+
+    void run(IngestionJobEntity job) {
+        UUID jobId = job.getJobId();
+        log.info("Worker {} running ingestion job {} (attempt {})", workerId, jobId, job.getAttempts());
+        try {
+            DocumentProcessingResult result = fileService.processStoredDocument(job.getFileId(), job.isGenerateEmbeddings(),
+                    progress -> {
+                        running.put(jobId, progress);
+                        heartbeat(jobId, progress);
+                    });
+            if ("SUCCESS".equals(result.getProcessingStatus())) {
+                jobService.succeed(jobId, workerId);
+            } else {
+                jobService.fail(jobId, workerId, result.getProcessingStatus());
+            }
+        } catch (Exception e) {
+            log.error("Ingestion job {} failed: {}", jobId, e.getMessage(), e);
+            jobService.retryOrFail(job, workerId, e.getMessage());
+        }
+    }
+
+    String workerId() {
+        return workerId;
+    }
+
+    private void heartbeat(UUID jobId, int progress) {
+        try {
+            if (!jobService.reportProgress(jobId, workerId, progress)) {
+                log.warn("Lost the lease on ingestion job {}", jobId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to report progress for ingestion job {}: {}", jobId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.luckytapu.fusioncore.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// MinHash signatures over word shingles, and the LSH band buckets they are indexed by. Signatures
+// are persisted, so the hash family is derived from fixed seeds and must not change.
+public final class MinHash {
+
+    static final int SHINGLE_WORDS = 5;
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private MinHash() {
+    }
+
+    // Shingles never span two chunks; a chunk shorter than a shingle counts as one
+    public static Set<Long> shingles(List<String> texts) {
+        Set<Long> shingles = new HashSet<>();
+        for (String text : texts) {
+            String[] words = Arrays.stream(WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                    .filter(word -> !word.isEmpty())
+                    .toArray(String[]::new);
+            if (words.length == 0) {
+                continue;
+            }
+            for (int first = 0; first <= Math.max(0, words.length - SHINGLE_WORDS); first++) {
+                long hash = 0xcbf29ce484222325L;
+                for (int i = first; i < Math.min(first + SHINGLE_WORDS, words.length); i++) {
+                    hash = fnv(hash, words[i]);
+                }
+                shingles.add(hash);
+            }
+        }
+        return shingles;
+    }
+
+    public static long[] signature(Set<Long> shingles, int size) {
+        long[] signature = new long[size];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < size; i++) {
+                long hash = mix(shingle ^ seed(i));
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    // Share of matching positions, an estimate of the Jaccard similarity of the two shingle sets
+    public static double similarity(long[] a, long[] b) {
+        if (a.length != b.length || a.length == 0) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    // One bucket per band of rows; the band index is hashed in, so buckets never collide across bands
+    public static long[] bandBuckets(long[] signature, int bands, int rows) {
+        long[] buckets = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long hash = mix(seed(band) + 1);
+            for (int row = band * rows; row < (band + 1) * rows; row++) {
+                hash = mix(hash ^ signature[row]);
+            }
+            buckets[band] = hash;
+        }
+        return buckets;
+    }
+
+    public static byte[] toBytes(long[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Long.BYTES);
+        buffer.asLongBuffer().put(signature);
+        return buffer.array();
+    }
+
+    public static long[] toLongs(byte[] bytes) {
+        long[] signature = new long[bytes.length / Long.BYTES];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(signature);
+        return signature;
+    }
+
+    private static long fnv(long hash, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ word.charAt(i)) * 0x100000001b3L;
+        }
+        // Separator, so "ab c" and "a bc" differ
+        return (hash ^ ' ') * 0x100000001b3L;
+    }
+
+    private static long seed(int i) {
+        return mix(0x9e3779b97f4a7c15L * (i + 1));
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
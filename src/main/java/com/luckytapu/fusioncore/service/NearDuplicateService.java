@@ -0,0 +1,89 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.FileSignatureEntity;
+import com.luckytapu.fusioncore.model.NearDuplicateReport;
+import com.luckytapu.fusioncore.repository.FileSignatureRepository;
+import com.luckytapu.fusioncore.repository.SignatureCandidateView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class NearDuplicateService {
+
+    // Signatures of only the files sharing the most bands are compared
+    private static final int MAX_CANDIDATES = 10;
+
+    private final FileSignatureRepository fileSignatureRepository;
+    private final boolean enabled;
+    private final double threshold;
+    private final int bands;
+    private final int rows;
+
+    public NearDuplicateService(FileSignatureRepository fileSignatureRepository,
+                                @Value("${fusioncore.processing.near-duplicate.enabled:true}") boolean enabled,
+                                @Value("${fusioncore.processing.near-duplicate.threshold:0.8}") double threshold,
+                                @Value("${fusioncore.processing.near-duplicate.bands:16}") int bands,
+                                @Value("${fusioncore.processing.near-duplicate.rows:8}") int rows) {
+        this.fileSignatureRepository = fileSignatureRepository;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.bands = Math.max(1, bands);
+        this.rows = Math.max(1, rows);
+    }
+
+    // Indexes the file's chunk texts and reports the closest other file with an active chunk set.
+    // embeddingsReused is only a decision here; the caller fills in the chunk counts once applied.
+    // Empty when disabled, when the chunks have no words, or when the index can't be reached.
+    public Optional<NearDuplicateReport> check(UUID fileId, List<String> chunkTexts) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            Set<Long> shingles = MinHash.shingles(chunkTexts);
+            if (shingles.isEmpty()) {
+                return Optional.empty();
+            }
+            long[] signature = MinHash.signature(shingles, bands * rows);
+            Set<Long> buckets = Arrays.stream(MinHash.bandBuckets(signature, bands, rows)).boxed()
+                    .collect(Collectors.toCollection(HashSet::new));
+
+            NearDuplicateReport report = NearDuplicateReport.builder().threshold(threshold).build();
+            List<UUID> candidates = fileSignatureRepository.findCandidates(fileId, buckets, Limit.of(MAX_CANDIDATES)).stream()
+                    .map(SignatureCandidateView::getFileId)
+                    .toList();
+            for (FileSignatureEntity candidate : fileSignatureRepository.findAllById(candidates)) {
+                double similarity = MinHash.similarity(signature, MinHash.toLongs(candidate.getSignature()));
+                if (report.getMatchedFileId() == null || similarity > report.getSimilarity()) {
+                    report.setMatchedFileId(candidate.getFileId());
+                    report.setSimilarity(similarity);
+                }
+            }
+            report.setEmbeddingsReused(report.getMatchedFileId() != null && report.getSimilarity() >= threshold);
+
+            fileSignatureRepository.save(FileSignatureEntity.builder()
+                    .fileId(fileId)
+                    .signature(MinHash.toBytes(signature))
+                    .shingleCount(shingles.size())
+                    .bandBuckets(buckets)
+                    .build());
+            if (report.isEmbeddingsReused()) {
+                log.info("File {} is a near-duplicate of {} (similarity {})", fileId, report.getMatchedFileId(), report.getSimilarity());
+            }
+            return Optional.of(report);
+        } catch (Exception e) {
+            log.warn("Near-duplicate check failed for file {}: {}", fileId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.luckytapu.fusioncore.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+// Fixed-width float vectors kept in direct buffers outside the Java heap. A single writer appends,
+// any number of readers may score concurrently since absolute FloatBuffer reads don't touch position.
+public final class OffHeapVectorStore {
+
+    private static final int VECTORS_PER_PAGE = 1024;
+
+    private final int dimensions;
+    private volatile FloatBuffer[] pages = new FloatBuffer[0];
+
+    public OffHeapVectorStore(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public void set(int id, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        int page = id / VECTORS_PER_PAGE;
+        FloatBuffer[] current = pages;
+        if (page >= current.length) {
+            FloatBuffer[] grown = Arrays.copyOf(current, page + 1);
+            for (int i = current.length; i <= page; i++) {
+                grown[i] = ByteBuffer.allocateDirect(VECTORS_PER_PAGE * dimensions * Float.BYTES)
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+            }
+            pages = grown;
+            current = grown;
+        }
+        current[page].put((id % VECTORS_PER_PAGE) * dimensions, vector);
+    }
+
+    public float[] get(int id) {
+        float[] vector = new float[dimensions];
+        pages[id / VECTORS_PER_PAGE].get((id % VECTORS_PER_PAGE) * dimensions, vector);
+        return vector;
+    }
+
+    public float dot(int id, float[] query) {
+        FloatBuffer page = pages[id / VECTORS_PER_PAGE];
+        int offset = (id % VECTORS_PER_PAGE) * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += page.get(offset + i) * query[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,144 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.SearchFilter;
+import com.luckytapu.fusioncore.model.SearchResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Bounded LRU of search results keyed by the index generation they were computed against. Any
+// committed ingest bumps the generation, so stale entries are never served and simply age out. Changes
+// made on other nodes bump it too, once IndexGenerationWatcher sees them.
+// Identical queries that arrive while one is being computed wait for it instead of repeating it.
+@Service
+@Slf4j
+public class SearchResultCache {
+
+    private final AtomicLong indexGeneration = new AtomicLong();
+    private final int maxEntries;
+    private final Map<Key, CompletableFuture<List<SearchResult>>> entries;
+    // Guards entries; access order makes even get() a structural change
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SearchResultCache(@Value("${fusioncore.search.cache.max-entries:1000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<List<SearchResult>>> eldest) {
+                return size() > SearchResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public record Key(long generation, String query, int limit, SearchFilter filter, double minSimilarity) {
+    }
+
+    // Cache key only: case and whitespace differences alone shouldn't cost another embedding call.
+    // The query itself is still embedded and matched as written.
+    public static String normalize(String query) {
+        return query.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public Key key(String normalizedQuery, int limit) {
+        return key(normalizedQuery, limit, SearchFilter.none(), 0);
+    }
+
+    public Key key(String normalizedQuery, int limit, SearchFilter filter, double minSimilarity) {
+        return new Key(indexGeneration.get(), normalizedQuery, limit, filter, minSimilarity);
+    }
+
+    // Completed results only; a lookup still in flight counts as a miss
+    public Optional<List<SearchResult>> getIfPresent(Key key) {
+        CompletableFuture<List<SearchResult>> existing;
+        lock.lock();
+        try {
+            existing = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (existing == null || !existing.isDone() || existing.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.of(existing.join());
+    }
+
+    // Failures are not cached; every caller waiting on the failed computation sees the exception
+    public List<SearchResult> get(Key key, Supplier<List<SearchResult>> search) {
+        if (maxEntries <= 0) {
+            return search.get();
+        }
+
+        CompletableFuture<List<SearchResult>> computation = new CompletableFuture<>();
+        CompletableFuture<List<SearchResult>> existing;
+        lock.lock();
+        try {
+            existing = entries.get(key);
+            if (existing == null) {
+                entries.put(key, computation);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            List<SearchResult> results = List.copyOf(search.get());
+            computation.complete(results);
+            return results;
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                entries.remove(key, computation);
+            } finally {
+                lock.unlock();
+            }
+            computation.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public long indexGeneration() {
+        return indexGeneration.get();
+    }
+
+    public void invalidate() {
+        indexGeneration.incrementAndGet();
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onGenerationPublished(ChunkGenerationPublishedEvent event) {
+        invalidate();
+        log.debug("Invalidated search cache after generation {} of file {}", event.generation(), event.fileId());
+    }
+
+    @EventListener
+    public void onIndexedGenerationsChanged(IndexedGenerationsChangedEvent event) {
+        invalidate();
+        log.debug("Invalidated search cache after {} indexed files changed", event.changedFiles());
+    }
+}
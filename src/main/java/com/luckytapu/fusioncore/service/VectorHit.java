@@ -0,0 +1,6 @@
+package com.luckytapu.fusioncore.service;
+
+import java.util.UUID;
+
+public record VectorHit(UUID chunkId, UUID fileId, float score) {
+}
@@ -0,0 +1,24 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.SearchFilter;
+import com.luckytapu.fusioncore.model.SearchResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Top-k similarity search over the active generation of every file, selected by fusioncore.search.backend.
+// Hits scoring below minSimilarity are never returned, so fewer than limit rows may come back.
+public interface VectorSearchBackend {
+    List<SearchResult> search(float[] queryVector, int limit, double minSimilarity);
+
+    // Scores only the chunks of the given files
+    List<SearchResult> searchWithinFiles(float[] queryVector, Collection<UUID> fileIds, int limit, double minSimilarity);
+
+    // Scores only the chunks of files matching the filter. The backend applies the filter itself, so
+    // a broad filter never turns into a list of every matching file id.
+    List<SearchResult> searchMatching(float[] queryVector, SearchFilter filter, int limit, double minSimilarity);
+
+    // Files whose document centroid is closest to the query, nearest first
+    List<UUID> nearestDocuments(float[] queryVector, int limit);
+}
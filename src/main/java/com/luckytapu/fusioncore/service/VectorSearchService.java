@@ -1,69 +1,341 @@
 package com.luckytapu.fusioncore.service;
 
+import com.luckytapu.fusioncore.config.AsyncConfig;
 import com.luckytapu.fusioncore.entity.ChunkEntity;
+import com.luckytapu.fusioncore.model.ChunkSummary;
+import com.luckytapu.fusioncore.model.SearchFilter;
 import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
 import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.LexicalMatchView;
+import com.luckytapu.fusioncore.repository.SourceChunkView;
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class VectorSearchService {
     
     private final ChunkRepository chunkRepository;
+    private final ChunkEmbeddingRepository chunkEmbeddingRepository;
+    private final FileRepository fileRepository;
+    private final VectorSearchBackend searchBackend;
     private final EmbeddingModel embeddingModel;
+    private final SearchResultCache searchCache;
+    private final ExecutorService batchExecutor;
+    
+    @Value("${fusioncore.search.max-results:50}")
+    private int maxResults;
+    
+    @Value("${fusioncore.search.similarity-threshold:0.7}")
+    private double similarityThreshold;
+    
+    @Value("${fusioncore.search.hybrid.enabled:false}")
+    private boolean hybridSearch;
+    
+    @Value("${fusioncore.search.hybrid.lexical-candidates:100}")
+    private int lexicalCandidates;
+    
+    @Value("${fusioncore.search.hybrid.rrf-k:60}")
+    private int rrfK;
+    
+    @Value("${fusioncore.search.hierarchical.enabled:false}")
+    private boolean hierarchicalSearch;
+    
+    @Value("${fusioncore.search.hierarchical.documents:20}")
+    private int candidateDocuments;
+    
+    public VectorSearchService(ChunkRepository chunkRepository,
+                               ChunkEmbeddingRepository chunkEmbeddingRepository,
+                               FileRepository fileRepository,
+                               VectorSearchBackend searchBackend,
+                               EmbeddingModel embeddingModel,
+                               SearchResultCache searchCache,
+                               @Value("${fusioncore.search.batch.parallelism:8}") int batchParallelism,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.chunkRepository = chunkRepository;
+        this.chunkEmbeddingRepository = chunkEmbeddingRepository;
+        this.fileRepository = fileRepository;
+        this.searchBackend = searchBackend;
+        this.embeddingModel = embeddingModel;
+        this.searchCache = searchCache;
+        // Fixed size so a large batch queues instead of taking every database connection; with
+        // virtual threads the connection pool itself is the limit
+        this.batchExecutor = AsyncConfig.workerPool("batch-search-", batchParallelism, virtualThreads);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
     
     public List<SearchResult> searchSimilarChunks(String query, int limit) {
+        return searchSimilarChunks(query, limit, SearchFilter.none(), null);
+    }
+    
+    public List<SearchResult> searchSimilarChunks(String query, int limit, SearchFilter filter) {
+        return searchSimilarChunks(query, limit, filter, null);
+    }
+    
+    // Range search: limit is capped at max-results and hits below the threshold (the configured
+    // one unless the caller passes its own) are cut off inside the backend scan
+    public List<SearchResult> searchSimilarChunks(String query, int limit, SearchFilter filter, Double minSimilarity) {
         if (embeddingModel == null) {
             log.warn("EmbeddingModel not available for search");
             return List.of();
         }
+        int cappedLimit = Math.min(limit, maxResults);
+        if (cappedLimit <= 0) {
+            return List.of();
+        }
+        double threshold = minSimilarity != null ? minSimilarity : similarityThreshold;
         
+        // Only the cache key is normalized; the query is embedded and matched as the caller wrote it
         try {
-            // Generate embedding for query
-            Response<Embedding> queryEmbeddingResponse = embeddingModel.embed(query);
-            if (queryEmbeddingResponse.content() == null) {
-                log.warn("Failed to generate embedding for query");
-                return List.of();
+            return searchCache.get(searchCache.key(SearchResultCache.normalize(query), cappedLimit, filter, threshold),
+                    () -> search(query, cappedLimit, filter, threshold));
+        } catch (Exception e) {
+            log.error("Vector search failed: {}", e.getMessage(), e);
+            return List.of();
+        }
+    }
+    
+    // Results come back in query order. Cached queries are answered directly, the rest are embedded
+    // in a single request and their lookups run in parallel on the bounded batch pool. Queries that
+    // share a cache key are searched once, with the text of the first of them.
+    public List<List<SearchResult>> searchBatch(List<String> queries, int limit, SearchFilter filter, Double minSimilarity) {
+        List<List<SearchResult>> results = new ArrayList<>(queries.size());
+        int cappedLimit = Math.min(limit, maxResults);
+        if (embeddingModel == null || cappedLimit <= 0) {
+            queries.forEach(query -> results.add(List.of()));
+            return results;
+        }
+        double threshold = minSimilarity != null ? minSimilarity : similarityThreshold;
+        
+        // Keyed by normalized query; pending maps each missed key to the query text to embed
+        Map<String, List<SearchResult>> resolved = new LinkedHashMap<>();
+        Map<String, String> pending = new LinkedHashMap<>();
+        for (String query : queries) {
+            String normalizedQuery = SearchResultCache.normalize(query);
+            if (!resolved.containsKey(normalizedQuery) && !pending.containsKey(normalizedQuery)) {
+                searchCache.getIfPresent(searchCache.key(normalizedQuery, cappedLimit, filter, threshold))
+                        .ifPresentOrElse(cached -> resolved.put(normalizedQuery, cached), () -> pending.put(normalizedQuery, query));
+            }
+        }
+        
+        if (!pending.isEmpty()) {
+            List<String> misses = new ArrayList<>(pending.keySet());
+            List<float[]> vectors = embedAll(new ArrayList<>(pending.values()));
+            List<CompletableFuture<List<SearchResult>>> lookups = new ArrayList<>(misses.size());
+            for (int i = 0; i < misses.size(); i++) {
+                String normalizedQuery = misses.get(i);
+                String query = pending.get(normalizedQuery);
+                float[] queryVector = vectors.get(i);
+                lookups.add(CompletableFuture.supplyAsync(() -> searchCache.get(
+                        searchCache.key(normalizedQuery, cappedLimit, filter, threshold),
+                        () -> searchVector(query, queryVector, cappedLimit, filter, threshold)), batchExecutor));
+            }
+            for (int i = 0; i < misses.size(); i++) {
+                try {
+                    resolved.put(misses.get(i), lookups.get(i).join());
+                } catch (Exception e) {
+                    log.error("Batch search failed for query '{}': {}", pending.get(misses.get(i)), e.getMessage());
+                    resolved.put(misses.get(i), List.of());
+                }
             }
-            
-            byte[] queryEmbedding = convertToBytes(queryEmbeddingResponse.content().vector());
-            
-            // Search similar chunks
-            List<Object[]> results = chunkRepository.findSimilarChunks(queryEmbedding, limit);
-            
-            List<SearchResult> searchResults = new ArrayList<>();
-            for (Object[] result : results) {
-                ChunkEntity chunk = (ChunkEntity) result[0];
-                BigDecimal similarity = (BigDecimal) result[1];
-                
-                SearchResult searchResult = SearchResult.builder()
-                        .fileId(chunk.getFileId())
-                        .fileName(chunk.getFile() != null ? chunk.getFile().getFileName() : "Unknown")
-                        .chunkText(chunk.getText())
-                        .similarityScore(similarity.doubleValue())
-                        .chunkIndex(chunk.getChunkIndex())
-                        .build();
-                
-                searchResults.add(searchResult);
+        }
+        
+        for (String query : queries) {
+            results.add(resolved.get(SearchResultCache.normalize(query)));
+        }
+        return results;
+    }
+    
+    // "More like this": the chunk's stored vector is the query, so no embedding call is made. The
+    // source chunk is always left out. Excluding its whole file is a backend filter, so the fetch never
+    // grows with the file's size; skipping only its neighbours over-fetches by at most 2 * neighbors + 1.
+    // Empty when the chunk doesn't exist or is not part of its file's active generation.
+    public Optional<List<SearchResult>> searchSimilarToChunk(UUID chunkId, int limit, boolean excludeSourceFile,
+                                                             int excludeNeighbors, Double minSimilarity) {
+        Optional<SourceChunkView> source = chunkEmbeddingRepository.findActiveSourceChunk(chunkId);
+        if (source.isEmpty()) {
+            return Optional.empty();
+        }
+        int cappedLimit = Math.min(limit, maxResults);
+        if (cappedLimit <= 0) {
+            return Optional.of(List.of());
+        }
+        double threshold = minSimilarity != null ? minSimilarity : similarityThreshold;
+        
+        SourceChunkView chunk = source.get();
+        float[] vector = EmbeddingCodec.toFloats(chunk.getEmbedding());
+        int neighbors = Math.max(0, excludeNeighbors);
+        try {
+            if (excludeSourceFile) {
+                SearchFilter filter = SearchFilter.builder().excludedFileId(chunk.getFileId()).build();
+                return Optional.of(searchBackend.searchMatching(vector, filter, cappedLimit, threshold));
             }
-            
-            return searchResults;
-            
+            List<SearchResult> hits = searchBackend.search(vector, cappedLimit + 2 * neighbors + 1, threshold);
+            return Optional.of(hits.stream()
+                    .filter(hit -> !isNeighbour(hit, chunk, neighbors))
+                    .limit(cappedLimit)
+                    .toList());
         } catch (Exception e) {
-            log.error("Vector search failed: {}", e.getMessage(), e);
+            log.error("Similar chunk search failed for {}: {}", chunkId, e.getMessage(), e);
+            return Optional.of(List.of());
+        }
+    }
+    
+    private static boolean isNeighbour(SearchResult hit, SourceChunkView source, int neighbors) {
+        return source.getFileId().equals(hit.getFileId()) && Math.abs(hit.getChunkIndex() - source.getChunkIndex()) <= neighbors;
+    }
+    
+    // A query whose embedding failed gets null, which its lookup turns into a non-cached failure
+    private List<float[]> embedAll(List<String> queries) {
+        List<float[]> vectors = new ArrayList<>(queries.size());
+        try {
+            List<TextSegment> segments = queries.stream().map(TextSegment::from).toList();
+            List<Embedding> embeddings = EmbeddingPriority.INTERACTIVE.call(() -> embeddingModel.embedAll(segments)).content();
+            for (int i = 0; i < queries.size(); i++) {
+                Embedding embedding = embeddings != null && i < embeddings.size() ? embeddings.get(i) : null;
+                vectors.add(embedding != null && embedding.vector().length > 0 ? embedding.vector() : null);
+            }
+        } catch (Exception e) {
+            log.error("Batch query embedding failed: {}", e.getMessage(), e);
+            queries.forEach(query -> vectors.add(null));
+        }
+        return vectors;
+    }
+    
+    // Throws instead of returning empty so failed searches aren't cached
+    private List<SearchResult> search(String query, int limit, SearchFilter filter, double threshold) {
+        Response<Embedding> queryEmbeddingResponse = EmbeddingPriority.INTERACTIVE.call(() -> embeddingModel.embed(query));
+        if (queryEmbeddingResponse.content() == null) {
+            throw new IllegalStateException("Failed to generate embedding for query");
+        }
+        return searchVector(query, queryEmbeddingResponse.content().vector(), limit, filter, threshold);
+    }
+    
+    private List<SearchResult> searchVector(String query, float[] queryVector, int limit, SearchFilter filter, double threshold) {
+        if (queryVector == null) {
+            throw new IllegalStateException("Failed to generate embedding for query");
+        }
+        if (hybridSearch) {
+            List<SearchResult> fused = searchHybrid(findLexicalMatches(query, filter), queryVector, limit, threshold);
+            if (!fused.isEmpty()) {
+                return fused;
+            }
+        }
+        if (!filter.isEmpty()) {
+            return searchWithinMatchingFiles(queryVector, filter, limit, threshold);
+        }
+        if (hierarchicalSearch) {
+            return searchWithinNearestDocuments(queryVector, limit, threshold);
+        }
+        return searchBackend.search(queryVector, limit, threshold);
+    }
+    
+    // Two-level search: rank documents by their centroid first, then score only those documents'
+    // chunks, so the work per query follows the number of candidate documents, not the corpus size.
+    // The backend ranks the centroids too, so hnsw and flat never fall back to a database scan.
+    private List<SearchResult> searchWithinNearestDocuments(float[] queryVector, int limit, double threshold) {
+        List<UUID> fileIds = searchBackend.nearestDocuments(queryVector, candidateDocuments);
+        if (fileIds.isEmpty()) {
+            return List.of();
+        }
+        return searchBackend.searchWithinFiles(queryVector, fileIds, limit, threshold);
+    }
+    
+    // Pre-filtering: only chunks of matching files are scored, so a narrower filter means less work.
+    // The backend applies the filter, so the matching files are never shipped around as an id list.
+    private List<SearchResult> searchWithinMatchingFiles(float[] queryVector, SearchFilter filter, int limit, double threshold) {
+        return searchBackend.searchMatching(queryVector, filter, limit, threshold);
+    }
+    
+    // The filter is part of the text query, so the candidate limit counts only matching chunks
+    private List<LexicalMatchView> findLexicalMatches(String query, SearchFilter filter) {
+        UUID[] fileIds = filter.restrictsFileIds() ? filter.getFileIds().toArray(UUID[]::new) : new UUID[0];
+        return chunkRepository.findLexicalMatches(query, fileIds, filter.getStrategy(), filter.getFileType(),
+                filter.getUploadedAfter(), filter.getUploadedBefore(), filter.getExcludedFileId(), lexicalCandidates);
+    }
+    
+    // Hybrid search: the text index prefilters the candidates and only their stored vectors are scored,
+    // so vector scoring runs on exactly the matched chunks. Candidates below the similarity threshold
+    // (or not embedded yet) are dropped like any other hit below it, then the text and vector rankings
+    // of the rest are merged with reciprocal-rank fusion (sum of 1 / (k + rank)). Empty when no
+    // candidate is left, so the caller falls back to a plain vector search.
+    private List<SearchResult> searchHybrid(List<LexicalMatchView> matches, float[] queryVector, int limit, double threshold) {
+        if (matches.isEmpty()) {
             return List.of();
         }
+        Map<UUID, byte[]> embeddings = new HashMap<>();
+        chunkEmbeddingRepository.findEmbeddings(matches.stream().map(LexicalMatchView::getChunkId).toList())
+                .forEach(embedding -> embeddings.put(embedding.getChunkId(), embedding.getEmbedding()));
+        
+        List<SearchResult> textRanking = new ArrayList<>(matches.size());
+        for (LexicalMatchView match : matches) {
+            byte[] embedding = embeddings.get(match.getChunkId());
+            double similarity = embedding != null ? EmbeddingCodec.cosine(queryVector, EmbeddingCodec.toFloats(embedding)) : 0;
+            if (embedding == null || similarity < threshold) {
+                continue;
+            }
+            textRanking.add(SearchResult.builder()
+                    .fileId(match.getFileId())
+                    .fileName(match.getFileName() != null ? match.getFileName() : "Unknown")
+                    .chunkText(match.getText())
+                    .chunkIndex(match.getChunkIndex())
+                    .similarityScore(similarity)
+                    .build());
+        }
+        List<SearchResult> vectorRanking = textRanking.stream()
+                .sorted(Comparator.comparingDouble(SearchResult::getSimilarityScore).reversed())
+                .toList();
+        
+        Map<ChunkKey, SearchResult> results = new HashMap<>();
+        // Insertion ordered so ties keep the vector ranking ahead
+        Map<ChunkKey, Double> fusedScores = new LinkedHashMap<>();
+        for (int rank = 0; rank < vectorRanking.size(); rank++) {
+            SearchResult result = vectorRanking.get(rank);
+            ChunkKey key = new ChunkKey(result.getFileId(), result.getChunkIndex());
+            results.put(key, result);
+            fusedScores.merge(key, 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+        for (int rank = 0; rank < textRanking.size(); rank++) {
+            SearchResult result = textRanking.get(rank);
+            fusedScores.merge(new ChunkKey(result.getFileId(), result.getChunkIndex()), 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+        
+        return fusedScores.entrySet().stream()
+                .sorted(Map.Entry.<ChunkKey, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(entry -> results.get(entry.getKey()))
+                .toList();
+    }
+    
+    // A chunk is identified by its file and index within the active generation
+    private record ChunkKey(UUID fileId, int chunkIndex) {
     }
     
     public List<ChunkEntity> getDocumentChunks(UUID fileId, String strategy) {
@@ -73,15 +345,19 @@ public class VectorSearchService {
         return chunkRepository.findByFileIdOrderByChunkIndex(fileId);
     }
     
-    private byte[] convertToBytes(float[] vector) {
-        byte[] bytes = new byte[vector.length * 4];
-        for (int i = 0; i < vector.length; i++) {
-            int bits = Float.floatToIntBits(vector[i]);
-            bytes[i * 4] = (byte) (bits >> 24);
-            bytes[i * 4 + 1] = (byte) (bits >> 16);
-            bytes[i * 4 + 2] = (byte) (bits >> 8);
-            bytes[i * 4 + 3] = (byte) bits;
+    public List<ChunkSummary> getDocumentChunkPage(UUID fileId, String strategy, int afterIndex, int size) {
+        return chunkRepository.findChunkPage(fileId, strategy, afterIndex, Limit.of(size));
+    }
+    
+    // The stream holds a cursor open, so it must be fully consumed inside this transaction
+    @Transactional(readOnly = true)
+    public void streamDocumentChunks(UUID fileId, String strategy, Consumer<ChunkSummary> consumer) {
+        try (Stream<ChunkSummary> chunks = chunkRepository.streamChunks(fileId, strategy)) {
+            chunks.forEach(consumer);
         }
-        return bytes;
+    }
+    
+    public Optional<Long> getActiveGeneration(UUID fileId) {
+        return fileRepository.findActiveGeneration(fileId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.luckytapu.fusioncore.service;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+// SIMD dot product over little-endian float32 vectors. Kept apart from FlatVectorIndex so the
+// incubator classes are only loaded when jdk.incubator.vector is in the boot layer.
+final class VectorizedDot {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private VectorizedDot() {
+    }
+
+    static float dot(MemorySegment vectors, long offset, float[] query) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(query.length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromMemorySegment(SPECIES, vectors, offset + (long) i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            sum = v.fma(FloatVector.fromArray(SPECIES, query, i), sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < query.length; i++) {
+            result += vectors.get(FLOAT, offset + (long) i * Float.BYTES) * query[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,13 @@
+-- SHA-256 of the uploaded bytes, so a re-upload of an already processed document skips the pipeline
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.tables
+        WHERE table_name = 'user_files'
+    ) THEN
+        ALTER TABLE user_files ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+        UPDATE user_files SET content_hash = encode(sha256(data), 'hex') WHERE content_hash IS NULL AND data IS NOT NULL;
+        CREATE INDEX IF NOT EXISTS idx_user_files_content_hash ON user_files(content_hash) WHERE content_hash IS NOT NULL;
+        COMMENT ON COLUMN user_files.content_hash IS 'Hex SHA-256 of data, looked up to deduplicate uploads';
+    END IF;
+END $$;
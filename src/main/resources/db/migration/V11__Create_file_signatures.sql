@@ -0,0 +1,18 @@
+-- MinHash signatures of each file's chunk texts, and the LSH band buckets they are looked up by.
+-- A new upload is compared only against files that share a bucket with it.
+CREATE TABLE IF NOT EXISTS file_signatures (
+    file_id UUID PRIMARY KEY,
+    signature BYTEA NOT NULL,
+    shingle_count INTEGER NOT NULL DEFAULT 0,
+    updated_date TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS file_signature_bands (
+    file_id UUID NOT NULL REFERENCES file_signatures(file_id) ON DELETE CASCADE,
+    bucket BIGINT NOT NULL,
+    PRIMARY KEY (file_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_signature_bands_bucket ON file_signature_bands(bucket);
+
+COMMENT ON TABLE file_signatures IS 'MinHash signature per file for near-duplicate detection at ingest';
@@ -0,0 +1,2 @@
+-- Claims per import, so one whose worker keeps dying is failed instead of reclaimed forever
+ALTER TABLE bulk_imports ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
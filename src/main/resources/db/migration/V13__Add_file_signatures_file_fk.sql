@@ -0,0 +1,13 @@
+-- Signatures of deleted files would keep matching new uploads, so they go with their file
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.tables
+        WHERE table_name = 'user_files'
+    ) THEN
+        DELETE FROM file_signatures s
+        WHERE NOT EXISTS (SELECT 1 FROM user_files f WHERE f.file_id = s.file_id);
+        ALTER TABLE file_signatures ADD CONSTRAINT fk_file_signatures_file_id
+        FOREIGN KEY (file_id) REFERENCES user_files(file_id) ON DELETE CASCADE;
+    END IF;
+END $$;
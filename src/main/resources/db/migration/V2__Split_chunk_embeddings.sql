@@ -0,0 +1,25 @@
+-- Move chunk embeddings out of the chunks heap so text-only reads and vector scans touch separate pages
+CREATE TABLE IF NOT EXISTS chunk_embeddings (
+    chunk_id UUID PRIMARY KEY REFERENCES chunks(chunk_id) ON DELETE CASCADE,
+    embedding BYTEA NOT NULL
+);
+
+-- Copy existing embeddings before dropping the old column
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.columns
+        WHERE table_name = 'chunks'
+        AND column_name = 'embedding'
+    ) THEN
+        INSERT INTO chunk_embeddings (chunk_id, embedding)
+        SELECT chunk_id, embedding FROM chunks WHERE embedding IS NOT NULL
+        ON CONFLICT (chunk_id) DO NOTHING;
+
+        ALTER TABLE chunks DROP COLUMN embedding;
+    END IF;
+END $$;
+
+-- Add comment for documentation
+COMMENT ON TABLE chunk_embeddings IS 'Stores chunk embeddings separately from chunk text, one row per chunk';
+COMMENT ON COLUMN chunk_embeddings.embedding IS 'Vector embedding stored as byte array';
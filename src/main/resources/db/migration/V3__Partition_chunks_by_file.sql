@@ -0,0 +1,69 @@
+-- Hash-partition chunks and chunk_embeddings by file_id so vacuum, reindex and per-file deletes work on one partition.
+-- The partition count comes from the chunkPartitions Flyway placeholder (spring.flyway.placeholders.chunkPartitions).
+
+-- chunk_embeddings needs the partition key to be co-partitioned with chunks
+ALTER TABLE chunk_embeddings ADD COLUMN IF NOT EXISTS file_id UUID;
+UPDATE chunk_embeddings e SET file_id = c.file_id FROM chunks c WHERE c.chunk_id = e.chunk_id AND e.file_id IS NULL;
+
+ALTER TABLE chunk_embeddings RENAME TO chunk_embeddings_unpartitioned;
+ALTER TABLE chunks RENAME TO chunks_unpartitioned;
+
+CREATE TABLE chunks (
+    chunk_id UUID NOT NULL DEFAULT gen_random_uuid(),
+    file_id UUID NOT NULL,
+    text TEXT NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    strategy VARCHAR(50) NOT NULL,
+    text_length INTEGER,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (file_id, chunk_id)
+) PARTITION BY HASH (file_id);
+
+CREATE TABLE chunk_embeddings (
+    chunk_id UUID NOT NULL,
+    file_id UUID NOT NULL,
+    embedding BYTEA NOT NULL,
+    PRIMARY KEY (file_id, chunk_id),
+    FOREIGN KEY (file_id, chunk_id) REFERENCES chunks(file_id, chunk_id) ON DELETE CASCADE
+) PARTITION BY HASH (file_id);
+
+-- Create one partition per hash bucket, using the same modulus for both tables so joins stay partition-wise
+DO $$
+BEGIN
+    FOR i IN 0..${chunkPartitions} - 1 LOOP
+        EXECUTE format('CREATE TABLE chunks_p%s PARTITION OF chunks FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                i, ${chunkPartitions}, i);
+        EXECUTE format('CREATE TABLE chunk_embeddings_p%s PARTITION OF chunk_embeddings FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                i, ${chunkPartitions}, i);
+    END LOOP;
+END $$;
+
+-- Indexes on the parent are created on every partition
+CREATE INDEX IF NOT EXISTS idx_chunks_file_strategy ON chunks(file_id, strategy, chunk_index);
+CREATE INDEX IF NOT EXISTS idx_chunks_strategy ON chunks(strategy);
+
+INSERT INTO chunks (chunk_id, file_id, text, chunk_index, strategy, text_length, created_at)
+SELECT chunk_id, file_id, text, chunk_index, strategy, text_length, created_at FROM chunks_unpartitioned;
+
+INSERT INTO chunk_embeddings (chunk_id, file_id, embedding)
+SELECT chunk_id, file_id, embedding FROM chunk_embeddings_unpartitioned WHERE file_id IS NOT NULL;
+
+DROP TABLE chunk_embeddings_unpartitioned;
+DROP TABLE chunks_unpartitioned;
+
+-- Add foreign key constraint separately to handle potential issues
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.tables
+        WHERE table_name = 'user_files'
+    ) THEN
+        ALTER TABLE chunks ADD CONSTRAINT fk_chunks_file_id
+        FOREIGN KEY (file_id) REFERENCES user_files(file_id) ON DELETE CASCADE;
+    END IF;
+END $$;
+
+-- Add comment for documentation
+COMMENT ON TABLE chunks IS 'Stores document chunks, hash-partitioned by file_id';
+COMMENT ON TABLE chunk_embeddings IS 'Stores chunk embeddings, hash-partitioned by file_id alongside chunks';
+COMMENT ON COLUMN chunks.strategy IS 'Chunking strategy used: character, sentence, or paragraph';
@@ -0,0 +1,10 @@
+-- Version chunk sets so a re-index is published atomically by flipping the file's active generation
+ALTER TABLE IF EXISTS user_files ADD COLUMN IF NOT EXISTS active_generation BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS generation BIGINT NOT NULL DEFAULT 0;
+
+-- Readers always filter on the active generation
+DROP INDEX IF EXISTS idx_chunks_file_strategy;
+CREATE INDEX IF NOT EXISTS idx_chunks_file_generation ON chunks(file_id, generation, strategy, chunk_index);
+
+-- Add comment for documentation
+COMMENT ON COLUMN chunks.generation IS 'Index generation this chunk belongs to; only the file''s active generation is visible';
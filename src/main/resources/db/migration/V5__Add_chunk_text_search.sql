@@ -0,0 +1,10 @@
+-- Full-text index over chunk text for hybrid search. The 'simple' configuration skips stemming and
+-- stop words, so part numbers, error codes and other exact tokens match as written.
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS text_search TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', text)) STORED;
+
+-- Indexes on the parent are created on every partition
+CREATE INDEX IF NOT EXISTS idx_chunks_text_search ON chunks USING GIN (text_search);
+
+-- Add comment for documentation
+COMMENT ON COLUMN chunks.text_search IS 'Generated tsvector of text; matched by websearch_to_tsquery(''simple'', ...) in hybrid search';
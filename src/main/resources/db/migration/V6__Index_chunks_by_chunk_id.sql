@@ -0,0 +1,3 @@
+-- The primary key leads with file_id, so a lookup by chunk_id alone (e.g. "more like this") would
+-- scan every partition. Indexes on the parent are created on every partition.
+CREATE INDEX IF NOT EXISTS idx_chunks_chunk_id ON chunks(chunk_id);
@@ -0,0 +1,32 @@
+-- Durable queue behind /api/files/process-async. Workers on every node claim rows with
+-- FOR UPDATE SKIP LOCKED; a RUNNING row whose locked_at stops advancing is reclaimed.
+CREATE TABLE IF NOT EXISTS ingestion_jobs (
+    job_id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    file_id UUID NOT NULL,
+    generate_embeddings BOOLEAN NOT NULL DEFAULT TRUE,
+    status VARCHAR(20) NOT NULL,
+    progress INTEGER NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    locked_by VARCHAR(255),
+    locked_at TIMESTAMP,
+    error VARCHAR(1000),
+    created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_date TIMESTAMP,
+    completed_date TIMESTAMP
+);
+
+-- Add foreign key constraint separately to handle potential issues
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.tables
+        WHERE table_name = 'user_files'
+    ) THEN
+        ALTER TABLE ingestion_jobs ADD CONSTRAINT fk_ingestion_jobs_file_id
+        FOREIGN KEY (file_id) REFERENCES user_files(file_id) ON DELETE CASCADE;
+    END IF;
+END $$;
+
+-- Only unfinished jobs are ever scanned by the claim query
+CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_claimable ON ingestion_jobs(created_date)
+    WHERE status IN ('QUEUED', 'RUNNING');
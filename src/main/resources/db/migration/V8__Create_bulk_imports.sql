@@ -0,0 +1,38 @@
+-- Server-side imports from a directory or archive under fusioncore.bulk-import.root. Claimed and
+-- leased like ingestion_jobs; a reclaimed import resumes from its bulk_import_entries checkpoints.
+CREATE TABLE IF NOT EXISTS bulk_imports (
+    import_id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    source VARCHAR(1024) NOT NULL,
+    generate_embeddings BOOLEAN NOT NULL DEFAULT TRUE,
+    status VARCHAR(20) NOT NULL,
+    total_entries BIGINT,
+    total_bytes BIGINT,
+    processed_entries BIGINT NOT NULL DEFAULT 0,
+    failed_entries BIGINT NOT NULL DEFAULT 0,
+    processed_bytes BIGINT NOT NULL DEFAULT 0,
+    run_started_date TIMESTAMP,
+    run_start_entries BIGINT NOT NULL DEFAULT 0,
+    run_start_bytes BIGINT NOT NULL DEFAULT 0,
+    locked_by VARCHAR(255),
+    locked_at TIMESTAMP,
+    error VARCHAR(1000),
+    created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_date TIMESTAMP,
+    completed_date TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_imports_claimable ON bulk_imports(created_date)
+    WHERE status IN ('QUEUED', 'RUNNING');
+
+-- One row per finished entry; the unique key makes a replayed checkpoint a no-op
+CREATE TABLE IF NOT EXISTS bulk_import_entries (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    import_id UUID NOT NULL REFERENCES bulk_imports(import_id) ON DELETE CASCADE,
+    entry_name VARCHAR(1024) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    file_id UUID,
+    size_bytes BIGINT NOT NULL DEFAULT 0,
+    error VARCHAR(1000),
+    completed_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_bulk_import_entries_name UNIQUE (import_id, entry_name)
+);
@@ -0,0 +1,24 @@
+-- Track embedding progress per chunk so an interrupted or partially failed ingest can be resumed
+-- instead of re-embedding the whole document. Existing chunks were only ever stored once embedded.
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS embedding_state VARCHAR(20) NOT NULL DEFAULT 'EMBEDDED';
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS embedding_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE chunks ADD COLUMN IF NOT EXISTS embedding_error VARCHAR(1000);
+
+-- Newest generation written for the file; it only becomes active once every chunk is embedded
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.tables
+        WHERE table_name = 'user_files'
+    ) THEN
+        ALTER TABLE user_files ADD COLUMN IF NOT EXISTS staged_generation BIGINT NOT NULL DEFAULT 0;
+        UPDATE user_files SET staged_generation = active_generation WHERE staged_generation < active_generation;
+        COMMENT ON COLUMN user_files.staged_generation IS 'Latest generation written; becomes active once all of its chunks are embedded';
+    END IF;
+END $$;
+
+-- Resume only ever looks for the few chunks still missing an embedding
+CREATE INDEX IF NOT EXISTS idx_chunks_unembedded ON chunks(file_id, generation)
+    WHERE embedding_state <> 'EMBEDDED';
+
+COMMENT ON COLUMN chunks.embedding_state IS 'PENDING until the chunk is embedded, FAILED after an unsuccessful attempt';
@@ -0,0 +1,79 @@
+package com.luckytapu.fusioncore.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncConfigTest {
+
+    @Test
+    void boundedExecutor_AbortPolicyRejectsOnceQueueIsFull() throws Exception {
+        // Given
+        ThreadPoolTaskExecutor executor = AsyncConfig.boundedExecutor("test-", 1, 1, "abort");
+        executor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            // When
+            executor.execute(() -> await(release));
+            executor.execute(() -> { });
+
+            // Then
+            assertThrows(TaskRejectedException.class, () -> executor.execute(() -> { }));
+            CountingRejectedExecutionHandler handler =
+                    (CountingRejectedExecutionHandler) executor.getThreadPoolExecutor().getRejectedExecutionHandler();
+            assertEquals(1, handler.rejectedCount());
+            assertEquals("abort", handler.policy());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void boundedExecutor_CallerRunsPolicyRunsOnSubmittingThread() throws Exception {
+        // Given
+        ThreadPoolTaskExecutor executor = AsyncConfig.boundedExecutor("test-", 1, 0, "caller-runs");
+        executor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        try {
+            // When
+            executor.execute(() -> await(release));
+            executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+            // Then
+            assertEquals(Thread.currentThread(), ranOn.get());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void forPolicy_RejectsUnknownPolicy() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> CountingRejectedExecutionHandler.forPolicy("drop-everything"));
+    }
+
+    @Test
+    void forPolicy_RejectsDiscardPolicies() {
+        // When & Then - a discarded CompletableFuture task would never complete its future
+        assertThrows(IllegalArgumentException.class, () -> CountingRejectedExecutionHandler.forPolicy("discard"));
+        assertThrows(IllegalArgumentException.class, () -> CountingRejectedExecutionHandler.forPolicy("discard-oldest"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
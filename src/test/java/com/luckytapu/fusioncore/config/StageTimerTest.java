@@ -0,0 +1,73 @@
+package com.luckytapu.fusioncore.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StageTimerTest {
+
+    @Test
+    void decorate_RecordsWaitBetweenSubmissionAndStart() throws Exception {
+        // Given
+        StageTimer timer = new StageTimer();
+        Runnable queued = timer.decorate(() -> { });
+        Runnable immediate = timer.decorate(() -> { });
+
+        // When
+        Thread.sleep(20);
+        queued.run();
+        immediate.run();
+
+        // Then
+        assertTrue(timer.maxQueueWaitMillis() >= 20);
+        assertTrue(timer.averageQueueWaitMillis() >= 10);
+    }
+
+    @Test
+    void utilization_IsShareOfThreadTimeSpentRunning() throws Exception {
+        // Given
+        StageTimer timer = new StageTimer();
+
+        // When
+        timer.decorate(() -> sleep(40)).run();
+
+        // Then
+        double single = timer.utilization(1);
+        assertTrue(single > 0.5 && single <= 1.0, "mostly busy on one thread: " + single);
+        assertTrue(timer.utilization(4) < single);
+        assertEquals(0, new StageTimer().averageQueueWaitMillis());
+    }
+
+    @Test
+    void stats_AgeOutAfterTwoWindows() {
+        // Given
+        AtomicLong now = new AtomicLong();
+        StageTimer timer = new StageTimer(Duration.ofSeconds(10), now::get);
+        Runnable task = timer.decorate(() -> now.addAndGet(TimeUnit.SECONDS.toNanos(5)));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        task.run();
+
+        // When / Then - still within the current and previous window
+        now.set(TimeUnit.SECONDS.toNanos(15));
+        assertEquals(2000, timer.maxQueueWaitMillis());
+        assertEquals(5.0 / 15, timer.utilization(1), 1e-9);
+
+        // When / Then - two idle windows later the burst no longer counts
+        now.set(TimeUnit.SECONDS.toNanos(40));
+        assertEquals(0, timer.maxQueueWaitMillis());
+        assertEquals(0, timer.averageQueueWaitMillis());
+        assertEquals(0, timer.utilization(1));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.luckytapu.fusioncore.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadExecutorTest {
+
+    @Test
+    void execute_RunsOnVirtualThreadsWithinConcurrencyCap() throws Exception {
+        // Given
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-", 3, 1000, "abort");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicBoolean allVirtual = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(200);
+
+        // When
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                allVirtual.compareAndSet(true, Thread.currentThread().isVirtual());
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        // Then
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(allVirtual.get());
+        assertTrue(peak.get() <= 3, "peak concurrency " + peak.get());
+        // The completed count is bumped just after each task returns
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.stats("test").getCompletedTaskCount() < 200 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(200, executor.stats("test").getCompletedTaskCount());
+    }
+
+    @Test
+    void execute_AbortPolicyRejectsWhenSaturated() throws Exception {
+        // Given
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-", 1, 1, "abort");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+
+        try {
+            // When & Then
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+            assertEquals(1, executor.stats("test").getRejectedCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void execute_CallerRunsWithoutWaitingForAPermit() throws Exception {
+        // Given
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-", 1, 0, "caller-runs");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            // When & Then - the only permit stays held, yet the rejected task runs on the submitting thread
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                Thread caller = Thread.currentThread();
+                AtomicReference<Thread> ranOn = new AtomicReference<>();
+                executor.execute(() -> ranOn.set(Thread.currentThread()));
+                assertSame(caller, ranOn.get());
+            });
+            assertEquals(1, executor.stats("test").getRejectedCount());
+        } finally {
+            release.countDown();
+        }
+    }
+}
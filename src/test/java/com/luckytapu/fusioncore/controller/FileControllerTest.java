@@ -1,11 +1,21 @@
 package com.luckytapu.fusioncore.controller;
 
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
 import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.BulkImportReport;
+import com.luckytapu.fusioncore.model.BulkImportRequest;
+import com.luckytapu.fusioncore.model.ChunkSummary;
 import com.luckytapu.fusioncore.model.ChunkingReport;
 import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
 import com.luckytapu.fusioncore.model.FileStatus;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import com.luckytapu.fusioncore.model.SearchFilter;
 import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.service.BulkImportService;
 import com.luckytapu.fusioncore.service.FileService;
+import com.luckytapu.fusioncore.service.IngestionJobService;
 import com.luckytapu.fusioncore.service.VectorSearchService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,16 +24,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
 
 @ExtendWith(MockitoExtension.class)
 class FileControllerTest {
@@ -36,12 +60,23 @@ class FileControllerTest {
     @Mock
     private VectorSearchService vectorSearchService;
 
+    @Mock
+    private IngestionJobService ingestionJobService;
+
+    @Mock
+    private BulkImportService bulkImportService;
+
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        mockMvc = MockMvcBuilders.standaloneSetup(new FileController(fileService, vectorSearchService)).build();
+        FileController controller = new FileController(fileService, vectorSearchService, ingestionJobService, bulkImportService, objectMapper);
+        ReflectionTestUtils.setField(controller, "defaultChunkPageSize", 500);
+        ReflectionTestUtils.setField(controller, "maxChunkPageSize", 1000);
+        ReflectionTestUtils.setField(controller, "maxBatchQueries", 3);
+        ReflectionTestUtils.setField(controller, "batchStreamTimeout", Duration.ofMinutes(10));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
     }
 
     @Test
@@ -96,7 +131,7 @@ class FileControllerTest {
                 .processingTimeMs(1000L)
                 .build();
 
-        when(fileService.processDocument(any(), eq(true))).thenReturn(result);
+        when(fileService.processDocument(any(), eq(true), eq(false))).thenReturn(result);
 
         // When & Then
         mockMvc.perform(multipart("/api/files/process")
@@ -118,7 +153,7 @@ class FileControllerTest {
                 .processingTimeMs(500L)
                 .build();
 
-        when(fileService.processDocument(any(), eq(false))).thenReturn(result);
+        when(fileService.processDocument(any(), eq(false), eq(false))).thenReturn(result);
 
         // When & Then
         mockMvc.perform(multipart("/api/files/process")
@@ -129,6 +164,27 @@ class FileControllerTest {
                 .andExpect(jsonPath("$.embeddingsGenerated").value(false));
     }
 
+    @Test
+    void processDocument_ForceSkipsDeduplication() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "test content".getBytes());
+        when(fileService.processDocument(any(), eq(true), eq(true))).thenReturn(DocumentProcessingResult.builder()
+                .processingStatus("SUCCESS")
+                .build());
+        when(fileService.processDocument(any(), eq(true), eq(false))).thenReturn(DocumentProcessingResult.builder()
+                .processingStatus("SUCCESS")
+                .deduplicated(true)
+                .build());
+
+        // When & Then
+        mockMvc.perform(multipart("/api/files/process").file(file).param("force", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deduplicated").value(false));
+        mockMvc.perform(multipart("/api/files/process").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deduplicated").value(true));
+    }
+
     @Test
     void searchDocuments_Success() throws Exception {
         // Given
@@ -142,7 +198,7 @@ class FileControllerTest {
                         .build()
         );
 
-        when(fileService.searchDocuments("test query", 10)).thenReturn(searchResults);
+        when(fileService.searchDocuments("test query", 10, SearchFilter.none(), null)).thenReturn(searchResults);
 
         // When & Then
         mockMvc.perform(get("/api/files/search")
@@ -155,10 +211,107 @@ class FileControllerTest {
                 .andExpect(jsonPath("$[0].chunkIndex").value(0));
     }
 
+    @Test
+    void searchDocuments_PassesFilters() throws Exception {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        SearchFilter filter = SearchFilter.builder()
+                .fileIds(Set.of(fileId))
+                .strategy("sentence splitter")
+                .fileType("text/plain")
+                .uploadedAfter(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .build();
+        when(fileService.searchDocuments("test", 10, filter, null)).thenReturn(List.of());
+
+        // When & Then
+        mockMvc.perform(get("/api/files/search")
+                .param("query", "test")
+                .param("fileId", fileId.toString())
+                .param("strategy", "sentence splitter")
+                .param("fileType", "text/plain")
+                .param("uploadedAfter", "2025-01-01T00:00:00"))
+                .andExpect(status().isOk());
+
+        verify(fileService).searchDocuments("test", 10, filter, null);
+    }
+
+    @Test
+    void searchDocuments_PassesMinSimilarity() throws Exception {
+        // Given
+        when(fileService.searchDocuments("test", 10, SearchFilter.none(), 0.85)).thenReturn(List.of());
+
+        // When & Then
+        mockMvc.perform(get("/api/files/search")
+                .param("query", "test")
+                .param("minSimilarity", "0.85"))
+                .andExpect(status().isOk());
+
+        verify(fileService).searchDocuments("test", 10, SearchFilter.none(), 0.85);
+    }
+
+    @Test
+    void searchDocumentsBatch_ReturnsResultsPerQuery() throws Exception {
+        // Given
+        SearchResult hit = SearchResult.builder().fileName("a.txt").chunkText("alpha").build();
+        when(vectorSearchService.searchBatch(List.of("alpha", "beta"), 5, SearchFilter.none(), null))
+                .thenReturn(List.of(List.of(hit), List.of()));
+
+        // When & Then
+        mockMvc.perform(post("/api/files/search/batch")
+                .contentType("application/json")
+                .content("{\"queries\": [\"alpha\", \"beta\"], \"limit\": 5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].query").value("alpha"))
+                .andExpect(jsonPath("$[0].results[0].chunkText").value("alpha"))
+                .andExpect(jsonPath("$[1].query").value("beta"))
+                .andExpect(jsonPath("$[1].results").isEmpty());
+    }
+
+    @Test
+    void searchDocumentsBatch_RejectsEmptyOrOversizedBatch() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/api/files/search/batch")
+                .contentType("application/json")
+                .content("{\"queries\": []}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/files/search/batch")
+                .contentType("application/json")
+                .content("{\"queries\": [\"a\", \"b\", \"c\", \"d\"]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(vectorSearchService, never()).searchBatch(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void findSimilarChunks_Success() throws Exception {
+        // Given
+        UUID chunkId = UUID.randomUUID();
+        SearchResult hit = SearchResult.builder().fileName("other.txt").chunkText("related").build();
+        when(vectorSearchService.searchSimilarToChunk(chunkId, 5, true, 0, null)).thenReturn(Optional.of(List.of(hit)));
+
+        // When & Then
+        mockMvc.perform(get("/api/files/chunks/{chunkId}/similar", chunkId)
+                .param("limit", "5")
+                .param("excludeSourceFile", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].chunkText").value("related"));
+    }
+
+    @Test
+    void findSimilarChunks_UnknownChunk() throws Exception {
+        // Given
+        UUID chunkId = UUID.randomUUID();
+        when(vectorSearchService.searchSimilarToChunk(chunkId, 10, false, 0, null)).thenReturn(Optional.empty());
+
+        // When & Then
+        mockMvc.perform(get("/api/files/chunks/{chunkId}/similar", chunkId))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void searchDocuments_DefaultLimit() throws Exception {
         // Given
-        when(fileService.searchDocuments("test", 10)).thenReturn(List.of());
+        when(fileService.searchDocuments("test", 10, SearchFilter.none(), null)).thenReturn(List.of());
 
         // When & Then
         mockMvc.perform(get("/api/files/search")
@@ -172,45 +325,240 @@ class FileControllerTest {
     void getDocumentChunks_Success() throws Exception {
         // Given
         UUID fileId = UUID.randomUUID();
-        when(vectorSearchService.getDocumentChunks(fileId, null)).thenReturn(List.of());
+        when(vectorSearchService.getActiveGeneration(fileId)).thenReturn(Optional.of(1L));
+        when(vectorSearchService.getDocumentChunkPage(fileId, null, -1, 2)).thenReturn(List.of(
+                ChunkSummary.builder().fileId(fileId).chunkIndex(0).text("first").build(),
+                ChunkSummary.builder().fileId(fileId).chunkIndex(1).text("second").build()
+        ));
 
         // When & Then
-        mockMvc.perform(get("/api/files/{fileId}/chunks", fileId))
+        mockMvc.perform(get("/api/files/{fileId}/chunks", fileId)
+                .param("size", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$").isArray());
+                .andExpect(header().string("ETag", "\"" + fileId + "-1-json\""))
+                .andExpect(header().string("Link", containsString("afterIndex=1")))
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$[1].text").value("second"));
     }
 
     @Test
     void getDocumentChunks_WithStrategy() throws Exception {
         // Given
         UUID fileId = UUID.randomUUID();
-        when(vectorSearchService.getDocumentChunks(fileId, "character")).thenReturn(List.of());
+        when(vectorSearchService.getActiveGeneration(fileId)).thenReturn(Optional.of(1L));
+        when(vectorSearchService.getDocumentChunkPage(fileId, "character", 4, 500)).thenReturn(List.of());
 
         // When & Then
         mockMvc.perform(get("/api/files/{fileId}/chunks", fileId)
-                .param("strategy", "character"))
+                .param("strategy", "character")
+                .param("afterIndex", "4")
+                .param("size", "500"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
                 .andExpect(jsonPath("$").isArray());
     }
 
     @Test
-    void processDocumentAsync_Success() throws Exception {
+    void getDocumentChunks_NotModified() throws Exception {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(vectorSearchService.getActiveGeneration(fileId)).thenReturn(Optional.of(3L));
+
+        // When & Then
+        mockMvc.perform(get("/api/files/{fileId}/chunks", fileId)
+                .header("If-None-Match", "\"" + fileId + "-3-json\""))
+                .andExpect(status().isNotModified());
+        verify(vectorSearchService, never()).getDocumentChunkPage(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getDocumentChunks_FileNotFound() throws Exception {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(vectorSearchService.getActiveGeneration(fileId)).thenReturn(Optional.empty());
+
+        // When & Then
+        mockMvc.perform(get("/api/files/{fileId}/chunks", fileId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamDocumentChunks_WritesNdjson() throws Exception {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(vectorSearchService.getActiveGeneration(fileId)).thenReturn(Optional.of(1L));
+        doAnswer(invocation -> {
+            Consumer<ChunkSummary> consumer = invocation.getArgument(2);
+            consumer.accept(ChunkSummary.builder().chunkIndex(0).text("first").build());
+            consumer.accept(ChunkSummary.builder().chunkIndex(1).text("second").build());
+            return null;
+        }).when(vectorSearchService).streamDocumentChunks(eq(fileId), isNull(), any(Consumer.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/files/{fileId}/chunks/stream", fileId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"text\":\"first\",\"textLength\":null}\n{")))
+                .andExpect(content().string(endsWith("\"text\":\"second\",\"textLength\":null}\n")));
+    }
+
+    @Test
+    void processDocumentAsync_ReturnsQueuedJob() throws Exception {
         // Given
         MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "test content".getBytes());
-        DocumentProcessingResult result = DocumentProcessingResult.builder()
-                .processingStatus("SUCCESS")
-                .embeddingsGenerated(true)
-                .processingTimeMs(1000L)
+        UUID jobId = UUID.randomUUID();
+        IngestionJobEntity job = IngestionJobEntity.builder()
+                .jobId(jobId)
+                .fileId(UUID.randomUUID())
+                .generateEmbeddings(true)
+                .status(IngestionJobStatus.QUEUED)
                 .build();
 
-        when(fileService.processDocumentAsync(any(), eq(true)))
-                .thenReturn(java.util.concurrent.CompletableFuture.completedFuture(result));
+        when(ingestionJobService.submit(any(), eq(true))).thenReturn(job);
 
         // When & Then
         mockMvc.perform(multipart("/api/files/process-async")
                 .file(file)
                 .param("generateEmbeddings", "true"))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", endsWith("/api/files/jobs/" + jobId)))
+                .andExpect(jsonPath("$.jobId").value(jobId.toString()))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void getJob_ReturnsProgress() throws Exception {
+        // Given
+        UUID jobId = UUID.randomUUID();
+        when(ingestionJobService.findJob(jobId)).thenReturn(Optional.of(IngestionJobEntity.builder()
+                .jobId(jobId)
+                .fileId(UUID.randomUUID())
+                .status(IngestionJobStatus.RUNNING)
+                .progress(40)
+                .attempts(1)
+                .build()));
+
+        // When & Then
+        mockMvc.perform(get("/api/files/jobs/{jobId}", jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.progress").value(40));
+    }
+
+    @Test
+    void getJob_UnknownJob_ReturnsNotFound() throws Exception {
+        // Given
+        UUID jobId = UUID.randomUUID();
+        when(ingestionJobService.findJob(jobId)).thenReturn(Optional.empty());
+
+        // When & Then
+        mockMvc.perform(get("/api/files/jobs/{jobId}", jobId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void startBulkImport_ReturnsQueuedImport() throws Exception {
+        // Given
+        UUID importId = UUID.randomUUID();
+        when(bulkImportService.submit(any(BulkImportRequest.class))).thenReturn(BulkImportEntity.builder()
+                .importId(importId)
+                .source("corpus.zip")
+                .status(IngestionJobStatus.QUEUED)
+                .build());
+
+        // When & Then
+        mockMvc.perform(post("/api/files/imports")
+                .contentType("application/json")
+                .content("{\"source\":\"corpus.zip\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", endsWith("/api/files/imports/" + importId)))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void startBulkImport_InvalidSourceIsBadRequest() throws Exception {
+        // Given
+        when(bulkImportService.submit(any(BulkImportRequest.class)))
+                .thenThrow(new IllegalArgumentException("source must be inside the import root"));
+
+        // When & Then
+        mockMvc.perform(post("/api/files/imports")
+                .contentType("application/json")
+                .content("{\"source\":\"../etc\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getBulkImport_ReturnsReportOrNotFound() throws Exception {
+        // Given
+        UUID importId = UUID.randomUUID();
+        when(bulkImportService.findReport(importId)).thenReturn(Optional.of(BulkImportReport.builder()
+                .importId(importId)
+                .status(IngestionJobStatus.RUNNING)
+                .processedEntries(10)
+                .totalEntries(40L)
+                .docsPerSecond(2.5)
+                .etaSeconds(12L)
+                .build()));
+
+        // When & Then
+        mockMvc.perform(get("/api/files/imports/{importId}", importId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processedEntries").value(10))
+                .andExpect(jsonPath("$.docsPerSecond").value(2.5))
+                .andExpect(jsonPath("$.etaSeconds").value(12));
+        mockMvc.perform(get("/api/files/imports/{importId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getEmbeddingProgress_ReturnsChunkStatesOrNotFound() throws Exception {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(fileService.getEmbeddingProgress(fileId)).thenReturn(Optional.of(EmbeddingProgress.builder()
+                .fileId(fileId)
+                .generation(3)
+                .embeddedChunks(7)
+                .failedChunks(2)
+                .pendingChunks(1)
+                .build()));
+
+        // When & Then
+        mockMvc.perform(get("/api/files/{fileId}/embeddings", fileId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failedChunks").value(2))
+                .andExpect(jsonPath("$.totalChunks").value(10))
+                .andExpect(jsonPath("$.complete").value(false));
+        mockMvc.perform(get("/api/files/{fileId}/embeddings", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void resumeEmbeddings_ReturnsProgressOrNotFound() throws Exception {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        UUID unknownFile = UUID.randomUUID();
+        when(fileService.resumeEmbeddings(fileId)).thenReturn(EmbeddingProgress.builder()
+                .fileId(fileId)
+                .generation(3)
+                .active(true)
+                .embeddedChunks(10)
+                .build());
+        when(fileService.resumeEmbeddings(unknownFile)).thenThrow(new IllegalArgumentException("File not found"));
+
+        // When & Then
+        mockMvc.perform(post("/api/files/{fileId}/embeddings/resume", fileId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.active").value(true))
+                .andExpect(jsonPath("$.complete").value(true));
+        mockMvc.perform(post("/api/files/{fileId}/embeddings/resume", unknownFile))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -242,6 +590,36 @@ class FileControllerTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
+    @Test
+    void processBatchStream_WritesOneLinePerFinishedFile() throws Exception {
+        // Given
+        MockMultipartFile file1 = new MockMultipartFile("files", "test1.txt", "text/plain", "content1".getBytes());
+        MockMultipartFile file2 = new MockMultipartFile("files", "test2.txt", "text/plain", "content2".getBytes());
+        doAnswer(invocation -> {
+            Consumer<DocumentProcessingResult> consumer = invocation.getArgument(2);
+            consumer.accept(DocumentProcessingResult.builder().fileName("test2.txt").batchIndex(1).processingStatus("SUCCESS").build());
+            consumer.accept(DocumentProcessingResult.builder().fileName("test1.txt").batchIndex(0).processingStatus("TIMEOUT").build());
+            return List.of();
+        }).when(fileService).processBatch(any(), eq(false), any(Consumer.class));
+
+        // When
+        MvcResult result = mockMvc.perform(multipart("/api/files/batch-process/stream")
+                .file(file1)
+                .file(file2)
+                .param("generateEmbeddings", "false"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        assertEquals(Duration.ofMinutes(10).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(startsWith("{\"fileName\":\"test2.txt\"")))
+                .andExpect(content().string(containsString("}\n{\"fileName\":\"test1.txt\"")))
+                .andExpect(content().string(endsWith("}\n")));
+    }
+
     @Test
     void uploadFile_EmptyFile_Success() throws Exception {
         // Given
@@ -265,7 +643,7 @@ class FileControllerTest {
     @Test
     void searchDocuments_EmptyQuery_Success() throws Exception {
         // Given
-        when(fileService.searchDocuments("", 10)).thenReturn(List.of());
+        when(fileService.searchDocuments("", 10, SearchFilter.none(), null)).thenReturn(List.of());
 
         // When & Then
         mockMvc.perform(get("/api/files/search")
@@ -0,0 +1,124 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
+import com.luckytapu.fusioncore.entity.BulkImportEntryEntity;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class BulkImportRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BulkImportRepository importRepository;
+
+    @Autowired
+    private BulkImportEntryRepository entryRepository;
+
+    @Test
+    void lockClaimableImports_ReturnsQueuedAndStaleRunningImports() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        BulkImportEntity queued = saveImport(IngestionJobStatus.QUEUED, null, null);
+        BulkImportEntity stale = saveImport(IngestionJobStatus.RUNNING, "dead-node", now.minusHours(1));
+        saveImport(IngestionJobStatus.RUNNING, "live-node", now);
+        saveImport(IngestionJobStatus.SUCCEEDED, "live-node", now.minusHours(1));
+
+        // When
+        List<BulkImportEntity> claimable = importRepository.lockClaimableImports(now.minusMinutes(10), 10);
+
+        // Then
+        assertEquals(Set.of(queued.getImportId(), stale.getImportId()),
+                claimable.stream().map(BulkImportEntity::getImportId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void addProcessed_AccumulatesCounters() {
+        // Given
+        BulkImportEntity bulkImport = saveImport(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now());
+
+        // When
+        importRepository.addProcessed(bulkImport.getImportId(), 0, 100);
+        importRepository.addProcessed(bulkImport.getImportId(), 1, 50);
+        entityManager.clear();
+
+        // Then
+        BulkImportEntity fromDb = importRepository.findById(bulkImport.getImportId()).orElseThrow();
+        assertEquals(2, fromDb.getProcessedEntries());
+        assertEquals(1, fromDb.getFailedEntries());
+        assertEquals(150, fromDb.getProcessedBytes());
+    }
+
+    @Test
+    void heartbeatAndFinish_OnlyByLeaseHolder() {
+        // Given
+        BulkImportEntity bulkImport = saveImport(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now().minusMinutes(5));
+
+        // When
+        int heartbeatByOther = importRepository.heartbeat(bulkImport.getImportId(), "node-b", LocalDateTime.now());
+        int finishedByOther = importRepository.finish(bulkImport.getImportId(), "node-b", IngestionJobStatus.SUCCEEDED, null, LocalDateTime.now());
+        int finishedByHolder = importRepository.finish(bulkImport.getImportId(), "node-a", IngestionJobStatus.SUCCEEDED, null, LocalDateTime.now());
+        entityManager.clear();
+
+        // Then
+        assertEquals(0, heartbeatByOther);
+        assertEquals(0, finishedByOther);
+        assertEquals(1, finishedByHolder);
+        assertEquals(IngestionJobStatus.SUCCEEDED, importRepository.findById(bulkImport.getImportId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void findEntryNames_ReturnsCheckpointsOfOneImport() {
+        // Given
+        BulkImportEntity bulkImport = saveImport(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now());
+        BulkImportEntity other = saveImport(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now());
+        saveEntry(bulkImport.getImportId(), "a.txt", IngestionJobStatus.SUCCEEDED);
+        saveEntry(bulkImport.getImportId(), "nested/b.pdf", IngestionJobStatus.FAILED);
+        saveEntry(other.getImportId(), "c.txt", IngestionJobStatus.SUCCEEDED);
+
+        // When
+        List<String> names = entryRepository.findEntryNames(bulkImport.getImportId());
+
+        // Then
+        assertEquals(Set.of("a.txt", "nested/b.pdf"), Set.copyOf(names));
+        assertTrue(entryRepository.existsByImportIdAndEntryName(other.getImportId(), "c.txt"));
+        assertFalse(entryRepository.existsByImportIdAndEntryName(other.getImportId(), "a.txt"));
+    }
+
+    private BulkImportEntity saveImport(IngestionJobStatus status, String lockedBy, LocalDateTime lockedAt) {
+        BulkImportEntity bulkImport = importRepository.save(BulkImportEntity.builder()
+                .source("corpus.zip")
+                .generateEmbeddings(true)
+                .status(status)
+                .lockedBy(lockedBy)
+                .lockedAt(lockedAt)
+                .build());
+        entityManager.flush();
+        return bulkImport;
+    }
+
+    private void saveEntry(UUID importId, String name, IngestionJobStatus status) {
+        entryRepository.save(BulkImportEntryEntity.builder()
+                .importId(importId)
+                .entryName(name)
+                .status(status)
+                .sizeBytes(10)
+                .build());
+        entityManager.flush();
+    }
+}
@@ -0,0 +1,169 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.ChunkEmbeddingEntity;
+import com.luckytapu.fusioncore.entity.ChunkEntity;
+import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.model.FileStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ChunkEmbeddingRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChunkRepository chunkRepository;
+
+    @Autowired
+    private ChunkEmbeddingRepository chunkEmbeddingRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Test
+    void save_SharesChunkId() {
+        // Given
+        ChunkEntity chunk = saveChunk();
+
+        // When
+        ChunkEmbeddingEntity saved = chunkEmbeddingRepository.save(ChunkEmbeddingEntity.builder()
+                .chunk(chunk)
+                .fileId(chunk.getFileId())
+                .embedding(new byte[]{1, 2, 3, 4})
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then
+        assertEquals(chunk.getChunkId(), saved.getChunkId());
+        ChunkEmbeddingEntity fromDb = chunkEmbeddingRepository.findById(chunk.getChunkId()).orElse(null);
+        assertNotNull(fromDb);
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, fromDb.getEmbedding());
+    }
+
+    @Test
+    void deleteByFileId_RemovesEmbeddingsOnly() {
+        // Given
+        ChunkEntity chunk = saveChunk();
+        chunkEmbeddingRepository.save(ChunkEmbeddingEntity.builder()
+                .chunk(chunk)
+                .fileId(chunk.getFileId())
+                .embedding(new byte[]{1, 2, 3, 4})
+                .build());
+        entityManager.flush();
+
+        // When
+        chunkEmbeddingRepository.deleteByFileId(chunk.getFileId());
+        entityManager.clear();
+
+        // Then
+        assertTrue(chunkEmbeddingRepository.findById(chunk.getChunkId()).isEmpty());
+        assertTrue(chunkRepository.findById(chunk.getChunkId()).isPresent());
+    }
+
+    @Test
+    void findActiveSourceChunk_ReturnsEmbeddingOfActiveChunkOnly() {
+        // Given
+        ChunkEntity chunk = saveChunk();
+        chunkEmbeddingRepository.save(ChunkEmbeddingEntity.builder()
+                .chunk(chunk)
+                .fileId(chunk.getFileId())
+                .embedding(new byte[]{1, 2, 3, 4})
+                .build());
+        entityManager.flush();
+
+        // When
+        Optional<SourceChunkView> source = chunkEmbeddingRepository.findActiveSourceChunk(chunk.getChunkId());
+
+        // Then
+        assertTrue(source.isPresent());
+        assertEquals(chunk.getFileId(), source.get().getFileId());
+        assertEquals(0, source.get().getChunkIndex());
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, source.get().getEmbedding());
+
+        // When - a newer generation is published without this chunk
+        fileRepository.advanceGeneration(chunk.getFileId());
+        entityManager.clear();
+
+        // Then
+        assertTrue(chunkEmbeddingRepository.findActiveSourceChunk(chunk.getChunkId()).isEmpty());
+    }
+
+    @Test
+    void findGenerationEmbeddings_ReturnsStagedGenerationInChunkOrder() {
+        // Given
+        ChunkEntity active = saveChunk();
+        UUID fileId = active.getFileId();
+        ChunkEntity second = chunkRepository.save(ChunkEntity.builder()
+                .fileId(fileId).text("Second").chunkIndex(1).strategy("character").generation(1).build());
+        ChunkEntity first = chunkRepository.save(ChunkEntity.builder()
+                .fileId(fileId).text("First").chunkIndex(0).strategy("character").generation(1).build());
+        for (ChunkEntity chunk : List.of(active, second, first)) {
+            chunkEmbeddingRepository.save(ChunkEmbeddingEntity.builder()
+                    .chunk(chunk)
+                    .fileId(fileId)
+                    .embedding(new byte[]{chunk.getChunkIndex().byteValue()})
+                    .build());
+        }
+        entityManager.flush();
+
+        // When
+        List<EmbeddingView> embeddings = chunkEmbeddingRepository.findGenerationEmbeddings(fileId, 1L);
+
+        // Then
+        assertEquals(List.of(first.getChunkId(), second.getChunkId()), embeddings.stream().map(EmbeddingView::getChunkId).toList());
+        assertArrayEquals(new byte[]{1}, embeddings.get(1).getEmbedding());
+    }
+
+    @Test
+    void findEmbeddings_ReturnsOnlyRequestedChunks() {
+        // Given
+        ChunkEntity wanted = saveChunk();
+        ChunkEntity other = saveChunk();
+        for (ChunkEntity chunk : List.of(wanted, other)) {
+            chunkEmbeddingRepository.save(ChunkEmbeddingEntity.builder()
+                    .chunk(chunk)
+                    .fileId(chunk.getFileId())
+                    .embedding(new byte[]{1, 2, 3, 4})
+                    .build());
+        }
+        entityManager.flush();
+
+        // When
+        List<EmbeddingView> embeddings = chunkEmbeddingRepository.findEmbeddings(List.of(wanted.getChunkId(), UUID.randomUUID()));
+
+        // Then
+        assertEquals(List.of(wanted.getChunkId()), embeddings.stream().map(EmbeddingView::getChunkId).toList());
+        assertEquals(wanted.getFileId(), embeddings.get(0).getFileId());
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, embeddings.get(0).getEmbedding());
+    }
+
+    private ChunkEntity saveChunk() {
+        FileEntity fileEntity = fileRepository.save(FileEntity.builder()
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .data("test content".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build());
+
+        return chunkRepository.save(ChunkEntity.builder()
+                .fileId(fileEntity.getFileId())
+                .text("Test chunk")
+                .chunkIndex(0)
+                .strategy("character")
+                .textLength(10)
+                .build());
+    }
+}
@@ -2,15 +2,23 @@ package com.luckytapu.fusioncore.repository;
 
 import com.luckytapu.fusioncore.entity.ChunkEntity;
 import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.model.ChunkEmbeddingState;
 import com.luckytapu.fusioncore.model.FileStatus;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import com.luckytapu.fusioncore.model.ChunkSummary;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -196,4 +204,228 @@ class ChunkRepositoryTest {
         List<ChunkEntity> chunksAfterDelete = chunkRepository.findByFileIdOrderByChunkIndex(fileEntity.getFileId());
         assertTrue(chunksAfterDelete.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByFileIdOrderByChunkIndex_OnlyActiveGeneration() {
+        // Given
+        FileEntity fileEntity = FileEntity.builder()
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .data("test content".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build();
+        fileEntity = fileRepository.save(fileEntity);
+
+        ChunkEntity oldChunk = ChunkEntity.builder()
+                .fileId(fileEntity.getFileId())
+                .text("Old chunk")
+                .chunkIndex(0)
+                .strategy("character")
+                .generation(0)
+                .build();
+
+        ChunkEntity newChunk = ChunkEntity.builder()
+                .fileId(fileEntity.getFileId())
+                .text("New chunk")
+                .chunkIndex(0)
+                .strategy("character")
+                .generation(1)
+                .build();
+
+        chunkRepository.save(oldChunk);
+        chunkRepository.save(newChunk);
+        entityManager.flush();
+
+        // Then - old generation stays visible until the flip
+        List<ChunkEntity> beforeFlip = chunkRepository.findByFileIdOrderByChunkIndex(fileEntity.getFileId());
+        assertEquals(1, beforeFlip.size());
+        assertEquals("Old chunk", beforeFlip.get(0).getText());
+
+        // When
+        assertEquals(1, fileRepository.advanceGeneration(fileEntity.getFileId()));
+
+        // Then
+        assertEquals(Optional.of(1L), fileRepository.findActiveGeneration(fileEntity.getFileId()));
+        List<ChunkEntity> afterFlip = chunkRepository.findByFileIdAndStrategy(fileEntity.getFileId(), "character");
+        assertEquals(1, afterFlip.size());
+        assertEquals("New chunk", afterFlip.get(0).getText());
+
+        // When
+        int purged = chunkRepository.deleteStaleGenerations(fileEntity.getFileId(), 1L);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, purged);
+        assertTrue(chunkRepository.findById(oldChunk.getChunkId()).isEmpty());
+        assertTrue(chunkRepository.findById(newChunk.getChunkId()).isPresent());
+    }
+
+    @Test
+    void streamIndexedFiles_ReturnsAttributesOfActiveGeneration() {
+        // Given
+        UUID pdfFile = indexedFile("report.pdf", "application/pdf", "character");
+        FileEntity draft = fileRepository.save(FileEntity.builder()
+                .fileName("draft.txt")
+                .fileType("text/plain")
+                .data("draft".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build());
+        entityManager.flush();
+
+        // When
+        List<IndexedFileView> files;
+        try (Stream<IndexedFileView> stream = fileRepository.streamIndexedFiles()) {
+            files = stream.toList();
+        }
+
+        // Then
+        assertEquals(1, files.size());
+        assertEquals(pdfFile, files.get(0).getFileId());
+        assertEquals("application/pdf", files.get(0).getFileType());
+        assertEquals("character", files.get(0).getStrategy());
+        assertNotNull(files.get(0).getCreatedDate());
+        assertEquals("character", fileRepository.findFileAttributes(pdfFile).orElseThrow().getStrategy());
+        assertEquals(List.of(pdfFile), fileRepository.findIndexedFiles(List.of(pdfFile, draft.getFileId())).stream()
+                .map(IndexedFileView::getFileId)
+                .toList());
+    }
+
+    @Test
+    void findProcessedByContentHash_MatchesOnlyProcessedFilesWithThatHash() {
+        // Given
+        UUID indexed = indexedFile("manual.pdf", "application/pdf", "character");
+        FileEntity indexedFile = fileRepository.findById(indexed).orElseThrow();
+        indexedFile.setContentHash("abc");
+        indexedFile.setStatus(FileStatus.PROCESSED);
+        FileEntity unindexed = fileRepository.save(FileEntity.builder()
+                .fileName("manual-copy.pdf")
+                .data("content".getBytes())
+                .contentHash("abc")
+                .status(FileStatus.PROCESSED)
+                .build());
+        fileRepository.save(FileEntity.builder()
+                .fileName("manual-failed.pdf")
+                .data("content".getBytes())
+                .contentHash("abc")
+                .status(FileStatus.FAILED)
+                .build());
+        entityManager.flush();
+
+        // When / Then
+        assertEquals(List.of(indexed), fileRepository.findProcessedByContentHash("abc", true, Limit.of(5)).stream()
+                .map(ProcessedFileView::getFileId).toList());
+        assertEquals(2, fileRepository.findProcessedByContentHash("abc", false, Limit.of(5)).size());
+        assertTrue(fileRepository.findProcessedByContentHash("abc", false, Limit.of(5)).stream()
+                .anyMatch(file -> file.getFileId().equals(unindexed.getFileId())));
+        assertTrue(fileRepository.findProcessedByContentHash("def", false, Limit.of(5)).isEmpty());
+    }
+
+    private UUID indexedFile(String fileName, String fileType, String strategy) {
+        FileEntity file = fileRepository.save(FileEntity.builder()
+                .fileName(fileName)
+                .fileType(fileType)
+                .data("content".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build());
+        chunkRepository.save(ChunkEntity.builder()
+                .fileId(file.getFileId())
+                .text("chunk")
+                .chunkIndex(0)
+                .strategy(strategy)
+                .generation(1)
+                .build());
+        entityManager.flush();
+        fileRepository.advanceGeneration(file.getFileId());
+        return file.getFileId();
+    }
+
+    @Test
+    void findChunkPage_KeysetOnChunkIndex() {
+        // Given
+        FileEntity fileEntity = fileRepository.save(FileEntity.builder()
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .data("test content".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build());
+
+        for (int i = 0; i < 5; i++) {
+            chunkRepository.save(ChunkEntity.builder()
+                    .fileId(fileEntity.getFileId())
+                    .text("Chunk " + i)
+                    .chunkIndex(i)
+                    .strategy("character")
+                    .textLength(7)
+                    .build());
+        }
+        entityManager.flush();
+
+        // When
+        List<ChunkSummary> firstPage = chunkRepository.findChunkPage(fileEntity.getFileId(), null, -1, Limit.of(2));
+        List<ChunkSummary> secondPage = chunkRepository.findChunkPage(fileEntity.getFileId(), "character",
+                firstPage.get(1).getChunkIndex(), Limit.of(2));
+
+        // Then
+        assertEquals(List.of(0, 1), firstPage.stream().map(ChunkSummary::getChunkIndex).toList());
+        assertEquals(List.of(2, 3), secondPage.stream().map(ChunkSummary::getChunkIndex).toList());
+        assertEquals("Chunk 2", secondPage.get(0).getText());
+
+        try (Stream<ChunkSummary> all = chunkRepository.streamChunks(fileEntity.getFileId(), null)) {
+            assertEquals(5, all.count());
+        }
+    }
+
+    @Test
+    void stagedGeneration_TracksChunkEmbeddingStatesUntilActivated() {
+        // Given
+        FileEntity fileEntity = fileRepository.save(FileEntity.builder()
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .data("test content".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build());
+        UUID fileId = fileEntity.getFileId();
+        entityManager.flush();
+        assertEquals(1, fileRepository.reserveGeneration(fileId));
+        assertEquals(Optional.of(1L), fileRepository.findStagedGeneration(fileId));
+
+        List<ChunkEntity> chunks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            chunks.add(chunkRepository.save(ChunkEntity.builder()
+                    .fileId(fileId)
+                    .text("Chunk " + i)
+                    .chunkIndex(i)
+                    .strategy("character")
+                    .generation(1)
+                    .embeddingState(ChunkEmbeddingState.PENDING)
+                    .build()));
+        }
+        entityManager.flush();
+
+        // When
+        assertEquals(2, chunkRepository.markEmbedded(fileId, List.of(chunks.get(0).getChunkId(), chunks.get(1).getChunkId())));
+        assertEquals(1, chunkRepository.markFailed(fileId, List.of(chunks.get(2).getChunkId()), "timeout"));
+        entityManager.clear();
+
+        // Then - the staged chunks are tracked but not visible yet
+        List<ChunkEntity> unembedded = chunkRepository.findUnembeddedChunks(fileId, 1L);
+        assertEquals(1, unembedded.size());
+        assertEquals(2, unembedded.get(0).getChunkIndex());
+        assertEquals(ChunkEmbeddingState.FAILED, unembedded.get(0).getEmbeddingState());
+        assertEquals(1, unembedded.get(0).getEmbeddingAttempts());
+        assertEquals("timeout", unembedded.get(0).getEmbeddingError());
+        Map<ChunkEmbeddingState, Long> counts = chunkRepository.countByEmbeddingState(fileId, 1L).stream()
+                .collect(Collectors.toMap(ChunkStateCountView::getState, ChunkStateCountView::getCount));
+        assertEquals(Map.of(ChunkEmbeddingState.EMBEDDED, 2L, ChunkEmbeddingState.FAILED, 1L), counts);
+        assertTrue(chunkRepository.findByFileIdOrderByChunkIndex(fileId).isEmpty());
+
+        // When
+        assertEquals(1, fileRepository.activateGeneration(fileId, 1L));
+
+        // Then - activation never moves backwards and the next ingest stages above it
+        assertEquals(3, chunkRepository.findByFileIdOrderByChunkIndex(fileId).size());
+        assertEquals(0, fileRepository.activateGeneration(fileId, 1L));
+        assertEquals(1, fileRepository.reserveGeneration(fileId));
+        assertEquals(Optional.of(2L), fileRepository.findStagedGeneration(fileId));
+    }
+}
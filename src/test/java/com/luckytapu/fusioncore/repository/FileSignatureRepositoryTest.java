@@ -0,0 +1,98 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.entity.FileSignatureEntity;
+import com.luckytapu.fusioncore.model.FileStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class FileSignatureRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private FileSignatureRepository fileSignatureRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Test
+    void findCandidates_RanksIndexedFilesBySharedBuckets() {
+        // Given
+        UUID newFile = saveFile(false);
+        UUID closeMatch = saveFile(true);
+        UUID weakMatch = saveFile(true);
+        UUID unindexed = saveFile(false);
+        UUID noMatch = saveFile(true);
+        saveSignature(newFile, Set.of(1L, 2L, 3L));
+        saveSignature(closeMatch, Set.of(1L, 2L, 3L, 40L));
+        saveSignature(weakMatch, Set.of(3L, 50L));
+        saveSignature(unindexed, Set.of(1L, 2L, 3L));
+        saveSignature(noMatch, Set.of(60L, 70L));
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<SignatureCandidateView> candidates = fileSignatureRepository.findCandidates(newFile, List.of(1L, 2L, 3L), Limit.of(10));
+
+        // Then
+        assertEquals(List.of(closeMatch, weakMatch), candidates.stream().map(SignatureCandidateView::getFileId).toList());
+        assertEquals(3L, candidates.get(0).getSharedBands());
+        assertEquals(1L, candidates.get(1).getSharedBands());
+    }
+
+    @Test
+    void save_ReplacesBucketsOfAReindexedFile() {
+        // Given
+        UUID fileId = saveFile(true);
+        saveSignature(fileId, Set.of(1L, 2L));
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        saveSignature(fileId, Set.of(3L));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then
+        UUID otherFile = UUID.randomUUID();
+        assertTrue(fileSignatureRepository.findCandidates(otherFile, List.of(1L, 2L), Limit.of(10)).isEmpty());
+        assertEquals(1, fileSignatureRepository.findCandidates(otherFile, List.of(3L), Limit.of(10)).size());
+    }
+
+    private UUID saveFile(boolean indexed) {
+        FileEntity file = fileRepository.save(FileEntity.builder()
+                .fileName("test.txt")
+                .fileType("text/plain")
+                .data("content".getBytes())
+                .status(FileStatus.PROCESSED)
+                .build());
+        entityManager.flush();
+        if (indexed) {
+            fileRepository.advanceGeneration(file.getFileId());
+        }
+        return file.getFileId();
+    }
+
+    private void saveSignature(UUID fileId, Set<Long> buckets) {
+        fileSignatureRepository.save(FileSignatureEntity.builder()
+                .fileId(fileId)
+                .signature(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})
+                .shingleCount(1)
+                .bandBuckets(buckets)
+                .build());
+    }
+}
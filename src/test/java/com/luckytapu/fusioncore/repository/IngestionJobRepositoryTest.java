@@ -0,0 +1,115 @@
+package com.luckytapu.fusioncore.repository;
+
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class IngestionJobRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private IngestionJobRepository jobRepository;
+
+    @Test
+    void lockClaimableJobs_ReturnsQueuedAndStaleRunningJobs() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        IngestionJobEntity queued = saveJob(IngestionJobStatus.QUEUED, null, null);
+        IngestionJobEntity stale = saveJob(IngestionJobStatus.RUNNING, "dead-node", now.minusHours(1));
+        saveJob(IngestionJobStatus.RUNNING, "live-node", now);
+        saveJob(IngestionJobStatus.SUCCEEDED, "live-node", now.minusHours(1));
+        saveJob(IngestionJobStatus.FAILED, "live-node", now.minusHours(1));
+
+        // When
+        List<IngestionJobEntity> claimable = jobRepository.lockClaimableJobs(now.minusMinutes(10), 10);
+
+        // Then
+        assertEquals(Set.of(queued.getJobId(), stale.getJobId()),
+                claimable.stream().map(IngestionJobEntity::getJobId).collect(Collectors.toSet()));
+        assertEquals(1, jobRepository.lockClaimableJobs(now.minusMinutes(10), 1).size());
+    }
+
+    @Test
+    void updateProgress_OnlyByLeaseHolder() {
+        // Given
+        IngestionJobEntity job = saveJob(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now().minusMinutes(5));
+
+        // When
+        int byOther = jobRepository.updateProgress(job.getJobId(), "node-b", 50, LocalDateTime.now());
+        int byHolder = jobRepository.updateProgress(job.getJobId(), "node-a", 40, LocalDateTime.now());
+        entityManager.clear();
+
+        // Then
+        assertEquals(0, byOther);
+        assertEquals(1, byHolder);
+        assertEquals(40, jobRepository.findById(job.getJobId()).orElseThrow().getProgress());
+    }
+
+    @Test
+    void finish_SucceededCompletesProgressAndFailedKeepsIt() {
+        // Given
+        IngestionJobEntity succeeded = saveJob(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now());
+        IngestionJobEntity failed = saveJob(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now());
+        jobRepository.updateProgress(failed.getJobId(), "node-a", 40, LocalDateTime.now());
+
+        // When
+        jobRepository.finish(succeeded.getJobId(), "node-a", IngestionJobStatus.SUCCEEDED, null, LocalDateTime.now());
+        jobRepository.finish(failed.getJobId(), "node-a", IngestionJobStatus.FAILED, "parse error", LocalDateTime.now());
+        entityManager.clear();
+
+        // Then
+        IngestionJobEntity succeededFromDb = jobRepository.findById(succeeded.getJobId()).orElseThrow();
+        assertEquals(IngestionJobStatus.SUCCEEDED, succeededFromDb.getStatus());
+        assertEquals(100, succeededFromDb.getProgress());
+        assertNotNull(succeededFromDb.getCompletedDate());
+        IngestionJobEntity failedFromDb = jobRepository.findById(failed.getJobId()).orElseThrow();
+        assertEquals(IngestionJobStatus.FAILED, failedFromDb.getStatus());
+        assertEquals(40, failedFromDb.getProgress());
+        assertEquals("parse error", failedFromDb.getError());
+    }
+
+    @Test
+    void requeue_ReleasesLease() {
+        // Given
+        IngestionJobEntity job = saveJob(IngestionJobStatus.RUNNING, "node-a", LocalDateTime.now());
+
+        // When
+        int requeued = jobRepository.requeue(job.getJobId(), "node-a", "connection reset");
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, requeued);
+        IngestionJobEntity fromDb = jobRepository.findById(job.getJobId()).orElseThrow();
+        assertEquals(IngestionJobStatus.QUEUED, fromDb.getStatus());
+        assertNull(fromDb.getLockedBy());
+        assertEquals("connection reset", fromDb.getError());
+    }
+
+    private IngestionJobEntity saveJob(IngestionJobStatus status, String lockedBy, LocalDateTime lockedAt) {
+        IngestionJobEntity job = jobRepository.save(IngestionJobEntity.builder()
+                .fileId(UUID.randomUUID())
+                .generateEmbeddings(true)
+                .status(status)
+                .lockedBy(lockedBy)
+                .lockedAt(lockedAt)
+                .build());
+        entityManager.flush();
+        return job;
+    }
+}
@@ -0,0 +1,187 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
+import com.luckytapu.fusioncore.entity.BulkImportEntryEntity;
+import com.luckytapu.fusioncore.model.BulkImportReport;
+import com.luckytapu.fusioncore.model.BulkImportRequest;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import com.luckytapu.fusioncore.repository.BulkImportEntryRepository;
+import com.luckytapu.fusioncore.repository.BulkImportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportServiceTest {
+
+    @Mock
+    private BulkImportRepository importRepository;
+
+    @Mock
+    private BulkImportEntryRepository entryRepository;
+
+    @TempDir
+    Path root;
+
+    private BulkImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new BulkImportService(importRepository, entryRepository, root.toString(), Duration.ofMinutes(10), 3);
+    }
+
+    @Test
+    void submit_QueuesImportOfDirectoryUnderRoot() throws Exception {
+        // Given
+        Files.createDirectory(root.resolve("corpus"));
+        when(importRepository.save(any(BulkImportEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        BulkImportEntity bulkImport = importService.submit(new BulkImportRequest("corpus", false));
+
+        // Then
+        assertEquals(IngestionJobStatus.QUEUED, bulkImport.getStatus());
+        assertEquals("corpus", bulkImport.getSource());
+        assertFalse(bulkImport.isGenerateEmbeddings());
+    }
+
+    @Test
+    void submit_RejectsSourcesOutsideRootOrUnsupported() throws Exception {
+        // Given
+        Files.writeString(root.resolve("notes.txt"), "plain file");
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> importService.submit(new BulkImportRequest("../etc", true)));
+        assertThrows(IllegalArgumentException.class, () -> importService.submit(new BulkImportRequest("notes.txt", true)));
+        assertThrows(IllegalArgumentException.class, () -> importService.submit(new BulkImportRequest(" ", true)));
+        verify(importRepository, never()).save(any());
+    }
+
+    @Test
+    void submit_RejectsSymlinksLeavingRoot(@TempDir Path outside) throws Exception {
+        // Given
+        Files.createSymbolicLink(root.resolve("escape"), outside);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> importService.submit(new BulkImportRequest("escape", true)));
+        verify(importRepository, never()).save(any());
+    }
+
+    @Test
+    void claim_FailsImportThatUsedUpItsAttempts() {
+        // Given
+        BulkImportEntity stale = BulkImportEntity.builder()
+                .importId(UUID.randomUUID())
+                .status(IngestionJobStatus.RUNNING)
+                .lockedBy("dead-node")
+                .attempts(3)
+                .build();
+        when(importRepository.lockClaimableImports(any(LocalDateTime.class), eq(1))).thenReturn(List.of(stale));
+
+        // When
+        Optional<BulkImportEntity> claimed = importService.claim("worker-1");
+
+        // Then
+        assertTrue(claimed.isEmpty());
+        assertEquals(IngestionJobStatus.FAILED, stale.getStatus());
+        assertEquals("Abandoned after 3 attempts", stale.getError());
+        assertNotNull(stale.getCompletedDate());
+    }
+
+    @Test
+    void claim_StartsNewRunFromCurrentCounters() {
+        // Given
+        BulkImportEntity stale = BulkImportEntity.builder()
+                .importId(UUID.randomUUID())
+                .status(IngestionJobStatus.RUNNING)
+                .lockedBy("dead-node")
+                .processedEntries(40)
+                .processedBytes(4000)
+                .build();
+        when(importRepository.lockClaimableImports(any(LocalDateTime.class), eq(1))).thenReturn(List.of(stale));
+
+        // When
+        Optional<BulkImportEntity> claimed = importService.claim("worker-1");
+
+        // Then
+        assertTrue(claimed.isPresent());
+        assertEquals(1, stale.getAttempts());
+        assertEquals("worker-1", stale.getLockedBy());
+        assertEquals(40, stale.getRunStartEntries());
+        assertEquals(4000, stale.getRunStartBytes());
+        assertNotNull(stale.getRunStartedDate());
+    }
+
+    @Test
+    void recordEntry_SavesCheckpointAndCountsFailures() {
+        // Given
+        UUID importId = UUID.randomUUID();
+        when(entryRepository.existsByImportIdAndEntryName(importId, "bad.pdf")).thenReturn(false);
+
+        // When
+        importService.recordEntry(importId, "bad.pdf", 512, null, "FAILED: parse error");
+
+        // Then
+        ArgumentCaptor<BulkImportEntryEntity> entry = ArgumentCaptor.forClass(BulkImportEntryEntity.class);
+        verify(entryRepository).save(entry.capture());
+        assertEquals(IngestionJobStatus.FAILED, entry.getValue().getStatus());
+        verify(importRepository).addProcessed(importId, 1, 512);
+    }
+
+    @Test
+    void recordEntry_ReplayedCheckpointIsIgnored() {
+        // Given
+        UUID importId = UUID.randomUUID();
+        when(entryRepository.existsByImportIdAndEntryName(importId, "a.txt")).thenReturn(true);
+
+        // When
+        importService.recordEntry(importId, "a.txt", 10, UUID.randomUUID(), null);
+
+        // Then
+        verify(entryRepository, never()).save(any());
+        verify(importRepository, never()).addProcessed(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void report_RatesCoverCurrentRunAndEtaUsesRemainingBytes() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        BulkImportEntity bulkImport = BulkImportEntity.builder()
+                .status(IngestionJobStatus.RUNNING)
+                .totalEntries(1000L)
+                .totalBytes(100_000L)
+                .processedEntries(300)
+                .processedBytes(30_000)
+                .runStartEntries(100)
+                .runStartBytes(10_000)
+                .runStartedDate(now.minusSeconds(10))
+                .build();
+
+        // When
+        BulkImportReport report = BulkImportService.report(bulkImport, now);
+
+        // Then
+        assertEquals(20.0, report.getDocsPerSecond(), 1e-9);
+        assertEquals(2000.0, report.getBytesPerSecond(), 1e-9);
+        assertEquals(35L, report.getEtaSeconds());
+    }
+}
@@ -0,0 +1,188 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.BulkImportEntity;
+import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportWorkerTest {
+
+    @Mock
+    private BulkImportService importService;
+
+    @Mock
+    private FileService fileService;
+
+    @TempDir
+    Path source;
+
+    private BulkImportWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new BulkImportWorker(importService, fileService, true, 2, DataSize.ofBytes(100), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void run_ImportsEntriesNotYetCheckpointedAndSucceeds() throws Exception {
+        // Given
+        BulkImportEntity bulkImport = bulkImport(null);
+        Files.writeString(source.resolve("a.txt"), "already imported");
+        Files.writeString(source.resolve("b.txt"), "new document");
+        Files.writeString(source.resolve("c.txt"), "another new document");
+        when(importService.resolveSource("corpus")).thenReturn(source);
+        when(importService.completedEntries(bulkImport.getImportId())).thenReturn(new HashSet<>(Set.of("a.txt")));
+        UUID fileId = UUID.randomUUID();
+        when(fileService.processDocument(anyString(), any(byte[].class), eq(true))).thenReturn(
+                DocumentProcessingResult.builder().fileId(fileId).processingStatus("SUCCESS").build());
+
+        // When
+        worker.run(bulkImport);
+
+        // Then
+        verify(importService).recordTotals(bulkImport.getImportId(), new ImportSource.Totals(3, 48));
+        verify(fileService, never()).processDocument(eq("a.txt"), any(), anyBoolean());
+        verify(fileService).processDocument(eq("b.txt"), eq("new document".getBytes()), eq(true));
+        verify(importService).recordEntry(bulkImport.getImportId(), "b.txt", 12, fileId, null);
+        verify(importService).recordEntry(bulkImport.getImportId(), "c.txt", 20, fileId, null);
+        verify(importService).succeed(bulkImport.getImportId(), worker.workerId());
+    }
+
+    @Test
+    void run_OversizedAndFailedEntriesAreCheckpointedAsFailures() throws Exception {
+        // Given
+        BulkImportEntity bulkImport = bulkImport(2L);
+        Files.writeString(source.resolve("big.txt"), "x".repeat(101));
+        Files.writeString(source.resolve("broken.pdf"), "not really a pdf");
+        when(importService.resolveSource("corpus")).thenReturn(source);
+        when(importService.completedEntries(bulkImport.getImportId())).thenReturn(new HashSet<>());
+        when(fileService.processDocument(eq("broken.pdf"), any(byte[].class), eq(true))).thenReturn(
+                DocumentProcessingResult.builder().processingStatus("FAILED: parse error").build());
+
+        // When
+        worker.run(bulkImport);
+
+        // Then
+        verify(importService, never()).recordTotals(any(), any());
+        verify(fileService, never()).processDocument(eq("big.txt"), any(), anyBoolean());
+        verify(importService).recordEntry(eq(bulkImport.getImportId()), eq("big.txt"), eq(101L), isNull(), startsWith("Entry exceeds"));
+        verify(importService).recordEntry(bulkImport.getImportId(), "broken.pdf", 16, null, "FAILED: parse error");
+        verify(importService).succeed(bulkImport.getImportId(), worker.workerId());
+    }
+
+    @Test
+    void run_EntryThatThrowsIsCheckpointedAsFailure() throws Exception {
+        // Given
+        BulkImportEntity bulkImport = bulkImport(1L);
+        Files.writeString(source.resolve("a.txt"), "document");
+        when(importService.resolveSource("corpus")).thenReturn(source);
+        when(importService.completedEntries(bulkImport.getImportId())).thenReturn(new HashSet<>());
+        when(fileService.processDocument(eq("a.txt"), any(byte[].class), eq(true))).thenThrow(new IllegalStateException("disk full"));
+
+        // When
+        worker.run(bulkImport);
+
+        // Then
+        verify(importService).recordEntry(bulkImport.getImportId(), "a.txt", 8, null, "FAILED: disk full");
+        verify(importService).succeed(bulkImport.getImportId(), worker.workerId());
+    }
+
+    @Test
+    void run_EntryWithoutCheckpointFailsImport() throws Exception {
+        // Given
+        BulkImportEntity bulkImport = bulkImport(1L);
+        Files.writeString(source.resolve("a.txt"), "document");
+        when(importService.resolveSource("corpus")).thenReturn(source);
+        when(importService.completedEntries(bulkImport.getImportId())).thenReturn(new HashSet<>());
+        when(fileService.processDocument(eq("a.txt"), any(byte[].class), eq(true))).thenReturn(
+                DocumentProcessingResult.builder().fileId(UUID.randomUUID()).processingStatus("SUCCESS").build());
+        doThrow(new IllegalStateException("connection lost"))
+                .when(importService).recordEntry(eq(bulkImport.getImportId()), eq("a.txt"), anyLong(), any(), any());
+
+        // When
+        worker.run(bulkImport);
+
+        // Then
+        verify(importService).fail(bulkImport.getImportId(), worker.workerId(), "1 entries could not be checkpointed");
+        verify(importService, never()).succeed(any(), any());
+    }
+
+    @Test
+    void run_UnreadableSourceFailsImport() throws Exception {
+        // Given
+        BulkImportEntity bulkImport = bulkImport(null);
+        when(importService.resolveSource("corpus")).thenThrow(new IllegalArgumentException("source must be inside the import root"));
+
+        // When
+        worker.run(bulkImport);
+
+        // Then
+        verify(importService).fail(bulkImport.getImportId(), worker.workerId(), "source must be inside the import root");
+        verify(importService, never()).succeed(any(), any());
+    }
+
+    @Test
+    void poll_LostLeaseStopsRunningImport() throws Exception {
+        // Given
+        BulkImportEntity bulkImport = bulkImport(1L);
+        when(importService.claim(worker.workerId())).thenReturn(Optional.of(bulkImport));
+        when(importService.resolveSource("corpus")).thenAnswer(invocation -> {
+            // Keep the import running until the next poll has checked its lease
+            Thread.sleep(200);
+            return source;
+        });
+        when(importService.heartbeat(bulkImport.getImportId(), worker.workerId())).thenReturn(false);
+        Files.writeString(source.resolve("a.txt"), "document");
+        when(importService.completedEntries(any())).thenReturn(new HashSet<>());
+
+        // When
+        worker.poll();
+        worker.poll();
+        Thread.sleep(400);
+
+        // Then
+        verify(fileService, never()).processDocument(anyString(), any(), anyBoolean());
+        verify(importService, never()).succeed(any(), any());
+        verify(importService, never()).recordEntry(any(), anyString(), anyLong(), any(), any());
+    }
+
+    private BulkImportEntity bulkImport(Long totalEntries) {
+        return BulkImportEntity.builder()
+                .importId(UUID.randomUUID())
+                .source("corpus")
+                .generateEmbeddings(true)
+                .status(IngestionJobStatus.RUNNING)
+                .totalEntries(totalEntries)
+                .build();
+    }
+}
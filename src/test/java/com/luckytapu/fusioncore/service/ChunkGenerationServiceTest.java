@@ -0,0 +1,326 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.ChunkEmbeddingEntity;
+import com.luckytapu.fusioncore.entity.ChunkEntity;
+import com.luckytapu.fusioncore.model.ChunkEmbeddingState;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.ChunkStateCountView;
+import com.luckytapu.fusioncore.repository.EmbeddingView;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.TextEmbeddingView;
+import com.luckytapu.fusioncore.service.ChunkGenerationService.StagedGeneration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkGenerationServiceTest {
+
+    @Mock
+    private ChunkRepository chunkRepository;
+
+    @Mock
+    private ChunkEmbeddingRepository chunkEmbeddingRepository;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ChunkGenerationService chunkGenerationService;
+
+    @BeforeEach
+    void setUp() {
+        chunkGenerationService = new ChunkGenerationService(chunkRepository, chunkEmbeddingRepository, fileRepository, eventPublisher);
+    }
+
+    @Test
+    void stageGeneration_WritesPendingChunksUnderReservedGeneration() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        List<ChunkEntity> chunks = List.of(
+                ChunkEntity.builder().fileId(fileId).text("a").chunkIndex(0).strategy("character").build(),
+                ChunkEntity.builder().fileId(fileId).text("b").chunkIndex(1).strategy("character").build()
+        );
+
+        when(fileRepository.reserveGeneration(fileId)).thenReturn(1);
+        when(fileRepository.findStagedGeneration(fileId)).thenReturn(Optional.of(3L));
+        when(chunkRepository.saveAll(chunks)).thenReturn(chunks);
+
+        // When
+        StagedGeneration staged = chunkGenerationService.stageGeneration(fileId, chunks);
+
+        // Then
+        assertEquals(3L, staged.generation());
+        assertSame(chunks, staged.chunks());
+        chunks.forEach(chunk -> {
+            assertEquals(3L, chunk.getGeneration());
+            assertEquals(ChunkEmbeddingState.PENDING, chunk.getEmbeddingState());
+        });
+        verify(fileRepository, never()).activateGeneration(any(), anyLong());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void stageGeneration_FileNotFound() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(fileRepository.reserveGeneration(fileId)).thenReturn(0);
+
+        // When & Then
+        assertThrows(IllegalStateException.class,
+                () -> chunkGenerationService.stageGeneration(fileId, List.of()));
+        verify(chunkRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordEmbeddings_StoresVectorsAndMarksFailures() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        ChunkEntity embedded = ChunkEntity.builder().chunkId(UUID.randomUUID()).fileId(fileId).build();
+        ChunkEntity failed = ChunkEntity.builder().chunkId(UUID.randomUUID()).fileId(fileId).build();
+        when(chunkRepository.getReferenceById(embedded.getChunkId())).thenReturn(embedded);
+
+        // When
+        chunkGenerationService.recordEmbeddings(fileId, List.of(embedded, failed),
+                Arrays.asList(new float[]{1f, 2f}, null), "x".repeat(1500));
+
+        // Then
+        ArgumentCaptor<List<ChunkEmbeddingEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(chunkEmbeddingRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertSame(embedded, captor.getValue().get(0).getChunk());
+        assertArrayEquals(new float[]{1f, 2f}, EmbeddingCodec.toFloats(captor.getValue().get(0).getEmbedding()));
+        verify(chunkRepository).markEmbedded(fileId, List.of(embedded.getChunkId()));
+        verify(chunkRepository).markFailed(fileId, List.of(failed.getChunkId()), "x".repeat(1000));
+    }
+
+    @Test
+    void reuseEmbeddings_CopiesVectorsOfChunksWithTheSameText() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        UUID sourceFileId = UUID.randomUUID();
+        ChunkEntity unchanged = ChunkEntity.builder().chunkId(UUID.randomUUID()).fileId(fileId).text("same").build();
+        ChunkEntity edited = ChunkEntity.builder().chunkId(UUID.randomUUID()).fileId(fileId).text("edited").build();
+        TextEmbeddingView source = mock(TextEmbeddingView.class);
+        when(source.getText()).thenReturn("same");
+        when(source.getEmbedding()).thenReturn(EmbeddingCodec.toBytes(new float[]{3f, 4f}));
+        when(chunkEmbeddingRepository.findActiveTextEmbeddings(sourceFileId)).thenReturn(List.of(source));
+        when(chunkRepository.getReferenceById(unchanged.getChunkId())).thenReturn(unchanged);
+
+        // When
+        List<ChunkEntity> remaining = chunkGenerationService.reuseEmbeddings(fileId, List.of(unchanged, edited), sourceFileId);
+
+        // Then
+        assertEquals(List.of(edited), remaining);
+        ArgumentCaptor<List<ChunkEmbeddingEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(chunkEmbeddingRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(fileId, captor.getValue().get(0).getFileId());
+        assertArrayEquals(new float[]{3f, 4f}, EmbeddingCodec.toFloats(captor.getValue().get(0).getEmbedding()));
+        verify(chunkRepository).markEmbedded(fileId, List.of(unchanged.getChunkId()));
+        verify(chunkRepository, never()).markFailed(any(), anyList(), any());
+    }
+
+    @Test
+    void activateGeneration_PublishesCentroidAndEvent() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        List<EmbeddingView> embeddings = List.of(
+                embeddingView(fileId, 2L, new float[]{2f, 0f}),
+                embeddingView(fileId, 2L, new float[]{0f, 5f}));
+        when(chunkRepository.countByEmbeddingState(fileId, 2L))
+                .thenReturn(List.of(stateCount(ChunkEmbeddingState.EMBEDDED, 2)));
+        when(fileRepository.activateGeneration(fileId, 2L)).thenReturn(1);
+        when(chunkEmbeddingRepository.findGenerationEmbeddings(fileId, 2L)).thenReturn(embeddings);
+
+        // When
+        boolean activated = chunkGenerationService.activateGeneration(fileId, 2L);
+
+        // Then
+        assertTrue(activated);
+        ArgumentCaptor<byte[]> documentVector = ArgumentCaptor.forClass(byte[].class);
+        verify(fileRepository).updateVectorData(eq(fileId), documentVector.capture());
+        float[] centroid = EmbeddingCodec.toFloats(documentVector.getValue());
+        assertEquals((float) Math.sqrt(0.5), centroid[0], 1e-6);
+        assertEquals((float) Math.sqrt(0.5), centroid[1], 1e-6);
+
+        ArgumentCaptor<ChunkGenerationPublishedEvent> event = ArgumentCaptor.forClass(ChunkGenerationPublishedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(fileId, event.getValue().fileId());
+        assertEquals(2L, event.getValue().generation());
+        assertEquals(embeddings.stream().map(EmbeddingView::getChunkId).toList(), event.getValue().chunkIds());
+        assertSame(embeddings.get(1).getEmbedding(), event.getValue().embeddings().get(1));
+    }
+
+    @Test
+    void activateGeneration_WaitsForUnembeddedChunks() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(chunkRepository.countByEmbeddingState(fileId, 2L)).thenReturn(List.of(
+                stateCount(ChunkEmbeddingState.EMBEDDED, 5),
+                stateCount(ChunkEmbeddingState.FAILED, 1)));
+
+        // When
+        boolean activated = chunkGenerationService.activateGeneration(fileId, 2L);
+
+        // Then
+        assertFalse(activated);
+        verify(fileRepository, never()).activateGeneration(any(), anyLong());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void activateGeneration_SupersededByNewerGeneration() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(chunkRepository.countByEmbeddingState(fileId, 2L))
+                .thenReturn(List.of(stateCount(ChunkEmbeddingState.EMBEDDED, 1)));
+        when(fileRepository.activateGeneration(fileId, 2L)).thenReturn(0);
+
+        // When
+        boolean activated = chunkGenerationService.activateGeneration(fileId, 2L);
+
+        // Then
+        assertFalse(activated);
+        verify(fileRepository, never()).updateVectorData(any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void findIncompleteGeneration_ReturnsUnembeddedChunksOfStagedGeneration() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        List<ChunkEntity> unembedded = List.of(ChunkEntity.builder().chunkIndex(4).build());
+        when(fileRepository.findStagedGeneration(fileId)).thenReturn(Optional.of(3L));
+        when(fileRepository.findActiveGeneration(fileId)).thenReturn(Optional.of(2L));
+        when(chunkRepository.findUnembeddedChunks(fileId, 3L)).thenReturn(unembedded);
+
+        // When
+        Optional<StagedGeneration> staged = chunkGenerationService.findIncompleteGeneration(fileId);
+
+        // Then
+        assertTrue(staged.isPresent());
+        assertEquals(3L, staged.get().generation());
+        assertSame(unembedded, staged.get().chunks());
+    }
+
+    @Test
+    void findIncompleteGeneration_EmptyOnceStagedGenerationIsActive() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(fileRepository.findStagedGeneration(fileId)).thenReturn(Optional.of(3L));
+        when(fileRepository.findActiveGeneration(fileId)).thenReturn(Optional.of(3L));
+
+        // When & Then
+        assertTrue(chunkGenerationService.findIncompleteGeneration(fileId).isEmpty());
+        verify(chunkRepository, never()).findUnembeddedChunks(any(), anyLong());
+    }
+
+    @Test
+    void embeddingProgress_CountsChunkStatesOfLatestGeneration() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(fileRepository.findStagedGeneration(fileId)).thenReturn(Optional.of(3L));
+        when(fileRepository.findActiveGeneration(fileId)).thenReturn(Optional.of(2L));
+        when(chunkRepository.countByEmbeddingState(fileId, 3L)).thenReturn(List.of(
+                stateCount(ChunkEmbeddingState.EMBEDDED, 7),
+                stateCount(ChunkEmbeddingState.FAILED, 2),
+                stateCount(ChunkEmbeddingState.PENDING, 1)));
+
+        // When
+        EmbeddingProgress progress = chunkGenerationService.embeddingProgress(fileId).orElseThrow();
+
+        // Then
+        assertEquals(3L, progress.getGeneration());
+        assertFalse(progress.isActive());
+        assertEquals(7, progress.getEmbeddedChunks());
+        assertEquals(2, progress.getFailedChunks());
+        assertEquals(1, progress.getPendingChunks());
+        assertEquals(10, progress.getTotalChunks());
+        assertFalse(progress.isComplete());
+    }
+
+    @Test
+    void purgeStaleGenerations_DeletesOlderGenerations() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+
+        // When
+        chunkGenerationService.purgeStaleGenerations(fileId, 4L);
+
+        // Then
+        verify(chunkEmbeddingRepository).deleteStaleGenerations(fileId, 4L);
+        verify(chunkRepository).deleteStaleGenerations(fileId, 4L);
+    }
+
+    @Test
+    void purgeStaleGenerations_SwallowsFailures() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(chunkEmbeddingRepository.deleteStaleGenerations(any(), anyLong())).thenThrow(new RuntimeException("Database error"));
+
+        // When & Then
+        assertDoesNotThrow(() -> chunkGenerationService.purgeStaleGenerations(fileId, 4L));
+    }
+
+    private static ChunkStateCountView stateCount(ChunkEmbeddingState state, long count) {
+        return new ChunkStateCountView() {
+            @Override
+            public ChunkEmbeddingState getState() {
+                return state;
+            }
+
+            @Override
+            public long getCount() {
+                return count;
+            }
+        };
+    }
+
+    private static EmbeddingView embeddingView(UUID fileId, long generation, float[] vector) {
+        UUID chunkId = UUID.randomUUID();
+        byte[] embedding = EmbeddingCodec.toBytes(vector);
+        return new EmbeddingView() {
+            @Override
+            public UUID getChunkId() {
+                return chunkId;
+            }
+
+            @Override
+            public UUID getFileId() {
+                return fileId;
+            }
+
+            @Override
+            public Long getGeneration() {
+                return generation;
+            }
+
+            @Override
+            public byte[] getEmbedding() {
+                return embedding;
+            }
+        };
+    }
+}
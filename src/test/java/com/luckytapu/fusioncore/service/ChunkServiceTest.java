@@ -1,28 +1,47 @@
 package com.luckytapu.fusioncore.service;
 
 import com.luckytapu.fusioncore.entity.ChunkEntity;
-import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.model.ChunkEmbeddingState;
+import com.luckytapu.fusioncore.model.NearDuplicateReport;
+import com.luckytapu.fusioncore.service.ChunkGenerationService.StagedGeneration;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ChunkServiceTest {
 
     @Mock
-    private ChunkRepository chunkRepository;
+    private ChunkGenerationService chunkGenerationService;
+    
+    @Mock
+    private NearDuplicateService nearDuplicateService;
     
     @Mock
     private EmbeddingModel embeddingModel;
@@ -31,7 +50,7 @@ class ChunkServiceTest {
 
     @BeforeEach
     void setUp() {
-        chunkService = new ChunkService(chunkRepository, embeddingModel);
+        chunkService = new ChunkService(chunkGenerationService, nearDuplicateService, embeddingModel, Runnable::run, Runnable::run, Runnable::run, 16);
     }
 
     @Test
@@ -41,23 +60,48 @@ class ChunkServiceTest {
         UUID fileId = UUID.randomUUID();
         String strategy = "Character Splitter";
         
-        when(embeddingModel.embed(any(dev.langchain4j.data.segment.TextSegment.class))).thenReturn(Response.from(Embedding.from(new float[]{0.1f, 0.2f, 0.3f})));
-        when(chunkRepository.save(any(ChunkEntity.class))).thenReturn(new ChunkEntity());
+        when(embeddingModel.embedAll(anyList())).thenAnswer(embedEach(new float[]{0.1f, 0.2f, 0.3f}));
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(2L));
+        when(chunkGenerationService.activateGeneration(fileId, 2L)).thenReturn(true);
 
         // When
         boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, strategy);
 
         // Then
         assertTrue(result);
-        verify(chunkRepository).deleteByFileId(fileId);
-        verify(chunkRepository, atLeastOnce()).save(any(ChunkEntity.class));
-        verify(embeddingModel, atLeastOnce()).embed(any(dev.langchain4j.data.segment.TextSegment.class));
+        verify(chunkGenerationService).recordEmbeddings(eq(fileId), anyList(), anyList(), isNull());
+        verify(chunkGenerationService).activateGeneration(fileId, 2L);
+        verify(chunkGenerationService).purgeStaleGenerations(fileId, 2L);
+        verify(embeddingModel, atLeastOnce()).embedAll(anyList());
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_StagesChunksBeforeEmbedding() {
+        // Given
+        Document document = Document.from("First sentence here. " + "x".repeat(600));
+        UUID fileId = UUID.randomUUID();
+        when(embeddingModel.embedAll(anyList())).thenAnswer(embedEach(new float[]{1f}));
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
+        when(chunkGenerationService.activateGeneration(fileId, 1L)).thenReturn(true);
+
+        // When
+        chunkService.generateAndStoreChunkEmbeddings(document, fileId, "Character Splitter");
+
+        // Then
+        ArgumentCaptor<List<ChunkEntity>> staged = ArgumentCaptor.forClass(List.class);
+        InOrder order = inOrder(chunkGenerationService, embeddingModel);
+        order.verify(chunkGenerationService).stageGeneration(eq(fileId), staged.capture());
+        order.verify(embeddingModel).embedAll(anyList());
+        order.verify(chunkGenerationService).recordEmbeddings(eq(fileId), anyList(), anyList(), isNull());
+        order.verify(chunkGenerationService).activateGeneration(fileId, 1L);
+        assertEquals(List.of(0, 1), staged.getValue().stream().map(ChunkEntity::getChunkIndex).toList());
+        assertEquals("Character Splitter", staged.getValue().get(0).getStrategy());
     }
 
     @Test
     void generateAndStoreChunkEmbeddings_NoEmbeddingModel() {
         // Given
-        ChunkService serviceWithoutModel = new ChunkService(chunkRepository, null);
+        ChunkService serviceWithoutModel = new ChunkService(chunkGenerationService, nearDuplicateService, null, Runnable::run, Runnable::run, Runnable::run, 16);
         Document document = Document.from("Test content");
         UUID fileId = UUID.randomUUID();
 
@@ -66,23 +110,28 @@ class ChunkServiceTest {
 
         // Then
         assertFalse(result);
-        verify(chunkRepository, never()).save(any());
+        verify(chunkGenerationService, never()).stageGeneration(any(), anyList());
     }
 
     @Test
-    void generateAndStoreChunkEmbeddings_EmbeddingFailure() {
+    void generateAndStoreChunkEmbeddings_EmbeddingFailure_KeepsPreviousGeneration() {
         // Given
         Document document = Document.from("Test content");
         UUID fileId = UUID.randomUUID();
         
-        when(embeddingModel.embed(any(dev.langchain4j.data.segment.TextSegment.class))).thenThrow(new RuntimeException("Embedding failed"));
+        when(embeddingModel.embedAll(anyList())).thenThrow(new RuntimeException("Embedding failed"));
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
 
         // When
         boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, "character");
 
         // Then
-        assertTrue(result); // Should still return true as it continues processing other chunks
-        verify(chunkRepository).deleteByFileId(fileId);
+        assertFalse(result);
+        ArgumentCaptor<List<float[]>> vectors = ArgumentCaptor.forClass(List.class);
+        verify(chunkGenerationService).recordEmbeddings(eq(fileId), anyList(), vectors.capture(), eq("Embedding failed"));
+        assertNull(vectors.getValue().get(0));
+        verify(chunkGenerationService, never()).activateGeneration(any(), anyLong());
+        verify(chunkGenerationService, never()).purgeStaleGenerations(any(), anyLong());
     }
 
     @Test
@@ -91,15 +140,246 @@ class ChunkServiceTest {
         Document document = Document.from("short");
         UUID fileId = UUID.randomUUID();
         
-        when(embeddingModel.embed(any(dev.langchain4j.data.segment.TextSegment.class))).thenReturn(Response.from(Embedding.from(new float[]{0.1f})));
-        when(chunkRepository.save(any(ChunkEntity.class))).thenReturn(new ChunkEntity());
+        when(embeddingModel.embedAll(anyList())).thenAnswer(embedEach(new float[]{0.1f}));
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
+        when(chunkGenerationService.activateGeneration(fileId, 1L)).thenReturn(true);
 
         // When
         boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, "character");
 
         // Then
         assertTrue(result);
-        verify(chunkRepository).deleteByFileId(fileId);
-        verify(chunkRepository, atLeastOnce()).save(any(ChunkEntity.class));
+        verify(chunkGenerationService).activateGeneration(fileId, 1L);
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_StageFailure() {
+        // Given
+        Document document = Document.from("Test content");
+        UUID fileId = UUID.randomUUID();
+        
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenThrow(new RuntimeException("Database error"));
+
+        // When
+        boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, "character");
+
+        // Then
+        assertFalse(result);
+        verify(embeddingModel, never()).embedAll(anyList());
+        verify(chunkGenerationService, never()).purgeStaleGenerations(any(), anyLong());
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_EmptyVectorsLeaveGenerationStaged() {
+        // Given
+        Document document = Document.from("First sentence here. " + "x".repeat(600));
+        UUID fileId = UUID.randomUUID();
+        when(embeddingModel.embedAll(anyList())).thenReturn(Response.from(List.of(
+                Embedding.from(new float[0]),
+                Embedding.from(new float[]{0f, 5f}))));
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
+
+        // When
+        boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, "character");
+
+        // Then
+        assertFalse(result);
+        ArgumentCaptor<List<float[]>> vectors = ArgumentCaptor.forClass(List.class);
+        verify(chunkGenerationService).recordEmbeddings(eq(fileId), anyList(), vectors.capture(), isNull());
+        assertNull(vectors.getValue().get(0));
+        assertArrayEquals(new float[]{0f, 5f}, vectors.getValue().get(1));
+        verify(chunkGenerationService, never()).activateGeneration(any(), anyLong());
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_SupersededGenerationIsNotPurged() {
+        // Given
+        Document document = Document.from("Test content");
+        UUID fileId = UUID.randomUUID();
+        when(embeddingModel.embedAll(anyList())).thenAnswer(embedEach(new float[]{0.1f}));
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
+        when(chunkGenerationService.activateGeneration(fileId, 1L)).thenReturn(false);
+
+        // When
+        boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, "character");
+
+        // Then
+        assertFalse(result);
+        verify(chunkGenerationService, never()).purgeStaleGenerations(any(), anyLong());
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_BatchesEmbedInParallelAndKeepChunkOrder() {
+        // Given
+        ExecutorService embeddingPool = Executors.newFixedThreadPool(4);
+        ChunkService parallelService = new ChunkService(chunkGenerationService, nearDuplicateService, embeddingModel,
+                Runnable::run, embeddingPool, Runnable::run, 1);
+        Document document = Document.from("a".repeat(480) + " " + "b".repeat(480) + " " + "c".repeat(480));
+        UUID fileId = UUID.randomUUID();
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation -> {
+            List<TextSegment> segments = invocation.getArgument(0);
+            // Earlier batches finish last
+            Thread.sleep(segments.get(0).text().startsWith("a") ? 50 : 0);
+            return Response.from(segments.stream()
+                    .map(segment -> Embedding.from(new float[]{segment.text().charAt(0), 1f}))
+                    .toList());
+        });
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
+        when(chunkGenerationService.activateGeneration(fileId, 1L)).thenReturn(true);
+
+        try {
+            // When
+            boolean result = parallelService.generateAndStoreChunkEmbeddings(document, fileId, "character");
+
+            // Then
+            assertTrue(result);
+            verify(embeddingModel, times(3)).embedAll(anyList());
+            ArgumentCaptor<List<ChunkEntity>> chunks = ArgumentCaptor.forClass(List.class);
+            ArgumentCaptor<List<float[]>> vectors = ArgumentCaptor.forClass(List.class);
+            verify(chunkGenerationService, times(3)).recordEmbeddings(eq(fileId), chunks.capture(), vectors.capture(), isNull());
+            for (int i = 0; i < 3; i++) {
+                ChunkEntity chunk = chunks.getAllValues().get(i).get(0);
+                assertEquals(chunk.getText().charAt(0), vectors.getAllValues().get(i).get(0)[0]);
+            }
+        } finally {
+            embeddingPool.shutdownNow();
+        }
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_EmbedsInTheCallersLane() {
+        // Given
+        ExecutorService embeddingPool = Executors.newSingleThreadExecutor();
+        ChunkService pooledService = new ChunkService(chunkGenerationService, nearDuplicateService, embeddingModel,
+                Runnable::run, embeddingPool, Runnable::run, 16);
+        UUID fileId = UUID.randomUUID();
+        List<EmbeddingPriority> lanes = new CopyOnWriteArrayList<>();
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation -> {
+            lanes.add(EmbeddingPriority.current());
+            return embedEach(new float[]{0.1f}).answer(invocation);
+        });
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
+        when(chunkGenerationService.activateGeneration(fileId, 1L)).thenReturn(true);
+
+        try {
+            // When
+            boolean result = EmbeddingPriority.BULK.call(
+                    () -> pooledService.generateAndStoreChunkEmbeddings(Document.from("Test content"), fileId, "character"));
+
+            // Then
+            assertTrue(result);
+            assertEquals(List.of(EmbeddingPriority.BULK), lanes);
+        } finally {
+            embeddingPool.shutdownNow();
+        }
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_NearDuplicateEmbedsOnlyNewChunks() {
+        // Given
+        Document document = Document.from("a".repeat(480) + " " + "b".repeat(480) + " " + "c".repeat(480));
+        UUID fileId = UUID.randomUUID();
+        UUID matchedFileId = UUID.randomUUID();
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(2L));
+        when(nearDuplicateService.check(eq(fileId), anyList())).thenReturn(Optional.of(NearDuplicateReport.builder()
+                .threshold(0.8).matchedFileId(matchedFileId).similarity(0.9).embeddingsReused(true).build()));
+        when(chunkGenerationService.reuseEmbeddings(eq(fileId), anyList(), eq(matchedFileId)))
+                .thenAnswer(invocation -> List.of(invocation.<List<ChunkEntity>>getArgument(1).get(2)));
+        when(embeddingModel.embedAll(anyList())).thenAnswer(embedEach(new float[]{0.1f}));
+        when(chunkGenerationService.activateGeneration(fileId, 2L)).thenReturn(true);
+        List<NearDuplicateReport> reports = new ArrayList<>();
+
+        // When
+        boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, "character", reports::add);
+
+        // Then
+        assertTrue(result);
+        ArgumentCaptor<List<TextSegment>> segments = ArgumentCaptor.forClass(List.class);
+        verify(embeddingModel).embedAll(segments.capture());
+        assertEquals(1, segments.getValue().size());
+        assertTrue(segments.getValue().get(0).text().startsWith("c"));
+        assertEquals(1, reports.size());
+        assertEquals(2, reports.get(0).getReusedChunks());
+        assertEquals(1, reports.get(0).getEmbeddedChunks());
+        verify(chunkGenerationService).activateGeneration(fileId, 2L);
+    }
+
+    @Test
+    void generateAndStoreChunkEmbeddings_BelowThresholdEmbedsEveryChunk() {
+        // Given
+        Document document = Document.from("Test content");
+        UUID fileId = UUID.randomUUID();
+        when(chunkGenerationService.stageGeneration(eq(fileId), anyList())).thenAnswer(stageAs(1L));
+        when(nearDuplicateService.check(eq(fileId), anyList())).thenReturn(Optional.of(NearDuplicateReport.builder()
+                .threshold(0.8).matchedFileId(UUID.randomUUID()).similarity(0.4).build()));
+        when(embeddingModel.embedAll(anyList())).thenAnswer(embedEach(new float[]{0.1f}));
+        when(chunkGenerationService.activateGeneration(fileId, 1L)).thenReturn(true);
+        List<NearDuplicateReport> reports = new ArrayList<>();
+
+        // When
+        boolean result = chunkService.generateAndStoreChunkEmbeddings(document, fileId, "character", reports::add);
+
+        // Then
+        assertTrue(result);
+        verify(chunkGenerationService, never()).reuseEmbeddings(any(), anyList(), any());
+        assertFalse(reports.get(0).isEmbeddingsReused());
+        assertEquals(0, reports.get(0).getReusedChunks());
+        assertEquals(1, reports.get(0).getEmbeddedChunks());
+    }
+
+    @Test
+    void resumeEmbeddings_EmbedsOnlyUnembeddedChunks() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        ChunkEntity failedChunk = ChunkEntity.builder()
+                .chunkId(UUID.randomUUID()).fileId(fileId).text("retry me").chunkIndex(7)
+                .embeddingState(ChunkEmbeddingState.FAILED).build();
+        when(chunkGenerationService.findIncompleteGeneration(fileId))
+                .thenReturn(Optional.of(new StagedGeneration(3L, List.of(failedChunk))));
+        when(embeddingModel.embedAll(anyList())).thenAnswer(embedEach(new float[]{0.5f}));
+        when(chunkGenerationService.activateGeneration(fileId, 3L)).thenReturn(true);
+
+        // When
+        boolean result = chunkService.resumeEmbeddings(fileId);
+
+        // Then
+        assertTrue(result);
+        ArgumentCaptor<List<TextSegment>> segments = ArgumentCaptor.forClass(List.class);
+        verify(embeddingModel).embedAll(segments.capture());
+        assertEquals(List.of("retry me"), segments.getValue().stream().map(TextSegment::text).toList());
+        verify(chunkGenerationService).recordEmbeddings(eq(fileId), eq(List.of(failedChunk)), anyList(), isNull());
+        verify(chunkGenerationService).purgeStaleGenerations(fileId, 3L);
+        verify(chunkGenerationService, never()).stageGeneration(any(), anyList());
+    }
+
+    @Test
+    void resumeEmbeddings_NothingToResume() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(chunkGenerationService.findIncompleteGeneration(fileId)).thenReturn(Optional.empty());
+
+        // When
+        boolean result = chunkService.resumeEmbeddings(fileId);
+
+        // Then
+        assertFalse(result);
+        verify(embeddingModel, never()).embedAll(anyList());
+        verify(chunkGenerationService, never()).activateGeneration(any(), anyLong());
+    }
+
+    // Stages the chunks as the given generation, assigning ids the way saveAll would
+    private static Answer<StagedGeneration> stageAs(long generation) {
+        return invocation -> {
+            List<ChunkEntity> chunks = invocation.getArgument(1);
+            chunks.forEach(chunk -> chunk.setChunkId(UUID.randomUUID()));
+            return new StagedGeneration(generation, chunks);
+        };
+    }
+
+    private static Answer<Response<List<Embedding>>> embedEach(float[] vector) {
+        return invocation -> {
+            List<TextSegment> segments = invocation.getArgument(0);
+            return Response.from(segments.stream().map(segment -> Embedding.from(vector)).toList());
+        };
     }
-}
\ No newline at end of file
+}
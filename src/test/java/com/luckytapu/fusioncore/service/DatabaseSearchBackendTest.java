@@ -0,0 +1,131 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.SearchFilter;
+import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.SimilarChunkView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseSearchBackendTest {
+
+    @Mock
+    private ChunkRepository chunkRepository;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @InjectMocks
+    private DatabaseSearchBackend databaseSearchBackend;
+
+    @Test
+    void search_MapsRowsToResults() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        SimilarChunkView row = projection(fileId, "test.txt");
+        when(chunkRepository.findSimilarChunks(any(byte[].class), anyDouble(), eq(5))).thenReturn(List.of(row));
+
+        // When
+        List<SearchResult> results = databaseSearchBackend.search(new float[]{0.1f, 0.2f}, 5, 0.7);
+
+        // Then
+        assertEquals(1, results.size());
+        SearchResult result = results.get(0);
+        assertEquals(fileId, result.getFileId());
+        assertEquals("test.txt", result.getFileName());
+        assertEquals("test chunk content", result.getChunkText());
+        assertEquals(0.85, result.getSimilarityScore());
+        assertEquals(0, result.getChunkIndex());
+        verify(chunkRepository).findSimilarChunks(EmbeddingCodec.toBytes(new float[]{0.1f, 0.2f}), 1 - 0.7, 5);
+    }
+
+    @Test
+    void searchWithinFiles_RestrictsQueryToFiles() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        float[] vector = {0.1f, 0.2f};
+        when(chunkRepository.findSimilarChunksInFiles(EmbeddingCodec.toBytes(vector), new UUID[]{fileId}, 1 - 0.7, 5))
+                .thenReturn(List.of(projection(fileId, "test.txt")));
+
+        // When
+        List<SearchResult> results = databaseSearchBackend.searchWithinFiles(vector, List.of(fileId), 5, 0.7);
+
+        // Then
+        assertEquals(1, results.size());
+        assertEquals(fileId, results.get(0).getFileId());
+        verify(chunkRepository, never()).findSimilarChunks(any(), anyDouble(), anyInt());
+    }
+
+    @Test
+    void searchMatching_PassesFilterToQuery() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        float[] vector = {0.1f, 0.2f};
+        LocalDateTime after = LocalDateTime.now().minusDays(1);
+        SearchFilter filter = SearchFilter.builder().fileType("text/plain").uploadedAfter(after).build();
+        when(chunkRepository.findSimilarChunksMatching(EmbeddingCodec.toBytes(vector), new UUID[0],
+                null, "text/plain", after, null, null, 1 - 0.7, 5)).thenReturn(List.of(projection(fileId, "test.txt")));
+
+        // When
+        List<SearchResult> results = databaseSearchBackend.searchMatching(vector, filter, 5, 0.7);
+
+        // Then
+        assertEquals(List.of(fileId), results.stream().map(SearchResult::getFileId).toList());
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void nearestDocuments_RanksCentroidsInDatabase() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        float[] vector = {0.1f, 0.2f};
+        when(fileRepository.findNearestDocuments(EmbeddingCodec.toBytes(vector), 3)).thenReturn(List.of(fileId));
+
+        // When
+        List<UUID> nearest = databaseSearchBackend.nearestDocuments(vector, 3);
+
+        // Then
+        assertEquals(List.of(fileId), nearest);
+    }
+
+    @Test
+    void search_MissingFileName() {
+        // Given
+        SimilarChunkView row = projection(UUID.randomUUID(), null);
+        when(chunkRepository.findSimilarChunks(any(byte[].class), anyDouble(), eq(5))).thenReturn(List.of(row));
+
+        // When
+        List<SearchResult> results = databaseSearchBackend.search(new float[]{0.1f}, 5, 0.7);
+
+        // Then
+        assertEquals("Unknown", results.get(0).getFileName());
+    }
+
+    private SimilarChunkView projection(UUID fileId, String fileName) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("chunkId", UUID.randomUUID());
+        values.put("fileId", fileId);
+        values.put("fileName", fileName);
+        values.put("text", "test chunk content");
+        values.put("chunkIndex", 0);
+        values.put("similarityScore", 0.85);
+        return new SpelAwareProxyProjectionFactory().createProjection(SimilarChunkView.class, values);
+    }
+}
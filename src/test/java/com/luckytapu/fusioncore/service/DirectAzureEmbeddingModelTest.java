@@ -33,10 +33,10 @@ class DirectAzureEmbeddingModelTest {
         // When
         Response<List<Embedding>> result = embeddingModel.embedAll(segments);
 
-        // Then
+        // Then - one embedding per input, even when the endpoint is unreachable
         assertNotNull(result);
         assertNotNull(result.content());
-        assertEquals(1, result.content().size());
+        assertEquals(2, result.content().size());
     }
 
     @Test
@@ -0,0 +1,158 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.EmbeddingLaneStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingSchedulerTest {
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        threads.forEach(Thread::interrupt);
+    }
+
+    @Test
+    void acquire_ReservedPermitsOnlyGoToInteractive() throws Exception {
+        // Given
+        EmbeddingScheduler scheduler = new EmbeddingScheduler(3, 1, Map.of());
+        scheduler.acquire(EmbeddingPriority.BULK);
+        scheduler.acquire(EmbeddingPriority.BULK);
+        List<EmbeddingPriority> granted = new CopyOnWriteArrayList<>();
+        start(() -> {
+            scheduler.acquire(EmbeddingPriority.BULK);
+            granted.add(EmbeddingPriority.BULK);
+        });
+        awaitQueued(scheduler, EmbeddingPriority.BULK, 1);
+
+        // When
+        scheduler.acquire(EmbeddingPriority.INTERACTIVE);
+
+        // Then - the search got the reserved permit while bulk keeps waiting
+        assertTrue(granted.isEmpty());
+        assertEquals(1, lane(scheduler, EmbeddingPriority.INTERACTIVE).getInFlight());
+        assertEquals(2, lane(scheduler, EmbeddingPriority.BULK).getPermitLimit());
+
+        // When - a bulk permit frees up while the search still holds one
+        scheduler.release(EmbeddingPriority.BULK);
+
+        // Then - bulk is back at its limit, so the queued request can't take it
+        assertEquals(1, lane(scheduler, EmbeddingPriority.BULK).getQueued());
+
+        // When
+        scheduler.release(EmbeddingPriority.INTERACTIVE);
+
+        // Then
+        awaitQueued(scheduler, EmbeddingPriority.BULK, 0);
+        assertEquals(2, lane(scheduler, EmbeddingPriority.BULK).getInFlight());
+    }
+
+    @Test
+    void release_SharesPermitsByLaneWeightWithoutStarvingBulk() throws Exception {
+        // Given
+        EmbeddingScheduler scheduler = new EmbeddingScheduler(1, 0,
+                Map.of(EmbeddingPriority.INGEST, 3, EmbeddingPriority.BULK, 1));
+        scheduler.acquire(EmbeddingPriority.INGEST);
+        List<EmbeddingPriority> granted = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            queue(scheduler, EmbeddingPriority.BULK, granted, i + 1);
+        }
+        for (int i = 0; i < 6; i++) {
+            queue(scheduler, EmbeddingPriority.INGEST, granted, i + 1);
+        }
+
+        // When
+        scheduler.release(EmbeddingPriority.INGEST);
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        // Then
+        assertEquals(10, granted.size());
+        List<EmbeddingPriority> firstEight = granted.subList(0, 8);
+        assertEquals(6, firstEight.stream().filter(EmbeddingPriority.INGEST::equals).count());
+        assertTrue(firstEight.contains(EmbeddingPriority.BULK));
+        assertTrue(lane(scheduler, EmbeddingPriority.BULK).getMaxWaitMs() > 0);
+    }
+
+    @Test
+    void acquire_InterruptedWaiterLeavesTheQueue() throws Exception {
+        // Given
+        EmbeddingScheduler scheduler = new EmbeddingScheduler(1, 0, Map.of());
+        scheduler.acquire(EmbeddingPriority.INGEST);
+        Thread waiter = start(() -> scheduler.acquire(EmbeddingPriority.BULK));
+        awaitQueued(scheduler, EmbeddingPriority.BULK, 1);
+
+        // When
+        waiter.interrupt();
+        waiter.join(5000);
+        scheduler.release(EmbeddingPriority.INGEST);
+
+        // Then
+        assertEquals(0, lane(scheduler, EmbeddingPriority.BULK).getQueued());
+        assertEquals(0, lane(scheduler, EmbeddingPriority.BULK).getInFlight());
+        scheduler.acquire(EmbeddingPriority.INGEST);
+        assertEquals(1, lane(scheduler, EmbeddingPriority.INGEST).getInFlight());
+    }
+
+    @Test
+    void priority_TagsOnlyTheWrappedCall() {
+        // When
+        EmbeddingPriority inside = EmbeddingPriority.INTERACTIVE.call(EmbeddingPriority::current);
+
+        // Then
+        assertEquals(EmbeddingPriority.INTERACTIVE, inside);
+        assertEquals(EmbeddingPriority.INGEST, EmbeddingPriority.current());
+    }
+
+    // Each waiter is queued before the next, so their start tags are deterministic
+    private void queue(EmbeddingScheduler scheduler, EmbeddingPriority priority, List<EmbeddingPriority> granted,
+                       int expectedQueued) throws InterruptedException {
+        start(() -> {
+            scheduler.acquire(priority);
+            granted.add(priority);
+            scheduler.release(priority);
+        });
+        awaitQueued(scheduler, priority, expectedQueued);
+    }
+
+    private Thread start(InterruptibleTask task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        threads.add(thread);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitQueued(EmbeddingScheduler scheduler, EmbeddingPriority priority, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lane(scheduler, priority).getQueued() != queued) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for " + queued + " queued " + priority);
+            Thread.sleep(5);
+        }
+    }
+
+    private static EmbeddingLaneStats lane(EmbeddingScheduler scheduler, EmbeddingPriority priority) {
+        return scheduler.stats().stream()
+                .filter(stats -> stats.getLane().equals(priority.name()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private interface InterruptibleTask {
+        void run() throws InterruptedException;
+    }
+}
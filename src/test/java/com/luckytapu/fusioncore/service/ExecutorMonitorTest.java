@@ -0,0 +1,142 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.config.AsyncConfig;
+import com.luckytapu.fusioncore.config.VirtualThreadExecutor;
+import com.luckytapu.fusioncore.model.ExecutorStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorMonitorTest {
+
+    private ThreadPoolTaskExecutor parsing;
+    private ThreadPoolTaskExecutor splitting;
+    private ThreadPoolTaskExecutor embedding;
+    private ThreadPoolTaskExecutor persistence;
+    private ExecutorMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        parsing = executor(2, 10);
+        splitting = executor(1, 10);
+        embedding = executor(1, 5);
+        persistence = executor(1, 5);
+        monitor = new ExecutorMonitor(parsing, splitting, embedding, persistence, 0.8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        parsing.shutdown();
+        splitting.shutdown();
+        embedding.shutdown();
+        persistence.shutdown();
+    }
+
+    @Test
+    void stats_ReportsQueueDepthAndActiveThreadsPerStage() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        embedding.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        embedding.execute(() -> { });
+        embedding.execute(() -> { });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            // When
+            List<ExecutorStats> stats = monitor.stats();
+
+            // Then
+            assertEquals(List.of("parsing", "splitting", "embedding", "persistence"), stats.stream().map(ExecutorStats::getName).toList());
+            ExecutorStats embeddingStats = stats.get(2);
+            assertEquals(1, embeddingStats.getActiveCount());
+            assertEquals(2, embeddingStats.getQueueDepth());
+            assertEquals(3, embeddingStats.getQueueRemainingCapacity());
+            assertEquals("caller-runs", embeddingStats.getRejectionPolicy());
+            assertEquals(0, stats.get(0).getActiveCount());
+            assertEquals(2, stats.get(0).getMaxPoolSize());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void stats_ReportsVirtualThreadExecutorPermitsAndParkedTasks() throws Exception {
+        // Given
+        VirtualThreadExecutor virtualEmbedding = new VirtualThreadExecutor("embed-", 1, 10, "caller-runs");
+        ExecutorMonitor virtualMonitor = new ExecutorMonitor(parsing, splitting, virtualEmbedding, persistence, 0.8);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        virtualEmbedding.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        virtualEmbedding.execute(() -> { });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            // When
+            ExecutorStats stats = virtualMonitor.stats().get(2);
+
+            // Then
+            assertTrue(stats.isVirtualThreads());
+            assertEquals(1, stats.getActiveCount());
+            assertEquals(1, stats.getMaxPoolSize());
+            assertEquals(1, stats.getQueueDepth());
+            assertEquals(9, stats.getQueueRemainingCapacity());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void stats_ReportsQueueWaitAndUtilizationOfStagePools() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        embedding.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        embedding.execute(done::countDown);
+        Thread.sleep(30);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // When
+        ExecutorStats stats = monitor.stats().get(2);
+
+        // Then
+        assertTrue(stats.getMaxQueueWaitMs() >= 25, "second task waited behind the first");
+        assertTrue(stats.getAverageQueueWaitMs() > 0);
+        assertTrue(stats.getUtilization() > 0 && stats.getUtilization() <= 1);
+    }
+
+    private ThreadPoolTaskExecutor executor(int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) new AsyncConfig().embeddingExecutor(threads, queueCapacity, "caller-runs", false);
+        executor.initialize();
+        return executor;
+    }
+}
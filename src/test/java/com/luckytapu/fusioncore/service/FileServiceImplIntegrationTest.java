@@ -10,7 +10,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.TestPropertySource;
 
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,16 +46,16 @@ class FileServiceImplIntegrationTest {
     }
 
     @Test
-    void processDocumentAsync_Success() throws Exception {
+    void processStoredDocument_Success() throws Exception {
         // Given
         MockMultipartFile file = new MockMultipartFile(
             "file", "async-test.txt", "text/plain", 
             "Async processing test content.".getBytes()
         );
+        UUID fileId = fileService.saveFile(file).getFileId();
 
         // When
-        CompletableFuture<DocumentProcessingResult> future = fileService.processDocumentAsync(file, false);
-        DocumentProcessingResult result = future.get();
+        DocumentProcessingResult result = fileService.processStoredDocument(fileId, false, progress -> { });
 
         // Then
         assertNotNull(result);
@@ -3,26 +3,42 @@ package com.luckytapu.fusioncore.service;
 import com.luckytapu.fusioncore.entity.FileEntity;
 import com.luckytapu.fusioncore.model.ChunkingReport;
 import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import com.luckytapu.fusioncore.model.EmbeddingProgress;
 import com.luckytapu.fusioncore.model.FileStatus;
+import com.luckytapu.fusioncore.model.NearDuplicateReport;
 import com.luckytapu.fusioncore.repository.ChunkRepository;
 import com.luckytapu.fusioncore.repository.FileRepository;
-import dev.langchain4j.data.embedding.Embedding;
+import com.luckytapu.fusioncore.repository.ProcessedFileView;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -47,9 +63,24 @@ class FileServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        fileService = new FileServiceImpl(fileRepository, embeddingModel, chunkRepository, vectorSearchService, chunkService);
-        ReflectionTestUtils.setField(fileService, "testEmbeddingStrategies", false);
-        ReflectionTestUtils.setField(fileService, "defaultStrategy", "character");
+        fileService = newFileService(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileService.shutdown();
+    }
+
+    private FileServiceImpl newFileService(Duration batchFileTimeout) {
+        return newFileService(2, batchFileTimeout);
+    }
+
+    private FileServiceImpl newFileService(int batchParallelism, Duration batchFileTimeout) {
+        FileServiceImpl service = new FileServiceImpl(fileRepository, embeddingModel, chunkRepository, vectorSearchService,
+                chunkService, Runnable::run, batchParallelism, batchFileTimeout, false);
+        ReflectionTestUtils.setField(service, "testEmbeddingStrategies", false);
+        ReflectionTestUtils.setField(service, "defaultStrategy", "character");
+        return service;
     }
 
     @Test
@@ -73,7 +104,9 @@ class FileServiceImplTest {
         assertEquals("test.txt", result.getFileName());
         assertEquals("text/plain", result.getFileType());
         assertEquals(FileStatus.UPLOADED, result.getStatus());
-        verify(fileRepository).save(any(FileEntity.class));
+        ArgumentCaptor<FileEntity> saved = ArgumentCaptor.forClass(FileEntity.class);
+        verify(fileRepository).save(saved.capture());
+        assertEquals("6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72", saved.getValue().getContentHash());
     }
 
     @Test
@@ -124,8 +157,7 @@ class FileServiceImplTest {
         
         when(fileRepository.save(any(FileEntity.class))).thenReturn(savedFile);
         when(fileRepository.findById(fileId)).thenReturn(Optional.of(savedFile));
-        when(chunkService.generateAndStoreChunkEmbeddings(any(), any(), any())).thenReturn(true);
-        when(embeddingModel.embed(any(dev.langchain4j.data.segment.TextSegment.class))).thenReturn(Response.from(Embedding.from(new float[]{0.1f, 0.2f})));
+        when(chunkService.generateAndStoreChunkEmbeddings(any(), any(), any(), any())).thenReturn(true);
 
         // When
         DocumentProcessingResult result = fileService.processDocument(file, true);
@@ -136,7 +168,33 @@ class FileServiceImplTest {
         assertTrue(result.isEmbeddingsGenerated());
         assertNotNull(result.getChunkingReport());
         verify(fileRepository, atLeastOnce()).save(any(FileEntity.class));
-        verify(chunkService).generateAndStoreChunkEmbeddings(any(), any(), any());
+        verify(chunkService).generateAndStoreChunkEmbeddings(any(), any(), any(), any());
+        verify(embeddingModel, never()).embed(any(dev.langchain4j.data.segment.TextSegment.class));
+    }
+
+    @Test
+    void processDocument_ReportsNearDuplicateReuse() throws IOException {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("test", "test.txt", "text/plain", "revised content".getBytes());
+        UUID fileId = UUID.randomUUID();
+        FileEntity savedFile = FileEntity.builder().fileId(fileId).fileName("test.txt").status(FileStatus.UPLOADED).build();
+        NearDuplicateReport nearDuplicate = NearDuplicateReport.builder()
+                .threshold(0.8).matchedFileId(UUID.randomUUID()).similarity(0.95)
+                .embeddingsReused(true).reusedChunks(19).embeddedChunks(1).build();
+        when(fileRepository.save(any(FileEntity.class))).thenReturn(savedFile);
+        when(fileRepository.findById(fileId)).thenReturn(Optional.of(savedFile));
+        when(chunkService.generateAndStoreChunkEmbeddings(any(), eq(fileId), any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<NearDuplicateReport>>getArgument(3).accept(nearDuplicate);
+            return true;
+        });
+
+        // When
+        DocumentProcessingResult result = fileService.processDocument(file, true);
+
+        // Then
+        assertEquals("SUCCESS", result.getProcessingStatus());
+        assertFalse(result.isDeduplicated());
+        assertSame(nearDuplicate, result.getNearDuplicate());
     }
 
     @Test
@@ -161,7 +219,7 @@ class FileServiceImplTest {
         assertEquals("SUCCESS", result.getProcessingStatus());
         assertFalse(result.isEmbeddingsGenerated());
         verify(fileRepository, atLeastOnce()).save(any(FileEntity.class));
-        verify(chunkService, never()).generateAndStoreChunkEmbeddings(any(), any(), any());
+        verify(chunkService, never()).generateAndStoreChunkEmbeddings(any(), any(), any(), any());
     }
 
     @Test
@@ -178,4 +236,275 @@ class FileServiceImplTest {
         assertTrue(result.getProcessingStatus().startsWith("FAILED:"));
         assertFalse(result.isEmbeddingsGenerated());
     }
-}
\ No newline at end of file
+
+    @Test
+    void processDocument_IdenticalContentReusesProcessedFile() throws IOException {
+        // Given
+        byte[] content = "manual content".getBytes();
+        MockMultipartFile file = new MockMultipartFile("test", "manual-copy.txt", "text/plain", content);
+        ProcessedFileView existing = mock(ProcessedFileView.class);
+        when(existing.getFileId()).thenReturn(UUID.randomUUID());
+        when(existing.getActiveGeneration()).thenReturn(2L);
+        when(fileRepository.findProcessedByContentHash(eq(FileServiceImpl.contentHash(content)), eq(true), any()))
+                .thenReturn(List.of(existing));
+
+        // When
+        DocumentProcessingResult result = fileService.processDocument(file, true);
+
+        // Then
+        assertEquals("SUCCESS", result.getProcessingStatus());
+        assertTrue(result.isDeduplicated());
+        assertTrue(result.isEmbeddingsGenerated());
+        assertEquals(existing.getFileId(), result.getFileId());
+        assertEquals("manual-copy.txt", result.getFileName());
+        verify(fileRepository, never()).save(any());
+        verify(chunkService, never()).generateAndStoreChunkEmbeddings(any(), any(), any(), any());
+    }
+
+    @Test
+    void processDocument_ForceProcessesIdenticalContentAgain() throws IOException {
+        // Given
+        Map<UUID, FileEntity> stored = storeFilesInMemory();
+        MockMultipartFile file = new MockMultipartFile("test", "manual.txt", "text/plain", "manual content".getBytes());
+
+        // When
+        DocumentProcessingResult result = fileService.processDocument(file, false, true);
+
+        // Then
+        assertFalse(result.isDeduplicated());
+        assertEquals("SUCCESS", result.getProcessingStatus());
+        assertEquals(FileServiceImpl.contentHash("manual content".getBytes()), stored.get(result.getFileId()).getContentHash());
+        verify(fileRepository, never()).findProcessedByContentHash(any(), anyBoolean(), any());
+    }
+
+    @Test
+    void processDocument_FromBytesStoresAndProcessesEntry() {
+        // Given
+        Map<UUID, FileEntity> stored = storeFilesInMemory();
+
+        // When
+        DocumentProcessingResult result = fileService.processDocument("nested/notes.txt", "entry content".getBytes(), false);
+
+        // Then
+        assertEquals("SUCCESS", result.getProcessingStatus());
+        assertEquals("nested/notes.txt", result.getFileName());
+        FileEntity saved = stored.get(result.getFileId());
+        assertEquals("text/plain", saved.getFileType());
+        assertEquals(FileStatus.PROCESSED, saved.getStatus());
+    }
+
+    @Test
+    void processStoredDocument_ReadsSavedBytesAndReportsProgress() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        FileEntity storedFile = FileEntity.builder()
+                .fileId(fileId)
+                .fileName("stored.txt")
+                .data("stored content for processing".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build();
+        when(fileRepository.findById(fileId)).thenReturn(Optional.of(storedFile));
+        when(fileRepository.save(any(FileEntity.class))).thenReturn(storedFile);
+        when(chunkService.generateAndStoreChunkEmbeddings(any(), eq(fileId), any(), any())).thenReturn(true);
+        List<Integer> progress = new ArrayList<>();
+
+        // When
+        DocumentProcessingResult result = fileService.processStoredDocument(fileId, true, progress::add);
+
+        // Then
+        assertEquals("SUCCESS", result.getProcessingStatus());
+        assertTrue(result.isEmbeddingsGenerated());
+        assertEquals(FileStatus.PROCESSED, storedFile.getStatus());
+        assertEquals(List.of(10, 40, 90), progress);
+    }
+
+    @Test
+    void processStoredDocument_MissingFile_ReturnsFailedResult() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(fileRepository.findById(fileId)).thenReturn(Optional.empty());
+
+        // When
+        DocumentProcessingResult result = fileService.processStoredDocument(fileId, true, progress -> { });
+
+        // Then
+        assertTrue(result.getProcessingStatus().startsWith("FAILED:"));
+        verify(chunkService, never()).generateAndStoreChunkEmbeddings(any(), any(), any(), any());
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void processStoredDocument_IncompleteEmbeddingsFailTheFile() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        FileEntity storedFile = FileEntity.builder()
+                .fileId(fileId)
+                .fileName("stored.txt")
+                .data("stored content for processing".getBytes())
+                .status(FileStatus.UPLOADED)
+                .build();
+        when(fileRepository.findById(fileId)).thenReturn(Optional.of(storedFile));
+        when(fileRepository.save(any(FileEntity.class))).thenReturn(storedFile);
+        when(chunkService.generateAndStoreChunkEmbeddings(any(), eq(fileId), any(), any())).thenReturn(false);
+        when(chunkService.embeddingProgress(fileId)).thenReturn(Optional.of(EmbeddingProgress.builder()
+                .fileId(fileId).generation(2).embeddedChunks(8).failedChunks(2).build()));
+
+        // When
+        DocumentProcessingResult result = fileService.processStoredDocument(fileId, true, progress -> { });
+
+        // Then
+        assertEquals("INCOMPLETE: 2 of 10 chunks not embedded", result.getProcessingStatus());
+        assertFalse(result.isEmbeddingsGenerated());
+        assertEquals(FileStatus.FAILED, storedFile.getStatus());
+    }
+
+    @Test
+    void resumeEmbeddings_ActivatedGenerationMarksFileProcessed() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        FileEntity storedFile = FileEntity.builder().fileId(fileId).status(FileStatus.FAILED).build();
+        EmbeddingProgress progress = EmbeddingProgress.builder().fileId(fileId).generation(2).active(true).embeddedChunks(10).build();
+        when(fileRepository.existsById(fileId)).thenReturn(true);
+        when(fileRepository.findById(fileId)).thenReturn(Optional.of(storedFile));
+        when(fileRepository.save(storedFile)).thenReturn(storedFile);
+        when(chunkService.resumeEmbeddings(fileId)).thenReturn(true);
+        when(chunkService.embeddingProgress(fileId)).thenReturn(Optional.of(progress));
+
+        // When
+        EmbeddingProgress result = fileService.resumeEmbeddings(fileId);
+
+        // Then
+        assertSame(progress, result);
+        assertEquals(FileStatus.PROCESSED, storedFile.getStatus());
+    }
+
+    @Test
+    void resumeEmbeddings_UnknownFile() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(fileRepository.existsById(fileId)).thenReturn(false);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> fileService.resumeEmbeddings(fileId));
+        verify(chunkService, never()).resumeEmbeddings(any());
+    }
+
+    @Test
+    void processBatch_RunsFilesConcurrentlyAndKeepsInputOrder() {
+        // Given
+        storeFilesInMemory();
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        when(chunkService.generateAndStoreChunkEmbeddings(any(), any(), any(), any())).thenAnswer(invocation -> {
+            bothRunning.countDown();
+            // Only returns true if the other file is being processed at the same time
+            return bothRunning.await(5, TimeUnit.SECONDS);
+        });
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "a.txt", "text/plain", "first file".getBytes()),
+                new MockMultipartFile("files", "b.txt", "text/plain", "second file".getBytes()));
+
+        // When
+        List<DocumentProcessingResult> results = fileService.processBatch(files, true);
+
+        // Then
+        assertEquals(List.of("a.txt", "b.txt"), results.stream().map(DocumentProcessingResult::getFileName).toList());
+        assertEquals(List.of(0, 1), results.stream().map(DocumentProcessingResult::getBatchIndex).toList());
+        assertTrue(results.stream().allMatch(result -> "SUCCESS".equals(result.getProcessingStatus())));
+        assertTrue(results.stream().allMatch(DocumentProcessingResult::isEmbeddingsGenerated));
+        assertTrue(results.stream().allMatch(result -> result.getFileId() != null));
+    }
+
+    @Test
+    void processBatch_FailureAndTimeoutOnlyAffectTheirOwnFile() throws Exception {
+        // Given
+        FileServiceImpl service = newFileService(Duration.ofMillis(200));
+        Map<UUID, FileEntity> stored = storeFilesInMemory();
+        CountDownLatch release = new CountDownLatch(1);
+        when(chunkService.generateAndStoreChunkEmbeddings(any(), any(), any(), any())).thenAnswer(invocation -> {
+            if ("slow.txt".equals(stored.get(invocation.<UUID>getArgument(1)).getFileName())) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return true;
+        });
+        MultipartFile broken = mock(MultipartFile.class);
+        when(broken.getOriginalFilename()).thenReturn("broken.txt");
+        when(broken.getBytes()).thenThrow(new IOException("unreadable upload"));
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "slow.txt", "text/plain", "slow file".getBytes()),
+                broken,
+                new MockMultipartFile("files", "fast.txt", "text/plain", "fast file".getBytes()));
+        List<String> delivered = new CopyOnWriteArrayList<>();
+
+        try {
+            // When
+            List<DocumentProcessingResult> results = service.processBatch(files, true,
+                    result -> delivered.add(result.getFileName()));
+
+            // Then
+            assertEquals(List.of("slow.txt", "broken.txt", "fast.txt"), results.stream().map(DocumentProcessingResult::getFileName).toList());
+            assertTrue(results.get(0).getProcessingStatus().startsWith("TIMEOUT"));
+            assertNotNull(results.get(0).getFileId());
+            assertTrue(results.get(1).getProcessingStatus().startsWith("FAILED:"));
+            assertEquals("SUCCESS", results.get(2).getProcessingStatus());
+            assertEquals(3, delivered.size());
+            assertNotEquals("slow.txt", delivered.get(0));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void processBatch_TimeoutStartsWhenTheFileStartsProcessing() throws Exception {
+        // Given
+        FileServiceImpl service = newFileService(1, Duration.ofMillis(300));
+        Map<UUID, FileEntity> stored = storeFilesInMemory();
+        CountDownLatch slowRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(chunkService.generateAndStoreChunkEmbeddings(any(), any(), any(), any())).thenAnswer(invocation -> {
+            if ("slow.txt".equals(stored.get(invocation.<UUID>getArgument(1)).getFileName())) {
+                slowRunning.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return true;
+        });
+        List<MultipartFile> slowBatch = List.of(new MockMultipartFile("files", "slow.txt", "text/plain", "slow file".getBytes()));
+        List<MultipartFile> queuedBatch = List.of(new MockMultipartFile("files", "queued.txt", "text/plain", "queued file".getBytes()));
+
+        try {
+            CompletableFuture<List<DocumentProcessingResult>> slowResults =
+                    CompletableFuture.supplyAsync(() -> service.processBatch(slowBatch, true));
+            assertTrue(slowRunning.await(5, TimeUnit.SECONDS));
+
+            // When
+            // The second request queues behind the first on the shared executor for longer than the timeout
+            CompletableFuture<List<DocumentProcessingResult>> queuedResults =
+                    CompletableFuture.supplyAsync(() -> service.processBatch(queuedBatch, true));
+            Thread.sleep(500);
+            release.countDown();
+
+            // Then
+            assertTrue(slowResults.get(5, TimeUnit.SECONDS).get(0).getProcessingStatus().startsWith("TIMEOUT"));
+            assertEquals("SUCCESS", queuedResults.get(5, TimeUnit.SECONDS).get(0).getProcessingStatus());
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    // Saved files get an id and can be looked up again, from any thread
+    private Map<UUID, FileEntity> storeFilesInMemory() {
+        Map<UUID, FileEntity> stored = new ConcurrentHashMap<>();
+        when(fileRepository.save(any(FileEntity.class))).thenAnswer(invocation -> {
+            FileEntity file = invocation.getArgument(0);
+            if (file.getFileId() == null) {
+                file.setFileId(UUID.randomUUID());
+            }
+            stored.put(file.getFileId(), file);
+            return file;
+        });
+        lenient().when(fileRepository.findById(any(UUID.class)))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.<UUID>getArgument(0))));
+        return stored;
+    }
+}
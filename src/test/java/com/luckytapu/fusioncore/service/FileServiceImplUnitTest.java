@@ -3,13 +3,15 @@ package com.luckytapu.fusioncore.service;
 import com.luckytapu.fusioncore.entity.FileEntity;
 import com.luckytapu.fusioncore.model.FileStatus;
 import com.luckytapu.fusioncore.repository.FileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.time.Duration;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,9 +30,19 @@ class FileServiceImplUnitTest {
     @Mock
     private VectorSearchService vectorSearchService;
 
-    @InjectMocks
     private FileServiceImpl fileService;
 
+    @BeforeEach
+    void setUp() {
+        fileService = new FileServiceImpl(fileRepository, null, null, vectorSearchService, chunkService,
+                Runnable::run, 1, Duration.ofMinutes(1), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileService.shutdown();
+    }
+
     @Test
     void saveFile_Success() throws Exception {
         // Given
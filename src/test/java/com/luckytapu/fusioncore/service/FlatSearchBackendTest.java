@@ -0,0 +1,72 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class FlatSearchBackendTest {
+
+    @Mock
+    private ChunkRepository chunkRepository;
+
+    @Mock
+    private ChunkEmbeddingRepository chunkEmbeddingRepository;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @TempDir
+    Path directory;
+
+    private FlatSearchBackend flatSearchBackend;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        flatSearchBackend = new FlatSearchBackend(chunkRepository, chunkEmbeddingRepository, fileRepository, "", directory, 1, 0.3);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        flatSearchBackend.closeIndex();
+    }
+
+    @Test
+    void onGenerationPublished_CompactsOnceDeadRecordsPassTheRatio() throws Exception {
+        // Given
+        UUID reindexedFile = UUID.randomUUID();
+        UUID otherFile = UUID.randomUUID();
+        flatSearchBackend.onGenerationPublished(generation(reindexedFile, 1L, new float[]{1f, 0f}));
+        flatSearchBackend.onGenerationPublished(generation(otherFile, 1L, new float[]{0f, 1f}));
+        FlatVectorIndex before = flatSearchBackend.index();
+
+        // When
+        flatSearchBackend.onGenerationPublished(generation(reindexedFile, 2L, new float[]{1f, 0.5f}));
+
+        // Then
+        assertNotSame(before, flatSearchBackend.index());
+        assertEquals(0.0, flatSearchBackend.index().deadRatio());
+        assertEquals(2, flatSearchBackend.index().size());
+        assertEquals(2L, flatSearchBackend.index().generationOf(reindexedFile));
+        assertFalse(Files.exists(directory.resolve(FlatVectorIndex.VECTORS_FILE)));
+        assertTrue(Files.exists(directory.resolve("compacted-0").resolve(FlatVectorIndex.VECTORS_FILE)));
+    }
+
+    private ChunkGenerationPublishedEvent generation(UUID fileId, long generation, float[] vector) {
+        return new ChunkGenerationPublishedEvent(fileId, generation, List.of(UUID.randomUUID()), List.of(EmbeddingCodec.toBytes(vector)));
+    }
+}
@@ -0,0 +1,285 @@
+package com.luckytapu.fusioncore.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatVectorIndexTest {
+
+    private static final int DIMENSIONS = 19;
+
+    private final Random random = new Random(7);
+
+    @TempDir
+    Path directory;
+
+    private FlatVectorIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = FlatVectorIndex.create(directory, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void search_MatchesBruteForceAcrossPartitions() throws Exception {
+        // Given
+        List<UUID> chunkIds = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            chunkIds.add(UUID.randomUUID());
+            vectors.add(randomVector());
+        }
+        UUID fileId = UUID.randomUUID();
+        index.append(fileId, 1, chunkIds, vectors);
+        index.publish();
+        float[] query = randomVector();
+
+        // When
+        List<VectorHit> hits = index.search(query, 10);
+
+        // Then
+        float[] normalizedQuery = EmbeddingCodec.normalize(query);
+        List<Integer> expected = IntStream.range(0, vectors.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> dot(normalizedQuery, EmbeddingCodec.normalize(vectors.get(i)))).reversed())
+                .limit(10)
+                .toList();
+        assertEquals(expected.stream().map(chunkIds::get).toList(), hits.stream().map(VectorHit::chunkId).toList());
+        assertEquals(fileId, hits.get(0).fileId());
+        assertEquals(dot(normalizedQuery, EmbeddingCodec.normalize(vectors.get(expected.get(0)))), hits.get(0).score(), 1e-4);
+    }
+
+    @Test
+    void append_WritesLittleEndianNormalizedVectors() throws Exception {
+        // Given
+        index.append(UUID.randomUUID(), 1, List.of(UUID.randomUUID()), List.of(new float[]{3f, 4f}));
+
+        // When
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(FlatVectorIndex.VECTORS_FILE))).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Then
+        assertEquals(8, bytes.remaining());
+        assertEquals(0.6f, bytes.getFloat(), 1e-6);
+        assertEquals(0.8f, bytes.getFloat(), 1e-6);
+    }
+
+    @Test
+    void search_NothingVisibleBeforePublish() throws Exception {
+        // Given
+        index.append(UUID.randomUUID(), 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+
+        // When & Then
+        assertTrue(index.search(randomVector(), 5).isEmpty());
+        index.publish();
+        assertEquals(1, index.search(randomVector(), 5).size());
+    }
+
+    @Test
+    void append_NewerGenerationSupersedesOlder() throws Exception {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        UUID newChunk = UUID.randomUUID();
+        float[] vector = randomVector();
+        index.append(fileId, 1, List.of(UUID.randomUUID()), List.of(vector));
+        index.publish();
+
+        // When
+        index.append(fileId, 2, List.of(newChunk), List.of(vector));
+        index.append(fileId, 1, List.of(UUID.randomUUID()), List.of(vector));
+        index.publish();
+
+        // Then
+        List<VectorHit> hits = index.search(vector, 5);
+        assertEquals(1, hits.size());
+        assertEquals(newChunk, hits.get(0).chunkId());
+        assertEquals(2, index.generationOf(fileId));
+    }
+
+    @Test
+    void removeFile_HidesItsVectors() throws Exception {
+        // Given
+        UUID removedFile = UUID.randomUUID();
+        UUID keptFile = UUID.randomUUID();
+        index.append(removedFile, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+        index.append(keptFile, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+        index.publish();
+
+        // When
+        index.removeFile(removedFile);
+
+        // Then
+        List<VectorHit> hits = index.search(randomVector(), 5);
+        assertEquals(1, hits.size());
+        assertEquals(keptFile, hits.get(0).fileId());
+    }
+
+    @Test
+    void restore_LoadsCompactedSnapshot(@TempDir Path snapshot) throws Exception {
+        // Given
+        UUID replacedFile = UUID.randomUUID();
+        UUID keptFile = UUID.randomUUID();
+        UUID currentChunk = UUID.randomUUID();
+        float[] vector = randomVector();
+        index.append(replacedFile, 1, List.of(UUID.randomUUID()), List.of(vector));
+        index.append(keptFile, 3, List.of(UUID.randomUUID(), UUID.randomUUID()), List.of(randomVector(), randomVector()));
+        index.publish();
+        index.append(replacedFile, 2, List.of(currentChunk), List.of(vector));
+        index.publish();
+        index.writeSnapshot(snapshot);
+
+        // When
+        try (FlatVectorIndex restored = FlatVectorIndex.create(directory.resolve("restored"), 2)) {
+            restored.restore(snapshot);
+
+            // Then
+            assertEquals(3, restored.size());
+            assertEquals(index.fileGenerations(), restored.fileGenerations());
+            assertEquals(currentChunk, restored.search(vector, 1).get(0).chunkId());
+            float[] query = randomVector();
+            assertEquals(index.search(query, 3), restored.search(query, 3));
+            assertEquals(index.searchFiles(query, List.of(keptFile), 3), restored.searchFiles(query, List.of(keptFile), 3));
+
+            restored.append(UUID.randomUUID(), 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+            restored.publish();
+            assertEquals(4, restored.size());
+        }
+    }
+
+    @Test
+    void compacted_KeepsOnlyLiveRecords() throws Exception {
+        // Given
+        UUID replacedFile = UUID.randomUUID();
+        UUID removedFile = UUID.randomUUID();
+        UUID keptFile = UUID.randomUUID();
+        UUID currentChunk = UUID.randomUUID();
+        float[] vector = randomVector();
+        index.append(replacedFile, 1, List.of(UUID.randomUUID()), List.of(vector));
+        index.append(removedFile, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+        index.append(keptFile, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+        index.publish();
+        index.append(replacedFile, 2, List.of(currentChunk), List.of(vector));
+        index.publish();
+        index.removeFile(removedFile);
+
+        // When
+        try (FlatVectorIndex compacted = index.compacted(directory.resolve("compacted"))) {
+
+            // Then
+            assertEquals(0.5, index.deadRatio(), 1e-9);
+            assertEquals(0.0, compacted.deadRatio());
+            assertEquals(2, compacted.size());
+            assertEquals(index.fileGenerations(), compacted.fileGenerations());
+            assertEquals(currentChunk, compacted.search(vector, 1).get(0).chunkId());
+            assertEquals(2L * vector.length * Float.BYTES,
+                    Files.size(directory.resolve("compacted").resolve(FlatVectorIndex.VECTORS_FILE)));
+        }
+    }
+
+    @Test
+    void searchFiles_ScoresOnlyCurrentVectorsOfRequestedFiles() throws Exception {
+        // Given
+        UUID wantedFile = UUID.randomUUID();
+        UUID otherFile = UUID.randomUUID();
+        UUID currentChunk = UUID.randomUUID();
+        float[] vector = randomVector();
+        index.append(wantedFile, 1, List.of(UUID.randomUUID()), List.of(vector));
+        index.append(otherFile, 1, List.of(UUID.randomUUID()), List.of(vector));
+        index.publish();
+        index.append(wantedFile, 2, List.of(currentChunk), List.of(vector));
+        index.append(wantedFile, 2, List.of(UUID.randomUUID()), List.of(randomVector()));
+        index.publish();
+
+        // When
+        List<VectorHit> hits = index.searchFiles(vector, List.of(wantedFile), 5);
+
+        // Then
+        assertEquals(2, hits.size());
+        assertEquals(currentChunk, hits.get(0).chunkId());
+        assertTrue(hits.stream().allMatch(hit -> hit.fileId().equals(wantedFile)));
+    }
+
+    @Test
+    void search_MinScoreReturnsOnlyHitsInRange() throws Exception {
+        // Given
+        List<UUID> chunkIds = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            chunkIds.add(UUID.randomUUID());
+            vectors.add(randomVector());
+        }
+        float[] query = randomVector();
+        chunkIds.add(UUID.randomUUID());
+        vectors.add(query.clone());
+        index.append(UUID.randomUUID(), 1, chunkIds, vectors);
+        index.publish();
+
+        // When
+        List<VectorHit> hits = index.search(query, 10, 0.9f);
+
+        // Then
+        assertEquals(List.of(chunkIds.get(500)), hits.stream().map(VectorHit::chunkId).toList());
+        assertTrue(index.searchFiles(query, List.of(UUID.randomUUID()), 10, 0.9f).isEmpty());
+    }
+
+    @Test
+    void append_RejectsMismatchedDimensions() throws Exception {
+        // Given
+        index.append(UUID.randomUUID(), 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> index.append(UUID.randomUUID(), 1, List.of(UUID.randomUUID()), List.of(new float[]{1f})));
+    }
+
+    @Test
+    void scalarDot_MatchesVectorizedDot() {
+        // Given
+        float[] stored = randomVector();
+        float[] query = randomVector();
+        MemorySegment segment = MemorySegment.ofArray(new byte[Float.BYTES * (DIMENSIONS + 1)]);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            segment.set(ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN), Float.BYTES * (i + 1L), stored[i]);
+        }
+
+        // When & Then
+        assertTrue(FlatVectorIndex.SIMD_AVAILABLE);
+        assertEquals(dot(stored, query), FlatVectorIndex.scalarDot(segment, Float.BYTES, query), 1e-4);
+        assertEquals(dot(stored, query), VectorizedDot.dot(segment, Float.BYTES, query), 1e-4);
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
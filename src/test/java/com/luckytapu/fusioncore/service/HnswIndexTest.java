@@ -0,0 +1,354 @@
+package com.luckytapu.fusioncore.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void search_RecallMatchesBruteForce() {
+        // Given
+        HnswIndex index = new HnswIndex(16, 100);
+        List<UUID> chunkIds = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            chunkIds.add(UUID.randomUUID());
+            vectors.add(randomVector());
+        }
+        index.addAll(UUID.randomUUID(), 1, chunkIds, vectors);
+
+        // When
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            Set<UUID> expected = bruteForce(query, chunkIds, vectors, 10);
+            for (VectorHit hit : index.search(query, 10, 64)) {
+                if (expected.contains(hit.chunkId())) {
+                    found++;
+                }
+            }
+        }
+
+        // Then
+        assertTrue(found >= queries * 10 * 0.9, "recall was " + found / (queries * 10.0));
+    }
+
+    @Test
+    void search_ScoresAreCosineSimilarity() {
+        // Given
+        HnswIndex index = new HnswIndex(16, 100);
+        UUID chunkId = UUID.randomUUID();
+        index.addAll(UUID.randomUUID(), 1, List.of(chunkId), List.of(new float[]{3f, 4f}));
+
+        // When
+        List<VectorHit> hits = index.search(new float[]{6f, 8f}, 1, 10);
+
+        // Then
+        assertEquals(chunkId, hits.get(0).chunkId());
+        assertEquals(1.0f, hits.get(0).score(), 1e-5);
+    }
+
+    @Test
+    void addAll_NewerGenerationReplacesFile() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID fileId = UUID.randomUUID();
+        UUID oldChunk = UUID.randomUUID();
+        UUID newChunk = UUID.randomUUID();
+        float[] vector = randomVector();
+        index.addAll(fileId, 1, List.of(oldChunk), List.of(vector));
+
+        // When
+        index.addAll(fileId, 2, List.of(newChunk), List.of(vector));
+
+        // Then
+        List<VectorHit> hits = index.search(vector, 5, 10);
+        assertEquals(1, hits.size());
+        assertEquals(newChunk, hits.get(0).chunkId());
+        assertEquals(2, index.generationOf(fileId));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void addAll_IgnoresStaleGeneration() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID fileId = UUID.randomUUID();
+        UUID currentChunk = UUID.randomUUID();
+        float[] vector = randomVector();
+        index.addAll(fileId, 3, List.of(currentChunk), List.of(vector));
+
+        // When
+        index.addAll(fileId, 2, List.of(UUID.randomUUID()), List.of(vector));
+
+        // Then
+        List<VectorHit> hits = index.search(vector, 5, 10);
+        assertEquals(1, hits.size());
+        assertEquals(currentChunk, hits.get(0).chunkId());
+    }
+
+    @Test
+    void addAll_SameGenerationAppends() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID fileId = UUID.randomUUID();
+        index.addAll(fileId, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+
+        // When
+        index.addAll(fileId, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+
+        // Then
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void compacted_KeepsOnlyCurrentNodes() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID replacedFile = UUID.randomUUID();
+        UUID keptFile = UUID.randomUUID();
+        UUID currentChunk = UUID.randomUUID();
+        float[] vector = randomVector();
+        index.addAll(replacedFile, 1, List.of(UUID.randomUUID(), UUID.randomUUID()), List.of(randomVector(), randomVector()));
+        index.addAll(keptFile, 4, List.of(UUID.randomUUID()), List.of(randomVector()));
+        index.addAll(replacedFile, 2, List.of(currentChunk), List.of(vector));
+        index.removeFile(UUID.randomUUID());
+
+        // When
+        HnswIndex compacted = index.compacted();
+
+        // Then
+        assertEquals(0.5, index.tombstoneRatio(), 1e-9);
+        assertEquals(0.0, compacted.tombstoneRatio());
+        assertEquals(2, compacted.size());
+        assertEquals(index.fileGenerations(), compacted.fileGenerations());
+        assertEquals(currentChunk, compacted.search(vector, 1, 16).get(0).chunkId());
+    }
+
+    @Test
+    void removeFile_HidesItsChunks() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID removedFile = UUID.randomUUID();
+        UUID keptFile = UUID.randomUUID();
+        index.addAll(removedFile, 1, List.of(UUID.randomUUID(), UUID.randomUUID()), List.of(randomVector(), randomVector()));
+        index.addAll(keptFile, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+
+        // When
+        index.removeFile(removedFile);
+
+        // Then
+        List<VectorHit> hits = index.search(randomVector(), 10, 10);
+        assertEquals(1, hits.size());
+        assertEquals(keptFile, hits.get(0).fileId());
+    }
+
+    @Test
+    void restoreFrom_ReproducesSnapshottedIndex(@TempDir Path directory) throws Exception {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID replacedFile = UUID.randomUUID();
+        UUID keptFile = UUID.randomUUID();
+        index.addAll(replacedFile, 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+        index.addAll(replacedFile, 2, List.of(UUID.randomUUID()), List.of(randomVector()));
+        List<UUID> chunkIds = IntStream.range(0, 200).mapToObj(i -> UUID.randomUUID()).toList();
+        index.addAll(keptFile, 7, chunkIds, IntStream.range(0, 200).mapToObj(i -> randomVector()).toList());
+        Path file = directory.resolve("hnsw.bin");
+        index.writeTo(file);
+
+        // When
+        HnswIndex restored = new HnswIndex(8, 50);
+        restored.restoreFrom(file);
+
+        // Then
+        assertEquals(index.size(), restored.size());
+        assertEquals(index.fileGenerations(), restored.fileGenerations());
+        float[] query = randomVector();
+        assertEquals(index.search(query, 10, 20), restored.search(query, 10, 20));
+    }
+
+    @Test
+    void restoreFrom_RejectsDifferentM(@TempDir Path directory) throws Exception {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        index.addAll(UUID.randomUUID(), 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+        Path file = directory.resolve("hnsw.bin");
+        index.writeTo(file);
+
+        // When & Then
+        HnswIndex restored = new HnswIndex(16, 50);
+        assertThrows(java.io.IOException.class, () -> restored.restoreFrom(file));
+        assertEquals(0, restored.size());
+    }
+
+    @Test
+    void searchFiles_ScoresOnlyRequestedFiles() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID wantedFile = UUID.randomUUID();
+        UUID otherFile = UUID.randomUUID();
+        UUID bestChunk = UUID.randomUUID();
+        index.addAll(wantedFile, 1, List.of(UUID.randomUUID()), List.of(new float[]{0f, 1f}));
+        index.addAll(wantedFile, 2, List.of(bestChunk, UUID.randomUUID()), List.of(new float[]{1f, 0.2f}, new float[]{0.2f, 1f}));
+        index.addAll(otherFile, 1, List.of(UUID.randomUUID()), List.of(new float[]{1f, 0f}));
+
+        // When
+        List<VectorHit> hits = index.searchFiles(new float[]{1f, 0f}, List.of(wantedFile), 5, 64);
+
+        // Then
+        assertEquals(2, hits.size());
+        assertEquals(bestChunk, hits.get(0).chunkId());
+        assertTrue(hits.stream().allMatch(hit -> hit.fileId().equals(wantedFile)));
+    }
+
+    @Test
+    void searchFiles_BroadFilterWalksGraphWithinAllowedFiles() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 100);
+        List<UUID> allowedFiles = new ArrayList<>();
+        List<UUID> allowedChunks = new ArrayList<>();
+        List<float[]> allowedVectors = new ArrayList<>();
+        for (int f = 0; f < 4; f++) {
+            UUID fileId = UUID.randomUUID();
+            List<UUID> chunkIds = new ArrayList<>();
+            List<float[]> vectors = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                chunkIds.add(UUID.randomUUID());
+                vectors.add(randomVector());
+            }
+            index.addAll(fileId, 1, chunkIds, vectors);
+            if (f < 3) {
+                allowedFiles.add(fileId);
+                allowedChunks.addAll(chunkIds);
+                allowedVectors.addAll(vectors);
+            }
+        }
+
+        // When
+        int found = 0;
+        int queries = 30;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            Set<UUID> expected = bruteForce(query, allowedChunks, allowedVectors, 10);
+            List<VectorHit> hits = index.searchFiles(query, allowedFiles, 10, 40);
+            assertTrue(hits.stream().allMatch(hit -> allowedFiles.contains(hit.fileId())));
+            for (VectorHit hit : hits) {
+                if (expected.contains(hit.chunkId())) {
+                    found++;
+                }
+            }
+        }
+
+        // Then
+        assertTrue(found >= queries * 10 * 0.9, "recall was " + found / (queries * 10.0));
+    }
+
+    @Test
+    void search_MinScoreDropsDistantHits() {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        UUID closeChunk = UUID.randomUUID();
+        index.addAll(UUID.randomUUID(), 1, List.of(closeChunk, UUID.randomUUID(), UUID.randomUUID()),
+                List.of(new float[]{1f, 0.1f}, new float[]{0f, 1f}, new float[]{-1f, 0f}));
+
+        // When
+        List<VectorHit> hits = index.search(new float[]{1f, 0f}, 10, 20, 0.9f);
+        List<VectorHit> none = index.search(new float[]{0f, -1f}, 10, 20, 0.9f);
+
+        // Then
+        assertEquals(1, hits.size());
+        assertEquals(closeChunk, hits.get(0).chunkId());
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    void search_EmptyIndex() {
+        assertTrue(new HnswIndex(8, 50).search(randomVector(), 5, 10).isEmpty());
+    }
+
+    @Test
+    void search_ConcurrentWithInserts() throws Exception {
+        // Given
+        HnswIndex index = new HnswIndex(8, 50);
+        index.addAll(UUID.randomUUID(), 1, List.of(UUID.randomUUID()), List.of(randomVector()));
+        List<float[]> batch = IntStream.range(0, 1000).mapToObj(i -> randomVector()).toList();
+        List<UUID> batchIds = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID()).toList();
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < batch.size(); i += 100) {
+                    index.addAll(UUID.randomUUID(), 1, batchIds.subList(i, i + 100), batch.subList(i, i + 100));
+                }
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                float[] query = randomVector();
+                readers.add(executor.submit(() -> {
+                    while (!writer.isDone()) {
+                        assertFalse(index.search(query, 5, 20).isEmpty());
+                    }
+                }));
+            }
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertEquals(1001, index.size());
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        synchronized (random) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vector;
+    }
+
+    private Set<UUID> bruteForce(float[] query, List<UUID> chunkIds, List<float[]> vectors, int k) {
+        float[] normalizedQuery = EmbeddingCodec.normalize(query);
+        List<Integer> order = new ArrayList<>(IntStream.range(0, vectors.size()).boxed().toList());
+        order.sort(Comparator.comparingDouble((Integer i) -> dot(normalizedQuery, EmbeddingCodec.normalize(vectors.get(i)))).reversed());
+        Set<UUID> top = new HashSet<>();
+        for (int i = 0; i < k; i++) {
+            top.add(chunkIds.get(order.get(i)));
+        }
+        return top;
+    }
+
+    private float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,364 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.SearchFilter;
+import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
+import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.ChunkTextView;
+import com.luckytapu.fusioncore.repository.EmbeddingView;
+import com.luckytapu.fusioncore.repository.FileGenerationView;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.IndexedFileView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HnswSearchBackendTest {
+
+    private final SpelAwareProxyProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+
+    @Mock
+    private ChunkRepository chunkRepository;
+
+    @Mock
+    private ChunkEmbeddingRepository chunkEmbeddingRepository;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @TempDir
+    Path snapshotDirectory;
+
+    private HnswSearchBackend hnswSearchBackend;
+
+    @BeforeEach
+    void setUp() {
+        hnswSearchBackend = new HnswSearchBackend(chunkRepository, chunkEmbeddingRepository, fileRepository, "", 8, 50, 20, 0.3);
+    }
+
+    @Test
+    void loadIndex_AddsActiveEmbeddingsPerFile() {
+        // Given
+        UUID firstFile = UUID.randomUUID();
+        UUID secondFile = UUID.randomUUID();
+        when(chunkEmbeddingRepository.streamActiveEmbeddings()).thenReturn(Stream.of(
+                embedding(firstFile, 2L, new float[]{1f, 0f}),
+                embedding(firstFile, 2L, new float[]{0f, 1f}),
+                embedding(secondFile, 5L, new float[]{1f, 1f})
+        ));
+
+        // When
+        hnswSearchBackend.loadIndex();
+
+        // Then
+        assertEquals(3, hnswSearchBackend.index().size());
+        assertEquals(2L, hnswSearchBackend.index().generationOf(firstFile));
+        assertEquals(5L, hnswSearchBackend.index().generationOf(secondFile));
+    }
+
+    @Test
+    void loadIndex_RestoresSnapshotAndReplaysChangedFiles() throws Exception {
+        // Given
+        UUID unchangedFile = UUID.randomUUID();
+        UUID changedFile = UUID.randomUUID();
+        UUID removedFile = UUID.randomUUID();
+        HnswSearchBackend previous = backendWithSnapshots();
+        when(chunkEmbeddingRepository.streamActiveEmbeddings()).thenReturn(Stream.of(
+                embedding(unchangedFile, 1L, new float[]{1f, 0f}),
+                embedding(changedFile, 1L, new float[]{0f, 1f}),
+                embedding(removedFile, 4L, new float[]{1f, 1f})
+        ));
+        previous.loadIndex();
+        previous.shutdown();
+
+        when(fileRepository.findIndexedGenerations()).thenReturn(List.of(
+                fileGeneration(unchangedFile, 1L),
+                fileGeneration(changedFile, 2L)
+        ));
+        when(chunkEmbeddingRepository.streamActiveEmbeddings(List.of(changedFile))).thenReturn(Stream.of(
+                embedding(changedFile, 2L, new float[]{0f, 1f}),
+                embedding(changedFile, 2L, new float[]{0.5f, 1f})
+        ));
+        HnswSearchBackend restarted = backendWithSnapshots();
+
+        // When
+        restarted.loadIndex();
+
+        // Then
+        verify(chunkEmbeddingRepository, times(1)).streamActiveEmbeddings();
+        assertEquals(3, restarted.index().size());
+        assertEquals(1L, restarted.index().generationOf(unchangedFile));
+        assertEquals(2L, restarted.index().generationOf(changedFile));
+        assertEquals(-1L, restarted.index().generationOf(removedFile));
+    }
+
+    @Test
+    void snapshot_SkippedWhenNothingChanged() throws Exception {
+        // Given
+        HnswSearchBackend backend = backendWithSnapshots();
+        when(chunkEmbeddingRepository.streamActiveEmbeddings()).thenReturn(Stream.of(
+                embedding(UUID.randomUUID(), 1L, new float[]{1f, 0f})));
+        backend.loadIndex();
+        backend.snapshot();
+        String written = Files.readString(snapshotDirectory.resolve("CURRENT"));
+
+        // When
+        backend.snapshot();
+
+        // Then
+        assertEquals(written, Files.readString(snapshotDirectory.resolve("CURRENT")));
+    }
+
+    @Test
+    void onGenerationPublished_CompactsOnceTombstonesPassTheRatio() {
+        // Given
+        UUID reindexedFile = UUID.randomUUID();
+        UUID otherFile = UUID.randomUUID();
+        hnswSearchBackend.onGenerationPublished(generation(reindexedFile, 1L, new float[]{1f, 0f}));
+        hnswSearchBackend.onGenerationPublished(generation(otherFile, 1L, new float[]{0f, 1f}));
+        HnswIndex before = hnswSearchBackend.index();
+
+        // When
+        hnswSearchBackend.onGenerationPublished(generation(reindexedFile, 2L, new float[]{1f, 0.5f}));
+
+        // Then
+        assertNotSame(before, hnswSearchBackend.index());
+        assertEquals(0.0, hnswSearchBackend.index().tombstoneRatio());
+        assertEquals(2, hnswSearchBackend.index().size());
+        assertEquals(2L, hnswSearchBackend.index().generationOf(reindexedFile));
+    }
+
+    @Test
+    void onIndexedGenerationsChanged_ReplaysFilesChangedElsewhere() {
+        // Given
+        UUID unchangedFile = UUID.randomUUID();
+        UUID changedFile = UUID.randomUUID();
+        UUID deletedFile = UUID.randomUUID();
+        hnswSearchBackend.onGenerationPublished(generation(unchangedFile, 1L, new float[]{1f, 0f}));
+        hnswSearchBackend.onGenerationPublished(generation(changedFile, 1L, new float[]{0f, 1f}));
+        hnswSearchBackend.onGenerationPublished(generation(deletedFile, 1L, new float[]{1f, 1f}));
+        when(fileRepository.findIndexedGenerations()).thenReturn(List.of(
+                fileGeneration(unchangedFile, 1L),
+                fileGeneration(changedFile, 2L)));
+        when(chunkEmbeddingRepository.streamActiveEmbeddings(List.of(changedFile))).thenReturn(Stream.of(
+                embedding(changedFile, 2L, new float[]{0.5f, 1f})));
+        when(fileRepository.findIndexedFiles(List.of(changedFile))).thenReturn(List.of(
+                indexedFile(changedFile, "text/plain", new float[]{0.5f, 1f})));
+
+        // When
+        hnswSearchBackend.onIndexedGenerationsChanged(new IndexedGenerationsChangedEvent(2));
+
+        // Then
+        assertEquals(1L, hnswSearchBackend.index().generationOf(unchangedFile));
+        assertEquals(2L, hnswSearchBackend.index().generationOf(changedFile));
+        assertEquals(-1L, hnswSearchBackend.index().generationOf(deletedFile));
+        assertFalse(hnswSearchBackend.nearestDocuments(new float[]{1f, 1f}, 5).contains(deletedFile));
+    }
+
+    @Test
+    void onGenerationPublished_SkipsGenerationAlreadySynced() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(fileRepository.findIndexedGenerations()).thenReturn(List.of(fileGeneration(fileId, 1L)));
+        when(chunkEmbeddingRepository.streamActiveEmbeddings(List.of(fileId))).thenReturn(Stream.of(
+                embedding(fileId, 1L, new float[]{1f, 0f})));
+        hnswSearchBackend.onIndexedGenerationsChanged(new IndexedGenerationsChangedEvent(1));
+
+        // When
+        hnswSearchBackend.onGenerationPublished(generation(fileId, 1L, new float[]{1f, 0f}));
+
+        // Then
+        assertEquals(1, hnswSearchBackend.index().size());
+    }
+
+    @Test
+    void nearestDocuments_RanksLoadedAndPublishedCentroids() {
+        // Given
+        UUID loadedFile = UUID.randomUUID();
+        UUID publishedFile = UUID.randomUUID();
+        when(chunkEmbeddingRepository.streamActiveEmbeddings()).thenReturn(Stream.empty());
+        when(fileRepository.streamIndexedFiles()).thenReturn(Stream.of(indexedFile(loadedFile, "text/plain", new float[]{0f, 1f})));
+        hnswSearchBackend.loadIndex();
+        hnswSearchBackend.onGenerationPublished(generation(publishedFile, 1L, new float[]{1f, 0.1f}));
+
+        // When
+        List<UUID> nearest = hnswSearchBackend.nearestDocuments(new float[]{1f, 0f}, 2);
+
+        // Then
+        assertEquals(List.of(publishedFile, loadedFile), nearest);
+        assertEquals(List.of(publishedFile), hnswSearchBackend.nearestDocuments(new float[]{1f, 0f}, 1));
+        verify(fileRepository, never()).findNearestDocuments(any(), anyInt());
+    }
+
+    @Test
+    void searchMatching_FiltersOnHeldFileAttributes() {
+        // Given
+        UUID textFile = UUID.randomUUID();
+        UUID pdfFile = UUID.randomUUID();
+        UUID textChunk = UUID.randomUUID();
+        when(chunkEmbeddingRepository.streamActiveEmbeddings()).thenReturn(Stream.of(
+                embedding(textFile, textChunk, new float[]{0f, 1f}),
+                embedding(pdfFile, UUID.randomUUID(), new float[]{1f, 0f})));
+        when(fileRepository.streamIndexedFiles()).thenReturn(Stream.of(
+                indexedFile(textFile, "text/plain", new float[]{0f, 1f}),
+                indexedFile(pdfFile, "application/pdf", new float[]{1f, 0f})));
+        hnswSearchBackend.loadIndex();
+        when(chunkRepository.findChunkTexts(anyCollection(), anyCollection()))
+                .thenReturn(List.of(chunkText(textChunk, textFile, "text", 0)));
+
+        // When
+        List<SearchResult> results = hnswSearchBackend.searchMatching(new float[]{1f, 0f},
+                SearchFilter.builder().fileType("text/plain").build(), 5, -1);
+
+        // Then
+        assertEquals(List.of(textFile), results.stream().map(SearchResult::getFileId).toList());
+        verify(chunkRepository).findChunkTexts(Set.of(textFile), Set.of(textChunk));
+    }
+
+    @Test
+    void searchMatching_LeavesOutTheExcludedFile() {
+        // Given
+        UUID sourceFile = UUID.randomUUID();
+        UUID otherFile = UUID.randomUUID();
+        UUID otherChunk = UUID.randomUUID();
+        when(chunkEmbeddingRepository.streamActiveEmbeddings()).thenReturn(Stream.of(
+                embedding(sourceFile, UUID.randomUUID(), new float[]{1f, 0f}),
+                embedding(otherFile, otherChunk, new float[]{0f, 1f})));
+        when(fileRepository.streamIndexedFiles()).thenReturn(Stream.of(
+                indexedFile(sourceFile, "text/plain", new float[]{1f, 0f}),
+                indexedFile(otherFile, "text/plain", new float[]{0f, 1f})));
+        hnswSearchBackend.loadIndex();
+        when(chunkRepository.findChunkTexts(anyCollection(), anyCollection()))
+                .thenReturn(List.of(chunkText(otherChunk, otherFile, "text", 0)));
+
+        // When
+        List<SearchResult> results = hnswSearchBackend.searchMatching(new float[]{1f, 0f},
+                SearchFilter.builder().excludedFileId(sourceFile).build(), 5, -1);
+
+        // Then
+        assertEquals(List.of(otherFile), results.stream().map(SearchResult::getFileId).toList());
+        verify(chunkRepository).findChunkTexts(Set.of(otherFile), Set.of(otherChunk));
+    }
+
+    @Test
+    void search_HydratesHitsInRankOrder() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        UUID nearChunk = UUID.randomUUID();
+        UUID farChunk = UUID.randomUUID();
+        hnswSearchBackend.onGenerationPublished(new ChunkGenerationPublishedEvent(fileId, 1L,
+                List.of(farChunk, nearChunk),
+                List.of(EmbeddingCodec.toBytes(new float[]{0f, 1f}), EmbeddingCodec.toBytes(new float[]{1f, 0f}))));
+        when(chunkRepository.findChunkTexts(anyCollection(), anyCollection())).thenReturn(List.of(
+                chunkText(farChunk, fileId, "far", 1),
+                chunkText(nearChunk, fileId, "near", 0)
+        ));
+
+        // When
+        List<SearchResult> results = hnswSearchBackend.search(new float[]{1f, 0.1f}, 2, -1);
+
+        // Then
+        assertEquals(2, results.size());
+        assertEquals("near", results.get(0).getChunkText());
+        assertEquals("far", results.get(1).getChunkText());
+        assertTrue(results.get(0).getSimilarityScore() > results.get(1).getSimilarityScore());
+        assertEquals("test.txt", results.get(0).getFileName());
+    }
+
+    @Test
+    void search_DropsChunksMissingFromDatabase() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        hnswSearchBackend.onGenerationPublished(new ChunkGenerationPublishedEvent(fileId, 1L,
+                List.of(UUID.randomUUID()), List.of(EmbeddingCodec.toBytes(new float[]{1f, 0f}))));
+        when(chunkRepository.findChunkTexts(anyCollection(), anyCollection())).thenReturn(List.of());
+
+        // When
+        List<SearchResult> results = hnswSearchBackend.search(new float[]{1f, 0f}, 5, -1);
+
+        // Then
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    void search_EmptyIndexSkipsDatabase() {
+        // When
+        List<SearchResult> results = hnswSearchBackend.search(new float[]{1f, 0f}, 5, -1);
+
+        // Then
+        assertTrue(results.isEmpty());
+        verify(chunkRepository, never()).findChunkTexts(any(), any());
+    }
+
+    private ChunkGenerationPublishedEvent generation(UUID fileId, long generation, float[] vector) {
+        return new ChunkGenerationPublishedEvent(fileId, generation, List.of(UUID.randomUUID()), List.of(EmbeddingCodec.toBytes(vector)));
+    }
+
+    private HnswSearchBackend backendWithSnapshots() {
+        return new HnswSearchBackend(chunkRepository, chunkEmbeddingRepository, fileRepository, snapshotDirectory.toString(), 8, 50, 20, 0.3);
+    }
+
+    private FileGenerationView fileGeneration(UUID fileId, long generation) {
+        return projections.createProjection(FileGenerationView.class, Map.of(
+                "fileId", fileId,
+                "activeGeneration", generation
+        ));
+    }
+
+    private IndexedFileView indexedFile(UUID fileId, String fileType, float[] vector) {
+        return projections.createProjection(IndexedFileView.class, Map.of(
+                "fileId", fileId,
+                "fileType", fileType,
+                "createdDate", LocalDateTime.now(),
+                "strategy", "character",
+                "vectorData", EmbeddingCodec.toBytes(vector)
+        ));
+    }
+
+    private EmbeddingView embedding(UUID fileId, UUID chunkId, float[] vector) {
+        return projections.createProjection(EmbeddingView.class, Map.of(
+                "chunkId", chunkId,
+                "fileId", fileId,
+                "generation", 1L,
+                "embedding", EmbeddingCodec.toBytes(vector)
+        ));
+    }
+
+    private EmbeddingView embedding(UUID fileId, long generation, float[] vector) {
+        return projections.createProjection(EmbeddingView.class, Map.of(
+                "chunkId", UUID.randomUUID(),
+                "fileId", fileId,
+                "generation", generation,
+                "embedding", EmbeddingCodec.toBytes(vector)
+        ));
+    }
+
+    private ChunkTextView chunkText(UUID chunkId, UUID fileId, String text, int chunkIndex) {
+        return projections.createProjection(ChunkTextView.class, Map.of(
+                "chunkId", chunkId,
+                "fileId", fileId,
+                "fileName", "test.txt",
+                "text", text,
+                "chunkIndex", chunkIndex
+        ));
+    }
+}
@@ -0,0 +1,124 @@
+package com.luckytapu.fusioncore.service;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportSourceTest {
+
+    private static final Map<String, String> DOCUMENTS = new LinkedHashMap<>();
+
+    static {
+        DOCUMENTS.put("a.txt", "first document");
+        DOCUMENTS.put("nested/b.txt", "second, longer document");
+        DOCUMENTS.put("nested/c.pdf", "third");
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_DirectoryYieldsFilesInPathOrderWithRelativeNames() throws Exception {
+        // Given
+        Path source = Files.createDirectory(directory.resolve("corpus"));
+        for (Map.Entry<String, String> document : DOCUMENTS.entrySet()) {
+            Path file = source.resolve(document.getKey());
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, document.getValue());
+        }
+
+        // When & Then
+        assertEquals(DOCUMENTS, readAll(source));
+        assertEquals(new ImportSource.Totals(3, 42), ImportSource.scan(source));
+    }
+
+    @Test
+    void open_ZipStreamsEntriesAndSkipsDirectories() throws Exception {
+        // Given
+        Path zip = directory.resolve("corpus.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("nested/"));
+            out.closeEntry();
+            for (Map.Entry<String, String> document : DOCUMENTS.entrySet()) {
+                out.putNextEntry(new ZipEntry(document.getKey()));
+                out.write(document.getValue().getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        // When & Then
+        assertTrue(ImportSource.isSupported(zip));
+        assertEquals(DOCUMENTS, readAll(zip));
+        assertEquals(new ImportSource.Totals(3, 42), ImportSource.scan(zip));
+    }
+
+    @Test
+    void open_TarGzStreamsEntries() throws Exception {
+        // Given
+        Path tgz = directory.resolve("corpus.tar.gz");
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(new GzipCompressorOutputStream(Files.newOutputStream(tgz)))) {
+            for (Map.Entry<String, String> document : DOCUMENTS.entrySet()) {
+                byte[] bytes = document.getValue().getBytes(StandardCharsets.UTF_8);
+                TarArchiveEntry entry = new TarArchiveEntry(document.getKey());
+                entry.setSize(bytes.length);
+                out.putArchiveEntry(entry);
+                out.write(bytes);
+                out.closeArchiveEntry();
+            }
+        }
+
+        // When & Then
+        assertEquals(DOCUMENTS, readAll(tgz));
+        assertEquals(new ImportSource.Totals(3, 42), ImportSource.scan(tgz));
+    }
+
+    @Test
+    void open_DirectorySkipsSymlinks() throws Exception {
+        // Given
+        Path source = Files.createDirectory(directory.resolve("corpus"));
+        Files.writeString(source.resolve("a.txt"), "first document");
+        Path secret = Files.writeString(directory.resolve("secret.txt"), "outside the source");
+        Files.createSymbolicLink(source.resolve("link.txt"), secret);
+
+        // When & Then
+        assertEquals(Map.of("a.txt", "first document"), readAll(source));
+    }
+
+    @Test
+    void isSupported_RejectsPlainFilesAndMissingPaths() throws Exception {
+        // Given
+        Path plain = Files.writeString(directory.resolve("notes.txt"), "not an archive");
+
+        // When & Then
+        assertFalse(ImportSource.isSupported(plain));
+        assertFalse(ImportSource.isSupported(directory.resolve("missing.zip")));
+        assertThrows(IOException.class, () -> ImportSource.open(plain));
+    }
+
+    private Map<String, String> readAll(Path path) throws IOException {
+        Map<String, String> documents = new LinkedHashMap<>();
+        try (ImportSource source = ImportSource.open(path)) {
+            ImportSource.Entry entry;
+            while ((entry = source.next()) != null) {
+                // Closing an entry's stream must not end the archive
+                try (var content = entry.content()) {
+                    documents.put(entry.name(), new String(content.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,86 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.repository.FileGenerationView;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexGenerationWatcherTest {
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private IndexGenerationWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        watcher = new IndexGenerationWatcher(fileRepository, eventPublisher, true);
+    }
+
+    @Test
+    void poll_PublishesOnlyWhenGenerationsChange() {
+        // Given
+        UUID firstFile = UUID.randomUUID();
+        UUID secondFile = UUID.randomUUID();
+        when(fileRepository.findIndexedGenerations()).thenReturn(
+                List.of(fileGeneration(firstFile, 1L), fileGeneration(secondFile, 1L)),
+                List.of(fileGeneration(firstFile, 1L), fileGeneration(secondFile, 1L)),
+                List.of(fileGeneration(firstFile, 2L)));
+
+        // When
+        watcher.poll();
+        watcher.poll();
+        watcher.poll();
+
+        // Then - both files are new at first, then one is re-indexed and the other deleted
+        verify(eventPublisher, times(2)).publishEvent(any(IndexedGenerationsChangedEvent.class));
+        verify(eventPublisher, times(2)).publishEvent(new IndexedGenerationsChangedEvent(2));
+    }
+
+    @Test
+    void poll_DisabledSkipsDatabase() {
+        // Given
+        watcher = new IndexGenerationWatcher(fileRepository, eventPublisher, false);
+
+        // When
+        watcher.poll();
+
+        // Then
+        verifyNoInteractions(fileRepository, eventPublisher);
+    }
+
+    @Test
+    void poll_FailureIsLoggedNotThrown() {
+        // Given
+        when(fileRepository.findIndexedGenerations()).thenThrow(new RuntimeException("connection refused"));
+
+        // When
+        watcher.poll();
+
+        // Then
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private FileGenerationView fileGeneration(UUID fileId, long generation) {
+        return new SpelAwareProxyProjectionFactory().createProjection(FileGenerationView.class, Map.of(
+                "fileId", fileId,
+                "activeGeneration", generation
+        ));
+    }
+}
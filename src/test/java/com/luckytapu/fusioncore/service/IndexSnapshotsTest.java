@@ -0,0 +1,58 @@
+package com.luckytapu.fusioncore.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSnapshotsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void latest_EmptyBeforeFirstSnapshot() throws Exception {
+        assertTrue(new IndexSnapshots(directory).latest().isEmpty());
+    }
+
+    @Test
+    void write_SwitchesLatestAndRemovesOlderSnapshots() throws Exception {
+        // Given
+        IndexSnapshots snapshots = new IndexSnapshots(directory);
+        Path first = snapshots.write(target -> Files.writeString(target.resolve("data"), "first"));
+
+        // When
+        Path second = snapshots.write(target -> Files.writeString(target.resolve("data"), "second"));
+
+        // Then
+        assertEquals(Optional.of(second), snapshots.latest());
+        assertEquals("second", Files.readString(second.resolve("data")));
+        assertFalse(Files.exists(first));
+    }
+
+    @Test
+    void write_FailureKeepsPreviousSnapshot() throws Exception {
+        // Given
+        IndexSnapshots snapshots = new IndexSnapshots(directory);
+        Path first = snapshots.write(target -> Files.writeString(target.resolve("data"), "first"));
+
+        // When
+        assertThrows(IOException.class, () -> snapshots.write(target -> {
+            Files.writeString(target.resolve("data"), "partial");
+            throw new IOException("Disk full");
+        }));
+
+        // Then
+        assertEquals(Optional.of(first), snapshots.latest());
+        assertEquals("first", Files.readString(first.resolve("data")));
+        try (Stream<Path> entries = Files.list(directory)) {
+            assertEquals(1, entries.filter(Files::isDirectory).filter(path -> !path.toString().endsWith(".tmp")).count());
+        }
+    }
+}
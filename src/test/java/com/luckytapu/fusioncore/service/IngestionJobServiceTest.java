@@ -0,0 +1,165 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import com.luckytapu.fusioncore.repository.IngestionJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionJobServiceTest {
+
+    @Mock
+    private IngestionJobRepository jobRepository;
+
+    @Mock
+    private FileService fileService;
+
+    private IngestionJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        jobService = new IngestionJobService(jobRepository, fileService, Duration.ofMinutes(10), 3);
+    }
+
+    @Test
+    void submit_SavesFileBeforeQueueingJob() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "test content".getBytes());
+        UUID fileId = UUID.randomUUID();
+        when(fileService.saveFile(file)).thenReturn(FileEntity.builder().fileId(fileId).build());
+        when(jobRepository.save(any(IngestionJobEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        IngestionJobEntity job = jobService.submit(file, false);
+
+        // Then
+        assertEquals(fileId, job.getFileId());
+        assertEquals(IngestionJobStatus.QUEUED, job.getStatus());
+        assertFalse(job.isGenerateEmbeddings());
+    }
+
+    @Test
+    void submit_IdenticalProcessedContentCompletesWithoutSaving() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "copy.txt", "text/plain", "test content".getBytes());
+        UUID existingId = UUID.randomUUID();
+        when(fileService.findProcessedCopy(file.getBytes(), true)).thenReturn(Optional.of(existingId));
+        when(jobRepository.save(any(IngestionJobEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        IngestionJobEntity job = jobService.submit(file, true);
+
+        // Then
+        assertEquals(existingId, job.getFileId());
+        assertEquals(IngestionJobStatus.SUCCEEDED, job.getStatus());
+        assertEquals(100, job.getProgress());
+        assertNotNull(job.getCompletedDate());
+        verify(fileService, never()).saveFile(any());
+    }
+
+    @Test
+    void claim_LeasesLockedJobsToWorker() {
+        // Given
+        IngestionJobEntity job = job(UUID.randomUUID(), 0);
+        job.setStatus(IngestionJobStatus.QUEUED);
+        when(jobRepository.lockClaimableJobs(any(), eq(2))).thenReturn(List.of(job));
+
+        // When
+        List<IngestionJobEntity> claimed = jobService.claim("node-a", 2);
+
+        // Then
+        assertEquals(List.of(job), claimed);
+        ArgumentCaptor<LocalDateTime> staleBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(jobRepository).lockClaimableJobs(staleBefore.capture(), eq(2));
+        assertTrue(staleBefore.getValue().isBefore(LocalDateTime.now().minusMinutes(9)));
+        assertEquals(IngestionJobStatus.RUNNING, job.getStatus());
+        assertEquals("node-a", job.getLockedBy());
+        assertNotNull(job.getLockedAt());
+        assertEquals(1, job.getAttempts());
+    }
+
+    @Test
+    void claim_FailsJobsOutOfAttempts() {
+        // Given
+        IngestionJobEntity job = job(UUID.randomUUID(), 3);
+        when(jobRepository.lockClaimableJobs(any(), anyInt())).thenReturn(List.of(job));
+
+        // When
+        List<IngestionJobEntity> claimed = jobService.claim("node-a", 2);
+
+        // Then
+        assertTrue(claimed.isEmpty());
+        assertEquals(IngestionJobStatus.FAILED, job.getStatus());
+        assertNotNull(job.getCompletedDate());
+    }
+
+    @Test
+    void claim_NoIdleThreads_SkipsQuery() {
+        // When
+        List<IngestionJobEntity> claimed = jobService.claim("node-a", 0);
+
+        // Then
+        assertTrue(claimed.isEmpty());
+        verifyNoInteractions(jobRepository);
+    }
+
+    @Test
+    void retryOrFail_RequeuesUntilAttemptsRunOut() {
+        // Given
+        IngestionJobEntity retryable = job(UUID.randomUUID(), 2);
+        IngestionJobEntity exhausted = job(UUID.randomUUID(), 3);
+        when(jobRepository.requeue(any(), anyString(), anyString())).thenReturn(1);
+        when(jobRepository.finish(any(), anyString(), any(), anyString(), any())).thenReturn(1);
+
+        // When
+        jobService.retryOrFail(retryable, "node-a", "timeout");
+        jobService.retryOrFail(exhausted, "node-a", "timeout");
+
+        // Then
+        verify(jobRepository).requeue(retryable.getJobId(), "node-a", "timeout");
+        verify(jobRepository).finish(eq(exhausted.getJobId()), eq("node-a"), eq(IngestionJobStatus.FAILED), eq("timeout"), any());
+    }
+
+    @Test
+    void fail_TruncatesLongErrors() {
+        // Given
+        UUID jobId = UUID.randomUUID();
+
+        // When
+        jobService.fail(jobId, "node-a", "x".repeat(5000));
+
+        // Then
+        ArgumentCaptor<String> error = ArgumentCaptor.forClass(String.class);
+        verify(jobRepository).finish(eq(jobId), eq("node-a"), eq(IngestionJobStatus.FAILED), error.capture(), any());
+        assertEquals(1000, error.getValue().length());
+    }
+
+    private IngestionJobEntity job(UUID jobId, int attempts) {
+        return IngestionJobEntity.builder()
+                .jobId(jobId)
+                .fileId(UUID.randomUUID())
+                .status(IngestionJobStatus.RUNNING)
+                .attempts(attempts)
+                .build();
+    }
+}
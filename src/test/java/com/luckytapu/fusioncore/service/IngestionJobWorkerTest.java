@@ -0,0 +1,126 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.IngestionJobEntity;
+import com.luckytapu.fusioncore.model.DocumentProcessingResult;
+import com.luckytapu.fusioncore.model.IngestionJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionJobWorkerTest {
+
+    @Mock
+    private IngestionJobService jobService;
+
+    @Mock
+    private FileService fileService;
+
+    private IngestionJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new IngestionJobWorker(jobService, fileService, true, 2, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void run_SuccessReportsProgressAndCompletes() {
+        // Given
+        IngestionJobEntity job = job();
+        when(jobService.reportProgress(any(), anyString(), anyInt())).thenReturn(true);
+        when(fileService.processStoredDocument(eq(job.getFileId()), eq(true), any())).thenAnswer(invocation -> {
+            IntConsumer progress = invocation.getArgument(2);
+            progress.accept(40);
+            return DocumentProcessingResult.builder().processingStatus("SUCCESS").build();
+        });
+
+        // When
+        worker.run(job);
+
+        // Then
+        verify(jobService).reportProgress(job.getJobId(), worker.workerId(), 40);
+        verify(jobService).succeed(job.getJobId(), worker.workerId());
+    }
+
+    @Test
+    void run_FailedResultFailsJob() {
+        // Given
+        IngestionJobEntity job = job();
+        when(fileService.processStoredDocument(any(), anyBoolean(), any()))
+                .thenReturn(DocumentProcessingResult.builder().processingStatus("FAILED: unreadable").build());
+
+        // When
+        worker.run(job);
+
+        // Then
+        verify(jobService).fail(job.getJobId(), worker.workerId(), "FAILED: unreadable");
+        verify(jobService, never()).retryOrFail(any(), anyString(), anyString());
+    }
+
+    @Test
+    void run_UnexpectedErrorIsRetried() {
+        // Given
+        IngestionJobEntity job = job();
+        when(fileService.processStoredDocument(any(), anyBoolean(), any())).thenThrow(new IllegalStateException("connection reset"));
+
+        // When
+        worker.run(job);
+
+        // Then
+        verify(jobService).retryOrFail(job, worker.workerId(), "connection reset");
+    }
+
+    @Test
+    void poll_ClaimsOnlyIdleThreads() {
+        // Given
+        when(jobService.claim(anyString(), anyInt())).thenReturn(List.of());
+
+        // When
+        worker.poll();
+
+        // Then
+        verify(jobService).claim(worker.workerId(), 2);
+    }
+
+    @Test
+    void poll_DisabledWorkerNeverClaims() {
+        // Given
+        IngestionJobWorker submitOnly = new IngestionJobWorker(jobService, fileService, false, 2, false);
+
+        // When
+        submitOnly.poll();
+        submitOnly.shutdown();
+
+        // Then
+        verifyNoInteractions(jobService);
+    }
+
+    private IngestionJobEntity job() {
+        return IngestionJobEntity.builder()
+                .jobId(UUID.randomUUID())
+                .fileId(UUID.randomUUID())
+                .generateEmbeddings(true)
+                .status(IngestionJobStatus.RUNNING)
+                .attempts(1)
+                .build();
+    }
+}
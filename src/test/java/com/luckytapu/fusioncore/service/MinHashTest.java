@@ -0,0 +1,100 @@
+package com.luckytapu.fusioncore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashTest {
+
+    private final Random random = new Random(11);
+
+    @Test
+    void similarity_EstimatesJaccardOfShingleSets() {
+        // Given
+        List<String> original = randomChunks(20, 60);
+        List<String> revised = new ArrayList<>(original);
+        revised.set(7, String.join(" ", randomWords(60)));
+
+        // When
+        long[] a = MinHash.signature(MinHash.shingles(original), 128);
+        long[] b = MinHash.signature(MinHash.shingles(revised), 128);
+
+        // Then
+        double jaccard = jaccard(MinHash.shingles(original), MinHash.shingles(revised));
+        assertEquals(jaccard, MinHash.similarity(a, b), 0.12);
+        assertTrue(MinHash.similarity(a, b) > 0.8);
+        assertEquals(1.0, MinHash.similarity(a, MinHash.signature(MinHash.shingles(original), 128)));
+    }
+
+    @Test
+    void similarity_UnrelatedDocumentsScoreLow() {
+        // Given
+        long[] a = MinHash.signature(MinHash.shingles(randomChunks(10, 60)), 128);
+        long[] b = MinHash.signature(MinHash.shingles(randomChunks(10, 60)), 128);
+
+        // When & Then
+        assertTrue(MinHash.similarity(a, b) < 0.1);
+    }
+
+    @Test
+    void shingles_IgnoreCaseAndPunctuation() {
+        // When & Then
+        assertEquals(MinHash.shingles(List.of("The quick brown fox jumps over")),
+                MinHash.shingles(List.of("the QUICK, brown fox -- jumps over.")));
+        assertEquals(1, MinHash.shingles(List.of("too short")).size());
+        assertTrue(MinHash.shingles(List.of("  ", "...")).isEmpty());
+    }
+
+    @Test
+    void bandBuckets_ShareABandOnlyWhenItsRowsMatch() {
+        // Given
+        long[] signature = MinHash.signature(MinHash.shingles(randomChunks(5, 60)), 32);
+        long[] changed = signature.clone();
+        changed[5]++;
+
+        // When
+        long[] buckets = MinHash.bandBuckets(signature, 4, 8);
+        long[] changedBuckets = MinHash.bandBuckets(changed, 4, 8);
+
+        // Then
+        assertNotEquals(buckets[0], changedBuckets[0]);
+        assertEquals(buckets[1], changedBuckets[1]);
+        assertEquals(buckets[3], changedBuckets[3]);
+        assertNotEquals(buckets[1], buckets[2]);
+    }
+
+    @Test
+    void toBytes_RoundTrips() {
+        // Given
+        long[] signature = {Long.MIN_VALUE, -1L, 0L, 42L, Long.MAX_VALUE};
+
+        // When & Then
+        assertArrayEquals(signature, MinHash.toLongs(MinHash.toBytes(signature)));
+    }
+
+    private List<String> randomChunks(int chunks, int words) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            texts.add(String.join(" ", randomWords(words)));
+        }
+        return texts;
+    }
+
+    private List<String> randomWords(int count) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            words.add("w" + random.nextInt(5000));
+        }
+        return words;
+    }
+
+    private double jaccard(Set<Long> a, Set<Long> b) {
+        long shared = a.stream().filter(b::contains).count();
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+}
@@ -0,0 +1,128 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.entity.FileSignatureEntity;
+import com.luckytapu.fusioncore.model.NearDuplicateReport;
+import com.luckytapu.fusioncore.repository.FileSignatureRepository;
+import com.luckytapu.fusioncore.repository.SignatureCandidateView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NearDuplicateServiceTest {
+
+    @Mock
+    private FileSignatureRepository fileSignatureRepository;
+
+    private NearDuplicateService nearDuplicateService;
+
+    @BeforeEach
+    void setUp() {
+        nearDuplicateService = new NearDuplicateService(fileSignatureRepository, true, 0.8, 16, 8);
+    }
+
+    @Test
+    void check_ReusesClosestCandidateAboveThreshold() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        UUID revisedFrom = UUID.randomUUID();
+        UUID unrelated = UUID.randomUUID();
+        List<String> chunks = chunks("section", 20);
+        List<String> previous = new ArrayList<>(chunks);
+        previous.set(3, "a paragraph that was rewritten in the new revision of this document");
+        stubCandidates(fileId, signature(revisedFrom, previous), signature(unrelated, chunks("other", 20)));
+
+        // When
+        Optional<NearDuplicateReport> report = nearDuplicateService.check(fileId, chunks);
+
+        // Then
+        assertTrue(report.isPresent());
+        assertEquals(0.8, report.get().getThreshold());
+        assertEquals(revisedFrom, report.get().getMatchedFileId());
+        assertTrue(report.get().getSimilarity() >= 0.8);
+        assertTrue(report.get().isEmbeddingsReused());
+        ArgumentCaptor<FileSignatureEntity> saved = ArgumentCaptor.forClass(FileSignatureEntity.class);
+        verify(fileSignatureRepository).save(saved.capture());
+        assertEquals(fileId, saved.getValue().getFileId());
+        assertEquals(128, MinHash.toLongs(saved.getValue().getSignature()).length);
+        assertEquals(16, saved.getValue().getBandBuckets().size());
+    }
+
+    @Test
+    void check_BelowThresholdReportsMatchWithoutReuse() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        UUID candidate = UUID.randomUUID();
+        stubCandidates(fileId, signature(candidate, chunks("other", 20)));
+
+        // When
+        Optional<NearDuplicateReport> report = nearDuplicateService.check(fileId, chunks("section", 20));
+
+        // Then
+        assertTrue(report.isPresent());
+        assertEquals(candidate, report.get().getMatchedFileId());
+        assertTrue(report.get().getSimilarity() < 0.8);
+        assertFalse(report.get().isEmbeddingsReused());
+        verify(fileSignatureRepository).save(any(FileSignatureEntity.class));
+    }
+
+    @Test
+    void check_DisabledOrWordlessSkipsTheIndex() {
+        // Given
+        NearDuplicateService disabled = new NearDuplicateService(fileSignatureRepository, false, 0.8, 16, 8);
+
+        // When & Then
+        assertTrue(disabled.check(UUID.randomUUID(), chunks("section", 2)).isEmpty());
+        assertTrue(nearDuplicateService.check(UUID.randomUUID(), List.of(" ", "--")).isEmpty());
+        verifyNoInteractions(fileSignatureRepository);
+    }
+
+    @Test
+    void check_IndexFailureIsNotFatal() {
+        // Given
+        when(fileSignatureRepository.findCandidates(any(), anyCollection(), any())).thenThrow(new RuntimeException("db down"));
+
+        // When & Then
+        assertTrue(nearDuplicateService.check(UUID.randomUUID(), chunks("section", 2)).isEmpty());
+    }
+
+    private void stubCandidates(UUID fileId, FileSignatureEntity... candidates) {
+        List<SignatureCandidateView> views = new ArrayList<>();
+        for (FileSignatureEntity candidate : candidates) {
+            SignatureCandidateView view = mock(SignatureCandidateView.class);
+            when(view.getFileId()).thenReturn(candidate.getFileId());
+            views.add(view);
+        }
+        when(fileSignatureRepository.findCandidates(eq(fileId), anyCollection(), any())).thenReturn(views);
+        when(fileSignatureRepository.findAllById(views.stream().map(SignatureCandidateView::getFileId).toList()))
+                .thenReturn(List.of(candidates));
+    }
+
+    private static FileSignatureEntity signature(UUID fileId, List<String> chunks) {
+        return FileSignatureEntity.builder()
+                .fileId(fileId)
+                .signature(MinHash.toBytes(MinHash.signature(MinHash.shingles(chunks), 128)))
+                .build();
+    }
+
+    private static List<String> chunks(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> String.join(" ", IntStream.range(0, 20).mapToObj(j -> prefix + i + "w" + j).toList()))
+                .toList();
+    }
+}
@@ -0,0 +1,190 @@
+package com.luckytapu.fusioncore.service;
+
+import com.luckytapu.fusioncore.model.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private static final List<SearchResult> RESULTS = List.of(SearchResult.builder().chunkText("chunk").build());
+
+    @Test
+    void normalize_CollapsesCaseAndWhitespace() {
+        assertEquals("hello world", SearchResultCache.normalize("  Hello \t\n WORLD "));
+    }
+
+    @Test
+    void get_SecondLookupHitsCache() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<List<SearchResult>> search = () -> {
+            calls.incrementAndGet();
+            return RESULTS;
+        };
+
+        // When
+        cache.get(cache.key("query", 5), search);
+        List<SearchResult> cached = cache.get(cache.key("query", 5), search);
+
+        // Then
+        assertEquals(RESULTS, cached);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void get_DifferentLimitIsSeparateEntry() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(10);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        cache.get(cache.key("query", 5), () -> { calls.incrementAndGet(); return RESULTS; });
+        cache.get(cache.key("query", 10), () -> { calls.incrementAndGet(); return RESULTS; });
+
+        // Then
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void onGenerationPublished_InvalidatesEntries() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<List<SearchResult>> search = () -> {
+            calls.incrementAndGet();
+            return RESULTS;
+        };
+        cache.get(cache.key("query", 5), search);
+
+        // When
+        cache.onGenerationPublished(new ChunkGenerationPublishedEvent(UUID.randomUUID(), 2, List.of(), List.of()));
+        cache.get(cache.key("query", 5), search);
+
+        // Then
+        assertEquals(1, cache.indexGeneration());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void onIndexedGenerationsChanged_InvalidatesEntries() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(10);
+        cache.get(cache.key("query", 5), () -> RESULTS);
+
+        // When
+        cache.onIndexedGenerationsChanged(new IndexedGenerationsChangedEvent(3));
+
+        // Then
+        assertEquals(1, cache.indexGeneration());
+        assertTrue(cache.getIfPresent(cache.key("query", 5)).isEmpty());
+    }
+
+    @Test
+    void get_EvictsLeastRecentlyUsed() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(2);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<List<SearchResult>> search = () -> {
+            calls.incrementAndGet();
+            return RESULTS;
+        };
+
+        // When
+        cache.get(cache.key("a", 5), search);
+        cache.get(cache.key("b", 5), search);
+        cache.get(cache.key("a", 5), search);
+        cache.get(cache.key("c", 5), search);
+        cache.get(cache.key("a", 5), search);
+        cache.get(cache.key("b", 5), search);
+
+        // Then
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void getIfPresent_OnlyReturnsCompletedResults() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(10);
+
+        // When
+        assertTrue(cache.getIfPresent(cache.key("query", 5)).isEmpty());
+        cache.get(cache.key("query", 5), () -> RESULTS);
+
+        // Then
+        assertEquals(RESULTS, cache.getIfPresent(cache.key("query", 5)).orElseThrow());
+    }
+
+    @Test
+    void get_DisabledCacheAlwaysSearches() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(0);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        cache.get(cache.key("query", 5), () -> { calls.incrementAndGet(); return RESULTS; });
+        cache.get(cache.key("query", 5), () -> { calls.incrementAndGet(); return RESULTS; });
+
+        // Then
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void get_FailureIsRethrownAndNotCached() {
+        // Given
+        SearchResultCache cache = new SearchResultCache(10);
+
+        // When / Then
+        assertThrows(IllegalStateException.class,
+                () -> cache.get(cache.key("query", 5), () -> { throw new IllegalStateException("boom"); }));
+        assertEquals(RESULTS, cache.get(cache.key("query", 5), () -> RESULTS));
+    }
+
+    @Test
+    void get_ConcurrentIdenticalQueriesShareOneSearch() throws Exception {
+        // Given
+        SearchResultCache cache = new SearchResultCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<SearchResult>> slowSearch = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RESULTS;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // When
+            Future<List<SearchResult>> first = executor.submit(() -> cache.get(cache.key("query", 5), slowSearch));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<List<SearchResult>> second = executor.submit(() -> cache.get(cache.key("query", 5), slowSearch));
+            Future<List<SearchResult>> third = executor.submit(() -> cache.get(cache.key("query", 5), slowSearch));
+            release.countDown();
+
+            // Then
+            assertEquals(RESULTS, first.get(5, TimeUnit.SECONDS));
+            assertEquals(RESULTS, second.get(5, TimeUnit.SECONDS));
+            assertEquals(RESULTS, third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
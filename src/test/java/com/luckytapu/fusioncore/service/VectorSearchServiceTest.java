@@ -1,10 +1,17 @@
 package com.luckytapu.fusioncore.service;
 
 import com.luckytapu.fusioncore.entity.ChunkEntity;
-import com.luckytapu.fusioncore.entity.FileEntity;
+import com.luckytapu.fusioncore.model.ChunkSummary;
+import com.luckytapu.fusioncore.model.SearchFilter;
 import com.luckytapu.fusioncore.model.SearchResult;
+import com.luckytapu.fusioncore.repository.ChunkEmbeddingRepository;
 import com.luckytapu.fusioncore.repository.ChunkRepository;
+import com.luckytapu.fusioncore.repository.EmbeddingView;
+import com.luckytapu.fusioncore.repository.FileRepository;
+import com.luckytapu.fusioncore.repository.LexicalMatchView;
+import com.luckytapu.fusioncore.repository.SourceChunkView;
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,10 +19,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -28,6 +40,15 @@ class VectorSearchServiceTest {
     @Mock
     private ChunkRepository chunkRepository;
     
+    @Mock
+    private ChunkEmbeddingRepository chunkEmbeddingRepository;
+    
+    @Mock
+    private FileRepository fileRepository;
+    
+    @Mock
+    private VectorSearchBackend searchBackend;
+    
     @Mock
     private EmbeddingModel embeddingModel;
 
@@ -35,7 +56,9 @@ class VectorSearchServiceTest {
 
     @BeforeEach
     void setUp() {
-        vectorSearchService = new VectorSearchService(chunkRepository, embeddingModel);
+        vectorSearchService = new VectorSearchService(chunkRepository, chunkEmbeddingRepository, fileRepository, searchBackend, embeddingModel, new SearchResultCache(100), 2, false);
+        ReflectionTestUtils.setField(vectorSearchService, "maxResults", 50);
+        ReflectionTestUtils.setField(vectorSearchService, "similarityThreshold", 0.7);
     }
 
     @Test
@@ -45,47 +68,375 @@ class VectorSearchServiceTest {
         int limit = 5;
         UUID fileId = UUID.randomUUID();
         
-        FileEntity fileEntity = FileEntity.builder()
+        float[] vector = {0.1f, 0.2f};
+        SearchResult hit = SearchResult.builder()
                 .fileId(fileId)
                 .fileName("test.txt")
-                .build();
-        
-        ChunkEntity chunkEntity = ChunkEntity.builder()
-                .chunkId(UUID.randomUUID())
-                .fileId(fileId)
-                .text("test chunk content")
+                .chunkText("test chunk content")
+                .similarityScore(0.85)
                 .chunkIndex(0)
-                .file(fileEntity)
                 .build();
         
-        Object[] searchResult = new Object[]{chunkEntity, new BigDecimal("0.85")};
-        java.util.List<Object[]> mockResults = new java.util.ArrayList<>();
-        mockResults.add(searchResult);
-        
-        when(embeddingModel.embed(query)).thenReturn(Response.from(Embedding.from(new float[]{0.1f, 0.2f})));
-        when(chunkRepository.findSimilarChunks(any(byte[].class), eq(limit))).thenReturn(mockResults);
+        when(embeddingModel.embed(query)).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.search(vector, limit, 0.7)).thenReturn(List.of(hit));
 
         // When
         List<SearchResult> results = vectorSearchService.searchSimilarChunks(query, limit);
 
         // Then
         assertNotNull(results);
-        assertEquals(1, results.size());
-        SearchResult result = results.get(0);
-        assertEquals(fileId, result.getFileId());
-        assertEquals("test.txt", result.getFileName());
-        assertEquals("test chunk content", result.getChunkText());
-        assertEquals(0.85, result.getSimilarityScore());
-        assertEquals(0, result.getChunkIndex());
-        
+        assertEquals(List.of(hit), results);
         verify(embeddingModel).embed(query);
-        verify(chunkRepository).findSimilarChunks(any(byte[].class), eq(limit));
+    }
+
+    @Test
+    void searchSimilarChunks_LimitCappedAtMaxResults() {
+        // Given
+        float[] vector = {0.1f, 0.2f};
+        when(embeddingModel.embed("query")).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.search(vector, 50, 0.7)).thenReturn(List.of());
+
+        // When
+        vectorSearchService.searchSimilarChunks("query", 10_000);
+
+        // Then
+        verify(searchBackend).search(vector, 50, 0.7);
+    }
+
+    @Test
+    void searchSimilarChunks_RequestThresholdOverridesConfigured() {
+        // Given
+        float[] vector = {0.1f, 0.2f};
+        when(embeddingModel.embed("query")).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.search(vector, 5, 0.9)).thenReturn(List.of());
+
+        // When
+        vectorSearchService.searchSimilarChunks("query", 5, SearchFilter.none(), 0.9);
+
+        // Then
+        verify(searchBackend).search(vector, 5, 0.9);
+    }
+
+    @Test
+    void searchSimilarChunks_NonPositiveLimitSkipsSearch() {
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("query", 0);
+
+        // Then
+        assertTrue(results.isEmpty());
+        verifyNoInteractions(embeddingModel, searchBackend);
+    }
+
+    @Test
+    void searchBatch_EmbedsMissesInOneRequestAndKeepsQueryOrder() {
+        // Given
+        float[] alpha = {1f, 0f};
+        float[] beta = {0f, 1f};
+        SearchResult alphaHit = SearchResult.builder().chunkText("alpha").build();
+        SearchResult betaHit = SearchResult.builder().chunkText("beta").build();
+        when(embeddingModel.embedAll(List.of(TextSegment.from("alpha"), TextSegment.from("Beta"))))
+                .thenReturn(Response.from(List.of(Embedding.from(alpha), Embedding.from(beta))));
+        when(searchBackend.search(alpha, 5, 0.7)).thenReturn(List.of(alphaHit));
+        when(searchBackend.search(beta, 5, 0.7)).thenReturn(List.of(betaHit));
+
+        // When
+        List<List<SearchResult>> results = vectorSearchService.searchBatch(
+                List.of("alpha", "Beta", "ALPHA"), 5, SearchFilter.none(), null);
+
+        // Then
+        assertEquals(List.of(List.of(alphaHit), List.of(betaHit), List.of(alphaHit)), results);
+        verify(embeddingModel, never()).embed(anyString());
+    }
+
+    @Test
+    void searchBatch_CachedQueriesAreNotEmbeddedAgain() {
+        // Given
+        float[] vector = {1f, 0f};
+        SearchResult hit = SearchResult.builder().chunkText("alpha").build();
+        when(embeddingModel.embed("alpha")).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.search(vector, 5, 0.7)).thenReturn(List.of(hit));
+        vectorSearchService.searchSimilarChunks("alpha", 5);
+
+        // When
+        List<List<SearchResult>> results = vectorSearchService.searchBatch(List.of("alpha"), 5, SearchFilter.none(), null);
+
+        // Then
+        assertEquals(List.of(List.of(hit)), results);
+        verify(embeddingModel, never()).embedAll(any());
+    }
+
+    @Test
+    void searchBatch_FailedEmbeddingYieldsEmptyResultForThatQuery() {
+        // Given
+        float[] alpha = {1f, 0f};
+        SearchResult hit = SearchResult.builder().chunkText("alpha").build();
+        when(embeddingModel.embedAll(any()))
+                .thenReturn(Response.from(List.of(Embedding.from(alpha), Embedding.from(new float[0]))));
+        when(searchBackend.search(alpha, 5, 0.7)).thenReturn(List.of(hit));
+
+        // When
+        List<List<SearchResult>> results = vectorSearchService.searchBatch(List.of("alpha", "beta"), 5, SearchFilter.none(), null);
+
+        // Then
+        assertEquals(List.of(List.of(hit), List.of()), results);
+    }
+
+    @Test
+    void searchSimilarChunks_RepeatedQueryServedFromCache() {
+        // Given
+        float[] vector = {0.1f, 0.2f};
+        SearchResult hit = SearchResult.builder().chunkText("chunk").build();
+        when(embeddingModel.embed("test query")).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.search(vector, 5, 0.7)).thenReturn(List.of(hit));
+
+        // When
+        vectorSearchService.searchSimilarChunks("test query", 5);
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("  Test   QUERY ", 5);
+
+        // Then
+        assertEquals(List.of(hit), results);
+        verify(embeddingModel, times(1)).embed("test query");
+        verify(searchBackend, times(1)).search(vector, 5, 0.7);
+    }
+
+    @Test
+    void searchSimilarChunks_FailureIsNotCached() {
+        // Given
+        float[] vector = {0.1f, 0.2f};
+        when(embeddingModel.embed("test"))
+                .thenThrow(new RuntimeException("Embedding failed"))
+                .thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.search(vector, 5, 0.7)).thenReturn(List.of(SearchResult.builder().build()));
+
+        // When
+        List<SearchResult> failed = vectorSearchService.searchSimilarChunks("test", 5);
+        List<SearchResult> retried = vectorSearchService.searchSimilarChunks("test", 5);
+
+        // Then
+        assertTrue(failed.isEmpty());
+        assertEquals(1, retried.size());
+    }
+
+    @Test
+    void searchSimilarChunks_HierarchicalScoresOnlyNearestDocuments() {
+        // Given
+        ReflectionTestUtils.setField(vectorSearchService, "hierarchicalSearch", true);
+        ReflectionTestUtils.setField(vectorSearchService, "candidateDocuments", 3);
+        float[] vector = {0.1f, 0.2f};
+        List<UUID> nearestFiles = List.of(UUID.randomUUID(), UUID.randomUUID());
+        SearchResult hit = SearchResult.builder().fileId(nearestFiles.get(0)).chunkText("chunk").build();
+        when(embeddingModel.embed("query")).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.nearestDocuments(vector, 3)).thenReturn(nearestFiles);
+        when(searchBackend.searchWithinFiles(vector, nearestFiles, 5, 0.7)).thenReturn(List.of(hit));
+
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("query", 5);
+
+        // Then
+        assertEquals(List.of(hit), results);
+        verify(searchBackend, never()).search(any(), anyInt(), anyDouble());
+    }
+
+    @Test
+    void searchSimilarChunks_HierarchicalWithoutDocumentVectors() {
+        // Given
+        ReflectionTestUtils.setField(vectorSearchService, "hierarchicalSearch", true);
+        ReflectionTestUtils.setField(vectorSearchService, "candidateDocuments", 3);
+        when(embeddingModel.embed("query")).thenReturn(Response.from(Embedding.from(new float[]{0.1f})));
+        when(searchBackend.nearestDocuments(any(), eq(3))).thenReturn(List.of());
+
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("query", 5);
+
+        // Then
+        assertTrue(results.isEmpty());
+        verify(searchBackend, never()).searchWithinFiles(any(), any(), anyInt(), anyDouble());
+    }
+
+    @Test
+    void searchSimilarChunks_FilterScoresOnlyMatchingFiles() {
+        // Given
+        float[] vector = {0.1f, 0.2f};
+        List<UUID> matchingFiles = List.of(UUID.randomUUID());
+        SearchFilter filter = SearchFilter.builder().strategy("sentence splitter").fileType("text/plain").build();
+        SearchResult hit = SearchResult.builder().fileId(matchingFiles.get(0)).chunkText("chunk").build();
+        when(embeddingModel.embed("query")).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.searchMatching(vector, filter, 5, 0.7)).thenReturn(List.of(hit));
+
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("query", 5, filter);
+
+        // Then
+        assertEquals(List.of(hit), results);
+        verify(searchBackend, never()).search(any(), anyInt(), anyDouble());
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void searchSimilarChunks_FileIdFilterSkipsCandidateQuery() {
+        // Given
+        float[] vector = {0.1f, 0.2f};
+        SearchFilter filter = SearchFilter.builder().fileIds(Set.of(UUID.randomUUID())).build();
+        when(embeddingModel.embed("query")).thenReturn(Response.from(Embedding.from(vector)));
+        when(searchBackend.searchMatching(vector, filter, 5, 0.7)).thenReturn(List.of());
+
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("query", 5, filter);
+
+        // Then
+        assertTrue(results.isEmpty());
+        verify(searchBackend).searchMatching(vector, filter, 5, 0.7);
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void searchSimilarChunks_HybridFusesLexicalAndVectorRankings() {
+        // Given
+        ReflectionTestUtils.setField(vectorSearchService, "hybridSearch", true);
+        ReflectionTestUtils.setField(vectorSearchService, "lexicalCandidates", 100);
+        ReflectionTestUtils.setField(vectorSearchService, "rrfK", 60);
+        float[] vector = {1f, 0f};
+        UUID fileId = UUID.randomUUID();
+        LexicalMatchView reference = lexicalMatch(fileId, 9, "error E1234 reference");
+        LexicalMatchView overheating = lexicalMatch(fileId, 3, "E1234 overheating");
+        LexicalMatchView unrelated = lexicalMatch(fileId, 12, "E1234 in a parts list");
+        when(embeddingModel.embed("error E1234")).thenReturn(Response.from(Embedding.from(vector)));
+        when(chunkRepository.findLexicalMatches("error E1234", new UUID[0], null, null, null, null, null, 100))
+                .thenReturn(List.of(reference, overheating, unrelated));
+        when(chunkEmbeddingRepository.findEmbeddings(List.of(reference.getChunkId(), overheating.getChunkId(), unrelated.getChunkId())))
+                .thenReturn(List.of(
+                        embedding(reference, new float[]{0.8f, 0.6f}),
+                        embedding(overheating, new float[]{1f, 0f}),
+                        embedding(unrelated, new float[]{0f, 1f})));
+
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("error E1234", 5);
+
+        // Then - ranked second by text but first by vector, and the chunk below the threshold is left out
+        assertEquals(List.of(3, 9), results.stream().map(SearchResult::getChunkIndex).toList());
+        assertEquals(1.0, results.get(0).getSimilarityScore(), 1e-6);
+        assertEquals(0.8, results.get(1).getSimilarityScore(), 1e-6);
+        verify(searchBackend, never()).search(any(), anyInt(), anyDouble());
+        verify(searchBackend, never()).searchWithinFiles(any(), any(), anyInt(), anyDouble());
+    }
+
+    @Test
+    void searchSimilarChunks_HybridFallsBackToVectorWhenNoMatchReachesTheThreshold() {
+        // Given
+        ReflectionTestUtils.setField(vectorSearchService, "hybridSearch", true);
+        ReflectionTestUtils.setField(vectorSearchService, "lexicalCandidates", 100);
+        float[] vector = {1f, 0f};
+        UUID fileId = UUID.randomUUID();
+        LexicalMatchView unrelated = lexicalMatch(fileId, 12, "E1234 in a parts list");
+        LexicalMatchView unembedded = lexicalMatch(fileId, 13, "E1234 still pending");
+        when(embeddingModel.embed("E1234")).thenReturn(Response.from(Embedding.from(vector)));
+        when(chunkRepository.findLexicalMatches("E1234", new UUID[0], null, null, null, null, null, 100))
+                .thenReturn(List.of(unrelated, unembedded));
+        when(chunkEmbeddingRepository.findEmbeddings(any())).thenReturn(List.of(embedding(unrelated, new float[]{0f, 1f})));
+        SearchResult hit = SearchResult.builder().fileId(UUID.randomUUID()).chunkIndex(0).similarityScore(0.75).build();
+        when(searchBackend.search(vector, 5, 0.7)).thenReturn(List.of(hit));
+
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("E1234", 5);
+
+        // Then
+        assertEquals(List.of(hit), results);
+    }
+
+    @Test
+    void searchSimilarChunks_HybridWithoutLexicalMatchesFallsBackToVector() {
+        // Given
+        ReflectionTestUtils.setField(vectorSearchService, "hybridSearch", true);
+        ReflectionTestUtils.setField(vectorSearchService, "lexicalCandidates", 100);
+        float[] vector = {0.1f, 0.2f};
+        when(embeddingModel.embed("semantic question")).thenReturn(Response.from(Embedding.from(vector)));
+        when(chunkRepository.findLexicalMatches("semantic question", new UUID[0], null, null, null, null, null, 100)).thenReturn(List.of());
+        when(searchBackend.search(vector, 5, 0.7)).thenReturn(List.of());
+
+        // When
+        vectorSearchService.searchSimilarChunks("semantic question", 5);
+
+        // Then
+        verify(searchBackend).search(vector, 5, 0.7);
+    }
+
+    @Test
+    void searchSimilarChunks_HybridFiltersLexicalMatchesInQuery() {
+        // Given
+        ReflectionTestUtils.setField(vectorSearchService, "hybridSearch", true);
+        ReflectionTestUtils.setField(vectorSearchService, "lexicalCandidates", 100);
+        float[] vector = {0.1f, 0.2f};
+        UUID wantedFile = UUID.randomUUID();
+        when(embeddingModel.embed("e1234")).thenReturn(Response.from(Embedding.from(vector)));
+        when(chunkRepository.findLexicalMatches("e1234", new UUID[]{wantedFile}, null, null, null, null, null, 100)).thenReturn(List.of());
+        SearchFilter filter = SearchFilter.builder().fileIds(Set.of(wantedFile)).build();
+        when(searchBackend.searchMatching(vector, filter, 5, 0.7)).thenReturn(List.of());
+
+        // When
+        List<SearchResult> results = vectorSearchService.searchSimilarChunks("e1234", 5, filter);
+
+        // Then - no lexical match within the filter, so the plain filtered vector search runs
+        assertTrue(results.isEmpty());
+        verify(searchBackend).searchMatching(vector, filter, 5, 0.7);
+    }
+
+    @Test
+    void searchSimilarToChunk_ReusesStoredEmbeddingAndSkipsNeighbours() {
+        // Given
+        UUID chunkId = UUID.randomUUID();
+        UUID fileId = UUID.randomUUID();
+        float[] vector = {0.3f, 0.4f};
+        SearchResult self = SearchResult.builder().fileId(fileId).chunkIndex(5).build();
+        SearchResult neighbour = SearchResult.builder().fileId(fileId).chunkIndex(6).build();
+        SearchResult sameFileFar = SearchResult.builder().fileId(fileId).chunkIndex(20).build();
+        SearchResult otherFile = SearchResult.builder().fileId(UUID.randomUUID()).chunkIndex(5).build();
+        when(chunkEmbeddingRepository.findActiveSourceChunk(chunkId))
+                .thenReturn(Optional.of(sourceChunk(chunkId, fileId, 5, EmbeddingCodec.toBytes(vector))));
+        when(searchBackend.search(vector, 2 + 3, 0.7)).thenReturn(List.of(self, neighbour, otherFile, sameFileFar));
+
+        // When
+        Optional<List<SearchResult>> results = vectorSearchService.searchSimilarToChunk(chunkId, 2, false, 1, null);
+
+        // Then
+        assertEquals(Optional.of(List.of(otherFile, sameFileFar)), results);
+        verifyNoInteractions(embeddingModel);
+    }
+
+    @Test
+    void searchSimilarToChunk_ExcludeSourceFileFiltersInTheBackend() {
+        // Given
+        UUID chunkId = UUID.randomUUID();
+        UUID fileId = UUID.randomUUID();
+        float[] vector = {0.3f, 0.4f};
+        SearchResult otherFile = SearchResult.builder().fileId(UUID.randomUUID()).chunkIndex(0).build();
+        SearchFilter filter = SearchFilter.builder().excludedFileId(fileId).build();
+        when(chunkEmbeddingRepository.findActiveSourceChunk(chunkId))
+                .thenReturn(Optional.of(sourceChunk(chunkId, fileId, 5, EmbeddingCodec.toBytes(vector))));
+        when(searchBackend.searchMatching(vector, filter, 10, 0.5)).thenReturn(List.of(otherFile));
+
+        // When
+        Optional<List<SearchResult>> results = vectorSearchService.searchSimilarToChunk(chunkId, 10, true, 0, 0.5);
+
+        // Then
+        assertEquals(Optional.of(List.of(otherFile)), results);
+        verify(searchBackend, never()).search(any(), anyInt(), anyDouble());
+    }
+
+    @Test
+    void searchSimilarToChunk_UnknownChunk() {
+        // Given
+        UUID chunkId = UUID.randomUUID();
+        when(chunkEmbeddingRepository.findActiveSourceChunk(chunkId)).thenReturn(Optional.empty());
+
+        // When / Then
+        assertTrue(vectorSearchService.searchSimilarToChunk(chunkId, 10, false, 0, null).isEmpty());
+        verifyNoInteractions(searchBackend);
     }
 
     @Test
     void searchSimilarChunks_NoEmbeddingModel() {
         // Given
-        VectorSearchService serviceWithoutModel = new VectorSearchService(chunkRepository, null);
+        VectorSearchService serviceWithoutModel = new VectorSearchService(chunkRepository, chunkEmbeddingRepository, fileRepository, searchBackend, null, new SearchResultCache(100), 2, false);
 
         // When
         List<SearchResult> results = serviceWithoutModel.searchSimilarChunks("test", 5);
@@ -93,7 +444,7 @@ class VectorSearchServiceTest {
         // Then
         assertNotNull(results);
         assertTrue(results.isEmpty());
-        verify(chunkRepository, never()).findSimilarChunks(any(), anyInt());
+        verify(searchBackend, never()).search(any(), anyInt(), anyDouble());
     }
 
     @Test
@@ -107,7 +458,7 @@ class VectorSearchServiceTest {
         // Then
         assertNotNull(results);
         assertTrue(results.isEmpty());
-        verify(chunkRepository, never()).findSimilarChunks(any(), anyInt());
+        verify(searchBackend, never()).search(any(), anyInt(), anyDouble());
     }
 
     @Test
@@ -150,4 +501,66 @@ class VectorSearchServiceTest {
         verify(chunkRepository).findByFileIdOrderByChunkIndex(fileId);
         verify(chunkRepository, never()).findByFileIdAndStrategy(any(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getDocumentChunkPage_UsesKeysetLimit() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        List<ChunkSummary> page = List.of(ChunkSummary.builder().fileId(fileId).chunkIndex(5).build());
+        when(chunkRepository.findChunkPage(fileId, "character", 4, Limit.of(10))).thenReturn(page);
+
+        // When
+        List<ChunkSummary> results = vectorSearchService.getDocumentChunkPage(fileId, "character", 4, 10);
+
+        // Then
+        assertEquals(page, results);
+    }
+
+    @Test
+    void streamDocumentChunks_PassesEveryChunkToConsumer() {
+        // Given
+        UUID fileId = UUID.randomUUID();
+        when(chunkRepository.streamChunks(fileId, null)).thenReturn(Stream.of(
+                ChunkSummary.builder().chunkIndex(0).build(),
+                ChunkSummary.builder().chunkIndex(1).build()
+        ));
+        List<ChunkSummary> received = new ArrayList<>();
+
+        // When
+        vectorSearchService.streamDocumentChunks(fileId, null, received::add);
+
+        // Then
+        assertEquals(2, received.size());
+        assertEquals(1, received.get(1).getChunkIndex());
+    }
+
+    private LexicalMatchView lexicalMatch(UUID fileId, int chunkIndex, String text) {
+        UUID chunkId = UUID.randomUUID();
+        return new LexicalMatchView() {
+            public UUID getChunkId() { return chunkId; }
+            public UUID getFileId() { return fileId; }
+            public String getFileName() { return "doc.txt"; }
+            public String getText() { return text; }
+            public Integer getChunkIndex() { return chunkIndex; }
+            public Double getRank() { return 0.5; }
+        };
+    }
+
+    private EmbeddingView embedding(LexicalMatchView match, float[] vector) {
+        return new EmbeddingView() {
+            public UUID getChunkId() { return match.getChunkId(); }
+            public UUID getFileId() { return match.getFileId(); }
+            public Long getGeneration() { return 1L; }
+            public byte[] getEmbedding() { return EmbeddingCodec.toBytes(vector); }
+        };
+    }
+
+    private SourceChunkView sourceChunk(UUID chunkId, UUID fileId, int chunkIndex, byte[] embedding) {
+        return new SourceChunkView() {
+            public UUID getChunkId() { return chunkId; }
+            public UUID getFileId() { return fileId; }
+            public Integer getChunkIndex() { return chunkIndex; }
+            public byte[] getEmbedding() { return embedding; }
+        };
+    }
+}